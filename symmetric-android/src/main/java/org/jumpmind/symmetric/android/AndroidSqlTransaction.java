@@ -163,6 +163,9 @@ public class AndroidSqlTransaction implements ISqlTransaction {
             String catalogSeparator, String schemaSeparator) {
     }
 
+    public void setStatementCacheSize(int statementCacheSize) {
+    }
+
     public long insertWithGeneratedKey(String sql, String column, String sequenceName,
             Object[] args, int[] types) {
         return sqlTemplate.insertWithGeneratedKey(database, sql, column, sequenceName, args, null);
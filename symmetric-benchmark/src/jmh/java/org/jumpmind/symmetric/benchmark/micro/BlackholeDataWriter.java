@@ -0,0 +1,75 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.util.Statistics;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Terminates a writer chain by handing everything it is given to a
+ * {@link Blackhole}
+ */
+public class BlackholeDataWriter implements IDataWriter {
+
+    private Blackhole blackhole;
+
+    public BlackholeDataWriter(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    public void open(DataContext context) {
+    }
+
+    public void close() {
+    }
+
+    public Map<Batch, Statistics> getStatistics() {
+        return Collections.emptyMap();
+    }
+
+    public void start(Batch batch) {
+        blackhole.consume(batch);
+    }
+
+    public boolean start(Table table) {
+        blackhole.consume(table);
+        return true;
+    }
+
+    public void write(CsvData data) {
+        blackhole.consume(data.getParsedData(CsvData.ROW_DATA));
+    }
+
+    public void end(Table table) {
+    }
+
+    public void end(Batch batch, boolean inError) {
+    }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.BshColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn;
+import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.transform.TransformedData;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.util.LinkedCaseInsensitiveMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Rows per second for a bsh column transform over a batch of {@value #ROWS}
+ * rows, with the script interpreted by BeanShell and compiled into a class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BshTransformBenchmark {
+
+    static final int ROWS = 1000;
+
+    static final String SCRIPT = "if (COL2 == null) { return currentValue; } return COL1.trim() + \"-\" + COL2.toUpperCase();";
+
+    @Param({ "interpreted", "compiled" })
+    String mode;
+
+    IDatabasePlatform platform;
+
+    BshColumnTransform transform;
+
+    TransformColumn column;
+
+    List<TransformedData> rows;
+
+    @Setup
+    public void setup() {
+        final boolean compile = "compiled".equals(mode);
+        IParameterService parameterService = (IParameterService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { IParameterService.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (args != null && ParameterConstants.BSH_COMPILE_SCRIPTS.equals(args[0])) {
+                            return compile;
+                        } else if (method.getReturnType().equals(boolean.class)) {
+                            return args != null && args.length > 1 ? args[1] : false;
+                        }
+                        return null;
+                    }
+                });
+        platform = Fixtures.platform();
+        transform = new BshColumnTransform(parameterService);
+        column = new TransformColumn("col1", "col1", false, BshColumnTransform.NAME, SCRIPT);
+
+        Table table = Fixtures.table(Fixtures.NARROW);
+        TransformTable transformTable = new TransformTable(table.getName(), table.getName(), TransformPoint.LOAD, column);
+        rows = new ArrayList<TransformedData>(ROWS);
+        for (String[] values : Fixtures.rows(table, ROWS, BinaryEncoding.BASE64)) {
+            Map<String, String> sourceValues = new LinkedCaseInsensitiveMap<String>();
+            for (int i = 0; i < values.length; i++) {
+                sourceValues.put(table.getColumn(i).getName(), values[i]);
+            }
+            rows.add(new TransformedData(transformTable, DataEventType.INSERT, sourceValues, null, sourceValues));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void transform(Blackhole blackhole) throws Exception {
+        DataContext context = new DataContext(Fixtures.batch(BinaryEncoding.BASE64));
+        for (TransformedData data : rows) {
+            Map<String, String> sourceValues = data.getSourceValues();
+            blackhole.consume(transform.transform(platform, context, column, data, sourceValues,
+                    sourceValues.get("col1"), null));
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.StagingManager;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compressing and decompressing a staged batch of {@value #ROWS} inserts with
+ * each compression codec. The batch is written through a staging manager to a
+ * file and read back, so the bytes are the same as a staged batch that is sent
+ * to another node. The compression ratio of each codec is logged during
+ * setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionBenchmark.class);
+
+    static final int ROWS = 10000;
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    @Param({ "gzip", "pgzip", "lz4" })
+    String codecName;
+
+    ICompressionCodec codec;
+
+    byte[] staged;
+
+    byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = CompressionCodecFactory.getCodec(codecName);
+        Table table = Fixtures.table(shape);
+        String protocol = Fixtures.protocol(table, Fixtures.rows(table, ROWS, BinaryEncoding.BASE64),
+                BinaryEncoding.BASE64);
+
+        File directory = Files.createTempDirectory("compression-benchmark").toFile();
+        try {
+            StagingManager stagingManager = new StagingManager(directory.getAbsolutePath(), false);
+            IStagedResource resource = stagingManager.create("outgoing", "00001", "1");
+            BufferedWriter writer = resource.getWriter(0);
+            writer.write(protocol);
+            resource.close();
+            resource.setState(IStagedResource.State.DONE);
+            staged = FileUtils.readFileToByteArray(resource.getFile());
+            resource.delete();
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+
+        compressed = compress();
+        log.info("{} compressed the {} batch from {} to {} bytes, a ratio of {}", new Object[] { codecName, shape,
+                staged.length, compressed.length, String.format("%.2f", (double) staged.length / compressed.length) });
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(staged.length / 2);
+        OutputStream os = codec.compress(out, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, 0);
+        os.write(staged);
+        os.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        InputStream is = codec.decompress(new ByteArrayInputStream(compressed), 0);
+        byte[] uncompressed = IOUtils.toByteArray(is);
+        is.close();
+        return uncompressed;
+    }
+
+}
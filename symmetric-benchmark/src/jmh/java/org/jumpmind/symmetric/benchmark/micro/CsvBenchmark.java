@@ -0,0 +1,131 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.csv.CsvReader;
+import org.jumpmind.symmetric.csv.CsvWriter;
+import org.jumpmind.symmetric.io.data.CsvUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing and formatting of the CSV rows that carry row data in the protocol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+
+    static final int ROWS = 100;
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    @Param({ "BASE64", "HEX" })
+    BinaryEncoding encoding;
+
+    String[][] rows;
+
+    String[] lines;
+
+    String document;
+
+    @Setup
+    public void setup() throws IOException {
+        Table table = Fixtures.table(shape);
+        rows = new String[ROWS][];
+        lines = new String[ROWS];
+        StringWriter document = new StringWriter();
+        CsvWriter documentWriter = newCsvWriter(document);
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = Fixtures.row(table, i, encoding);
+            lines[i] = CsvUtils.escapeCsvData(rows[i]);
+            documentWriter.writeRecord(rows[i], true);
+        }
+        documentWriter.flush();
+        this.document = document.toString();
+    }
+
+    protected CsvWriter newCsvWriter(Writer writer) {
+        CsvWriter csvWriter = new CsvWriter(writer, ',');
+        csvWriter.setEscapeMode(CsvWriter.ESCAPE_MODE_BACKSLASH);
+        csvWriter.setTextQualifier('\"');
+        csvWriter.setUseTextQualifier(true);
+        csvWriter.setForceQualifier(true);
+        return csvWriter;
+    }
+
+    @Benchmark
+    public void tokenizeCsvData(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(CsvUtils.tokenizeCsvData(line));
+        }
+    }
+
+    @Benchmark
+    public void escapeCsvData(Blackhole blackhole) {
+        for (String[] row : rows) {
+            blackhole.consume(CsvUtils.escapeCsvData(row));
+        }
+    }
+
+    @Benchmark
+    public void csvReader(Blackhole blackhole) throws IOException {
+        CsvReader reader = CsvUtils.getCsvReader(new StringReader(document));
+        while (reader.readRecord()) {
+            blackhole.consume(reader.getValues());
+        }
+        reader.close();
+    }
+
+    @Benchmark
+    public String csvWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvWriter csvWriter = newCsvWriter(writer);
+        for (String[] row : rows) {
+            csvWriter.writeRecord(row, true);
+        }
+        csvWriter.flush();
+        return writer.toString();
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.route.DataGapFastDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Assignment of the data ids that were selected for routing to the gaps
+ * they were found in
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataGapBenchmark {
+
+    @Param({ "100", "10000" })
+    int gapCount;
+
+    @Param({ "10" })
+    int idsPerGap;
+
+    BenchmarkDataGapDetector detector;
+
+    @Setup
+    public void setup() {
+        List<DataGap> gaps = new ArrayList<DataGap>(gapCount);
+        List<Long> dataIds = new ArrayList<Long>(gapCount * idsPerGap);
+        long startId = 1;
+        for (int i = 0; i < gapCount; i++) {
+            long endId = startId + idsPerGap * 2;
+            gaps.add(new DataGap(startId, endId));
+            for (long id = startId; id < startId + idsPerGap; id++) {
+                dataIds.add(id);
+            }
+            startId = endId + 1;
+        }
+        detector = new BenchmarkDataGapDetector(gaps, dataIds);
+    }
+
+    @Benchmark
+    public Map<DataGap, List<Long>> getDataIdMap() {
+        return detector.getDataIdMap();
+    }
+
+    static class BenchmarkDataGapDetector extends DataGapFastDetector {
+
+        public BenchmarkDataGapDetector(List<DataGap> gaps, List<Long> dataIds) {
+            super(null, null, null, null, null, null, null);
+            this.gaps = gaps;
+            this.dataIds = dataIds;
+        }
+
+        @Override
+        public Map<DataGap, List<Long>> getDataIdMap() {
+            return super.getDataIdMap();
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.io.StringWriter;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.h2.H2DatabasePlatform;
+import org.jumpmind.db.sql.SqlTemplateSettings;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.ProtocolDataWriter;
+
+/**
+ * Representative tables and rows shared by the microbenchmarks. A narrow
+ * table has a handful of columns while a wide table has one hundred. Both
+ * end with a binary column so that the binary encodings are exercised.
+ */
+final public class Fixtures {
+
+    public static final String NARROW = "narrow";
+
+    public static final String WIDE = "wide";
+
+    public static final int WIDE_COLUMN_COUNT = 100;
+
+    private static IDatabasePlatform platform;
+
+    private Fixtures() {
+    }
+
+    public static Table table(String shape) {
+        Table table = new Table(shape + "_table");
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        int columnCount = WIDE.equals(shape) ? WIDE_COLUMN_COUNT : 5;
+        for (int i = 1; i < columnCount - 1; i++) {
+            String name = "col" + i;
+            switch (i % 4) {
+                case 0:
+                    table.addColumn(new Column(name, false, Types.INTEGER, 0, 0));
+                    break;
+                case 1:
+                    table.addColumn(new Column(name, false, Types.VARCHAR, 50, 0));
+                    break;
+                case 2:
+                    table.addColumn(new Column(name, false, Types.DECIMAL, 12, 2));
+                    break;
+                default:
+                    table.addColumn(new Column(name, false, Types.TIMESTAMP, 0, 0));
+                    break;
+            }
+        }
+        table.addColumn(new Column("payload", false, Types.BLOB, 0, 0));
+        return table;
+    }
+
+    public static String[] row(Table table, int id, BinaryEncoding encoding) {
+        Random random = new Random(id);
+        Column[] columns = table.getColumns();
+        String[] values = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            switch (columns[i].getMappedTypeCode()) {
+                case Types.INTEGER:
+                    values[i] = i == 0 ? Integer.toString(id) : Integer.toString(random.nextInt(100000));
+                    break;
+                case Types.VARCHAR:
+                    values[i] = "value \"" + id + "\", with a comma " + random.nextInt(1000);
+                    break;
+                case Types.DECIMAL:
+                    values[i] = random.nextInt(100000) + "." + random.nextInt(100);
+                    break;
+                case Types.TIMESTAMP:
+                    values[i] = String.format("2019-%02d-%02d 12:34:56.789", random.nextInt(12) + 1,
+                            random.nextInt(28) + 1);
+                    break;
+                default:
+                    byte[] bytes = new byte[64];
+                    random.nextBytes(bytes);
+                    values[i] = encode(bytes, encoding);
+                    break;
+            }
+        }
+        return values;
+    }
+
+    public static List<String[]> rows(Table table, int count, BinaryEncoding encoding) {
+        List<String[]> rows = new ArrayList<String[]>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(row(table, i, encoding));
+        }
+        return rows;
+    }
+
+    public static String encode(byte[] bytes, BinaryEncoding encoding) {
+        if (encoding == BinaryEncoding.HEX) {
+            return new String(Hex.encodeHex(bytes));
+        } else if (encoding == BinaryEncoding.BASE64) {
+            return new String(Base64.encodeBase64(bytes));
+        } else {
+            return new String(bytes);
+        }
+    }
+
+    public static Batch batch(BinaryEncoding encoding) {
+        return new Batch(BatchType.LOAD, 1, "default", encoding, "00000", "00001", false);
+    }
+
+    /**
+     * @return a batch in the protocol format that is sent between nodes
+     */
+    public static String protocol(Table table, List<String[]> rows, BinaryEncoding encoding) {
+        StringWriter writer = new StringWriter();
+        ProtocolDataWriter protocolWriter = new ProtocolDataWriter("00000", writer, false);
+        Batch batch = batch(encoding);
+        protocolWriter.open(new DataContext(batch));
+        protocolWriter.start(batch);
+        protocolWriter.start(table);
+        for (String[] values : rows) {
+            protocolWriter.write(new CsvData(DataEventType.INSERT, values));
+        }
+        protocolWriter.end(table);
+        protocolWriter.end(batch, false);
+        protocolWriter.close();
+        return writer.toString();
+    }
+
+    /**
+     * @return a platform backed by an in-memory H2 database
+     */
+    public static synchronized IDatabasePlatform platform() {
+        if (platform == null) {
+            BasicDataSource dataSource = new BasicDataSource();
+            dataSource.setDriverClassName("org.h2.Driver");
+            dataSource.setUrl("jdbc:h2:mem:microbenchmark;DB_CLOSE_DELAY=-1");
+            dataSource.setUsername("sa");
+            dataSource.setPassword("");
+            platform = new H2DatabasePlatform(dataSource, new SqlTemplateSettings());
+        }
+        return platform;
+    }
+
+}
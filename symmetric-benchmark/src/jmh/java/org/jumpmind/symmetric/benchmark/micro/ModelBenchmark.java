@@ -0,0 +1,112 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.util.LinkedCaseInsensitiveMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Column lookups by name, which happen for every row that is routed,
+ * transformed or loaded
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    Table table;
+
+    String[] columnNames;
+
+    String[] upperCaseColumnNames;
+
+    String[] values;
+
+    Map<String, String> rowMap;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.table(shape);
+        columnNames = table.getColumnNames();
+        upperCaseColumnNames = new String[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            upperCaseColumnNames[i] = columnNames[i].toUpperCase();
+        }
+        values = Fixtures.row(table, 1, null);
+        rowMap = buildRowMap();
+    }
+
+    @Benchmark
+    public void findColumn(Blackhole blackhole) {
+        for (String name : columnNames) {
+            blackhole.consume(table.findColumn(name));
+        }
+    }
+
+    @Benchmark
+    public void findColumnCaseInsensitive(Blackhole blackhole) {
+        for (String name : upperCaseColumnNames) {
+            blackhole.consume(table.findColumn(name, false));
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> linkedCaseInsensitiveMapPut() {
+        return buildRowMap();
+    }
+
+    @Benchmark
+    public void linkedCaseInsensitiveMapGet(Blackhole blackhole) {
+        for (String name : upperCaseColumnNames) {
+            blackhole.consume(rowMap.get(name));
+        }
+    }
+
+    protected Map<String, String> buildRowMap() {
+        Map<String, String> map = new LinkedCaseInsensitiveMap<String>(columnNames.length * 4);
+        for (int i = 0; i < columnNames.length; i++) {
+            map.put(columnNames[i], values[i]);
+        }
+        return map;
+    }
+
+}
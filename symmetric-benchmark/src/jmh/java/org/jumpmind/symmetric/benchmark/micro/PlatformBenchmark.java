@@ -0,0 +1,102 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of row data to JDBC values and construction of the DML that the
+ * database writer executes for every table and statement type
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlatformBenchmark {
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    @Param({ "BASE64", "HEX" })
+    BinaryEncoding encoding;
+
+    IDatabasePlatform platform;
+
+    Table table;
+
+    String[] columnNames;
+
+    String[] values;
+
+    Column[] primaryKeyColumns;
+
+    Column[] columns;
+
+    @Setup
+    public void setup() {
+        platform = Fixtures.platform();
+        table = Fixtures.table(shape);
+        columnNames = table.getColumnNames();
+        values = Fixtures.row(table, 1, encoding);
+        primaryKeyColumns = table.getPrimaryKeyColumns();
+        columns = table.getColumns();
+    }
+
+    @Benchmark
+    public Object[] getObjectValues() {
+        return platform.getObjectValues(encoding, table, columnNames, values);
+    }
+
+    @Benchmark
+    public String createInsertDmlStatement() {
+        DmlStatement statement = platform.createDmlStatement(DmlType.INSERT, table.getCatalog(), table.getSchema(),
+                table.getName(), primaryKeyColumns, columns, null, null);
+        return statement.getSql();
+    }
+
+    @Benchmark
+    public String createUpdateDmlStatement() {
+        DmlStatement statement = platform.createDmlStatement(DmlType.UPDATE, table.getCatalog(), table.getSchema(),
+                table.getName(), primaryKeyColumns, columns, new boolean[primaryKeyColumns.length], null);
+        return statement.getSql();
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.reader.BinaryProtocolDataReader;
+import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
+import org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter;
+import org.jumpmind.symmetric.io.data.writer.ProtocolDataWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading and writing a batch of {@value #ROWS} inserts in the CSV and binary
+ * protocol formats that are sent between nodes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    static final int ROWS = 1000;
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    @Param({ "BASE64", "HEX" })
+    BinaryEncoding encoding;
+
+    Table table;
+
+    List<String[]> rowValues;
+
+    String protocol;
+
+    byte[] binaryProtocol;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.table(shape);
+        rowValues = Fixtures.rows(table, ROWS, encoding);
+        protocol = Fixtures.protocol(table, rowValues, encoding);
+        binaryProtocol = writeBinary();
+    }
+
+    @Benchmark
+    public void readNext(Blackhole blackhole) {
+        ProtocolDataReader reader = new ProtocolDataReader(BatchType.LOAD, "00001", protocol);
+        reader.open(new DataContext());
+        Object next = null;
+        while ((next = reader.readNext()) != null) {
+            if (next instanceof CsvData) {
+                blackhole.consume(((CsvData) next).getParsedData(CsvData.ROW_DATA));
+            } else {
+                blackhole.consume(next);
+            }
+        }
+        reader.close();
+    }
+
+    @Benchmark
+    public String write() {
+        StringWriter writer = new StringWriter(protocol.length());
+        ProtocolDataWriter protocolWriter = new ProtocolDataWriter("00000", writer, false);
+        Batch batch = Fixtures.batch(encoding);
+        protocolWriter.open(new DataContext(batch));
+        protocolWriter.start(batch);
+        protocolWriter.start(table);
+        for (String[] values : rowValues) {
+            protocolWriter.write(new CsvData(DataEventType.INSERT, values));
+        }
+        protocolWriter.end(table);
+        protocolWriter.end(batch, false);
+        protocolWriter.close();
+        return writer.toString();
+    }
+
+    @Benchmark
+    public void readNextBinary(Blackhole blackhole) {
+        BinaryProtocolDataReader reader = new BinaryProtocolDataReader(BatchType.LOAD, "00001",
+                new ByteArrayInputStream(binaryProtocol));
+        reader.open(new DataContext());
+        Object next = null;
+        while ((next = reader.readNext()) != null) {
+            if (next instanceof CsvData) {
+                blackhole.consume(((CsvData) next).getParsedData(CsvData.ROW_DATA));
+            } else {
+                blackhole.consume(next);
+            }
+        }
+        reader.close();
+    }
+
+    @Benchmark
+    public byte[] writeBinary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(protocol.length());
+        BinaryProtocolDataWriter protocolWriter = new BinaryProtocolDataWriter("00000", out);
+        Batch batch = Fixtures.batch(encoding);
+        protocolWriter.open(new DataContext(batch));
+        protocolWriter.start(batch);
+        protocolWriter.start(table);
+        for (String[] values : rowValues) {
+            protocolWriter.write(new CsvData(DataEventType.INSERT, values));
+        }
+        protocolWriter.end(table);
+        protocolWriter.end(batch, false);
+        protocolWriter.close();
+        return out.toByteArray();
+    }
+
+}
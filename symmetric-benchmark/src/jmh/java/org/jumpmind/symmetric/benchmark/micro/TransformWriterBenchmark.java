@@ -0,0 +1,116 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark.micro;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.ConstantColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.CopyColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.IColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.SubstrColumnTransform;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn;
+import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.transform.ValueMapColumnTransform;
+import org.jumpmind.symmetric.io.data.writer.TransformWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transformation of a batch of {@value #ROWS} inserts to a renamed table with
+ * copied, constant, substring and value mapped columns. The rest of the
+ * columns are implied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformWriterBenchmark {
+
+    static final int ROWS = 1000;
+
+    @Param({ Fixtures.NARROW, Fixtures.WIDE })
+    String shape;
+
+    Table table;
+
+    List<String[]> rowValues;
+
+    Map<String, IColumnTransform<?>> columnTransforms;
+
+    TransformTable transformTable;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.table(shape);
+        rowValues = Fixtures.rows(table, ROWS, BinaryEncoding.BASE64);
+
+        columnTransforms = new HashMap<String, IColumnTransform<?>>();
+        columnTransforms.put(CopyColumnTransform.NAME, new CopyColumnTransform());
+        columnTransforms.put(ConstantColumnTransform.NAME, new ConstantColumnTransform());
+        columnTransforms.put(SubstrColumnTransform.NAME, new SubstrColumnTransform());
+        columnTransforms.put(ValueMapColumnTransform.NAME, new ValueMapColumnTransform());
+
+        transformTable = new TransformTable(table.getName(), table.getName() + "_target", TransformPoint.LOAD,
+                new TransformColumn("id", "id", true),
+                new TransformColumn("col1", "col1", false, SubstrColumnTransform.NAME, "0,10"),
+                new TransformColumn("col2", "col2", false, ValueMapColumnTransform.NAME, "1=one 2=two *=other"),
+                new TransformColumn(null, "source_node", false, ConstantColumnTransform.NAME, "00000"));
+    }
+
+    @Benchmark
+    public void write(Blackhole blackhole) {
+        TransformWriter writer = new TransformWriter(Fixtures.platform(), TransformPoint.LOAD,
+                new BlackholeDataWriter(blackhole), columnTransforms, transformTable);
+        Batch batch = Fixtures.batch(BinaryEncoding.BASE64);
+        writer.open(new DataContext(batch));
+        writer.start(batch);
+        writer.start(table);
+        for (String[] values : rowValues) {
+            writer.write(new CsvData(DataEventType.INSERT, values));
+        }
+        writer.end(table);
+        writer.end(batch, false);
+        writer.close();
+    }
+
+}
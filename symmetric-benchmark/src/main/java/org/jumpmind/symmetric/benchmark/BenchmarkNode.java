@@ -0,0 +1,133 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.io.File;
+
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.properties.TypedProperties;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
+
+/**
+ * One embedded engine that takes part in a benchmark run. The first node is
+ * the source and registration server. Every other node is a target that pulls
+ * from it.
+ */
+public class BenchmarkNode {
+
+    public static final String SOURCE_GROUP = "source";
+
+    public static final String TARGET_GROUP = "target";
+
+    private String name;
+
+    private boolean source;
+
+    private TypedProperties properties;
+
+    private ISymmetricEngine engine;
+
+    public BenchmarkNode(String name, boolean source, BenchmarkSettings settings, BenchmarkNode sourceNode) {
+        this.name = name;
+        this.source = source;
+        this.properties = buildProperties(settings, sourceNode);
+    }
+
+    protected TypedProperties buildProperties(BenchmarkSettings settings, BenchmarkNode sourceNode) {
+        TypedProperties properties = new TypedProperties();
+        File dbDir = new File(settings.getWorkDir(), "db");
+        if (BenchmarkSettings.DATABASE_SQLITE.equals(settings.getDatabase())) {
+            properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_DRIVER, "org.sqlite.JDBC");
+            properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_URL, "jdbc:sqlite:"
+                    + new File(dbDir, name + ".sqlite").getAbsolutePath());
+        } else {
+            properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_DRIVER, "org.h2.Driver");
+            properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_URL, "jdbc:h2:file:"
+                    + new File(dbDir, name).getAbsolutePath() + ";LOCK_TIMEOUT=60000;DB_CLOSE_ON_EXIT=FALSE");
+        }
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_USER, "sa");
+        properties.setProperty(BasicDataSourcePropertyConstants.DB_POOL_PASSWORD, "");
+
+        properties.setProperty(ParameterConstants.ENGINE_NAME, name);
+        properties.setProperty(ParameterConstants.EXTERNAL_ID, name);
+        properties.setProperty(ParameterConstants.NODE_GROUP_ID, source ? SOURCE_GROUP : TARGET_GROUP);
+        properties.setProperty(ParameterConstants.TRANSPORT_TYPE, settings.getTransport());
+        properties.setProperty(ParameterConstants.SYNC_URL, buildSyncUrl(settings));
+        properties.setProperty(ParameterConstants.REGISTRATION_URL,
+                sourceNode == null ? "" : sourceNode.getSyncUrl());
+
+        properties.setProperty(ParameterConstants.AUTO_REGISTER_ENABLED, "true");
+        properties.setProperty(ParameterConstants.AUTO_RELOAD_ENABLED, "false");
+        properties.setProperty(ParameterConstants.AUTO_INSERT_REG_SVR_IF_NOT_FOUND, "true");
+        if (source) {
+            properties.setProperty(ParameterConstants.AUTO_CONFIGURE_REG_SVR_SQL_SCRIPT,
+                    new File(settings.getWorkDir(), ReplicationBenchmark.CONFIG_SCRIPT).getAbsolutePath());
+        }
+
+        properties.putAll(settings.getEngineProperties());
+        return properties;
+    }
+
+    protected String buildSyncUrl(BenchmarkSettings settings) {
+        if (Constants.PROTOCOL_HTTP.equals(settings.getTransport())) {
+            return "http://localhost:" + settings.getHttpPort() + "/sync/" + name;
+        } else {
+            return Constants.PROTOCOL_INTERNAL + "://" + name;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isSource() {
+        return source;
+    }
+
+    public String getSyncUrl() {
+        return properties.get(ParameterConstants.SYNC_URL);
+    }
+
+    public TypedProperties getProperties() {
+        return properties;
+    }
+
+    public ISymmetricEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(ISymmetricEngine engine) {
+        this.engine = engine;
+    }
+
+    public ISqlTemplate getSqlTemplate() {
+        return engine.getDatabasePlatform().getSqlTemplate();
+    }
+
+    public String getTableName(String suffix) {
+        return TableConstants.getTableName(engine.getTablePrefix(), suffix);
+    }
+
+}
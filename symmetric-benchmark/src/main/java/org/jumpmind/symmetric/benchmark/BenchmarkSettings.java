@@ -0,0 +1,174 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.properties.TypedProperties;
+import org.jumpmind.symmetric.common.Constants;
+
+/**
+ * Settings for a benchmark run. Defaults come from
+ * <code>/benchmark.properties</code> on the classpath, which can be overridden
+ * by a properties file passed on the command line and then by system
+ * properties. Any property that starts with <code>engine.</code> is passed
+ * through to every engine with the prefix removed.
+ */
+public class BenchmarkSettings {
+
+    public static final String DATABASE_H2 = "h2";
+
+    public static final String DATABASE_SQLITE = "sqlite";
+
+    protected static final String ENGINE_PREFIX = "engine.";
+
+    private TypedProperties properties;
+
+    public BenchmarkSettings(TypedProperties properties) {
+        this.properties = properties;
+        String database = getDatabase();
+        if (!DATABASE_H2.equals(database) && !DATABASE_SQLITE.equals(database)) {
+            throw new IllegalArgumentException("Unsupported benchmark.database of " + database
+                    + ".  Use " + DATABASE_H2 + " or " + DATABASE_SQLITE);
+        }
+        String transport = getTransport();
+        if (!Constants.PROTOCOL_INTERNAL.equals(transport) && !Constants.PROTOCOL_HTTP.equals(transport)) {
+            throw new IllegalArgumentException("Unsupported benchmark.transport of " + transport
+                    + ".  Use " + Constants.PROTOCOL_INTERNAL + " or " + Constants.PROTOCOL_HTTP);
+        }
+        if (getNodeCount() < 2) {
+            throw new IllegalArgumentException("benchmark.nodes must be at least 2");
+        }
+    }
+
+    public static BenchmarkSettings load(String propertiesFile) {
+        TypedProperties properties = new TypedProperties();
+        InputStream is = BenchmarkSettings.class.getResourceAsStream("/benchmark.properties");
+        try {
+            if (is != null) {
+                properties.putAll(new TypedProperties(is));
+            }
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+
+        if (StringUtils.isNotBlank(propertiesFile)) {
+            properties.putAll(new TypedProperties(new File(propertiesFile)));
+        }
+
+        Properties systemProperties = System.getProperties();
+        for (String name : systemProperties.stringPropertyNames()) {
+            if (name.startsWith("benchmark.") || name.startsWith(ENGINE_PREFIX)) {
+                properties.setProperty(name, systemProperties.getProperty(name));
+            }
+        }
+        return new BenchmarkSettings(properties);
+    }
+
+    public int getNodeCount() {
+        return properties.getInt("benchmark.nodes", 2);
+    }
+
+    public String getDatabase() {
+        return properties.get("benchmark.database", DATABASE_H2).trim().toLowerCase();
+    }
+
+    public String getTransport() {
+        return properties.get("benchmark.transport", Constants.PROTOCOL_INTERNAL).trim().toLowerCase();
+    }
+
+    public int getHttpPort() {
+        return properties.getInt("benchmark.http.port", 31415);
+    }
+
+    public String getWebDir() {
+        return properties.get("benchmark.web.dir", "../symmetric-server/src/main/deploy/web");
+    }
+
+    public File getWorkDir() {
+        return new File(properties.get("benchmark.work.dir", "benchmark"));
+    }
+
+    public File getOutputFile() {
+        return new File(properties.get("benchmark.output.file", "benchmark-results.json"));
+    }
+
+    public long getMarkerIntervalMs() {
+        return properties.getLong("benchmark.marker.interval.ms", 250);
+    }
+
+    public long getObserverPollMs() {
+        return properties.getLong("benchmark.observer.poll.ms", 20);
+    }
+
+    public long getWorkloadTimeoutMs() {
+        return properties.getLong("benchmark.workload.timeout.ms", 600000);
+    }
+
+    public long getStartupTimeoutMs() {
+        return properties.getLong("benchmark.startup.timeout.ms", 120000);
+    }
+
+    public int getWideColumnCount() {
+        return properties.getInt("benchmark.wide.columns", 60);
+    }
+
+    public int getMaxBatchSize() {
+        return properties.getInt("benchmark.channel.max.batch.size", 10000);
+    }
+
+    public int getMaxBatchToSend() {
+        return properties.getInt("benchmark.channel.max.batch.to.send", 100);
+    }
+
+    public List<Workload> getWorkloads() {
+        List<Workload> workloads = new ArrayList<Workload>();
+        for (String name : properties.getArray("benchmark.workloads", new String[0])) {
+            if (StringUtils.isNotBlank(name)) {
+                workloads.add(Workload.fromProperties(name.trim(), properties));
+            }
+        }
+        return workloads;
+    }
+
+    /**
+     * @return the engine parameters that every node is started with
+     */
+    public TypedProperties getEngineProperties() {
+        TypedProperties engineProperties = new TypedProperties();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            String name = (String) entry.getKey();
+            if (name.startsWith(ENGINE_PREFIX)) {
+                engineProperties.setProperty(name.substring(ENGINE_PREFIX.length()),
+                        (String) entry.getValue());
+            }
+        }
+        return engineProperties;
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.sql.Types;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+
+/**
+ * The tables that the benchmark creates on every node. The narrow, wide and
+ * LOB tables are the targets of workloads. The marker table carries the
+ * timestamps that end-to-end latency is measured with.
+ */
+final public class BenchmarkTables {
+
+    public static final String NARROW = "bench_narrow";
+
+    public static final String WIDE = "bench_wide";
+
+    public static final String LOB = "bench_lob";
+
+    public static final String MARKER = "bench_marker";
+
+    private BenchmarkTables() {
+    }
+
+    public static Table[] create(int wideColumnCount) {
+        return new Table[] { narrow(), wide(wideColumnCount), lob(), marker() };
+    }
+
+    public static Table narrow() {
+        Table table = new Table(NARROW);
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        table.addColumn(new Column("name", false, Types.VARCHAR, 50, 0));
+        table.addColumn(new Column("amount", false, Types.DECIMAL, 12, 2));
+        table.addColumn(new Column("last_update_time", false, Types.TIMESTAMP, 0, 0));
+        return table;
+    }
+
+    public static Table wide(int columnCount) {
+        Table table = new Table(WIDE);
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        for (int i = 1; i < columnCount; i++) {
+            String name = "col" + i;
+            switch (i % 4) {
+                case 0:
+                    table.addColumn(new Column(name, false, Types.INTEGER, 0, 0));
+                    break;
+                case 1:
+                    table.addColumn(new Column(name, false, Types.VARCHAR, 40, 0));
+                    break;
+                case 2:
+                    table.addColumn(new Column(name, false, Types.DECIMAL, 12, 2));
+                    break;
+                default:
+                    table.addColumn(new Column(name, false, Types.TIMESTAMP, 0, 0));
+                    break;
+            }
+        }
+        return table;
+    }
+
+    public static Table lob() {
+        Table table = new Table(LOB);
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        table.addColumn(new Column("notes", false, Types.CLOB, 0, 0));
+        table.addColumn(new Column("payload", false, Types.BLOB, 0, 0));
+        return table;
+    }
+
+    public static Table marker() {
+        Table table = new Table(MARKER);
+        table.addColumn(new Column("id", true, Types.BIGINT, 0, 0));
+        table.addColumn(new Column("created_ms", false, Types.BIGINT, 0, 0));
+        return table;
+    }
+
+}
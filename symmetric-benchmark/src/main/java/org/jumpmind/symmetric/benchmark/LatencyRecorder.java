@@ -0,0 +1,74 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects end-to-end latency samples from any number of observer threads
+ * and reduces them to percentiles.
+ */
+public class LatencyRecorder {
+
+    private List<Long> samples = new ArrayList<Long>();
+
+    public synchronized void record(long latencyMs) {
+        samples.add(latencyMs);
+    }
+
+    public synchronized int getCount() {
+        return samples.size();
+    }
+
+    public synchronized LatencyStatistics getStatistics() {
+        long[] sorted = new long[samples.size()];
+        long total = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+            total += sorted[i];
+        }
+        Arrays.sort(sorted);
+
+        LatencyStatistics statistics = new LatencyStatistics();
+        statistics.setCount(sorted.length);
+        if (sorted.length > 0) {
+            statistics.setMin(sorted[0]);
+            statistics.setMax(sorted[sorted.length - 1]);
+            statistics.setMean((double) total / sorted.length);
+            statistics.setP50(percentile(sorted, 50));
+            statistics.setP90(percentile(sorted, 90));
+            statistics.setP95(percentile(sorted, 95));
+            statistics.setP99(percentile(sorted, 99));
+        }
+        return statistics;
+    }
+
+    /**
+     * Nearest-rank percentile of an already sorted array
+     */
+    protected static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+}
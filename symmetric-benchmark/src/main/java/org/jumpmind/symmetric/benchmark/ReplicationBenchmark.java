@@ -0,0 +1,470 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.properties.TypedProperties;
+import org.jumpmind.symmetric.ClientSymmetricEngine;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.SymmetricWebServer;
+import org.jumpmind.symmetric.Version;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.SystemConstants;
+import org.jumpmind.symmetric.common.TableConstants;
+import org.jumpmind.symmetric.io.data.DbFill;
+import org.jumpmind.util.AppUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts a source engine and one or more target engines in this JVM, drives
+ * each configured {@link Workload} through {@link DbFill} at the source and
+ * measures how fast the changes are captured, routed, extracted, transferred
+ * and loaded at every target.
+ * <p>
+ * End-to-end latency is measured with marker rows that are inserted at the
+ * source on the same channel as the workload while it runs. Each target polls
+ * for new markers and records the time between their creation and their
+ * arrival. Because every engine runs in the same JVM, no clock skew is
+ * involved.
+ * <p>
+ * Results are written as JSON to <code>benchmark.output.file</code>.
+ */
+public class ReplicationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationBenchmark.class);
+
+    public static final String CHANNEL_ID = "benchmark";
+
+    public static final String ROUTER_ID = "source_2_target";
+
+    protected static final String CONFIG_SCRIPT = "benchmark-config.sql";
+
+    private BenchmarkSettings settings;
+
+    private List<BenchmarkNode> nodes = new ArrayList<BenchmarkNode>();
+
+    private SymmetricWebServer webServer;
+
+    private AtomicLong markerSequence = new AtomicLong();
+
+    public ReplicationBenchmark(BenchmarkSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSettings settings = BenchmarkSettings.load(args.length > 0 ? args[0] : null);
+        ReplicationBenchmark benchmark = new ReplicationBenchmark(settings);
+        BenchmarkResult result = benchmark.run();
+        File outputFile = settings.getOutputFile();
+        result.write(outputFile);
+        log.info("Wrote benchmark results to {}", outputFile.getAbsolutePath());
+        System.exit(0);
+    }
+
+    public BenchmarkResult run() throws Exception {
+        BenchmarkResult result = new BenchmarkResult();
+        result.setVersion(Version.version());
+        result.setStartTime(new Date());
+        result.setDatabase(settings.getDatabase());
+        result.setTransport(settings.getTransport());
+        result.setNodeCount(settings.getNodeCount());
+        result.setJavaVersion(System.getProperty("java.version"));
+        TypedProperties engineProperties = settings.getEngineProperties();
+        for (String name : engineProperties.stringPropertyNames()) {
+            result.getEngineParameters().put(name, engineProperties.getProperty(name));
+        }
+
+        try {
+            start();
+            for (Workload workload : settings.getWorkloads()) {
+                log.info("Running workload {}", workload);
+                WorkloadResult workloadResult = runWorkload(workload);
+                log.info("Finished workload {} in {} ms at {} replicated rows/second with a p99 latency of {} ms",
+                        new Object[] { workload.getName(), workloadResult.getElapsedMillis(),
+                                String.format("%.1f", workloadResult.getReplicatedRowsPerSecond()),
+                                workloadResult.getLatencyMillis().getP99() });
+                result.getWorkloads().add(workloadResult);
+            }
+        } finally {
+            stop();
+        }
+        return result;
+    }
+
+    protected void start() throws Exception {
+        File workDir = settings.getWorkDir();
+        FileUtils.deleteDirectory(workDir);
+        new File(workDir, "db").mkdirs();
+        if (System.getProperty("h2.baseDir") == null) {
+            System.setProperty("h2.baseDir", workDir.getAbsolutePath());
+        }
+        writeConfigScript(new File(workDir, CONFIG_SCRIPT));
+
+        BenchmarkNode sourceNode = new BenchmarkNode("source", true, settings, null);
+        nodes.add(sourceNode);
+        for (int i = 1; i < settings.getNodeCount(); i++) {
+            nodes.add(new BenchmarkNode(String.format("target-%03d", i), false, settings, sourceNode));
+        }
+
+        boolean http = Constants.PROTOCOL_HTTP.equals(settings.getTransport());
+        for (BenchmarkNode node : nodes) {
+            ISymmetricEngine engine = new ClientSymmetricEngine(node.getProperties(), !http);
+            createTables(engine.getDatabasePlatform());
+            if (http) {
+                engine.destroy();
+            } else {
+                node.setEngine(engine);
+            }
+        }
+
+        if (http) {
+            startWebServer();
+        } else {
+            for (BenchmarkNode node : nodes) {
+                log.info("Starting {}", node.getName());
+                node.getEngine().start();
+            }
+        }
+
+        waitForRegistration();
+    }
+
+    protected void startWebServer() throws Exception {
+        File enginesDir = new File(settings.getWorkDir(), "engines");
+        enginesDir.mkdirs();
+        for (BenchmarkNode node : nodes) {
+            FileOutputStream os = new FileOutputStream(new File(enginesDir, node.getName() + ".properties"));
+            try {
+                node.getProperties().store(os, "benchmark");
+            } finally {
+                IOUtils.closeQuietly(os);
+            }
+        }
+
+        System.setProperty(SystemConstants.SYSPROP_WAIT_FOR_DATABASE, "false");
+        System.setProperty(SystemConstants.SYSPROP_ENGINES_DIR, enginesDir.getAbsolutePath());
+        System.setProperty(SystemConstants.SYSPROP_WEB_DIR, settings.getWebDir());
+
+        webServer = new SymmetricWebServer();
+        webServer.setJmxEnabled(false);
+        webServer.setHttpPort(settings.getHttpPort());
+        webServer.setJoin(false);
+        log.info("Starting web server on port {}", settings.getHttpPort());
+        webServer.start();
+        webServer.waitForEnginesToComeOnline(settings.getStartupTimeoutMs());
+
+        for (BenchmarkNode node : nodes) {
+            node.setEngine(webServer.getEngine(node.getName()));
+        }
+    }
+
+    protected void createTables(IDatabasePlatform platform) {
+        Table[] tables = BenchmarkTables.create(settings.getWideColumnCount());
+        platform.alterCaseToMatchDatabaseDefaultCase(tables);
+        platform.createTables(false, false, tables);
+    }
+
+    protected void writeConfigScript(File file) {
+        String prefix = settings.getEngineProperties().get(ParameterConstants.RUNTIME_CONFIG_TABLE_PREFIX, "sym");
+        StringBuilder sql = new StringBuilder();
+        sql.append(String.format(
+                "insert into %s (channel_id, processing_order, max_batch_size, max_batch_to_send, enabled, description) values ('%s', 1, %d, %d, 1, 'Replication benchmark');\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_CHANNEL), CHANNEL_ID,
+                settings.getMaxBatchSize(), settings.getMaxBatchToSend()));
+        sql.append(String.format("insert into %s (node_group_id) values ('%s');\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_NODE_GROUP), BenchmarkNode.SOURCE_GROUP));
+        sql.append(String.format("insert into %s (node_group_id) values ('%s');\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_NODE_GROUP), BenchmarkNode.TARGET_GROUP));
+        sql.append(String.format(
+                "insert into %s (source_node_group_id, target_node_group_id, data_event_action) values ('%s', '%s', 'W');\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_NODE_GROUP_LINK),
+                BenchmarkNode.SOURCE_GROUP, BenchmarkNode.TARGET_GROUP));
+        sql.append(String.format(
+                "insert into %s (source_node_group_id, target_node_group_id, data_event_action) values ('%s', '%s', 'P');\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_NODE_GROUP_LINK),
+                BenchmarkNode.TARGET_GROUP, BenchmarkNode.SOURCE_GROUP));
+        sql.append(String.format(
+                "insert into %s (router_id, source_node_group_id, target_node_group_id, router_type, create_time, last_update_time) values ('%s', '%s', '%s', 'default', current_timestamp, current_timestamp);\n",
+                TableConstants.getTableName(prefix, TableConstants.SYM_ROUTER), ROUTER_ID,
+                BenchmarkNode.SOURCE_GROUP, BenchmarkNode.TARGET_GROUP));
+        for (Table table : BenchmarkTables.create(settings.getWideColumnCount())) {
+            sql.append(String.format(
+                    "insert into %s (trigger_id, source_table_name, channel_id, last_update_time, create_time) values ('%s', '%s', '%s', current_timestamp, current_timestamp);\n",
+                    TableConstants.getTableName(prefix, TableConstants.SYM_TRIGGER), table.getName(),
+                    table.getName(), CHANNEL_ID));
+            sql.append(String.format(
+                    "insert into %s (trigger_id, router_id, initial_load_order, last_update_time, create_time) values ('%s', '%s', 100, current_timestamp, current_timestamp);\n",
+                    TableConstants.getTableName(prefix, TableConstants.SYM_TRIGGER_ROUTER), table.getName(),
+                    ROUTER_ID));
+        }
+        try {
+            FileUtils.write(file, sql.toString(), "UTF-8");
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    protected void waitForRegistration() {
+        long timeout = System.currentTimeMillis() + settings.getStartupTimeoutMs();
+        for (BenchmarkNode node : getTargets()) {
+            while (!node.getEngine().getRegistrationService().isRegisteredWithServer()) {
+                if (System.currentTimeMillis() > timeout) {
+                    throw new IllegalStateException("Timed out waiting for " + node.getName() + " to register");
+                }
+                AppUtils.sleep(100);
+            }
+            log.info("{} is registered", node.getName());
+        }
+    }
+
+    protected WorkloadResult runWorkload(Workload workload) {
+        final BenchmarkNode source = getSource();
+        final ISqlTemplate sourceTemplate = source.getSqlTemplate();
+        final String markerTable = BenchmarkTables.MARKER;
+        WorkloadResult result = new WorkloadResult(workload);
+
+        long startDataId = sourceTemplate.queryForLong(String.format("select coalesce(max(data_id), 0) from %s",
+                source.getTableName(TableConstants.SYM_DATA)));
+        long startBatchId = sourceTemplate.queryForLong(String.format(
+                "select coalesce(max(batch_id), 0) from %s", source.getTableName(TableConstants.SYM_OUTGOING_BATCH)));
+
+        LatencyRecorder latency = new LatencyRecorder();
+        List<MarkerObserver> observers = new ArrayList<MarkerObserver>();
+        for (BenchmarkNode target : getTargets()) {
+            MarkerObserver observer = new MarkerObserver(target, markerSequence.get(), latency);
+            observers.add(observer);
+            observer.start();
+        }
+
+        ScheduledExecutorService markerExecutor = Executors.newSingleThreadScheduledExecutor();
+        markerExecutor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    insertMarker(sourceTemplate, markerTable);
+                } catch (Exception e) {
+                    log.warn("Failed to insert a latency marker", e);
+                }
+            }
+        }, 0, settings.getMarkerIntervalMs(), TimeUnit.MILLISECONDS);
+
+        long startTime = System.currentTimeMillis();
+        try {
+            DbFill fill = new DbFill(source.getEngine().getDatabasePlatform());
+            fill.setRecordCount(workload.getRows());
+            fill.setMaxRowsCommit(workload.getRowsPerCommit());
+            fill.setDmlWeight(workload.getDmlWeight());
+            fill.setContinueOnError(true);
+            fill.fillTables(source.getEngine().getDatabasePlatform()
+                    .alterCaseToMatchDatabaseDefaultCase(workload.getTable()));
+        } finally {
+            markerExecutor.shutdownNow();
+        }
+        result.setProduceMillis(System.currentTimeMillis() - startTime);
+
+        long finalMarker = insertMarker(sourceTemplate, markerTable);
+        long timeout = startTime + settings.getWorkloadTimeoutMs();
+        long endTime = startTime;
+        boolean completed = true;
+        for (MarkerObserver observer : observers) {
+            completed &= observer.waitFor(finalMarker, timeout);
+            endTime = Math.max(endTime, observer.getLastSeenTime());
+            observer.shutdown();
+        }
+        if (!completed) {
+            log.warn("Workload {} did not finish replicating within {} ms", workload.getName(),
+                    settings.getWorkloadTimeoutMs());
+            endTime = System.currentTimeMillis();
+        }
+        result.setElapsedMillis(endTime - startTime);
+
+        /*
+         * Statistics for network and load time come back with acknowledgments
+         */
+        String outgoingBatchTable = source.getTableName(TableConstants.SYM_OUTGOING_BATCH);
+        while (completed && System.currentTimeMillis() < timeout
+                && sourceTemplate.queryForInt(String.format(
+                        "select count(*) from %s where batch_id > ? and channel_id = ? and status <> 'OK'",
+                        outgoingBatchTable), startBatchId, CHANNEL_ID) > 0) {
+            AppUtils.sleep(100);
+        }
+        result.setCompleted(completed);
+
+        result.setCapturedRows(sourceTemplate.queryForLong(String.format(
+                "select count(*) from %s where data_id > ? and channel_id = ?",
+                source.getTableName(TableConstants.SYM_DATA)), startDataId, CHANNEL_ID));
+
+        Row stats = sourceTemplate.queryForRow(String.format(
+                "select count(*) as batch_count, coalesce(sum(byte_count), 0) as byte_count, "
+                        + "coalesce(sum(router_millis), 0) as router_millis, coalesce(sum(extract_millis), 0) as extract_millis, "
+                        + "coalesce(sum(network_millis), 0) as network_millis, coalesce(sum(filter_millis), 0) as filter_millis, "
+                        + "coalesce(sum(load_millis), 0) as load_millis from %s where batch_id > ? and channel_id = ?",
+                outgoingBatchTable), startBatchId, CHANNEL_ID);
+        result.setBatchCount(stats.getLong("batch_count"));
+        result.setByteCount(stats.getLong("byte_count"));
+        Map<String, Long> stageMillis = result.getStageMillis();
+        stageMillis.put("route", stats.getLong("router_millis"));
+        stageMillis.put("extract", stats.getLong("extract_millis"));
+        stageMillis.put("transfer", stats.getLong("network_millis"));
+        stageMillis.put("filter", stats.getLong("filter_millis"));
+        stageMillis.put("load", stats.getLong("load_millis"));
+
+        long loadedRows = 0;
+        for (BenchmarkNode target : getTargets()) {
+            long rows = target.getSqlTemplate().queryForLong(String.format(
+                    "select coalesce(sum(load_row_count), 0) from %s where batch_id > ? and channel_id = ?",
+                    target.getTableName(TableConstants.SYM_INCOMING_BATCH)), startBatchId, CHANNEL_ID);
+            result.getLoadedRows().put(target.getName(), rows);
+            loadedRows += rows;
+        }
+
+        result.setCaptureRowsPerSecond(perSecond(result.getCapturedRows(), result.getProduceMillis()));
+        result.setReplicatedRowsPerSecond(perSecond(loadedRows, result.getElapsedMillis()));
+        result.setLatencyMillis(latency.getStatistics());
+        return result;
+    }
+
+    protected long insertMarker(ISqlTemplate sqlTemplate, String markerTable) {
+        long id = markerSequence.incrementAndGet();
+        sqlTemplate.update(String.format("insert into %s (id, created_ms) values (?, ?)", markerTable), id,
+                System.currentTimeMillis());
+        return id;
+    }
+
+    protected static double perSecond(long count, long millis) {
+        return millis > 0 ? count * 1000d / millis : 0;
+    }
+
+    protected void stop() {
+        if (webServer != null) {
+            try {
+                webServer.stop();
+            } catch (Exception e) {
+                log.warn("Failed to stop the web server", e);
+            }
+        } else {
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                ISymmetricEngine engine = nodes.get(i).getEngine();
+                if (engine != null) {
+                    engine.stop();
+                    engine.destroy();
+                }
+            }
+        }
+    }
+
+    protected BenchmarkNode getSource() {
+        return nodes.get(0);
+    }
+
+    protected List<BenchmarkNode> getTargets() {
+        return nodes.subList(1, nodes.size());
+    }
+
+    /**
+     * Polls a target for marker rows that have arrived since the last poll
+     */
+    class MarkerObserver extends Thread {
+
+        private BenchmarkNode target;
+
+        private LatencyRecorder latency;
+
+        private volatile long lastSeenId;
+
+        private volatile long lastSeenTime;
+
+        private volatile boolean running = true;
+
+        public MarkerObserver(BenchmarkNode target, long lastSeenId, LatencyRecorder latency) {
+            super("benchmark-observer-" + target.getName());
+            setDaemon(true);
+            this.target = target;
+            this.lastSeenId = lastSeenId;
+            this.latency = latency;
+        }
+
+        @Override
+        public void run() {
+            ISqlTemplate sqlTemplate = target.getSqlTemplate();
+            String sql = String.format("select id, created_ms from %s where id > ? order by id",
+                    BenchmarkTables.MARKER);
+            while (running) {
+                try {
+                    List<long[]> markers = sqlTemplate.query(sql, new ISqlRowMapper<long[]>() {
+                        public long[] mapRow(Row row) {
+                            return new long[] { row.getLong("id"), row.getLong("created_ms") };
+                        }
+                    }, lastSeenId);
+                    long now = System.currentTimeMillis();
+                    for (long[] marker : markers) {
+                        latency.record(now - marker[1]);
+                        lastSeenTime = now;
+                        lastSeenId = marker[0];
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to poll for latency markers at " + target.getName(), e);
+                }
+                AppUtils.sleep(settings.getObserverPollMs());
+            }
+        }
+
+        public boolean waitFor(long markerId, long timeout) {
+            while (lastSeenId < markerId) {
+                if (System.currentTimeMillis() > timeout) {
+                    return false;
+                }
+                AppUtils.sleep(settings.getObserverPollMs());
+            }
+            return true;
+        }
+
+        public long getLastSeenTime() {
+            return lastSeenTime;
+        }
+
+        public void shutdown() {
+            running = false;
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.properties.TypedProperties;
+
+/**
+ * A named unit of work that is driven through {@link org.jumpmind.symmetric.io.data.DbFill} at
+ * the source node. Workloads are configured with properties that start with
+ * <code>benchmark.workload.&lt;name&gt;.</code>
+ */
+public class Workload {
+
+    private String name;
+
+    private String table;
+
+    private int rows;
+
+    private int rowsPerCommit;
+
+    private int[] dmlWeight;
+
+    public Workload(String name, String table, int rows, int rowsPerCommit, int[] dmlWeight) {
+        this.name = name;
+        this.table = table;
+        this.rows = rows;
+        this.rowsPerCommit = rowsPerCommit;
+        this.dmlWeight = dmlWeight;
+    }
+
+    public static Workload fromProperties(String name, TypedProperties properties) {
+        String prefix = "benchmark.workload." + name + ".";
+        String table = properties.get(prefix + "table", BenchmarkTables.NARROW);
+        int rows = properties.getInt(prefix + "rows", 1000);
+        int rowsPerCommit = properties.getInt(prefix + "rows.per.commit", 1);
+        String[] weights = StringUtils.split(properties.get(prefix + "dml.weight", "1,0,0"), ",");
+        if (weights.length != 3) {
+            throw new IllegalArgumentException("Expected " + prefix
+                    + "dml.weight to be three comma separated numbers for insert, update and delete");
+        }
+        int[] dmlWeight = new int[3];
+        for (int i = 0; i < weights.length; i++) {
+            dmlWeight[i] = Integer.parseInt(weights[i].trim());
+        }
+        return new Workload(name, table, rows, rowsPerCommit, dmlWeight);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getRowsPerCommit() {
+        return rowsPerCommit;
+    }
+
+    public int[] getDmlWeight() {
+        return dmlWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (table=%s, rows=%d, rows.per.commit=%d, dml.weight=%d,%d,%d)", name,
+                table, rows, rowsPerCommit, dmlWeight[0], dmlWeight[1], dmlWeight[2]);
+    }
+
+}
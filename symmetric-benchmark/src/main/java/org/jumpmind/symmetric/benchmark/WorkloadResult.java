@@ -0,0 +1,172 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The measurements taken while one {@link Workload} was replicated from the
+ * source node to every target node.
+ */
+public class WorkloadResult {
+
+    private String name;
+
+    private String table;
+
+    private int rowsRequested;
+
+    private int rowsPerCommit;
+
+    private int[] dmlWeight;
+
+    private boolean completed;
+
+    private long produceMillis;
+
+    private long elapsedMillis;
+
+    private long capturedRows;
+
+    private long batchCount;
+
+    private long byteCount;
+
+    private double captureRowsPerSecond;
+
+    private double replicatedRowsPerSecond;
+
+    private Map<String, Long> loadedRows = new LinkedHashMap<String, Long>();
+
+    private Map<String, Long> stageMillis = new LinkedHashMap<String, Long>();
+
+    private LatencyStatistics latencyMillis;
+
+    public WorkloadResult(Workload workload) {
+        this.name = workload.getName();
+        this.table = workload.getTable();
+        this.rowsRequested = workload.getRows();
+        this.rowsPerCommit = workload.getRowsPerCommit();
+        this.dmlWeight = workload.getDmlWeight();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getRowsRequested() {
+        return rowsRequested;
+    }
+
+    public int getRowsPerCommit() {
+        return rowsPerCommit;
+    }
+
+    public int[] getDmlWeight() {
+        return dmlWeight;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public long getProduceMillis() {
+        return produceMillis;
+    }
+
+    public void setProduceMillis(long produceMillis) {
+        this.produceMillis = produceMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getCapturedRows() {
+        return capturedRows;
+    }
+
+    public void setCapturedRows(long capturedRows) {
+        this.capturedRows = capturedRows;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public void setBatchCount(long batchCount) {
+        this.batchCount = batchCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public void setByteCount(long byteCount) {
+        this.byteCount = byteCount;
+    }
+
+    public double getCaptureRowsPerSecond() {
+        return captureRowsPerSecond;
+    }
+
+    public void setCaptureRowsPerSecond(double captureRowsPerSecond) {
+        this.captureRowsPerSecond = captureRowsPerSecond;
+    }
+
+    public double getReplicatedRowsPerSecond() {
+        return replicatedRowsPerSecond;
+    }
+
+    public void setReplicatedRowsPerSecond(double replicatedRowsPerSecond) {
+        this.replicatedRowsPerSecond = replicatedRowsPerSecond;
+    }
+
+    public Map<String, Long> getLoadedRows() {
+        return loadedRows;
+    }
+
+    public Map<String, Long> getStageMillis() {
+        return stageMillis;
+    }
+
+    public LatencyStatistics getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(LatencyStatistics latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+}
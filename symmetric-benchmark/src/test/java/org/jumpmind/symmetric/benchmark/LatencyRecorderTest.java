@@ -0,0 +1,60 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 100; i > 0; i--) {
+            recorder.record(i);
+        }
+        LatencyStatistics statistics = recorder.getStatistics();
+        assertEquals(100, statistics.getCount());
+        assertEquals(1, statistics.getMin());
+        assertEquals(100, statistics.getMax());
+        assertEquals(50.5, statistics.getMean(), 0.001);
+        assertEquals(50, statistics.getP50());
+        assertEquals(90, statistics.getP90());
+        assertEquals(95, statistics.getP95());
+        assertEquals(99, statistics.getP99());
+    }
+
+    @Test
+    public void testSingleSample() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(7);
+        LatencyStatistics statistics = recorder.getStatistics();
+        assertEquals(7, statistics.getP50());
+        assertEquals(7, statistics.getP99());
+    }
+
+    @Test
+    public void testNoSamples() {
+        assertEquals(0, new LatencyRecorder().getStatistics().getCount());
+    }
+
+}
@@ -129,6 +129,29 @@ public class DbCompareCommand extends AbstractCommandLauncher {
             }
         }
 
+        String threadsArg = getOptionValue(OPTION_THREADS, "threadCount", line, config);
+        if (!StringUtils.isEmpty(threadsArg)) {
+            try {
+                config.setThreadCount(Integer.parseInt(threadsArg.trim()));
+            } catch (Exception ex) {
+                throw new ParseException("Failed to parse arg [" + threadsArg + "] " + ex);
+            }
+        }
+
+        String fingerprintArg = getOptionValue(OPTION_FINGERPRINT, "useFingerprints", line, config);
+        if (!StringUtils.isEmpty(fingerprintArg)) {
+            config.setUseFingerprints(Boolean.valueOf(fingerprintArg.trim()));
+        }
+
+        String chunkSizeArg = getOptionValue(OPTION_CHUNK_SIZE, "chunkSize", line, config);
+        if (!StringUtils.isEmpty(chunkSizeArg)) {
+            try {
+                config.setChunkSize(Long.parseLong(chunkSizeArg.trim()));
+            } catch (Exception ex) {
+                throw new ParseException("Failed to parse arg [" + chunkSizeArg + "] " + ex);
+            }
+        }
+
         ISymmetricEngine sourceEngine = new ClientSymmetricEngine(sourceProperies);
         ISymmetricEngine targetEngine = new ClientSymmetricEngine(targetProperties);
 
@@ -185,6 +208,12 @@ public class DbCompareCommand extends AbstractCommandLauncher {
 
     private static final String OPTION_CONFIG_PROPERTIES = "config";
 
+    private static final String OPTION_THREADS = "threads";
+
+    private static final String OPTION_FINGERPRINT = "fingerprint";
+
+    private static final String OPTION_CHUNK_SIZE = "chunk-size";
+
     @Override
     protected void printHelp(CommandLine cmd, Options options) {
         System.out.println(app + " version " + Version.version());
@@ -204,6 +233,9 @@ public class DbCompareCommand extends AbstractCommandLauncher {
         addOption(options, null, OPTION_NUMERIC_SCALE, true);
         addOption(options, null, OPTION_DATE_TIME_FORMAT, true);
         addOption(options, null, OPTION_CONFIG_PROPERTIES, true);
+        addOption(options, null, OPTION_THREADS, true);
+        addOption(options, null, OPTION_FINGERPRINT, true);
+        addOption(options, null, OPTION_CHUNK_SIZE, true);
     }
 
     protected Map<String, String> parseWhereClauses(CommandLine line) {
@@ -67,6 +67,10 @@ public class DbExportCommand extends AbstractCommandLauncher {
     
     private static final String OPTION_WHERE = "where";
 
+    private static final String OPTION_THREADS = "threads";
+
+    private static final String OPTION_PARTITIONS = "partitions";
+
     public DbExportCommand() {
         super("dbexport", "[tablename...]", "DbExport.Option.");
     }
@@ -111,6 +115,8 @@ public class DbExportCommand extends AbstractCommandLauncher {
         addOption(options, null, OPTION_SQL, true);
         addOption(options, null, OPTION_WHERE, true);
         addOption(options, "i", OPTION_COMMENTS, false);
+        addOption(options, null, OPTION_THREADS, true);
+        addOption(options, null, OPTION_PARTITIONS, true);
     }
     
     @Override
@@ -177,7 +183,18 @@ public class DbExportCommand extends AbstractCommandLauncher {
         }        
         if (line.hasOption(OPTION_WHERE)) {
             dbExport.setWhereClause(line.getOptionValue(OPTION_WHERE));
-        }        
+        }
+        if (line.hasOption(OPTION_THREADS)) {
+            dbExport.setThreadCount(Integer.parseInt(line.getOptionValue(OPTION_THREADS)));
+        }
+        if (line.hasOption(OPTION_PARTITIONS)) {
+            dbExport.setPartitions(Integer.parseInt(line.getOptionValue(OPTION_PARTITIONS)));
+        }
+        if ((dbExport.getThreadCount() > 1 || dbExport.getPartitions() > 1)
+                && StringUtils.isBlank(dbExport.getDir())) {
+            throw new ParseException(
+                    "When exporting with multiple threads or partitions you must designate a directory where the files will be written");
+        }
  
         String[] args = line.getArgs();  
         if (line.hasOption(OPTION_SQL)) {
@@ -20,15 +20,20 @@
  */
 package org.jumpmind.symmetric;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.ext.BulkDataLoaderFactory;
 import org.jumpmind.symmetric.io.data.DbImport;
 import org.jumpmind.symmetric.io.data.DbImport.Format;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.symmetric.io.data.writer.Conflict;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFactory;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFilter;
 
 /**
@@ -64,6 +69,10 @@ public class DbImportCommand extends AbstractCommandLauncher {
     
     private static final String OPTION_ALTER_CASE = "alter-case";
 
+    private static final String OPTION_THREADS = "threads";
+
+    private static final String OPTION_BULK = "bulk";
+
     public DbImportCommand() {
         super("dbimport", "[file...]", "DbImport.Option.");
     }
@@ -106,12 +115,26 @@ public class DbImportCommand extends AbstractCommandLauncher {
         addOption(options, null, OPTION_FILTER_CLASSES, true);
         addOption(options, null, OPTION_DROP_IF_EXISTS, false);
         addOption(options, null, OPTION_ALTER_CASE, false);
+        addOption(options, null, OPTION_THREADS, true);
+        addOption(options, null, OPTION_BULK, false);
     }
     
     @Override
     protected boolean executeWithOptions(CommandLine line) throws Exception {
+        if (line.hasOption(OPTION_BULK)) {
+            /* the bulk loaders need an engine for their settings and staging area */
+            getSymmetricEngine(true);
+        }
         DbImport dbImport = new DbImport(getDatabasePlatform(true));
 
+        if (line.hasOption(OPTION_BULK)) {
+            dbImport.setDatabaseWriterFactory(new BulkDatabaseWriterFactory(getSymmetricEngine()));
+        }
+
+        if (line.hasOption(OPTION_THREADS)) {
+            dbImport.setThreadCount(Integer.parseInt(line.getOptionValue(OPTION_THREADS)));
+        }
+
         if (line.hasOption(OPTION_FORMAT)) {
             dbImport.setFormat(Format.valueOf(line.getOptionValue(OPTION_FORMAT).toUpperCase()));
         }
@@ -178,18 +201,39 @@ public class DbImportCommand extends AbstractCommandLauncher {
         if (args.length == 0) {
             dbImport.importTables(System.in, line.getOptionValue(OPTION_TABLE));
         } else {
+            List<File> files = new ArrayList<File>(args.length);
             for (String fileName : args) {
-                if (! new File(fileName).exists()) {
+                File file = new File(fileName);
+                if (!file.exists()) {
                     throw new RuntimeException("Cannot find file " + fileName);
                 }
+                files.add(file);
             }
-            for (String fileName : args) {
-                BufferedInputStream in = new BufferedInputStream(new FileInputStream(fileName));
-                dbImport.importTables(in, line.getOptionValue(OPTION_TABLE));
-                in.close();
-            }
+            dbImport.importTables(files.toArray(new File[files.size()]), line.getOptionValue(OPTION_TABLE));
         }
 
         return true;
     }
+
+    static class BulkDatabaseWriterFactory implements IDatabaseWriterFactory {
+
+        ISymmetricEngine engine;
+
+        BulkDataLoaderFactory bulkDataLoaderFactory;
+
+        BulkDatabaseWriterFactory(ISymmetricEngine engine) {
+            this.engine = engine;
+            this.bulkDataLoaderFactory = new BulkDataLoaderFactory();
+            this.bulkDataLoaderFactory.setSymmetricEngine(engine);
+        }
+
+        public IDataWriter createDatabaseWriter(DatabaseWriterSettings settings) {
+            List<Conflict> conflicts = new ArrayList<Conflict>(1);
+            conflicts.add(settings.getDefaultConflictSetting());
+            return bulkDataLoaderFactory.getDataWriter(null, engine.getSymmetricDialect(), null,
+                    settings.getDatabaseWriterFilters(),
+                    settings.getDatabaseWriterErrorHandlers(), conflicts, null);
+        }
+
+    }
 }
@@ -488,6 +488,100 @@ public class DbExportImportTest extends AbstractServiceTest {
 
     }
 
+    @Test
+    public void exportThenImportCsvInParallel() throws Exception {
+        ISymmetricEngine engine = getSymmetricEngine();
+        IDatabasePlatform platform = engine.getSymmetricDialect().getPlatform();
+        Database testTables = platform.readDatabaseFromXml("/test-dbimport.xml", true);
+        Table table = testTables.findTable("test_db_import_1", false);
+
+        recreateImportTable();
+
+        final int RECORD_COUNT = 100;
+
+        DbFill fill = new DbFill(platform);
+        fill.setRecordCount(RECORD_COUNT);
+        fill.fillTables(table.getName());
+
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+        List<Row> rowsBeforeImport = sqlTemplate.query(SELECT_FROM_TEST_DB_IMPORT_1_ORDER_BY_ID);
+
+        File dir = new File("target/test-parallel");
+        FileUtils.deleteDirectory(dir);
+
+        DbExport export = new DbExport(platform);
+        export.setFormat(Format.CSV);
+        export.setNoCreateInfo(true);
+        export.setDir(dir.getAbsolutePath());
+        export.setThreadCount(3);
+        export.setPartitions(4);
+        export.exportTables(new String[] { table.getName() });
+
+        File[] files = dir.listFiles();
+        Assert.assertEquals(4, files.length);
+
+        recreateImportTable();
+
+        DbImport importCsv = new DbImport(platform);
+        importCsv.setFormat(DbImport.Format.CSV);
+        importCsv.setThreadCount(4);
+        importCsv.importTables(files, null);
+
+        Assert.assertEquals(RECORD_COUNT, importCsv.getRowsImported());
+        compareRows(table, rowsBeforeImport, sqlTemplate.query(SELECT_FROM_TEST_DB_IMPORT_1_ORDER_BY_ID));
+    }
+
+    @Test
+    public void exportThenImportSqlInParallelWithForeignKeys() throws Exception {
+        ISymmetricEngine engine = getSymmetricEngine();
+        IDatabasePlatform platform = engine.getSymmetricDialect().getPlatform();
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+
+        dropParentChildTables(platform);
+        DbImport importXml = new DbImport(platform);
+        importXml.setFormat(DbImport.Format.XML);
+        importXml.setAlterCaseToMatchDatabaseDefaultCase(true);
+        importXml.importTables(getClass().getResourceAsStream("/test-dbexportimport-parent-child.xml"));
+
+        File dir = new File("target/test-parallel-fk");
+        FileUtils.deleteDirectory(dir);
+
+        DbExport export = new DbExport(platform);
+        export.setFormat(Format.SQL);
+        export.setDir(dir.getAbsolutePath());
+        export.setThreadCount(3);
+        export.setPartitions(2);
+        export.exportTables(new String[] { "test_db_export_child", "test_db_export_parent" });
+
+        File[] files = dir.listFiles();
+        Assert.assertEquals(5, files.length);
+        for (File file : files) {
+            boolean hasCreate = StringUtils.containsIgnoreCase(FileUtils.readFileToString(file), "create table");
+            Assert.assertEquals(file.getName(), file.getName().startsWith(DbExport.CREATE_TABLES_FILE_NAME + "."),
+                    hasCreate);
+        }
+
+        dropParentChildTables(platform);
+
+        DbImport importSql = new DbImport(platform);
+        importSql.setFormat(DbImport.Format.SQL);
+        importSql.setThreadCount(4);
+        importSql.importTables(files, null);
+
+        Assert.assertEquals(4, sqlTemplate.queryForInt("select count(*) from test_db_export_parent"));
+        Assert.assertEquals(8, sqlTemplate.queryForInt("select count(*) from test_db_export_child"));
+        dropParentChildTables(platform);
+    }
+
+    protected void dropParentChildTables(IDatabasePlatform platform) {
+        for (String tableName : new String[] { "test_db_export_child", "test_db_export_parent" }) {
+            Table table = platform.getTableFromCache(tableName, true);
+            if (table != null) {
+                platform.dropTables(false, table);
+            }
+        }
+    }
+
     @Test
     public void testExportCsvToDirectory() throws Exception {
         ISymmetricEngine engine = getSymmetricEngine();
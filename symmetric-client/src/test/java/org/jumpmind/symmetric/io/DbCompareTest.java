@@ -0,0 +1,120 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.io.DbCompareReport.TableReport;
+import org.jumpmind.symmetric.service.impl.AbstractServiceTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DbCompareTest extends AbstractServiceTest {
+
+    static final int ROW_COUNT = 5000;
+
+    @Before
+    public void setupTables() {
+        ISqlTemplate sqlTemplate = getSymmetricEngine().getDatabasePlatform().getSqlTemplate();
+        for (String table : new String[] { "compare_source", "compare_target" }) {
+            sqlTemplate.update("drop table if exists " + table);
+            sqlTemplate.update("create table " + table + " (id integer not null primary key, name varchar(50))");
+        }
+        for (int i = 1; i <= ROW_COUNT; i++) {
+            sqlTemplate.update("insert into compare_source values (?, ?)", i, "name " + i);
+        }
+        sqlTemplate.update("insert into compare_target select * from compare_source");
+        sqlTemplate.update("update compare_target set name='changed' where id=1234");
+        sqlTemplate.update("delete from compare_target where id=2500");
+        sqlTemplate.update("insert into compare_target values (" + (ROW_COUNT + 100) + ", 'extra')");
+    }
+
+    @Test
+    public void testCompare() {
+        assertReport(compare(false, 1));
+    }
+
+    @Test
+    public void testCompareWithFingerprints() {
+        final AtomicInteger databaseFingerprints = new AtomicInteger();
+        ISymmetricEngine engine = getSymmetricEngine();
+        assertReport(compare(new DbCompare(engine, engine, newConfig(true, 4)) {
+            @Override
+            protected Fingerprint getFingerprint(ISymmetricEngine engine, Table table, Column[] columns,
+                    String whereClause, boolean useDatabaseFingerprints) {
+                if (useDatabaseFingerprints) {
+                    databaseFingerprints.incrementAndGet();
+                }
+                return super.getFingerprint(engine, table, columns, whereClause, useDatabaseFingerprints);
+            }
+        }));
+        Assert.assertTrue(databaseFingerprints.get() > 0);
+    }
+
+    @Test
+    public void testCompareWithRowFingerprints() {
+        ISymmetricEngine engine = getSymmetricEngine();
+        assertReport(compare(new DbCompare(engine, engine, newConfig(true, 4)) {
+            @Override
+            protected boolean isDatabaseFingerprintSupported(DbCompareTables tables) {
+                return false;
+            }
+        }));
+    }
+
+    protected TableReport compare(boolean useFingerprints, int threadCount) {
+        ISymmetricEngine engine = getSymmetricEngine();
+        return compare(new DbCompare(engine, engine, newConfig(useFingerprints, threadCount)));
+    }
+
+    protected DbCompareConfig newConfig(boolean useFingerprints, int threadCount) {
+        DbCompareConfig config = new DbCompareConfig();
+        config.setUseSymmetricConfig(false);
+        config.setSourceTableNames(Arrays.asList("COMPARE_SOURCE"));
+        config.setTargetTableNames(Arrays.asList("COMPARE_TARGET"));
+        config.setUseFingerprints(useFingerprints);
+        config.setThreadCount(threadCount);
+        config.setChunkSize(1000);
+        return config;
+    }
+
+    protected TableReport compare(DbCompare dbCompare) {
+        DbCompareReport report = dbCompare.compare();
+        Assert.assertEquals(1, report.getTableReports().size());
+        return report.getTableReports().get(0);
+    }
+
+    protected void assertReport(TableReport tableReport) {
+        Assert.assertEquals(ROW_COUNT, tableReport.getSourceRows());
+        Assert.assertEquals(ROW_COUNT, tableReport.getTargetRows());
+        Assert.assertEquals(ROW_COUNT - 2, tableReport.getMatchedRows());
+        Assert.assertEquals(1, tableReport.getDifferentRows());
+        Assert.assertEquals(1, tableReport.getMissingRows());
+        Assert.assertEquals(1, tableReport.getExtraRows());
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Test;
+
+public class BshColumnTransformTest {
+
+    static final String SCRIPT = "if (LAST_NAME == null) { return currentValue; } return first_name + \" \" + LAST_NAME.toUpperCase();";
+
+    @Test
+    public void testCompiledMatchesInterpreted() throws Exception {
+        for (String script : new String[] { SCRIPT, "return currentValue + \"-\" + sourceDmlTypeString;",
+                "x = first_name; return x + channelId;" }) {
+            assertEquals(transform(false, script, "Pat", "Smith"), transform(true, script, "Pat", "Smith"));
+            assertEquals(transform(false, script, "Pat", null), transform(true, script, "Pat", null));
+        }
+        assertEquals("Pat SMITH", transform(true, SCRIPT, "Pat", "Smith"));
+    }
+
+    @Test
+    public void testIgnoreColumn() throws Exception {
+        String script = "if (LAST_NAME == null) { throw new org.jumpmind.symmetric.io.data.transform.IgnoreColumnException(); } return LAST_NAME;";
+        assertEquals("Smith", transform(true, script, "Pat", "Smith"));
+        try {
+            transform(true, script, "Pat", null);
+            fail("Expected the column to be ignored");
+        } catch (IgnoreColumnException ex) {
+        }
+    }
+
+    @Test
+    public void testNullResult() throws Exception {
+        assertNull(transform(true, "return null;", "Pat", "Smith"));
+    }
+
+    @Test
+    public void testChannelIdOfEachBatch() throws Exception {
+        BshColumnTransform transform = newTransform(true);
+        TransformColumn column = newColumn("return channelId;");
+        DataContext context = new DataContext(newBatch(1, "default"));
+        assertEquals("default", transform(transform, context, column, "Pat", "Smith"));
+        context.setBatch(newBatch(2, "reload"));
+        assertEquals("reload", transform(transform, context, column, "Pat", "Smith"));
+    }
+
+    protected Batch newBatch(long batchId, String channelId) {
+        return new Batch(BatchType.LOAD, batchId, channelId, BinaryEncoding.BASE64, "00000", "00001", false);
+    }
+
+    protected BshColumnTransform newTransform(boolean compile) {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.is(ParameterConstants.BSH_COMPILE_SCRIPTS, true)).thenReturn(compile);
+        return new BshColumnTransform(parameterService);
+    }
+
+    protected String transform(boolean compile, String script, String firstName, String lastName) throws Exception {
+        return transform(newTransform(compile), new DataContext(new Batch()), newColumn(script), firstName, lastName);
+    }
+
+    protected TransformColumn newColumn(String script) {
+        return new TransformColumn("first_name", "name", false, BshColumnTransform.NAME, script);
+    }
+
+    protected String transform(BshColumnTransform transform, DataContext context, TransformColumn column,
+            String firstName, String lastName) throws Exception {
+        Map<String, String> sourceValues = new LinkedHashMap<String, String>();
+        sourceValues.put("first_name", firstName);
+        sourceValues.put("last_name", lastName);
+        TransformTable transformTable = new TransformTable("person", "person", TransformPoint.LOAD, column);
+        TransformedData data = new TransformedData(transformTable, DataEventType.INSERT, sourceValues, null,
+                sourceValues);
+        NewAndOldValue value = transform.transform(mock(IDatabasePlatform.class), context, column, data,
+                sourceValues, firstName, null);
+        return value != null ? value.getNewValue() : null;
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.impl.AbstractServiceTest;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LookupColumnTransformTest extends AbstractServiceTest {
+
+    static final String LOOKUP_SQL = "select name from lookup_item where id = :ID";
+
+    ISqlTemplate sqlTemplate;
+
+    TransformColumn column;
+
+    @Before
+    public void setupLookupTable() {
+        sqlTemplate = getPlatform().getSqlTemplate();
+        sqlTemplate.update("drop table if exists lookup_item");
+        sqlTemplate.update("create table lookup_item (id integer primary key, name varchar(50))");
+        sqlTemplate.update("insert into lookup_item values (1, 'one')");
+        sqlTemplate.update("insert into lookup_item values (2, 'two')");
+        column = new TransformColumn("id", "name", false, LookupColumnTransform.NAME, LOOKUP_SQL);
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        LookupColumnTransform transform = new LookupColumnTransform(buildParameterService(0, 0));
+        DataContext context = new DataContext();
+        assertEquals("one", lookup(transform, context, "1"));
+        sqlTemplate.update("update lookup_item set name='uno' where id=1");
+        assertEquals("uno", lookup(transform, context, "1"));
+        assertNull(lookup(transform, context, "3"));
+    }
+
+    @Test
+    public void testLookupCache() throws Exception {
+        LookupColumnTransform transform = new LookupColumnTransform(buildParameterService(10, 0));
+        DataContext context = new DataContext();
+        assertEquals("one", lookup(transform, context, "1"));
+        sqlTemplate.update("update lookup_item set name='uno' where id=1");
+        assertEquals("one", lookup(transform, context, "1"));
+        assertEquals("uno", lookup(transform, new DataContext(), "1"));
+    }
+
+    @Test
+    public void testLookupPreload() throws Exception {
+        LookupColumnTransform transform = new LookupColumnTransform(buildParameterService(0, 100));
+        DataContext context = new DataContext();
+        assertEquals("one", lookup(transform, context, "1"));
+        sqlTemplate.update("update lookup_item set name='dos' where id=2");
+        sqlTemplate.update("insert into lookup_item values (3, 'three')");
+        assertEquals("two", lookup(transform, context, "2"));
+        assertEquals("three", lookup(transform, context, "3"));
+    }
+
+    @Test
+    public void testLookupPreloadTooManyRows() throws Exception {
+        LookupColumnTransform transform = new LookupColumnTransform(buildParameterService(0, 1));
+        DataContext context = new DataContext();
+        assertEquals("one", lookup(transform, context, "1"));
+        sqlTemplate.update("update lookup_item set name='dos' where id=2");
+        assertEquals("dos", lookup(transform, context, "2"));
+    }
+
+    protected String lookup(LookupColumnTransform transform, DataContext context, String id) throws Exception {
+        Map<String, String> sourceValues = new HashMap<String, String>();
+        sourceValues.put("ID", id);
+        TransformTable table = new TransformTable("source_item", "lookup_target", TransformPoint.LOAD, column);
+        TransformedData data = new TransformedData(table, DataEventType.INSERT, null, null, sourceValues);
+        return transform.transform(getPlatform(), context, column, data, sourceValues, id, null).getNewValue();
+    }
+
+    protected IParameterService buildParameterService(int cacheSize, int preloadMaxRows) {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 0)).thenReturn(cacheSize);
+        when(parameterService.getInt(ParameterConstants.TRANSFORM_LOOKUP_PRELOAD_MAX_ROWS, 0)).thenReturn(
+                preloadMaxRows);
+        return parameterService;
+    }
+
+}
@@ -30,6 +30,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -38,11 +40,13 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.io.DatabaseXmlUtil;
 import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.TableCacheSnapshot;
 import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.SqlException;
 import org.jumpmind.db.sql.SqlScript;
@@ -67,6 +71,7 @@ import org.jumpmind.symmetric.model.NodeStatus;
 import org.jumpmind.symmetric.model.ProcessInfo;
 import org.jumpmind.symmetric.model.ProcessInfo.ProcessStatus;
 import org.jumpmind.symmetric.model.RemoteNodeStatuses;
+import org.jumpmind.symmetric.model.TriggerHistory;
 import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IBandwidthService;
 import org.jumpmind.symmetric.service.IClusterService;
@@ -645,6 +650,7 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
                 symmetricDialect.verifyDatabaseIsCompatible();
                 setup();
                 if (isConfigured()) {
+                    loadTableCacheSnapshot();
                     Node node = nodeService.findIdentity();
                     checkSystemIntegrity(node);
                     isInitialized = true;
@@ -727,6 +733,70 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         return started;
     }
     
+    protected File getTableCacheSnapshotFile() {
+        return new File(parameterService.getTempDirectory(), "table-cache.dat");
+    }
+
+    /**
+     * The snapshot is only valid for the software version and the set of
+     * trigger histories that were active when it was taken. A table whose
+     * structure changes gets a new trigger history when triggers are synced.
+     */
+    protected String getTableCacheSnapshotKey() {
+        List<TriggerHistory> histories = new ArrayList<TriggerHistory>(
+                triggerRouterService.getActiveTriggerHistories());
+        Collections.sort(histories, new Comparator<TriggerHistory>() {
+            public int compare(TriggerHistory o1, TriggerHistory o2) {
+                return o1.getTriggerHistoryId() - o2.getTriggerHistoryId();
+            }
+        });
+        StringBuilder key = new StringBuilder();
+        key.append(Version.version()).append("|").append(platform.getName()).append("|")
+                .append(platform.getDefaultCatalog()).append("|").append(platform.getDefaultSchema());
+        for (TriggerHistory history : histories) {
+            key.append("|").append(history.getTriggerHistoryId()).append(":").append(history.getTableHash());
+        }
+        return DigestUtils.sha1Hex(key.toString());
+    }
+
+    /**
+     * Syncing triggers reads every table it manages from the database so that
+     * altered tables get new triggers, so the snapshot is only used, and only
+     * saved, when triggers are not synced at startup.
+     */
+    protected boolean isTableCacheSnapshotUsed() {
+        return parameterService.is(ParameterConstants.CACHE_TABLE_SNAPSHOT_ENABLED, false)
+                && !parameterService.is(ParameterConstants.AUTO_SYNC_TRIGGERS_AT_STARTUP, true);
+    }
+
+    protected void loadTableCacheSnapshot() {
+        if (isTableCacheSnapshotUsed()) {
+            try {
+                File file = getTableCacheSnapshotFile();
+                Map<String, Table> tables = TableCacheSnapshot.read(file, getTableCacheSnapshotKey());
+                if (tables != null) {
+                    platform.putCachedTables(tables);
+                    log.info("Restored {} tables into the table cache from {}", tables.size(), file.getAbsolutePath());
+                }
+            } catch (Exception ex) {
+                log.warn("Failed to restore the table cache snapshot", ex);
+            }
+        }
+    }
+
+    protected void saveTableCacheSnapshot() {
+        if (isTableCacheSnapshotUsed()) {
+            try {
+                File file = getTableCacheSnapshotFile();
+                Map<String, Table> tables = platform.getCachedTables();
+                TableCacheSnapshot.write(file, getTableCacheSnapshotKey(), tables);
+                log.info("Saved {} tables from the table cache to {}", tables.size(), file.getAbsolutePath());
+            } catch (Exception ex) {
+                log.warn("Failed to save the table cache snapshot", ex);
+            }
+        }
+    }
+
     protected void checkSystemIntegrity(Node node) {
         if (node != null && (!node.getExternalId().equals(getParameterService().getExternalId())
                 || !node.getNodeGroupId().equals(getParameterService().getNodeGroupId()))) {
@@ -872,6 +942,10 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
 
             Thread.interrupted();
         }
+
+        if (started) {
+            saveTableCacheSnapshot();
+        }
         
         started = false;
         starting = false;
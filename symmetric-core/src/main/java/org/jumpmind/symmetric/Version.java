@@ -32,6 +32,7 @@ final public class Version {
     public static final int[] VERSION_3_8_0 = new int[] {3,8,0};
     public static final int[] VERSION_3_8_18 = new int[] {3,8,18};
     public static final int[] VERSION_3_9_0 = new int[] {3,9,0};
+    public static final int[] VERSION_3_10_0 = new int[] {3,10,0};
 
     private static AbstractVersion version = new AbstractVersion() {
         @Override
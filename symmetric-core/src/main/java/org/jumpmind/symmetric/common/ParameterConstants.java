@@ -49,6 +49,7 @@ final public class ParameterConstants {
 
     public final static String JDBC_EXECUTE_BATCH_SIZE = "db.jdbc.execute.batch.size";
     public final static String JDBC_EXECUTE_BULK_BATCH_SIZE = "db.jdbc.bulk.execute.batch.size";
+    public final static String JDBC_STATEMENT_CACHE_SIZE = "db.jdbc.statement.cache.size";
     public final static String JDBC_EXECUTE_BULK_BATCH_OVERRIDE = "db.jdbc.bulk.execute.batch.override";
     public final static String JDBC_READ_STRINGS_AS_BYTES = "db.read.strings.as.bytes";
     public final static String JDBC_ISOLATION_LEVEL = "db.jdbc.isolation.level";
@@ -110,6 +111,10 @@ final public class ParameterConstants {
     public final static String REGISTRATION_REQUIRE_NODE_GROUP_LINK = "registration.require.node.group.link";
     public final static String REGISTRATION_REINITIALIZE_ENABLED = "registration.reinitialize.enable";
     public final static String REGISTRATION_REQUIRE_INITIAL_LOAD = "registration.require.initial.load";
+    public final static String REGISTRATION_CONFIG_CACHE_TIME_MS = "registration.config.cache.time.ms";
+    public final static String REGISTRATION_MAX_CONCURRENT = "registration.max.concurrent";
+    public final static String REGISTRATION_QUEUE_SIZE = "registration.queue.size";
+    public final static String REGISTRATION_QUEUE_WAIT_MS = "registration.queue.wait.ms";
 
     public final static String REGISTRATION_URL = "registration.url";
     public final static String SYNC_URL = "sync.url";
@@ -153,6 +158,7 @@ final public class ParameterConstants {
     public final static String INITIAL_LOAD_USE_RELOAD_CHANNEL = "initial.load.use.reload.channel";
     public final static String INITIAL_LOAD_REVERSE_FIRST = "initial.load.reverse.first";
     public final static String INITIAL_LOAD_USE_EXTRACT_JOB = "initial.load.use.extract.job.enabled";
+    public final static String INITIAL_LOAD_BULK_INSERT_ENABLED = "initial.load.bulk.insert.enabled";
     public final static String INITIAL_LOAD_CONCAT_CSV_IN_SQL_ENABLED = "initial.load.concat.csv.in.sql.enabled";
     public final static String INITIAL_LOAD_USE_COLUMN_TEMPLATES_ENABLED = "initial.load.use.column.templates.enabled";
     public final static String INITIAL_LOAD_EXTRACT_THREAD_COUNT_PER_SERVER = "initial.load.extract.thread.per.server.count";
@@ -163,6 +169,9 @@ final public class ParameterConstants {
     public final static String INITIAL_LOAD_SCHEMA_LOAD_COMMAND = "initial.load.schema.load.command";
     public final static String INITIAL_LOAD_TRANSPORT_MAX_BYTES_TO_SYNC = "initial.load.transport.max.bytes.to.sync";
     public final static String INITIAL_LOAD_USE_ESTIMATED_COUNTS = "initial.load.use.estimated.counts";
+    public final static String INITIAL_LOAD_ESTIMATED_COUNTS_FILTERED_MAX_ROWS = "initial.load.estimated.counts.filtered.max.rows";
+    public final static String INITIAL_LOAD_ROW_COUNT_THREAD_COUNT = "initial.load.row.count.thread.count";
+    public final static String INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS = "initial.load.row.count.cache.time.ms";
     public final static String INITIAL_LOAD_PURGE_STAGE_IMMEDIATE_THRESHOLD_ROWS = "initial.load.purge.stage.immediate.threshold.rows";
     public final static String INITIAL_LOAD_DEFER_CREATE_CONSTRAINTS = "initial.load.defer.create.constraints";
     
@@ -223,13 +232,23 @@ final public class ParameterConstants {
     public final static String DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT = "dataloader.sleep.time.after.early.commit";
     public final static String DATA_LOADER_TREAT_DATETIME_AS_VARCHAR = "db.treat.date.time.as.varchar.enabled";
     public final static String DATA_LOADER_USE_PRIMARY_KEYS_FROM_SOURCE = "dataloader.use.primary.keys.from.source";
+    public final static String DATA_LOADER_CONFLICT_PREFETCH_WINDOW_SIZE = "dataloader.conflict.prefetch.window.size";
 
     public final static String DATA_RELOAD_IS_BATCH_INSERT_TRANSACTIONAL = "datareload.batch.insert.transactional";
 
     public final static String DATA_EXTRACTOR_ENABLED = "dataextractor.enable";
+
+    public final static String EXTRACT_THREAD_COUNT_PER_NODE = "extract.thread.per.node.count";
+    public final static String EXTRACT_PIPELINE_ENABLED = "extract.pipeline.enabled";
+    public final static String EXTRACT_PIPELINE_BUFFER_SIZE = "extract.pipeline.buffer.size.bytes";
+    public final static String EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY = "extract.update.changed.columns.only";
     public final static String DATA_EXTRACTOR_TEXT_COLUMN_EXPRESSION = "dataextractor.text.column.expression";
     public final static String OUTGOING_BATCH_MAX_BATCHES_TO_SELECT = "outgoing.batches.max.to.select";
 
+    public final static String OUTGOING_BATCH_QUEUE_INDEX_ENABLED = "outgoing.batches.queue.index.enabled";
+
+    public final static String OUTGOING_BATCH_QUEUE_INDEX_SWEEP_PERIOD_MS = "outgoing.batches.queue.index.sweep.period.ms";
+
     public final static String DBDIALECT_ORACLE_USE_TRANSACTION_VIEW = "oracle.use.transaction.view";
     public final static String DBDIALECT_ORACLE_TEMPLATE_NUMBER_SPEC = "oracle.template.precision";
     public final static String DBDIALECT_ORACLE_USE_HINTS = "oracle.use.hints";
@@ -259,8 +278,12 @@ final public class ParameterConstants {
     public final static String TRANSPORT_HTTP_COMPRESSION_DISABLED_SERVLET = "web.compression.disabled";
     public final static String TRANSPORT_HTTP_COMPRESSION_LEVEL = "compression.level";
     public final static String TRANSPORT_HTTP_COMPRESSION_STRATEGY = "compression.strategy";
+    public final static String TRANSPORT_HTTP_COMPRESSION_CODEC = "http.compression.codec";
+    public final static String TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED = "http.binary.protocol.enabled";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_USERNAME = "http.basic.auth.username";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_PASSWORD = "http.basic.auth.password";
+    public final static String TRANSPORT_HTTP_MANAGER_CLASS = "http.transport.manager.class";
+    public final static String TRANSPORT_HTTP_POOL_BUFFER_SIZE = "http.pool.buffer.size";
     public final static String TRANSPORT_TYPE = "transport.type";
     public final static String TRANSPORT_MAX_BYTES_TO_SYNC = "transport.max.bytes.to.sync";
     public final static String TRANSPORT_MAX_ERROR_MILLIS = "transport.max.error.millis";
@@ -275,6 +298,7 @@ final public class ParameterConstants {
     public final static String CACHE_TIMEOUT_LOAD_FILTER_IN_MS = "cache.load.filter.time.ms";
     public final static String CACHE_TIMEOUT_CONFLICT_IN_MS = "cache.conflict.time.ms";
     public final static String CACHE_TIMEOUT_TABLES_IN_MS = "cache.table.time.ms";
+    public final static String CACHE_TABLE_SNAPSHOT_ENABLED = "cache.table.snapshot.enabled";
     public final static String CACHE_TIMEOUT_MONITOR_IN_MS = "cache.monitor.time.ms";
     public final static String CACHE_TIMEOUT_NOTIFICATION_IN_MS = "cache.notification.time.ms";
     public final static String CACHE_CHANNEL_COMMON_BATCHES_IN_MS = "cache.channel.common.batches.time.ms";
@@ -364,8 +388,26 @@ final public class ParameterConstants {
     public final static String FILE_SYNC_ENABLE = "file.sync.enable";
     
     public final static String FILE_SYNC_FAST_SCAN = "file.sync.fast.scan";
+
+    public final static String FILE_SYNC_WATCH_ENABLED = "file.sync.watch.enabled";
+
+    public final static String FILE_SYNC_WATCH_FULL_SCAN_PERIOD_MS = "file.sync.watch.full.scan.period.ms";
     
     public final static String FILE_SYNC_USE_CRC = "file.sync.use.crc";
+
+    public final static String FILE_SYNC_CRC_THREAD_COUNT = "file.sync.crc.thread.count";
+
+    public final static String FILE_SYNC_CRC_BUFFER_SIZE = "file.sync.crc.buffer.size";
+
+    public final static String FILE_SYNC_DELTA_ENABLED = "file.sync.delta.enabled";
+
+    public final static String FILE_SYNC_DELTA_BLOCK_SIZE = "file.sync.delta.block.size";
+
+    public final static String FILE_SYNC_DELTA_MIN_FILE_SIZE = "file.sync.delta.min.file.size";
+
+    public final static String FILE_SYNC_ZIP_THREAD_COUNT = "file.sync.zip.thread.count";
+
+    public final static String FILE_SYNC_ZIP_STORED_EXTENSIONS = "file.sync.zip.stored.extensions";
     
     public final static String FILE_SYNC_PREVENT_PING_BACK = "file.sync.prevent.ping.back";
 
@@ -378,6 +420,12 @@ final public class ParameterConstants {
     public final static String BSH_LOAD_FILTER_HANDLES_MISSING_TABLES = "bsh.load.filter.handles.missing.tables";
     
     public final static String BSH_TRANSFORM_GLOBAL_SCRIPT = "bsh.transform.global.script";
+
+    public final static String BSH_COMPILE_SCRIPTS = "bsh.compile.scripts";
+
+    public final static String TRANSFORM_LOOKUP_CACHE_SIZE = "transform.lookup.cache.size";
+
+    public final static String TRANSFORM_LOOKUP_PRELOAD_MAX_ROWS = "transform.lookup.preload.max.rows";
     
     public final static String MSSQL_ROW_LEVEL_LOCKS_ONLY = "mssql.allow.only.row.level.locks.on.runtime.tables";
     
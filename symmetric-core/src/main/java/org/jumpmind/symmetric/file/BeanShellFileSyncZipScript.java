@@ -53,6 +53,12 @@ public class BeanShellFileSyncZipScript extends FileSyncZipScript {
     @Override    
     public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
             FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile) {
+        buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, file, targetBaseDir, targetFile, false);
+    }
+
+    @Override
+    public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
+            FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile, boolean isDelta) {
         
         LastEventType eventType = snapshot.getLastEventType();
         StringBuilder command = new StringBuilder();
@@ -136,6 +142,14 @@ public class BeanShellFileSyncZipScript extends FileSyncZipScript {
                     }
                     
                     command.append("  if (processFile) {\n");
+                    if (isDelta) {
+                        command.append("    sourceFile = org.jumpmind.symmetric.file.FileSyncDelta.applyDelta(batchDir + \"/")
+                                .append(FileSyncDelta.DELTA_DIR).append("/\"");
+                        if (!snapshot.getRelativeDir().equals(".")) {
+                            command.append(" + sourceFilePath + \"/\"");
+                        }
+                        command.append(" + sourceFileName, sourceFile, targetFile);\n");
+                    }
                     command.append("    if (sourceFile.isDirectory()) {\n");
                     command.append("      org.apache.commons.io.FileUtils.copyDirectory(sourceFile, targetFile, true);\n");                                    
                     command.append("    } else {\n");
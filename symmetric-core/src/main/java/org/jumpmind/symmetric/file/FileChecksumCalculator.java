@@ -0,0 +1,214 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.util.CustomizableThreadFactory;
+
+/**
+ * Calculates the CRC32 checksum of file snapshots on a bounded pool of threads.
+ * The pool is started on first use and reused by every call until the
+ * calculator is closed, so one calculator should be shared by a whole scan.
+ * Each thread reads files through a direct buffer that it reuses for every
+ * file it is given.
+ */
+public class FileChecksumCalculator {
+
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    protected int threadCount;
+
+    protected int bufferSize;
+
+    protected ThreadPoolExecutor executor;
+
+    protected ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+
+    public FileChecksumCalculator(int threadCount, int bufferSize) {
+        this.threadCount = Math.max(1, threadCount);
+        this.bufferSize = Math.max(8192, bufferSize);
+    }
+
+    public static FileChecksumCalculator create(ISymmetricEngine engine) {
+        if (engine != null && engine.getParameterService() != null) {
+            IParameterService parameterService = engine.getParameterService();
+            return new FileChecksumCalculator(
+                    parameterService.getInt(ParameterConstants.FILE_SYNC_CRC_THREAD_COUNT, DEFAULT_THREAD_COUNT),
+                    parameterService.getInt(ParameterConstants.FILE_SYNC_CRC_BUFFER_SIZE, DEFAULT_BUFFER_SIZE));
+        }
+        return new FileChecksumCalculator(DEFAULT_THREAD_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Set the checksum of each snapshot that does not have one yet. A file
+     * that is removed while it is being read is changed to a delete event.
+     */
+    public void calculate(final FileTriggerRouter fileTriggerRouter, List<FileSnapshot> snapshots) {
+        final List<FileSnapshot> toCalculate = new ArrayList<FileSnapshot>();
+        for (FileSnapshot snapshot : snapshots) {
+            if (snapshot.getLastEventType() != LastEventType.DELETE && snapshot.getCrc32Checksum() == -1) {
+                toCalculate.add(snapshot);
+            }
+        }
+
+        int workerCount = Math.min(threadCount, toCalculate.size());
+        if (workerCount == 1) {
+            new Worker(fileTriggerRouter, toCalculate, new AtomicInteger()).call();
+        } else if (workerCount > 1) {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>(workerCount);
+            try {
+                ThreadPoolExecutor executor = getExecutor();
+                AtomicInteger nextIndex = new AtomicInteger();
+                for (int i = 0; i < workerCount; i++) {
+                    futures.add(executor.submit(new Worker(fileTriggerRouter, toCalculate, nextIndex)));
+                }
+                for (Future<Object> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IoException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IoException(e);
+            } finally {
+                for (Future<Object> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the threads of the pool. The calculator can still be used after
+     * it is closed, and it starts a new pool when it needs one.
+     */
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Threads that are idle for a minute stop, so a calculator that is not
+     * closed does not hold on to them.
+     */
+    protected synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new CustomizableThreadFactory("file-sync-crc"));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    protected ByteBuffer getBuffer() {
+        ByteBuffer buffer = buffers.get();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    public static long checksumCRC32(File file, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            channel.close();
+        }
+        return crc.getValue();
+    }
+
+    class Worker implements Callable<Object> {
+
+        FileTriggerRouter fileTriggerRouter;
+
+        List<FileSnapshot> snapshots;
+
+        AtomicInteger nextIndex;
+
+        Worker(FileTriggerRouter fileTriggerRouter, List<FileSnapshot> snapshots, AtomicInteger nextIndex) {
+            this.fileTriggerRouter = fileTriggerRouter;
+            this.snapshots = snapshots;
+            this.nextIndex = nextIndex;
+        }
+
+        public Object call() {
+            ByteBuffer buffer = getBuffer();
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < snapshots.size()) {
+                FileSnapshot snapshot = snapshots.get(index);
+                File file = fileTriggerRouter.getFileTrigger().createSourceFile(snapshot);
+                if (file.isFile()) {
+                    try {
+                        snapshot.setCrc32Checksum(checksumCRC32(file, buffer));
+                    } catch (NoSuchFileException ex) {
+                        snapshot.setLastEventType(LastEventType.DELETE);
+                        snapshot.setFileSize(0);
+                        snapshot.setFileModifiedTime(0);
+                    } catch (IOException ex) {
+                        throw new IoException(ex);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.exception.IoException;
+
+/**
+ * The rolling and strong checksums of each fixed size block of a file. A
+ * signature of the version last sent to a node is used to find the blocks
+ * that did not change in the next version of the file.
+ */
+public class FileSignature {
+
+    private static final int VERSION = 1;
+
+    private static final int STRONG_CHECKSUM_LENGTH = 16;
+
+    protected int blockSize;
+
+    protected long fileLength;
+
+    protected long crc32Checksum;
+
+    protected int[] weakChecksums;
+
+    protected byte[][] strongChecksums;
+
+    protected Map<Integer, List<Integer>> blocksByWeakChecksum;
+
+    public FileSignature(int blockSize, long fileLength, long crc32Checksum, int[] weakChecksums, byte[][] strongChecksums) {
+        this.blockSize = blockSize;
+        this.fileLength = fileLength;
+        this.crc32Checksum = crc32Checksum;
+        this.weakChecksums = weakChecksums;
+        this.strongChecksums = strongChecksums;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public long getCrc32Checksum() {
+        return crc32Checksum;
+    }
+
+    public int getBlockCount() {
+        return weakChecksums.length;
+    }
+
+    public int getBlockLength(int index) {
+        return (int) Math.min(blockSize, fileLength - (long) index * blockSize);
+    }
+
+    /**
+     * @return the index of the block with the same content as the bytes, or -1
+     *         if there is no such block
+     */
+    public int findBlock(int weakChecksum, byte[] bytes, int offset, int length) {
+        if (blocksByWeakChecksum == null) {
+            blocksByWeakChecksum = new HashMap<Integer, List<Integer>>(weakChecksums.length);
+            for (int i = 0; i < weakChecksums.length; i++) {
+                List<Integer> blocks = blocksByWeakChecksum.get(weakChecksums[i]);
+                if (blocks == null) {
+                    blocks = new ArrayList<Integer>(1);
+                    blocksByWeakChecksum.put(weakChecksums[i], blocks);
+                }
+                blocks.add(i);
+            }
+        }
+
+        List<Integer> blocks = blocksByWeakChecksum.get(weakChecksum);
+        if (blocks != null) {
+            byte[] strongChecksum = null;
+            for (Integer index : blocks) {
+                if (getBlockLength(index) == length) {
+                    if (strongChecksum == null) {
+                        strongChecksum = strongChecksum(bytes, offset, length);
+                    }
+                    if (Arrays.equals(strongChecksum, strongChecksums[index])) {
+                        return index;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    public void write(File file) {
+        file.getParentFile().mkdirs();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(VERSION);
+            out.writeInt(blockSize);
+            out.writeLong(fileLength);
+            out.writeLong(crc32Checksum);
+            out.writeInt(weakChecksums.length);
+            for (int i = 0; i < weakChecksums.length; i++) {
+                out.writeInt(weakChecksums[i]);
+                out.write(strongChecksums[i]);
+            }
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    public static FileSignature read(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IoException("Unsupported file signature version %d in %s", version, file.getAbsolutePath());
+            }
+            int blockSize = in.readInt();
+            long fileLength = in.readLong();
+            long crc32Checksum = in.readLong();
+            int blockCount = in.readInt();
+            int[] weakChecksums = new int[blockCount];
+            byte[][] strongChecksums = new byte[blockCount][];
+            for (int i = 0; i < blockCount; i++) {
+                weakChecksums[i] = in.readInt();
+                strongChecksums[i] = new byte[STRONG_CHECKSUM_LENGTH];
+                in.readFully(strongChecksums[i]);
+            }
+            return new FileSignature(blockSize, fileLength, crc32Checksum, weakChecksums, strongChecksums);
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    public static byte[] strongChecksum(byte[] bytes, int offset, int length) {
+        MessageDigest digest = createMessageDigest();
+        digest.update(bytes, offset, length);
+        return digest.digest();
+    }
+
+    protected static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The checksum from rsync that can be moved forward one byte at a time
+     * without reading the whole block again.
+     */
+    public static class RollingChecksum {
+
+        int a;
+
+        int b;
+
+        int length;
+
+        public void reset(byte[] bytes, int offset, int length) {
+            a = 0;
+            b = 0;
+            this.length = length;
+            for (int i = 0; i < length; i++) {
+                int value = bytes[offset + i] & 0xff;
+                a += value;
+                b += (length - i) * value;
+            }
+        }
+
+        public void roll(byte out, byte in) {
+            a += (in & 0xff) - (out & 0xff);
+            b += a - length * (out & 0xff);
+        }
+
+        public void trim(byte out) {
+            a -= out & 0xff;
+            b -= length * (out & 0xff);
+            length--;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public int getValue() {
+            return (a & 0xffff) | (b << 16);
+        }
+    }
+
+    /**
+     * Builds the signature of the bytes written to it.
+     */
+    public static class Builder extends OutputStream {
+
+        int blockSize;
+
+        byte[] block;
+
+        int blockLength;
+
+        long fileLength;
+
+        CRC32 crc = new CRC32();
+
+        RollingChecksum rollingChecksum = new RollingChecksum();
+
+        MessageDigest digest = createMessageDigest();
+
+        List<Integer> weakChecksums = new ArrayList<Integer>();
+
+        List<byte[]> strongChecksums = new ArrayList<byte[]>();
+
+        public Builder(int blockSize) {
+            this.blockSize = blockSize;
+            this.block = new byte[blockSize];
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            crc.update(bytes, offset, length);
+            fileLength += length;
+            while (length > 0) {
+                int count = Math.min(length, blockSize - blockLength);
+                System.arraycopy(bytes, offset, block, blockLength, count);
+                blockLength += count;
+                offset += count;
+                length -= count;
+                if (blockLength == blockSize) {
+                    addBlock();
+                }
+            }
+        }
+
+        protected void addBlock() {
+            rollingChecksum.reset(block, 0, blockLength);
+            weakChecksums.add(rollingChecksum.getValue());
+            digest.update(block, 0, blockLength);
+            strongChecksums.add(digest.digest());
+            blockLength = 0;
+        }
+
+        public FileSignature build() {
+            if (blockLength > 0) {
+                addBlock();
+            }
+            int[] weak = new int[weakChecksums.size()];
+            for (int i = 0; i < weak.length; i++) {
+                weak[i] = weakChecksums.get(i);
+            }
+            return new FileSignature(blockSize, fileLength, crc.getValue(), weak,
+                    strongChecksums.toArray(new byte[strongChecksums.size()][]));
+        }
+    }
+
+}
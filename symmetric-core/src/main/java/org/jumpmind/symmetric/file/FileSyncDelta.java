@@ -0,0 +1,282 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.exception.IoException;
+
+/**
+ * Creates and applies block level deltas between two versions of a file. A
+ * delta is a list of blocks to copy from the version the target already has
+ * and literal bytes for the content that changed.
+ */
+public class FileSyncDelta {
+
+    public static final String DELTA_DIR = ".symmetric-delta";
+
+    private static final int VERSION = 1;
+
+    private static final byte COPY = 1;
+
+    private static final byte LITERAL = 2;
+
+    private static final byte END = 3;
+
+    protected FileSignature baseSignature;
+
+    protected DataOutputStream out;
+
+    protected int copyStart = -1;
+
+    protected int copyCount;
+
+    protected FileSyncDelta(FileSignature baseSignature, DataOutputStream out) {
+        this.baseSignature = baseSignature;
+        this.out = out;
+    }
+
+    /**
+     * Write the delta from the version described by the base signature to the
+     * current content of the file. Every byte read from the file is also
+     * written to the new signature builder, so the signature of the version
+     * being sent is built in the same pass.
+     */
+    public static void createDelta(File file, FileSignature baseSignature, File deltaFile, FileSignature.Builder newSignature) {
+        InputStream in = null;
+        DataOutputStream out = null;
+        try {
+            in = new FileInputStream(file);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(deltaFile)));
+            out.writeInt(VERSION);
+            out.writeInt(baseSignature.getBlockSize());
+            out.writeLong(baseSignature.getFileLength());
+            out.writeLong(baseSignature.getCrc32Checksum());
+            new FileSyncDelta(baseSignature, out).write(in, newSignature);
+            FileSignature signature = newSignature.build();
+            out.writeByte(END);
+            out.writeLong(signature.getFileLength());
+            out.writeLong(signature.getCrc32Checksum());
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    protected void write(InputStream in, FileSignature.Builder newSignature) throws IOException {
+        int blockSize = baseSignature.getBlockSize();
+        byte[] buffer = new byte[blockSize + Math.max(blockSize, 65536)];
+        FileSignature.RollingChecksum rollingChecksum = new FileSignature.RollingChecksum();
+        int literalStart = 0;
+        int pos = 0;
+        int end = 0;
+        boolean eof = false;
+        boolean reset = true;
+
+        while (true) {
+            if (end - pos < blockSize && !eof) {
+                if (buffer.length - end < blockSize) {
+                    writeLiteral(buffer, literalStart, pos - literalStart);
+                    System.arraycopy(buffer, pos, buffer, 0, end - pos);
+                    end -= pos;
+                    pos = 0;
+                    literalStart = 0;
+                }
+                while (end < buffer.length && !eof) {
+                    int count = in.read(buffer, end, buffer.length - end);
+                    if (count < 0) {
+                        eof = true;
+                    } else {
+                        newSignature.write(buffer, end, count);
+                        end += count;
+                    }
+                }
+            }
+
+            if (pos == end) {
+                break;
+            }
+
+            if (reset) {
+                rollingChecksum.reset(buffer, pos, Math.min(blockSize, end - pos));
+                reset = false;
+            }
+
+            int length = rollingChecksum.getLength();
+            int block = baseSignature.findBlock(rollingChecksum.getValue(), buffer, pos, length);
+            if (block >= 0) {
+                writeLiteral(buffer, literalStart, pos - literalStart);
+                writeCopy(block);
+                pos += length;
+                literalStart = pos;
+                reset = true;
+            } else if (pos + length < end) {
+                rollingChecksum.roll(buffer[pos], buffer[pos + length]);
+                pos++;
+            } else {
+                rollingChecksum.trim(buffer[pos]);
+                pos++;
+            }
+        }
+
+        writeLiteral(buffer, literalStart, pos - literalStart);
+        flushCopy();
+    }
+
+    protected void writeCopy(int block) throws IOException {
+        if (copyStart >= 0 && copyStart + copyCount == block) {
+            copyCount++;
+        } else {
+            flushCopy();
+            copyStart = block;
+            copyCount = 1;
+        }
+    }
+
+    protected void flushCopy() throws IOException {
+        if (copyStart >= 0) {
+            out.writeByte(COPY);
+            out.writeInt(copyStart);
+            out.writeInt(copyCount);
+            copyStart = -1;
+            copyCount = 0;
+        }
+    }
+
+    protected void writeLiteral(byte[] bytes, int offset, int length) throws IOException {
+        if (length > 0) {
+            flushCopy();
+            out.writeByte(LITERAL);
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Rebuild the new version of a file from a delta and the version of the
+     * file that the delta was created from.
+     * 
+     * @throws FileConflictException
+     *             if the base file is not the version the delta was created
+     *             from
+     */
+    public static void applyDelta(File deltaFile, File baseFile, File resultFile) {
+        DataInputStream in = null;
+        RandomAccessFile base = null;
+        OutputStream out = null;
+        File tmpFile = new File(resultFile.getPath() + ".tmp");
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(deltaFile)));
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IoException("Unsupported file sync delta version %d in %s", version, deltaFile.getAbsolutePath());
+            }
+            int blockSize = in.readInt();
+            long baseLength = in.readLong();
+            long baseChecksum = in.readLong();
+            if (!baseFile.isFile() || baseFile.length() != baseLength || FileUtils.checksumCRC32(baseFile) != baseChecksum) {
+                throw new FileConflictException(baseFile.getPath()
+                        + " is not the version that the file sync delta was created from");
+            }
+
+            resultFile.getParentFile().mkdirs();
+            base = new RandomAccessFile(baseFile, "r");
+            CheckedOutputStream checkedOut = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)),
+                    new CRC32());
+            out = checkedOut;
+            byte[] buffer = new byte[Math.max(blockSize, 65536)];
+            long resultLength = 0;
+            while (true) {
+                byte command = in.readByte();
+                if (command == COPY) {
+                    long offset = (long) in.readInt() * blockSize;
+                    long length = Math.min((long) in.readInt() * blockSize, baseLength - offset);
+                    base.seek(offset);
+                    while (length > 0) {
+                        int count = (int) Math.min(buffer.length, length);
+                        base.readFully(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                        length -= count;
+                        resultLength += count;
+                    }
+                } else if (command == LITERAL) {
+                    int length = in.readInt();
+                    while (length > 0) {
+                        int count = Math.min(buffer.length, length);
+                        in.readFully(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                        length -= count;
+                        resultLength += count;
+                    }
+                } else if (command == END) {
+                    out.flush();
+                    if (resultLength != in.readLong() || checkedOut.getChecksum().getValue() != in.readLong()) {
+                        throw new IoException("The file rebuilt from the file sync delta %s did not match the source file",
+                                deltaFile.getAbsolutePath());
+                    }
+                    break;
+                } else {
+                    throw new IoException("Unexpected command %d in file sync delta %s", command, deltaFile.getAbsolutePath());
+                }
+            }
+            out.close();
+            out = null;
+            FileUtils.deleteQuietly(resultFile);
+            FileUtils.moveFile(tmpFile, resultFile);
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(base);
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Called by the sync script to rebuild a source file that was sent as a
+     * delta. The file is only rebuilt once when it is copied to more than one
+     * target.
+     */
+    public static File applyDelta(String deltaPath, File sourceFile, File targetFile) {
+        if (!sourceFile.exists()) {
+            applyDelta(new File(deltaPath), targetFile, sourceFile);
+        }
+        return sourceFile;
+    }
+
+}
@@ -20,21 +20,19 @@
  */
 package org.jumpmind.symmetric.file;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Set;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
-import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.CsvData;
@@ -44,6 +42,7 @@ import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
 import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.model.FileConflictStrategy;
 import org.jumpmind.symmetric.model.FileSnapshot;
 import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
 import org.jumpmind.symmetric.model.FileTrigger;
@@ -61,11 +60,16 @@ public class FileSyncZipDataWriter implements IDataWriter {
 
     static final Logger log = LoggerFactory.getLogger(FileSyncZipDataWriter.class);
 
+    protected static final String PENDING_SIGNATURE_DIR = ".pending";
+
     protected long byteCount;
     protected long maxBytesToSync;
     protected IFileSyncService fileSyncService;
     protected IStagedResource stagedResource;
-    protected ZipOutputStream zos;
+    protected ParallelZipOutput zipOutput;
+    protected int zipThreadCount = 1;
+    protected String zipStoredExtensions;
+    protected File zipTempDir;
     protected Table snapshotTable;
     protected Batch batch;
     protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
@@ -74,6 +78,10 @@ public class FileSyncZipDataWriter implements IDataWriter {
     protected INodeService nodeService;
     protected IExtensionService extensionService;
     protected IConfigurationService configurationService;
+    protected File deltaSignatureDir;
+    protected int deltaBlockSize;
+    protected long deltaMinFileSize;
+    protected boolean deltaEnabled;
     
     public FileSyncZipDataWriter(long maxBytesToSync, IFileSyncService fileSyncService,
             INodeService nodeService, IStagedResource stagedResource, IExtensionService extensionService, IConfigurationService configurationService) {
@@ -165,127 +173,148 @@ public class FileSyncZipDataWriter implements IDataWriter {
     }
 
     public void end(Batch batch, boolean inError) {
+        if (!inError) {
+            if (zipOutput == null) {
+                zipOutput = new ParallelZipOutput(stagedResource.getOutputStream(), zipThreadCount,
+                        zipStoredExtensions, zipTempDir);
+            }
+            
+            FileSyncZipScript script = createFileSyncZipScript(batch.getTargetNodeId());
+            script.buildScriptStart(batch);
 
-        try {
-            if (!inError) {
-                if (zos == null) {
-                    zos = new ZipOutputStream(stagedResource.getOutputStream());
-                }
-                
-                FileSyncZipScript script = createFileSyncZipScript(batch.getTargetNodeId());
-                script.buildScriptStart(batch);
-
-                Map<String, LastEventType> entriesByLastEventType = new HashMap<String, LastEventType>();
-                Map<String, String> entriesByLastRouterId = new HashMap<String, String>();
-                for (FileSnapshot snapshot : snapshotEvents) {
-                    FileTriggerRouter triggerRouter = fileSyncService.getFileTriggerRouter(
-                            snapshot.getTriggerId(), snapshot.getRouterId(), false);
-                    if (triggerRouter != null) {
-                        LastEventType eventType = snapshot.getLastEventType();
-
-                        FileTrigger fileTrigger = triggerRouter.getFileTrigger();
-
-                        String targetBaseDir = ((triggerRouter.getTargetBaseDir()==null)?null:triggerRouter.getTargetBaseDir().replace('\\', '/'));
-                        if (StringUtils.isBlank(targetBaseDir)) {
-                            targetBaseDir = ((fileTrigger.getBaseDir()==null)?null:fileTrigger.getBaseDir().replace('\\', '/'));
-                        }
-                        targetBaseDir = StringEscapeUtils.escapeJava(targetBaseDir);
+            Map<String, LastEventType> entriesByLastEventType = new HashMap<String, LastEventType>();
+            Map<String, String> entriesByLastRouterId = new HashMap<String, String>();
+            Set<String> deltaEntries = new HashSet<String>();
+            Map<File, FileSignature.Builder> signaturesToWrite = new HashMap<File, FileSignature.Builder>();
+            List<File> filesToDelete = new ArrayList<File>();
+            if (deltaSignatureDir != null) {
+                FileUtils.deleteQuietly(getPendingSignatureDir(batch));
+            }
+            for (FileSnapshot snapshot : snapshotEvents) {
+                FileTriggerRouter triggerRouter = fileSyncService.getFileTriggerRouter(
+                        snapshot.getTriggerId(), snapshot.getRouterId(), false);
+                if (triggerRouter != null) {
+                    LastEventType eventType = snapshot.getLastEventType();
 
-                        StringBuilder entryName = new StringBuilder(Long.toString(batch
-                                .getBatchId()));
-                        entryName.append("/");
-                        if (!snapshot.getRelativeDir().equals(".")) {
-                            entryName.append(snapshot.getRelativeDir()).append("/");
-                        }
-                        entryName.append(snapshot.getFileName());
+                    FileTrigger fileTrigger = triggerRouter.getFileTrigger();
 
-                        File file = fileTrigger.createSourceFile(snapshot);
-                        if (file.isDirectory()) {
-                            entryName.append("/");
-                        }
+                    String targetBaseDir = ((triggerRouter.getTargetBaseDir()==null)?null:triggerRouter.getTargetBaseDir().replace('\\', '/'));
+                    if (StringUtils.isBlank(targetBaseDir)) {
+                        targetBaseDir = ((fileTrigger.getBaseDir()==null)?null:fileTrigger.getBaseDir().replace('\\', '/'));
+                    }
+                    targetBaseDir = StringEscapeUtils.escapeJava(targetBaseDir);
 
-                        String targetFile = "targetBaseDir + \"/\" + targetRelativeDir + \"/\" + targetFileName"; 
-                                               
+                    StringBuilder entryName = new StringBuilder(Long.toString(batch
+                            .getBatchId()));
+                    entryName.append("/");
+                    if (!snapshot.getRelativeDir().equals(".")) {
+                        entryName.append(snapshot.getRelativeDir()).append("/");
+                    }
+                    entryName.append(snapshot.getFileName());
 
-                        LastEventType previousEventForEntry = entriesByLastEventType.get(entryName.toString());
-                        boolean addFileToZip = true;
-                        if (previousEventForEntry != null) {
-                            if ((previousEventForEntry == eventType)
-                                    || (previousEventForEntry == LastEventType.CREATE && eventType == LastEventType.MODIFY)) {
-                                addFileToZip = false;
-                            }
+                    File file = fileTrigger.createSourceFile(snapshot);
+                    if (file.isDirectory()) {
+                        entryName.append("/");
+                    }
+
+                    String targetFile = "targetBaseDir + \"/\" + targetRelativeDir + \"/\" + targetFileName"; 
+                                           
+
+                    LastEventType previousEventForEntry = entriesByLastEventType.get(entryName.toString());
+                    boolean addFileToZip = true;
+                    if (previousEventForEntry != null) {
+                        if ((previousEventForEntry == eventType)
+                                || (previousEventForEntry == LastEventType.CREATE && eventType == LastEventType.MODIFY)) {
+                            addFileToZip = false;
                         }
-                        
-                        
-                        String lastRouterId = entriesByLastRouterId.get(entryName.toString());
-                        boolean addFileToScript = !snapshot.getRouterId().equals(lastRouterId);
-
-                        if (addFileToZip) {
-                            if (eventType != LastEventType.DELETE) {
-                                if (file.exists()) {
-                                    byteCount += file.length();
-                                    ZipEntry entry = new ZipEntry(entryName.toString());
-                                    entry.setSize(file.length());
-                                    entry.setTime(file.lastModified());
-                                    zos.putNextEntry(entry);
-                                    if (file.isFile()) {
-                                        FileInputStream fis = new FileInputStream(file);
-                                        try {
-                                            IOUtils.copy(fis, zos);
-                                        } finally {
-                                            IOUtils.closeQuietly(fis);
+                    }
+                    
+                    
+                    String lastRouterId = entriesByLastRouterId.get(entryName.toString());
+                    boolean addFileToScript = !snapshot.getRouterId().equals(lastRouterId);
+
+                    File signatureFile = getSignatureFile(batch, snapshot);
+                    if (addFileToZip) {
+                        if (eventType != LastEventType.DELETE) {
+                            if (file.exists()) {
+                                FileSignature.Builder newSignature = null;
+                                if (signatureFile != null && file.isFile()) {
+                                    newSignature = new FileSignature.Builder(deltaBlockSize);
+                                    if (isDeltaAllowed(batch, snapshot, triggerRouter, file, signatureFile)) {
+                                        if (putDeltaEntry(batch, entryName.toString(), file, signatureFile, newSignature,
+                                                filesToDelete)) {
+                                            deltaEntries.add(entryName.toString());
+                                        } else {
+                                            newSignature = new FileSignature.Builder(deltaBlockSize);
                                         }
                                     }
-                                    zos.closeEntry();
-                                    entriesByLastEventType.put(entryName.toString(), eventType);
-                                    entriesByLastRouterId.put(entryName.toString(), snapshot.getRouterId());
-                                } else {
-                                    log.warn(
-                                            "Could not find the {} file to package for synchronization.  Skipping it.",
-                                            file.getAbsolutePath());
                                 }
+
+                                if (file.isDirectory()) {
+                                    zipOutput.putDirectory(entryName.toString(), file.lastModified());
+                                } else if (!deltaEntries.contains(entryName.toString())) {
+                                    byteCount += file.length();
+                                    zipOutput.putFile(entryName.toString(), file, file.lastModified(), newSignature);
+                                }
+                                if (newSignature != null) {
+                                    signaturesToWrite.put(new File(getPendingSignatureDir(batch), getSignaturePath(snapshot)),
+                                            newSignature);
+                                }
+                                entriesByLastEventType.put(entryName.toString(), eventType);
+                                entriesByLastRouterId.put(entryName.toString(), snapshot.getRouterId());
+                            } else {
+                                log.warn(
+                                        "Could not find the {} file to package for synchronization.  Skipping it.",
+                                        file.getAbsolutePath());
                             }
+                        } else if (signatureFile != null) {
+                            FileUtils.deleteQuietly(signatureFile);
                         }
-                        
-                        if (addFileToScript) {
-                            script.buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, 
-                                    file, targetBaseDir, targetFile);
-                        }
-
-                    } else {
-                        log.error(
-                                "Could not locate the file trigger ({}) router ({}) to process a snapshot event.  The event will be ignored",
-                                snapshot.getTriggerId(), snapshot.getRouterId());
                     }
-                }
-                
-                script.buildScriptEnd(batch);
-                ZipEntry entry = new ZipEntry(batch.getBatchId() + "/" + script.getScriptFileName(batch));
-                zos.putNextEntry(entry);
-                IOUtils.write(script.getScript().toString(), zos);
-                zos.closeEntry();
-                
-                entry = new ZipEntry(batch.getBatchId() + "/batch-info.txt");
-                zos.putNextEntry(entry);
-                IOUtils.write(batch.getChannelId(), zos);
-                zos.closeEntry();
+                    
+                    if (addFileToScript) {
+                        script.buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, 
+                                file, targetBaseDir, targetFile, deltaEntries.contains(entryName.toString()));
+                    }
 
+                } else {
+                    log.error(
+                            "Could not locate the file trigger ({}) router ({}) to process a snapshot event.  The event will be ignored",
+                            snapshot.getTriggerId(), snapshot.getRouterId());
+                }
+            }
+            
+            script.buildScriptEnd(batch);
+            long time = System.currentTimeMillis();
+            zipOutput.putBytes(batch.getBatchId() + "/" + script.getScriptFileName(batch),
+                    script.getScript().toString().getBytes(), time);
+            zipOutput.putBytes(batch.getBatchId() + "/batch-info.txt", batch.getChannelId().getBytes(), time);
 
+            if (signaturesToWrite.size() > 0 || filesToDelete.size() > 0) {
+                /*
+                 * the signatures are kept with the batch until it is
+                 * acknowledged, so wait for the files to be read
+                 */
+                try {
+                    zipOutput.flush();
+                    for (Map.Entry<File, FileSignature.Builder> signature : signaturesToWrite.entrySet()) {
+                        signature.getValue().build().write(signature.getKey());
+                    }
+                } finally {
+                    for (File fileToDelete : filesToDelete) {
+                        FileUtils.deleteQuietly(fileToDelete);
+                    }
+                }
             }
-        } catch (IOException e) {
-            throw new IoException(e);
-        }
 
+        }
     }
 
     public void finish() {
         try {
-            if (zos != null) {
-                zos.finish();
-                IOUtils.closeQuietly(zos);
+            if (zipOutput != null) {
+                zipOutput.finish();
             }
-        } catch (IOException e) {
-            throw new IoException(e);
         } finally {
             if (stagedResource != null) {
                 stagedResource.setState(IStagedResource.State.DONE);
@@ -294,6 +323,156 @@ public class FileSyncZipDataWriter implements IDataWriter {
         }
     }
 
+    /**
+     * Compress the files on a pool of threads, storing files with one of the
+     * extensions as they are because they are already compressed.
+     */
+    public void setZipOptions(int threadCount, String storedExtensions, File tempDir) {
+        this.zipThreadCount = threadCount;
+        this.zipStoredExtensions = storedExtensions;
+        this.zipTempDir = tempDir;
+    }
+
+    /**
+     * Send changed files as block level deltas against the version last
+     * acknowledged by the target node. Signatures of the versions that were
+     * acknowledged are kept under the signature directory for each target
+     * node. Signatures of versions that were sent but not acknowledged yet
+     * are kept by batch under the pending directory.
+     */
+    public void setDeltaOptions(File signatureDir, int blockSize, long minFileSize) {
+        this.deltaSignatureDir = signatureDir;
+        this.deltaBlockSize = blockSize;
+        this.deltaMinFileSize = minFileSize;
+    }
+
+    /**
+     * Deltas are turned off for the next batch when it is being resent after
+     * an error, so a node that does not have the expected version of a file
+     * gets the whole file.
+     */
+    public void setDeltaEnabled(boolean deltaEnabled) {
+        this.deltaEnabled = deltaEnabled;
+    }
+
+    protected File getSignatureFile(Batch batch, FileSnapshot snapshot) {
+        if (deltaSignatureDir == null || isCClient(batch.getTargetNodeId())) {
+            return null;
+        }
+        return new File(new File(deltaSignatureDir, batch.getTargetNodeId()), getSignaturePath(snapshot));
+    }
+
+    protected String getSignaturePath(FileSnapshot snapshot) {
+        StringBuilder path = new StringBuilder();
+        path.append(snapshot.getTriggerId()).append("/").append(snapshot.getRouterId()).append("/");
+        if (!snapshot.getRelativeDir().equals(".")) {
+            path.append(snapshot.getRelativeDir()).append("/");
+        }
+        path.append(snapshot.getFileName()).append(".sig");
+        return path.toString();
+    }
+
+    protected File getPendingSignatureDir(Batch batch) {
+        return getPendingSignatureDir(deltaSignatureDir, batch.getTargetNodeId(), batch.getBatchId());
+    }
+
+    protected static File getPendingSignatureDir(File signatureDir, String nodeId, long batchId) {
+        return new File(new File(new File(signatureDir, PENDING_SIGNATURE_DIR), nodeId), Long.toString(batchId));
+    }
+
+    /**
+     * @return true if another batch that has not been acknowledged yet sent a
+     *         version of the file, because the target might have that version
+     *         or the acknowledged version
+     */
+    protected boolean hasPendingSignature(Batch batch, FileSnapshot snapshot) {
+        File[] batchDirs = getPendingSignatureDir(batch).getParentFile().listFiles();
+        if (batchDirs != null) {
+            String path = getSignaturePath(snapshot);
+            for (File batchDir : batchDirs) {
+                if (!batchDir.getName().equals(Long.toString(batch.getBatchId())) && new File(batchDir, path).exists()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected boolean isDeltaAllowed(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, File file,
+            File signatureFile) {
+        return deltaEnabled && snapshot.getLastEventType() == LastEventType.MODIFY
+                && triggerRouter.getConflictStrategy() == FileConflictStrategy.SOURCE_WINS
+                && file.length() >= deltaMinFileSize && signatureFile.exists()
+                && !hasPendingSignature(batch, snapshot);
+    }
+
+    /**
+     * Make the signatures of the files sent in a batch the ones that the next
+     * deltas are built against, now that the target node has loaded the
+     * batch. Signatures for the same files that are still pending from older
+     * batches are removed because they were replaced.
+     */
+    public static void acknowledgeSignatures(File signatureDir, String nodeId, long batchId) {
+        File batchDir = getPendingSignatureDir(signatureDir, nodeId, batchId);
+        if (!batchDir.isDirectory()) {
+            return;
+        }
+        File[] otherBatchDirs = batchDir.getParentFile().listFiles();
+        String batchPath = batchDir.getAbsolutePath();
+        for (File pendingFile : FileUtils.listFiles(batchDir, null, true)) {
+            String path = pendingFile.getAbsolutePath().substring(batchPath.length() + 1);
+            File signatureFile = new File(new File(signatureDir, nodeId), path);
+            try {
+                FileUtils.deleteQuietly(signatureFile);
+                FileUtils.moveFile(pendingFile, signatureFile);
+            } catch (IOException e) {
+                log.warn("Could not save the file sync signature {}.  The next change to the file will be sent whole.  {}",
+                        signatureFile.getAbsolutePath(), e.getMessage());
+                FileUtils.deleteQuietly(signatureFile);
+            }
+            if (otherBatchDirs != null) {
+                for (File otherBatchDir : otherBatchDirs) {
+                    if (isOlderBatchDir(otherBatchDir, batchId)) {
+                        FileUtils.deleteQuietly(new File(otherBatchDir, path));
+                    }
+                }
+            }
+        }
+        FileUtils.deleteQuietly(batchDir);
+        if (otherBatchDirs != null) {
+            for (File otherBatchDir : otherBatchDirs) {
+                if (isOlderBatchDir(otherBatchDir, batchId) && FileUtils.listFiles(otherBatchDir, null, true).size() == 0) {
+                    FileUtils.deleteQuietly(otherBatchDir);
+                }
+            }
+        }
+    }
+
+    protected static boolean isOlderBatchDir(File batchDir, long batchId) {
+        try {
+            return batchDir.isDirectory() && Long.parseLong(batchDir.getName()) < batchId;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    protected boolean putDeltaEntry(Batch batch, String entryName, File file, File signatureFile,
+            FileSignature.Builder newSignature, List<File> filesToDelete) {
+        File deltaFile = new File(signatureFile.getPath() + ".delta");
+        filesToDelete.add(deltaFile);
+        FileSyncDelta.createDelta(file, FileSignature.read(signatureFile), deltaFile, newSignature);
+        if (deltaFile.length() < file.length()) {
+            byteCount += deltaFile.length();
+            zipOutput.putFile(batch.getBatchId() + "/" + FileSyncDelta.DELTA_DIR + entryName.substring(entryName.indexOf("/")),
+                    deltaFile, file.lastModified(), null);
+            log.debug("Sending {} as a delta of {} bytes instead of {} bytes", new Object[] { file.getAbsolutePath(),
+                    deltaFile.length(), file.length() });
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     public boolean readyToSend() {
         return byteCount > maxBytesToSync;
     }
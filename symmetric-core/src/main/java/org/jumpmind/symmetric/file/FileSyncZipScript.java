@@ -37,6 +37,15 @@ public abstract class FileSyncZipScript {
     
     public abstract void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
             FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile);
+
+    /**
+     * Build the script for a file that may have been sent as a delta, which
+     * needs to be rebuilt from the target file before it is copied.
+     */
+    public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter,
+            FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile, boolean isDelta) {
+        buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, file, targetBaseDir, targetFile);
+    }
     
     public abstract void buildScriptEnd(Batch batch);
     
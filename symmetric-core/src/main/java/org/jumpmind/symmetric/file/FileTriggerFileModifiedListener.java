@@ -49,6 +49,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
     protected ProcessInfo processInfo;
     protected boolean isSyncOnCtlFile;
     protected boolean useCrc;
+    protected FileChecksumCalculator checksumCalculator;
     protected ISymmetricEngine engine;
     protected Map<String, DirectorySnapshot> modifiedDirs = new HashMap<String, DirectorySnapshot>();
 
@@ -59,6 +60,16 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
 
     public FileTriggerFileModifiedListener(FileTriggerRouter fileTriggerRouter, Date fromDate, Date toDate, ProcessInfo processInfo, 
             boolean useCrc, FileModifiedCallback fileModifiedCallback, ISymmetricEngine engine) {
+        this(fileTriggerRouter, fromDate, toDate, processInfo, useCrc ? FileChecksumCalculator.create(engine) : null,
+                fileModifiedCallback, engine);
+    }
+
+    /**
+     * @param checksumCalculator Calculates checksums for the scan, or null to
+     *            skip checksums
+     */
+    public FileTriggerFileModifiedListener(FileTriggerRouter fileTriggerRouter, Date fromDate, Date toDate, ProcessInfo processInfo,
+            FileChecksumCalculator checksumCalculator, FileModifiedCallback fileModifiedCallback, ISymmetricEngine engine) {
         this.fileTriggerRouter = fileTriggerRouter;
         this.snapshot = new DirectorySnapshot(fileTriggerRouter);
         this.fromDate = fromDate;
@@ -66,8 +77,9 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
         this.fileModifiedCallback = fileModifiedCallback;
         this.processInfo = processInfo;
         this.isSyncOnCtlFile = fileTriggerRouter.getFileTrigger().isSyncOnCtlFile();
-        this.useCrc = useCrc;
+        this.useCrc = checksumCalculator != null;
         this.engine = engine;
+        this.checksumCalculator = checksumCalculator;
         this.processInfo.setStatus(ProcessInfo.ProcessStatus.PROCESSING);
     }
     
@@ -114,6 +126,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
             DirectorySnapshot lastSnapshot = fileModifiedCallback.getLastDirectorySnapshot(relativeDir);
             DirectorySnapshot currentSnapshot = modifiedDirs.get(relativeDir);
             modifiedDirFileCount += currentSnapshot.size();
+            calculateChecksums(currentSnapshot);
             DirectorySnapshot changesSinceLastSnapshot = lastSnapshot.diff(currentSnapshot);
             processInfo.setCurrentDataCount(processInfo.getCurrentDataCount() + lastSnapshot.size() + currentSnapshot.size());
             if (changesSinceLastSnapshot.size() > 0) {
@@ -145,7 +158,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
     protected void addSnapshot(File file, LastEventType lastEventType, boolean isDir) {
         fileCount++;
         processInfo.incrementCurrentDataCount();
-        FileSnapshot fileSnapshot = new FileSnapshot(fileTriggerRouter, file, lastEventType, useCrc);
+        FileSnapshot fileSnapshot = new FileSnapshot(fileTriggerRouter, file, lastEventType, false);
         DirectorySnapshot modifiedDir = modifiedDirs.get(fileSnapshot.getRelativeDir());
         
         if (!isDir && modifiedDir != null) {
@@ -179,7 +192,14 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
         }
     }
 
+    protected void calculateChecksums(DirectorySnapshot dirSnapshot) {
+        if (useCrc) {
+            checksumCalculator.calculate(fileTriggerRouter, dirSnapshot);
+        }
+    }
+
     protected void commit() {
+        calculateChecksums(snapshot);
         fileModifiedCallback.commit(snapshot);
         snapshot.clear();        
     }
@@ -46,6 +46,7 @@ public class FileTriggerTracker {
     private ProcessInfo processInfo;
     private ISymmetricEngine engine;
     protected boolean useCrc;
+    protected FileChecksumCalculator checksumCalculator;
 
     long startTime = System.currentTimeMillis();
     long ts = startTime;
@@ -53,10 +54,20 @@ public class FileTriggerTracker {
     
     public FileTriggerTracker(FileTriggerRouter fileTriggerRouter, DirectorySnapshot lastSnapshot, ProcessInfo processInfo,
             boolean useCrc, ISymmetricEngine engine) {
+        this(fileTriggerRouter, lastSnapshot, processInfo, useCrc ? FileChecksumCalculator.create(engine) : null, engine);
+    }
+
+    /**
+     * @param checksumCalculator Calculates checksums for the scan, or null to
+     *            skip checksums
+     */
+    public FileTriggerTracker(FileTriggerRouter fileTriggerRouter, DirectorySnapshot lastSnapshot, ProcessInfo processInfo,
+            FileChecksumCalculator checksumCalculator, ISymmetricEngine engine) {
         this.fileTriggerRouter = fileTriggerRouter;
         this.processInfo = processInfo;
-        this.useCrc = useCrc;
+        this.useCrc = checksumCalculator != null;
         this.engine = engine;
+        this.checksumCalculator = checksumCalculator;
         
         changesSinceLastSnapshot = new DirectorySnapshot(fileTriggerRouter);
         fileObserver = new FileAlterationObserver(fileTriggerRouter.getFileTrigger().getBaseDir(), fileTriggerRouter.getFileTrigger()
@@ -71,6 +82,7 @@ public class FileTriggerTracker {
             this.lastSnapshot = lastSnapshot;
             DirectorySnapshot currentSnapshot = new DirectorySnapshot(fileTriggerRouter);
             takeFullSnapshot(currentSnapshot);
+            calculateChecksums(currentSnapshot);
             changesSinceLastSnapshot.addAll(lastSnapshot.diff(currentSnapshot));
         } catch (RuntimeException e) {
             throw e;
@@ -89,6 +101,7 @@ public class FileTriggerTracker {
 
     synchronized public DirectorySnapshot trackChanges() {
         pollForChanges();
+        calculateChecksums(changesSinceLastSnapshot);
         DirectorySnapshot changes = changesSinceLastSnapshot;
         changesSinceLastSnapshot = new DirectorySnapshot(fileTriggerRouter);
         SnapshotUpdater newListener = new SnapshotUpdater(changesSinceLastSnapshot);
@@ -103,6 +116,12 @@ public class FileTriggerTracker {
         return changes;
     }
 
+    protected void calculateChecksums(DirectorySnapshot snapshot) {
+        if (useCrc) {
+            checksumCalculator.calculate(fileTriggerRouter, snapshot);
+        }
+    }
+
     synchronized protected void takeFullSnapshot(DirectorySnapshot snapshot) {
         // update the snapshot with every file in the directory spec
         FileAlterationObserver observer = new FileAlterationObserver(fileTriggerRouter.getFileTrigger().getBaseDir(), fileTriggerRouter
@@ -166,7 +185,7 @@ public class FileTriggerTracker {
             if (processInfo != null) {
                 processInfo.incrementCurrentDataCount();
             }
-            snapshot.add(new FileSnapshot(snapshot.getFileTriggerRouter(), file, lastEventType, useCrc));
+            snapshot.add(new FileSnapshot(snapshot.getFileTriggerRouter(), file, lastEventType, false));
             
             if (System.currentTimeMillis() - ts > 60000) {
                 log.info("File tracker has been processing for {} seconds.  The following stats have been gathered: {}", new Object[] {
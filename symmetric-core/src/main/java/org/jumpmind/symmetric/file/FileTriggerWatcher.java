@@ -0,0 +1,249 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks changes to the files of a {@link FileTriggerRouter} with a native
+ * {@link WatchService} instead of walking the directory tree. Events are
+ * collected between calls to {@link #pollChanges()}, so the cost of tracking
+ * follows the number of changes rather than the number of files.
+ * <p>
+ * Some changes cannot be seen by watching, like events dropped by the
+ * operating system or a directory that is moved out of the tree, so a full
+ * scan is still needed from time to time to reconcile. {@link #isOverflowed()}
+ * reports when events have been lost.
+ */
+public class FileTriggerWatcher {
+
+    final protected Logger log = LoggerFactory.getLogger(getClass());
+
+    private FileTriggerRouter fileTriggerRouter;
+
+    private IOFileFilter fileFilter;
+
+    private boolean recurse;
+
+    private WatchService watchService;
+
+    private Map<WatchKey, Path> watchedDirs = new HashMap<WatchKey, Path>();
+
+    private Set<Path> watchedPaths = new HashSet<Path>();
+
+    private boolean overflowed;
+
+    private long lastFullScanTime;
+
+    public FileTriggerWatcher(FileTriggerRouter fileTriggerRouter) throws IOException {
+        this.fileTriggerRouter = fileTriggerRouter;
+        this.fileFilter = fileTriggerRouter.getFileTrigger().createIOFileFilter();
+        this.recurse = fileTriggerRouter.getFileTrigger().isRecurse();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            long ts = System.currentTimeMillis();
+            register(new File(fileTriggerRouter.getFileTrigger().getBaseDir()).toPath(), null);
+            log.info("Watching {} directories for file trigger {} in {} ms", new Object[] { watchedDirs.size(),
+                    fileTriggerRouter.getFileTrigger().getTriggerId(), System.currentTimeMillis() - ts });
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Register a directory, and its sub directories if the trigger recurses.
+     * When files is not null, the files that are already in the directories
+     * are added as created because they may have been written before the
+     * directory was watched.
+     */
+    protected void register(Path dir, final Map<File, LastEventType> files) throws IOException {
+        if (!recurse) {
+            watch(dir);
+        } else {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                    watch(subDir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    if (files != null && fileFilter.accept(path.toFile())) {
+                        addEvent(files, path.toFile(), LastEventType.CREATE);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    protected void watch(Path dir) throws IOException {
+        watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+        watchedPaths.add(dir);
+    }
+
+    /**
+     * @return the files that changed since the last call, with the last kind
+     *         of change seen for each
+     */
+    public synchronized Map<File, LastEventType> pollChanges() {
+        Map<File, LastEventType> files = new LinkedHashMap<File, LastEventType>();
+        WatchKey key = null;
+        while ((key = watchService.poll()) != null) {
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    overflowed = true;
+                } else if (dir != null) {
+                    Path path = dir.resolve((Path) event.context());
+                    File file = path.toFile();
+                    boolean isDir = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+                    if (event.kind() == ENTRY_CREATE) {
+                        if (isDir && recurse) {
+                            try {
+                                register(path, files);
+                            } catch (IOException e) {
+                                log.warn("Unable to watch new directory {}.  {}", file.getAbsolutePath(), e.getMessage());
+                                overflowed = true;
+                            }
+                        }
+                        if (fileFilter.accept(file)) {
+                            addEvent(files, file, LastEventType.CREATE);
+                        }
+                    } else if (event.kind() == ENTRY_MODIFY) {
+                        if (!isDir && fileFilter.accept(file)) {
+                            addEvent(files, file, LastEventType.MODIFY);
+                        }
+                    } else if (event.kind() == ENTRY_DELETE) {
+                        if (fileFilter.accept(file) || watchedPaths.contains(path)) {
+                            addEvent(files, file, LastEventType.DELETE);
+                        }
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchedPaths.remove(watchedDirs.remove(key));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Combine a new event with the event already seen for the same file since
+     * the last poll.
+     */
+    protected void addEvent(Map<File, LastEventType> files, File file, LastEventType lastEventType) {
+        LastEventType previous = files.get(file);
+        if (previous == null || lastEventType == LastEventType.DELETE) {
+            files.put(file, lastEventType);
+        } else if (previous == LastEventType.DELETE) {
+            files.put(file, LastEventType.MODIFY);
+        }
+    }
+
+    /**
+     * Convert polled changes to file snapshots, reading the current size,
+     * modified time and checksum of the files that still exist. Checksums are
+     * skipped when the calculator is null.
+     */
+    public DirectorySnapshot toDirectorySnapshot(Map<File, LastEventType> files, ProcessInfo processInfo,
+            FileChecksumCalculator checksumCalculator) {
+        DirectorySnapshot snapshot = new DirectorySnapshot(fileTriggerRouter);
+        for (Map.Entry<File, LastEventType> entry : files.entrySet()) {
+            File file = entry.getKey();
+            LastEventType lastEventType = entry.getValue();
+            if (lastEventType != LastEventType.DELETE && !file.exists()) {
+                lastEventType = LastEventType.DELETE;
+            }
+            if (processInfo != null) {
+                processInfo.incrementCurrentDataCount();
+            }
+            snapshot.add(new FileSnapshot(fileTriggerRouter, file, lastEventType, false));
+        }
+        if (checksumCalculator != null) {
+            checksumCalculator.calculate(fileTriggerRouter, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return true if events were lost since the last call, which means a full
+     *         scan is needed to find all the changes
+     */
+    public synchronized boolean isOverflowed() {
+        boolean value = overflowed;
+        overflowed = false;
+        return value;
+    }
+
+    public int getWatchedDirCount() {
+        return watchedDirs.size();
+    }
+
+    public long getLastFullScanTime() {
+        return lastFullScanTime;
+    }
+
+    public void setLastFullScanTime(long lastFullScanTime) {
+        this.lastFullScanTime = lastFullScanTime;
+    }
+
+    public FileTriggerRouter getFileTriggerRouter() {
+        return fileTriggerRouter;
+    }
+
+    public void close() {
+        IOUtils.closeQuietly(watchService);
+    }
+
+}
@@ -0,0 +1,518 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.util.CustomizableThreadFactory;
+
+/**
+ * Writes a zip file whose entries are compressed on a pool of threads while
+ * the entries before them are being written. Entries are written in the order
+ * they were added, so a reader can process them as they arrive. Files with an
+ * extension that is already compressed are stored instead of deflated again.
+ * Every file is read once, and the bytes that were checksummed are the bytes
+ * written, so a file that changes while it is added is sent as it was read.
+ */
+public class ParallelZipOutput {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final int UTF8_FLAG = 0x0800;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int IN_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static final String DEFAULT_STORED_EXTENSIONS = "zip,gz,tgz,bz2,xz,7z,rar,jar,war,ear,jpg,jpeg,png,gif,mp3,mp4,mov,avi,mkv,docx,xlsx,pptx";
+
+    protected CountingOutputStream out;
+
+    protected ExecutorService executor;
+
+    protected int maxPendingEntries;
+
+    protected LinkedList<Future<Entry>> pendingEntries = new LinkedList<Future<Entry>>();
+
+    protected List<Entry> writtenEntries = new ArrayList<Entry>();
+
+    protected Set<String> storedExtensions = new HashSet<String>();
+
+    protected File tempDir;
+
+    protected byte[] buffer = new byte[65536];
+
+    public ParallelZipOutput(OutputStream out, int threadCount, String storedExtensions, File tempDir) {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, 65536));
+        this.tempDir = tempDir;
+        if (threadCount > 1) {
+            this.executor = Executors.newFixedThreadPool(threadCount, new CustomizableThreadFactory("file-sync-zip"));
+        }
+        this.maxPendingEntries = Math.max(1, threadCount * 2);
+        if (storedExtensions != null) {
+            for (String extension : storedExtensions.split(",")) {
+                if (extension.trim().length() > 0) {
+                    this.storedExtensions.add(extension.trim().toLowerCase(Locale.US));
+                }
+            }
+        }
+    }
+
+    public void putDirectory(String name, long time) {
+        final Entry entry = new Entry(name.endsWith("/") ? name : name + "/", time, STORED);
+        addEntry(new Callable<Entry>() {
+            public Entry call() {
+                return entry;
+            }
+        });
+    }
+
+    public void putBytes(String name, byte[] bytes, long time) {
+        final Entry entry = new Entry(name, time, DEFLATED);
+        final byte[] data = bytes;
+        addEntry(new Callable<Entry>() {
+            public Entry call() throws Exception {
+                return deflate(entry, new ByteArrayInputStream(data), null);
+            }
+        });
+    }
+
+    /**
+     * Add a file to the zip. Every byte read from the file is also written to
+     * the copy stream when it is not null.
+     */
+    public void putFile(String name, final File file, long time, final OutputStream copy) {
+        boolean stored = storedExtensions.contains(FilenameUtils.getExtension(file.getName()).toLowerCase(Locale.US));
+        final Entry entry = new Entry(name, time, stored ? STORED : DEFLATED);
+        addEntry(new Callable<Entry>() {
+            public Entry call() throws Exception {
+                InputStream in = new FileInputStream(file);
+                try {
+                    if (entry.method == STORED) {
+                        return store(entry, in, copy);
+                    } else {
+                        return deflate(entry, in, copy);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for the entries that were added to be compressed and written.
+     */
+    public void flush() {
+        while (pendingEntries.size() > 0) {
+            writeNextEntry();
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    public void finish() {
+        try {
+            flush();
+            writeCentralDirectory();
+            out.flush();
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            close();
+        }
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (Future<Entry> future : pendingEntries) {
+            try {
+                if (future.isDone() && !future.isCancelled()) {
+                    future.get().deleteData();
+                } else {
+                    future.cancel(true);
+                }
+            } catch (Exception e) {
+            }
+        }
+        pendingEntries.clear();
+    }
+
+    public long getByteCount() {
+        return out.getByteCount();
+    }
+
+    protected void addEntry(Callable<Entry> task) {
+        if (pendingEntries.size() >= maxPendingEntries) {
+            writeNextEntry();
+        }
+        if (executor != null) {
+            pendingEntries.add(executor.submit(task));
+        } else {
+            pendingEntries.add(new CompletedEntry(task));
+        }
+        while (pendingEntries.size() > 0 && pendingEntries.getFirst().isDone()) {
+            writeNextEntry();
+        }
+    }
+
+    protected void writeNextEntry() {
+        Entry entry = null;
+        try {
+            entry = pendingEntries.removeFirst().get();
+            writeEntry(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IoException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IoException(e);
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            if (entry != null) {
+                entry.deleteData();
+            }
+        }
+    }
+
+    protected Entry deflate(Entry entry, InputStream in, OutputStream copy) throws IOException {
+        CheckedInputStream checkedIn = new CheckedInputStream(copy != null ? new TeeInputStream(in, copy) : in, new CRC32());
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        DeferredFileOutputStream data = new DeferredFileOutputStream(IN_MEMORY_THRESHOLD, "filesync", ".zip", tempDir);
+        try {
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(data, deflater, 65536);
+            entry.size = IOUtils.copyLarge(checkedIn, deflaterOut, new byte[65536]);
+            deflaterOut.finish();
+            deflaterOut.close();
+        } finally {
+            deflater.end();
+            IOUtils.closeQuietly(data);
+        }
+        entry.crc = checkedIn.getChecksum().getValue();
+        entry.compressedSize = data.getByteCount();
+        if (data.isInMemory()) {
+            entry.data = data.getData();
+        } else {
+            entry.dataFile = data.getFile();
+        }
+        return entry;
+    }
+
+    protected Entry store(Entry entry, InputStream in, OutputStream copy) throws IOException {
+        CheckedInputStream checkedIn = new CheckedInputStream(copy != null ? new TeeInputStream(in, copy) : in, new CRC32());
+        DeferredFileOutputStream data = new DeferredFileOutputStream(IN_MEMORY_THRESHOLD, "filesync", ".zip", tempDir);
+        try {
+            entry.size = IOUtils.copyLarge(checkedIn, data, new byte[65536]);
+        } finally {
+            IOUtils.closeQuietly(data);
+        }
+        entry.crc = checkedIn.getChecksum().getValue();
+        entry.compressedSize = entry.size;
+        if (data.isInMemory()) {
+            entry.data = data.getData();
+        } else {
+            entry.dataFile = data.getFile();
+        }
+        return entry;
+    }
+
+    protected void writeEntry(Entry entry) throws IOException {
+        entry.offset = out.getByteCount();
+        boolean zip64 = entry.isZip64();
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(zip64 ? 45 : 20);
+        writeShort(UTF8_FLAG);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt((int) entry.crc);
+        writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 20 : 0);
+        out.write(entry.name);
+        if (zip64) {
+            writeShort(1);
+            writeShort(16);
+            writeLong(entry.size);
+            writeLong(entry.compressedSize);
+        }
+
+        if (entry.data != null) {
+            out.write(entry.data);
+        } else if (entry.dataFile != null) {
+            copy(entry.dataFile, entry.compressedSize);
+        }
+        writtenEntries.add(entry);
+    }
+
+    protected void copy(File file, long length) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            long copied = IOUtils.copyLarge(in, out, 0, length, buffer);
+            if (copied != length) {
+                throw new IoException("The temporary file %s for the zip was truncated", file.getAbsolutePath());
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    protected void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = out.getByteCount();
+        for (Entry entry : writtenEntries) {
+            boolean zip64Sizes = entry.isZip64();
+            boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+            int extraLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(zip64Sizes || zip64Offset ? 45 : 20);
+            writeShort(zip64Sizes || zip64Offset ? 45 : 20);
+            writeShort(UTF8_FLAG);
+            writeShort(entry.method);
+            writeInt(entry.dosTime);
+            writeInt((int) entry.crc);
+            writeInt(zip64Sizes ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(zip64Sizes ? ZIP64_MAGIC : entry.size);
+            writeShort(entry.name.length);
+            writeShort(extraLength > 0 ? extraLength + 4 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(entry.isDirectory() ? 0x10 : 0);
+            writeInt(zip64Offset ? ZIP64_MAGIC : entry.offset);
+            out.write(entry.name);
+            if (extraLength > 0) {
+                writeShort(1);
+                writeShort(extraLength);
+                if (zip64Sizes) {
+                    writeLong(entry.size);
+                    writeLong(entry.compressedSize);
+                }
+                if (zip64Offset) {
+                    writeLong(entry.offset);
+                }
+            }
+        }
+        long centralDirectoryLength = out.getByteCount() - centralDirectoryOffset;
+
+        int entryCount = writtenEntries.size();
+        if (entryCount >= 0xFFFF || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectoryLength >= ZIP64_MAGIC) {
+            long zip64EndOffset = out.getByteCount();
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(45);
+            writeShort(45);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entryCount);
+            writeLong(entryCount);
+            writeLong(centralDirectoryLength);
+            writeLong(centralDirectoryOffset);
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+            writeInt(END_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0xFFFF);
+            writeShort(0xFFFF);
+            writeInt(ZIP64_MAGIC);
+            writeInt(ZIP64_MAGIC);
+        } else {
+            writeInt(END_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entryCount);
+            writeShort(entryCount);
+            writeInt(centralDirectoryLength);
+            writeInt(centralDirectoryOffset);
+        }
+        writeShort(0);
+    }
+
+    protected void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+    }
+
+    protected void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xffff));
+        writeShort((int) ((value >>> 16) & 0xffff));
+    }
+
+    protected void writeLong(long value) throws IOException {
+        writeInt(value & ZIP64_MAGIC);
+        writeInt(value >>> 32);
+    }
+
+    protected static int toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    static class Entry {
+
+        byte[] name;
+
+        int dosTime;
+
+        int method;
+
+        long crc;
+
+        long size;
+
+        long compressedSize;
+
+        long offset;
+
+        byte[] data;
+
+        File dataFile;
+
+        Entry(String name, long time, int method) {
+            this.name = name.getBytes(UTF8);
+            this.dosTime = toDosTime(time);
+            this.method = method;
+        }
+
+        boolean isDirectory() {
+            return name.length > 0 && name[name.length - 1] == '/';
+        }
+
+        boolean isZip64() {
+            return size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC;
+        }
+
+        void deleteData() {
+            data = null;
+            if (dataFile != null) {
+                FileUtils.deleteQuietly(dataFile);
+                dataFile = null;
+            }
+        }
+    }
+
+    /**
+     * An entry that is compressed as soon as it is added, used when there is
+     * no thread pool.
+     */
+    static class CompletedEntry implements Future<Entry> {
+
+        Entry entry;
+
+        ExecutionException exception;
+
+        CompletedEntry(Callable<Entry> task) {
+            try {
+                this.entry = task.call();
+            } catch (Exception e) {
+                this.exception = new ExecutionException(e);
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            return true;
+        }
+
+        public Entry get() throws ExecutionException {
+            if (exception != null) {
+                throw exception;
+            }
+            return entry;
+        }
+
+        public Entry get(long timeout, TimeUnit unit) throws ExecutionException {
+            return get();
+        }
+    }
+
+}
@@ -22,11 +22,20 @@ package org.jumpmind.symmetric.io;
 
 import java.io.Closeable;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
@@ -35,12 +44,14 @@ import org.apache.commons.lang.time.DurationFormatUtils;
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.sql.DmlStatement;
 import org.jumpmind.db.sql.DmlStatement.DmlType;
 import org.jumpmind.db.sql.ISqlReadCursor;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.common.TableConstants;
@@ -49,17 +60,44 @@ import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerHistory;
 import org.jumpmind.symmetric.model.TriggerRouter;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
+import org.jumpmind.util.CustomizableThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * DbCompare has the ability to compare two SQL-based datasources and output a report of
  * of differences, and optionally SQL to bring the target into sync with the source. 
+ * <p>
+ * When fingerprints are enabled, tables with an integer leading primary key column are
+ * split into key ranges. A row count and hash is calculated for each range on both sides
+ * and only the ranges that differ are compared row by row.
  */
 public class DbCompare {
 
     final Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * A mismatching key range is split into this many ranges before drilling down.
+     */
+    protected static final int DRILL_DOWN_SPLIT = 10;
+
+    /**
+     * Key ranges of this size or smaller are compared row by row when their fingerprints differ.
+     */
+    protected static final long DRILL_DOWN_MIN_RANGE = 1000;
+
+    /**
+     * The chunk size is increased for tables with sparse keys so they are not split into more ranges than this.
+     */
+    protected static final int MAX_KEY_RANGES = 10000;
+
+    /**
+     * Before SQL Server 2016, hashbytes() fails on input longer than this, so wider rows use row fingerprints.
+     */
+    protected static final int MSSQL_HASHBYTES_MAX_INPUT = 8000;
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
     ISqlRowMapper<Row> defaultRowMapper = new ISqlRowMapper<Row>() {
         @Override
         public Row mapRow(Row row) {
@@ -91,17 +129,21 @@ public class DbCompare {
         long start = System.currentTimeMillis();
         List<DbCompareTables> tablesToCompare = getTablesToCompare();
         report.printReportHeader(System.out);
-        for (DbCompareTables tables : tablesToCompare) {
-            try {
-                TableReport tableReport = compareTables(tables, sqlDiffOutput);
-                report.addTableReport(tableReport);
-                long elapsed = System.currentTimeMillis() - start;
-                log.info("Completed table {}.  Elapsed time: {}", tableReport, 
-                        DurationFormatUtils.formatDurationWords((elapsed), true, true));
-                report.printTableReport(tableReport, System.out);               
-            } catch (Exception e) {
-                log.error("Exception while comparing " + tables.getSourceTable() + 
-                        " to " + tables.getTargetTable(), e);
+        if (config.getThreadCount() > 1 || config.isUseFingerprints()) {
+            compareTablesConcurrently(tablesToCompare, sqlDiffOutput, report, start);
+        } else {
+            for (DbCompareTables tables : tablesToCompare) {
+                try {
+                    TableReport tableReport = compareTables(tables, sqlDiffOutput);
+                    report.addTableReport(tableReport);
+                    long elapsed = System.currentTimeMillis() - start;
+                    log.info("Completed table {}.  Elapsed time: {}", tableReport, 
+                            DurationFormatUtils.formatDurationWords((elapsed), true, true));
+                    report.printTableReport(tableReport, System.out);               
+                } catch (Exception e) {
+                    log.error("Exception while comparing " + tables.getSourceTable() + 
+                            " to " + tables.getTargetTable(), e);
+                }
             }
         }
 
@@ -149,10 +191,36 @@ public class DbCompare {
         String sourceSelect = getSourceComparisonSQL(tables, sourceEngine.getDatabasePlatform());
         String targetSelect = getTargetComparisonSQL(tables, targetEngine.getDatabasePlatform());
 
-        CountingSqlReadCursor sourceCursor = new CountingSqlReadCursor(sourceEngine.getDatabasePlatform().
-                getSqlTemplateDirty().queryForCursor(sourceSelect, defaultRowMapper));
-        CountingSqlReadCursor targetCursor = new CountingSqlReadCursor(targetEngine.getDatabasePlatform().
-                getSqlTemplateDirty().queryForCursor(targetSelect, defaultRowMapper));
+        DbCompareDiffWriter diffWriter = null;
+        OutputStream stream = null;
+        if (sqlDiffOutput != null) {
+            diffWriter = new DbCompareDiffWriter(targetEngine, tables, sqlDiffOutput);
+        } else {
+            stream = getSqlDiffOutputStream(tables);
+            diffWriter = new DbCompareDiffWriter(targetEngine, tables, stream);
+        }
+
+        try {
+            return compareRows(tables, sourceSelect, targetSelect, diffWriter, dbValueComparator);
+        } finally {
+            if (stream != null) {                
+                IOUtils.closeQuietly(stream);
+            }
+        }
+    }
+
+    protected TableReport compareRows(DbCompareTables tables, String sourceSelect, String targetSelect,
+            DbCompareDiffWriter diffWriter, DbValueComparator dbValueComparator) {
+        return compareRows(tables,
+                sourceEngine.getDatabasePlatform().getSqlTemplateDirty().queryForCursor(sourceSelect, defaultRowMapper),
+                targetEngine.getDatabasePlatform().getSqlTemplateDirty().queryForCursor(targetSelect, defaultRowMapper),
+                diffWriter, dbValueComparator);
+    }
+
+    protected TableReport compareRows(DbCompareTables tables, ISqlReadCursor<Row> sourceRows,
+            ISqlReadCursor<Row> targetRows, DbCompareDiffWriter diffWriter, DbValueComparator dbValueComparator) {
+        CountingSqlReadCursor sourceCursor = new CountingSqlReadCursor(sourceRows);
+        CountingSqlReadCursor targetCursor = new CountingSqlReadCursor(targetRows);
 
         TableReport tableReport = new TableReport();
         tableReport.setSourceTable(tables.getSourceTable().getName());
@@ -163,15 +231,6 @@ public class DbCompare {
 
         int counter = 0;
         long startTime = System.currentTimeMillis();
-        
-        DbCompareDiffWriter diffWriter = null;
-        OutputStream stream = null;
-        if (sqlDiffOutput != null) {
-            diffWriter = new DbCompareDiffWriter(targetEngine, tables, sqlDiffOutput);
-        } else {
-            stream = getSqlDiffOutputStream(tables);
-            diffWriter = new DbCompareDiffWriter(targetEngine, tables, stream);
-        }
 
         try {        
             while (true) {  
@@ -190,37 +249,34 @@ public class DbCompare {
 
                 DbCompareRow sourceCompareRow = sourceRow != null ? 
                         new DbCompareRow(sourceEngine, dbValueComparator, tables.getSourceTable(), sourceRow) : null;
-                        DbCompareRow targetCompareRow = targetRow != null ? 
-                                new DbCompareRow(targetEngine, dbValueComparator,  tables.getTargetTable(), targetRow) : null;
-
-                                int comparePk = comparePk(tables, sourceCompareRow, targetCompareRow);
-                                if (comparePk == 0) {
-                                    Map<Column, String> deltas = sourceCompareRow.compareTo(tables, targetCompareRow);
-                                    if (deltas.isEmpty()) {
-                                        tableReport.countMatchedRow();                    
-                                    } else {
-                                        diffWriter.writeUpdate(targetCompareRow, deltas);
-                                        tableReport.countDifferentRow();
-                                    }
-
-                                    sourceRow = sourceCursor.next();
-                                    targetRow = targetCursor.next();
-                                } else if (comparePk < 0) {
-                                    diffWriter.writeInsert(sourceCompareRow);
-                                    tableReport.countMissingRow();
-                                    sourceRow = sourceCursor.next();
-                                } else {
-                                    diffWriter.writeDelete(targetCompareRow);
-                                    tableReport.countExtraRow();
-                                    targetRow = targetCursor.next();
-                                }
-                                tableReport.setSourceRows(sourceCursor.count);
-                                tableReport.setTargetRows(targetCursor.count);
+                DbCompareRow targetCompareRow = targetRow != null ? 
+                        new DbCompareRow(targetEngine, dbValueComparator,  tables.getTargetTable(), targetRow) : null;
+
+                int comparePk = comparePk(tables, sourceCompareRow, targetCompareRow);
+                if (comparePk == 0) {
+                    Map<Column, String> deltas = sourceCompareRow.compareTo(tables, targetCompareRow);
+                    if (deltas.isEmpty()) {
+                        tableReport.countMatchedRow();                    
+                    } else {
+                        diffWriter.writeUpdate(targetCompareRow, deltas);
+                        tableReport.countDifferentRow();
+                    }
+
+                    sourceRow = sourceCursor.next();
+                    targetRow = targetCursor.next();
+                } else if (comparePk < 0) {
+                    diffWriter.writeInsert(sourceCompareRow);
+                    tableReport.countMissingRow();
+                    sourceRow = sourceCursor.next();
+                } else {
+                    diffWriter.writeDelete(targetCompareRow);
+                    tableReport.countExtraRow();
+                    targetRow = targetCursor.next();
+                }
+                tableReport.setSourceRows(sourceCursor.count);
+                tableReport.setTargetRows(targetCursor.count);
             }
         } finally {
-            if (stream != null) {                
-                IOUtils.closeQuietly(stream);
-            }
             IOUtils.closeQuietly(sourceCursor);
             IOUtils.closeQuietly(targetCursor);
         }
@@ -228,6 +284,354 @@ public class DbCompare {
         return tableReport;
     }
 
+    protected void compareTablesConcurrently(List<DbCompareTables> tablesToCompare, OutputStream sqlDiffOutput,
+            DbCompareReport report, long start) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(config.getThreadCount(), 1),
+                new CustomizableThreadFactory("dbcompare"));
+        List<TableCompareJob> jobs = new ArrayList<TableCompareJob>(tablesToCompare.size());
+        try {
+            for (DbCompareTables tables : tablesToCompare) {
+                try {
+                    jobs.add(submitTable(executor, tables, sqlDiffOutput));
+                } catch (Exception e) {
+                    log.error("Exception while comparing " + tables.getSourceTable() + 
+                            " to " + tables.getTargetTable(), e);
+                }
+            }
+
+            for (TableCompareJob job : jobs) {
+                try {
+                    TableReport tableReport = job.getTableReport();
+                    report.addTableReport(tableReport);
+                    long elapsed = System.currentTimeMillis() - start;
+                    log.info("Completed table {}.  Elapsed time: {}", tableReport, 
+                            DurationFormatUtils.formatDurationWords((elapsed), true, true));
+                    report.printTableReport(tableReport, System.out);
+                } catch (InterruptedException e) {
+                    throw new SymmetricException("Interrupted while comparing " + job.tables.getSourceTable(), e);
+                } catch (ExecutionException e) {
+                    log.error("Exception while comparing " + job.tables.getSourceTable() + 
+                            " to " + job.tables.getTargetTable(), e.getCause());
+                } finally {
+                    job.close();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected TableCompareJob submitTable(ExecutorService executor, final DbCompareTables tables,
+            OutputStream sqlDiffOutput) {
+        final TableCompareJob job = new TableCompareJob(tables, sqlDiffOutput);
+        List<KeyRange> keyRanges = config.isUseFingerprints() ? getKeyRanges(tables) : null;
+        if (keyRanges == null) {
+            final String sourceSelect = getSourceComparisonSQL(tables, sourceEngine.getDatabasePlatform());
+            final String targetSelect = getTargetComparisonSQL(tables, targetEngine.getDatabasePlatform());
+            job.futures.add(executor.submit(new Callable<TableReport>() {
+                public TableReport call() {
+                    return compareRows(tables, sourceSelect, targetSelect, job.diffWriter, createDbValueComparator());
+                }
+            }));
+        } else {
+            final boolean useDatabaseFingerprints = isDatabaseFingerprintSupported(tables);
+            log.info("Comparing {} in {} key ranges using {} fingerprints", new Object[] {
+                    tables.getSourceTable().getName(), keyRanges.size(), useDatabaseFingerprints ? "database" : "row" });
+            for (final KeyRange keyRange : keyRanges) {
+                job.futures.add(executor.submit(new Callable<TableReport>() {
+                    public TableReport call() {
+                        TableReport tableReport = new TableReport();
+                        compareRange(tables, keyRange, useDatabaseFingerprints, job.diffWriter,
+                                createDbValueComparator(), tableReport);
+                        return tableReport;
+                    }
+                }));
+            }
+        }
+        return job;
+    }
+
+    protected void compareRange(DbCompareTables tables, KeyRange keyRange, boolean useDatabaseFingerprints,
+            DbCompareDiffWriter diffWriter, DbValueComparator dbValueComparator, TableReport tableReport) {
+        Table sourceTable = tables.getSourceTable();
+        Table targetTable = tables.getTargetTable();
+        IDatabasePlatform sourcePlatform = sourceEngine.getDatabasePlatform();
+        IDatabasePlatform targetPlatform = targetEngine.getDatabasePlatform();
+        Column sourceKeyColumn = sourceTable.getPrimaryKeyColumns()[0];
+        Column targetKeyColumn = tables.getColumnMapping().get(sourceKeyColumn);
+
+        String sourceWhereClause = getKeyRangeWhereClause(config.getSourceWhereClause(sourceTable.getName()),
+                sourceKeyColumn, keyRange, sourcePlatform);
+        String targetWhereClause = getKeyRangeWhereClause(config.getTargetWhereClause(targetTable.getName()),
+                targetKeyColumn, keyRange, targetPlatform);
+
+        List<Column> sourceColumns = new ArrayList<Column>();
+        List<Column> targetColumns = new ArrayList<Column>();
+        for (Column sourceColumn : sourceTable.getColumns()) {
+            Column targetColumn = tables.getColumnMapping().get(sourceColumn);
+            if (targetColumn != null) {
+                sourceColumns.add(sourceColumn);
+                targetColumns.add(targetColumn);
+            }
+        }
+
+        Fingerprint sourceFingerprint = getFingerprint(sourceEngine, sourceTable,
+                sourceColumns.toArray(new Column[sourceColumns.size()]), sourceWhereClause, useDatabaseFingerprints);
+        Fingerprint targetFingerprint = getFingerprint(targetEngine, targetTable,
+                targetColumns.toArray(new Column[targetColumns.size()]), targetWhereClause, useDatabaseFingerprints);
+
+        if (sourceFingerprint.equals(targetFingerprint)) {
+            tableReport.setSourceRows(tableReport.getSourceRows() + sourceFingerprint.count);
+            tableReport.setTargetRows(tableReport.getTargetRows() + targetFingerprint.count);
+            tableReport.setMatchedRows(tableReport.getMatchedRows() + sourceFingerprint.count);
+        } else if (useDatabaseFingerprints && keyRange.size() > DRILL_DOWN_MIN_RANGE) {
+            log.debug("Fingerprints differ for {} {}, drilling down", sourceTable.getName(), keyRange);
+            for (KeyRange subRange : keyRange.split(DRILL_DOWN_SPLIT)) {
+                compareRange(tables, subRange, useDatabaseFingerprints, diffWriter, dbValueComparator, tableReport);
+            }
+        } else if (useDatabaseFingerprints) {
+            log.debug("Fingerprints differ for {} {}, comparing rows", sourceTable.getName(), keyRange);
+            TableReport rangeReport = compareRows(tables,
+                    getComparisonSQL(sourceTable, sourceTable.getPrimaryKeyColumns(), sourcePlatform, sourceWhereClause),
+                    getComparisonSQL(targetTable, targetTable.getPrimaryKeyColumns(), targetPlatform, targetWhereClause),
+                    diffWriter, dbValueComparator);
+            addTableReport(tableReport, rangeReport);
+        } else {
+            log.debug("Fingerprints differ for {} {}, comparing rows", sourceTable.getName(), keyRange);
+            TableReport rangeReport = compareRows(tables, new RowMemoryCursor(sourceFingerprint.rows),
+                    new RowMemoryCursor(targetFingerprint.rows), diffWriter, dbValueComparator);
+            addTableReport(tableReport, rangeReport);
+        }
+    }
+
+    /**
+     * Split a table into ranges of its leading primary key column. Returns null if
+     * the table cannot be split, in which case it is compared row by row.
+     */
+    protected List<KeyRange> getKeyRanges(DbCompareTables tables) {
+        Table sourceTable = tables.getSourceTable();
+        Column sourceKeyColumn = sourceTable.getPrimaryKeyColumns()[0];
+        Column targetKeyColumn = tables.getColumnMapping().get(sourceKeyColumn);
+        if (targetKeyColumn == null || !isIntegerType(sourceKeyColumn) || !isIntegerType(targetKeyColumn)) {
+            log.info("Comparing {} without fingerprints because its leading primary key column is not an integer",
+                    sourceTable.getName());
+            return null;
+        }
+
+        long[] sourceBounds = getKeyBounds(sourceEngine.getDatabasePlatform(), sourceTable, sourceKeyColumn,
+                config.getSourceWhereClause(sourceTable.getName()));
+        long[] targetBounds = getKeyBounds(targetEngine.getDatabasePlatform(), tables.getTargetTable(),
+                targetKeyColumn, config.getTargetWhereClause(tables.getTargetTable().getName()));
+        if (sourceBounds == null && targetBounds == null) {
+            return null;
+        }
+
+        long min = Math.min(sourceBounds != null ? sourceBounds[0] : Long.MAX_VALUE,
+                targetBounds != null ? targetBounds[0] : Long.MAX_VALUE);
+        long max = Math.max(sourceBounds != null ? sourceBounds[1] : Long.MIN_VALUE,
+                targetBounds != null ? targetBounds[1] : Long.MIN_VALUE);
+        KeyRange keyRange = new KeyRange(min, max);
+        long rangeSize = Math.max(config.getChunkSize(), keyRange.size() / MAX_KEY_RANGES + 1);
+        return keyRange.split(rangeSize, MAX_KEY_RANGES);
+    }
+
+    protected long[] getKeyBounds(IDatabasePlatform platform, Table table, Column keyColumn, String whereClause) {
+        String columnName = quote(platform, keyColumn.getName());
+        Row row = platform.getSqlTemplateDirty().queryForRow(String.format(
+                "select min(%s) as min_value, max(%s) as max_value from %s t where %s", columnName, columnName,
+                getQualifiedTableName(platform, table), whereClause));
+        if (row == null || row.get("min_value") == null) {
+            return null;
+        }
+        return new long[] { row.getLong("min_value"), row.getLong("max_value") };
+    }
+
+    /**
+     * Row fingerprints read the range in primary key order and keep the rows, so a range that
+     * does not match is compared from memory instead of being read again.
+     */
+    protected Fingerprint getFingerprint(ISymmetricEngine engine, Table table, Column[] columns,
+            String whereClause, boolean useDatabaseFingerprints) {
+        IDatabasePlatform platform = engine.getDatabasePlatform();
+        if (useDatabaseFingerprints) {
+            Row row = platform.getSqlTemplateDirty().queryForRow(String.format(
+                    "select count(*) as row_count, %s as row_hash from %s t where %s",
+                    getFingerprintExpression(platform, columns), getQualifiedTableName(platform, table), whereClause));
+            return new Fingerprint(row.getInt("row_count"), row.getString("row_hash"));
+        }
+
+        MessageDigest digest = null;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new SymmetricException("Unable to calculate row fingerprints", e);
+        }
+
+        ISqlReadCursor<Row> cursor = platform.getSqlTemplateDirty().queryForCursor(
+                getComparisonSQL(table, table.getPrimaryKeyColumns(), platform, whereClause), defaultRowMapper);
+        List<Row> rows = new ArrayList<Row>();
+        long hash = 0;
+        try {
+            Row row = null;
+            while ((row = cursor.next()) != null) {
+                rows.add(row);
+                String[] values = platform.getStringValues(BinaryEncoding.HEX, columns, row, false, false);
+                for (String value : values) {
+                    if (value != null) {
+                        digest.update(value.getBytes(UTF8));
+                    } else {
+                        digest.update((byte) 0);
+                    }
+                    digest.update((byte) '|');
+                }
+                byte[] rowHash = digest.digest();
+                long rowValue = 0;
+                for (int i = 0; i < 8; i++) {
+                    rowValue = (rowValue << 8) | (rowHash[i] & 0xff);
+                }
+                hash += rowValue;
+            }
+        } finally {
+            cursor.close();
+        }
+        return new Fingerprint(rows, Long.toString(hash));
+    }
+
+    /**
+     * Fingerprints are calculated by the database when both sides are the same kind of database,
+     * the dialect has a hash function to use and the compared columns have matching types that
+     * are not large objects.
+     */
+    protected boolean isDatabaseFingerprintSupported(DbCompareTables tables) {
+        IDatabasePlatform sourcePlatform = sourceEngine.getDatabasePlatform();
+        IDatabasePlatform targetPlatform = targetEngine.getDatabasePlatform();
+        if (!StringUtils.equals(sourcePlatform.getName(), targetPlatform.getName())
+                || getFingerprintExpression(sourcePlatform, tables.getSourceTable().getColumns()) == null) {
+            return false;
+        }
+        for (Column sourceColumn : tables.getSourceTable().getColumns()) {
+            Column targetColumn = tables.getColumnMapping().get(sourceColumn);
+            if (targetColumn != null && (sourceColumn.getMappedTypeCode() != targetColumn.getMappedTypeCode()
+                    || isLargeObjectType(sourceColumn))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected String getFingerprintExpression(IDatabasePlatform platform, Column[] columns) {
+        String name = platform.getName();
+        StringBuilder expression = new StringBuilder();
+        if (DatabaseNamesConstants.POSTGRESQL.equals(name) || DatabaseNamesConstants.POSTGRESQL95.equals(name)
+                || DatabaseNamesConstants.GREENPLUM.equals(name)) {
+            for (Column column : columns) {
+                if (expression.length() > 0) {
+                    expression.append(" || '|' || ");
+                }
+                expression.append("coalesce(cast(t.").append(quote(platform, column.getName())).append(" as text), '~')");
+            }
+            return "sum(('x' || substr(md5(" + expression + "), 1, 16))::bit(64)::bigint)";
+        } else if (DatabaseNamesConstants.MYSQL.equals(name) || DatabaseNamesConstants.MARIADB.equals(name)) {
+            for (Column column : columns) {
+                if (expression.length() > 0) {
+                    expression.append(", ");
+                }
+                expression.append("coalesce(cast(t.").append(quote(platform, column.getName())).append(" as char), '~')");
+            }
+            return "sum(cast(conv(substr(md5(concat_ws('|', " + expression + ")), 1, 15), 16, 10) as unsigned))";
+        } else if (DatabaseNamesConstants.MSSQL2005.equals(name) || DatabaseNamesConstants.MSSQL2008.equals(name)) {
+            int maxRowBytes = 0;
+            for (Column column : columns) {
+                maxRowBytes += Math.max(column.getSizeAsInt(), 17) * 2 + 1;
+            }
+            if (maxRowBytes > MSSQL_HASHBYTES_MAX_INPUT) {
+                return null;
+            }
+            for (Column column : columns) {
+                if (expression.length() > 0) {
+                    expression.append(" + 0x7c + ");
+                }
+                expression.append("isnull(cast(t.").append(quote(platform, column.getName()))
+                        .append(" as varbinary(max)), 0x00)");
+            }
+            return "sum(cast(cast(substring(hashbytes('MD5', " + expression + "), 1, 7) as bigint) as decimal(38,0)))";
+        } else if (DatabaseNamesConstants.H2.equals(name)) {
+            for (Column column : columns) {
+                if (expression.length() > 0) {
+                    expression.append(" || '|' || ");
+                }
+                expression.append("coalesce(cast(t.").append(quote(platform, column.getName())).append(" as varchar), '~')");
+            }
+            return "sum(cast(cast(cast('0' || substring(hash('SHA256', stringtoutf8(" + expression
+                    + "), 1), 1, 15) as binary) as bigint) as decimal(38,0)))";
+        }
+        return null;
+    }
+
+    protected String getKeyRangeWhereClause(String whereClause, Column keyColumn, KeyRange keyRange,
+            IDatabasePlatform platform) {
+        String columnName = "t." + quote(platform, keyColumn.getName());
+        return String.format("(%s) and %s >= %d and %s <= %d", whereClause, columnName, keyRange.start,
+                columnName, keyRange.end);
+    }
+
+    protected boolean isIntegerType(Column column) {
+        switch (column.getMappedTypeCode()) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return column.getScale() == 0;
+            default:
+                return false;
+        }
+    }
+
+    protected boolean isLargeObjectType(Column column) {
+        switch (column.getMappedTypeCode()) {
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARBINARY:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    protected String quote(IDatabasePlatform platform, String name) {
+        String quote = platform.getDatabaseInfo().getDelimiterToken();
+        return quote == null ? name : quote + name + quote;
+    }
+
+    protected String getQualifiedTableName(IDatabasePlatform platform, Table table) {
+        DatabaseInfo databaseInfo = platform.getDatabaseInfo();
+        String quote = databaseInfo.getDelimiterToken() == null ? "" : databaseInfo.getDelimiterToken();
+        return table.getQualifiedTableName(quote, databaseInfo.getCatalogSeparator(),
+                databaseInfo.getSchemaSeparator());
+    }
+
+    protected DbValueComparator createDbValueComparator() {
+        DbValueComparator comparator = new DbValueComparator(sourceEngine, targetEngine);
+        comparator.setNumericScale(config.getNumericScale());
+        comparator.setDateTimeFormat(config.getDateTimeFormat());
+        return comparator;
+    }
+
+    protected void addTableReport(TableReport total, TableReport part) {
+        total.setSourceRows(total.getSourceRows() + part.getSourceRows());
+        total.setTargetRows(total.getTargetRows() + part.getTargetRows());
+        total.setMatchedRows(total.getMatchedRows() + part.getMatchedRows());
+        total.setDifferentRows(total.getDifferentRows() + part.getDifferentRows());
+        total.setMissingRows(total.getMissingRows() + part.getMissingRows());
+        total.setExtraRows(total.getExtraRows() + part.getExtraRows());
+    }
+
     protected int comparePk(DbCompareTables tables, DbCompareRow sourceCompareRow, DbCompareRow targetCompareRow) {
         if (sourceCompareRow != null && targetCompareRow == null) {
             return -1;
@@ -269,6 +673,13 @@ public class DbCompare {
     }
 
     protected String getComparisonSQL(Table table, Column[] sortByColumns, IDatabasePlatform platform, String whereClause) {
+        StringBuilder sql = new StringBuilder(getSelectSQL(table, platform, whereClause));
+        sql.append(" ");
+        sql.append(buildOrderBy(table, sortByColumns, platform));
+        return sql.toString();
+    }
+
+    protected String getSelectSQL(Table table, IDatabasePlatform platform, String whereClause) {
         DmlStatement statement = platform.createDmlStatement(DmlType.SELECT,
                 table.getCatalog(), table.getSchema(), table.getName(),
                 null, table.getColumns(),
@@ -278,9 +689,7 @@ public class DbCompare {
         
         sql.setLength(sql.length()-"where ".length()); // remove the trailing where so we can insert a table alias.
         sql.append(" t where "); // main table alias.
-        sql.append(whereClause).append(" ");
-
-        sql.append(buildOrderBy(table, sortByColumns, platform));
+        sql.append(whereClause);
         return sql.toString();
     }
 
@@ -609,6 +1018,139 @@ public class DbCompare {
         }
     }
 
+    static class RowMemoryCursor implements ISqlReadCursor<Row> {
+
+        Iterator<Row> iter;
+
+        RowMemoryCursor(List<Row> rows) {
+            this.iter = rows.iterator();
+        }
+
+        @Override
+        public Row next() {
+            if (iter.hasNext()) {
+                return iter.next();
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    class TableCompareJob {
+
+        DbCompareTables tables;
+        OutputStream stream;
+        DbCompareDiffWriter diffWriter;
+        List<Future<TableReport>> futures = new ArrayList<Future<TableReport>>();
+
+        TableCompareJob(DbCompareTables tables, OutputStream sqlDiffOutput) {
+            this.tables = tables;
+            if (sqlDiffOutput != null) {
+                diffWriter = new DbCompareDiffWriter(targetEngine, tables, sqlDiffOutput);
+            } else {
+                stream = getSqlDiffOutputStream(tables);
+                diffWriter = new DbCompareDiffWriter(targetEngine, tables, stream);
+            }
+        }
+
+        TableReport getTableReport() throws InterruptedException, ExecutionException {
+            TableReport tableReport = new TableReport();
+            tableReport.setSourceTable(tables.getSourceTable().getName());
+            tableReport.setTargetTable(tables.getTargetTable().getName());
+            for (Future<TableReport> future : futures) {
+                addTableReport(tableReport, future.get());
+            }
+            return tableReport;
+        }
+
+        void close() {
+            if (stream != null) {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+    }
+
+    /**
+     * An inclusive range of values of the leading primary key column.
+     */
+    static class KeyRange {
+
+        final long start;
+        final long end;
+
+        KeyRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long size() {
+            return end - start + 1;
+        }
+
+        List<KeyRange> split(int parts) {
+            long rangeSize = size() / parts + (size() % parts == 0 ? 0 : 1);
+            return split(Math.max(rangeSize, 1), parts);
+        }
+
+        List<KeyRange> split(long rangeSize, int maxParts) {
+            List<KeyRange> ranges = new ArrayList<KeyRange>();
+            long rangeStart = start;
+            while (rangeStart <= end && ranges.size() < maxParts) {
+                long rangeEnd = rangeStart + rangeSize - 1;
+                if (rangeEnd > end || rangeEnd < rangeStart) {
+                    rangeEnd = end;
+                }
+                ranges.add(new KeyRange(rangeStart, rangeEnd));
+                if (rangeEnd == end) {
+                    break;
+                }
+                rangeStart = rangeEnd + 1;
+            }
+            return ranges;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ".." + end + "]";
+        }
+    }
+
+    static class Fingerprint {
+
+        final int count;
+        final String hash;
+        final List<Row> rows;
+
+        Fingerprint(int count, String hash) {
+            this.count = count;
+            this.hash = hash;
+            this.rows = null;
+        }
+
+        Fingerprint(List<Row> rows, String hash) {
+            this.count = rows.size();
+            this.hash = hash;
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Fingerprint) {
+                Fingerprint other = (Fingerprint) obj;
+                return count == other.count && StringUtils.equals(hash, other.hash);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return count * 31 + (hash != null ? hash.hashCode() : 0);
+        }
+    }
+
     public DbCompareConfig getConfig() {
         return config;
     }
@@ -46,6 +46,9 @@ public class DbCompareConfig {
     private Map<String, String> whereClauses = new LinkedHashMap<String, String>();
     private Map<String, List<String>> tablesToExcludedColumns = new LinkedHashMap<String, List<String>>();
     private String outputSql;
+    private int threadCount = 1;
+    private boolean useFingerprints = false;
+    private long chunkSize = 100000;
     
     private Map<String, String> configSources = new HashMap<String, String>();
     
@@ -58,6 +61,9 @@ public class DbCompareConfig {
         configSources.put("whereClauses", "default");
         configSources.put("tablesToExcludedColumns", "default");
         configSources.put("sqlDiffFileName", "default");
+        configSources.put("threadCount", "default");
+        configSources.put("useFingerprints", "default");
+        configSources.put("chunkSize", "default");
     }
     
     public String getSourceWhereClause(String tableName) {
@@ -181,6 +187,30 @@ public class DbCompareConfig {
         this.outputSql = outputSql;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public boolean isUseFingerprints() {
+        return useFingerprints;
+    }
+
+    public void setUseFingerprints(boolean useFingerprints) {
+        this.useFingerprints = useFingerprints;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
     public String report() {
         StringBuilder buff = new StringBuilder(128);
         
@@ -192,6 +222,9 @@ public class DbCompareConfig {
         buff.append("\twhereClauses=").append(whereClauses).append("@").append(configSources.get("whereClauses")).append("\n");
         buff.append("\ttablesToExcludedColumns=").append(tablesToExcludedColumns).append(" @").append(configSources.get("tablesToExcludedColumns")).append("\n");
         buff.append("\toutputSql=").append(outputSql).append(" @").append(configSources.get("outputSql")).append("\n");
+        buff.append("\tthreadCount=").append(threadCount).append(" @").append(configSources.get("threadCount")).append("\n");
+        buff.append("\tuseFingerprints=").append(useFingerprints).append(" @").append(configSources.get("useFingerprints")).append("\n");
+        buff.append("\tchunkSize=").append(chunkSize).append(" @").append(configSources.get("chunkSize")).append("\n");
         
         return buff.toString();
     }
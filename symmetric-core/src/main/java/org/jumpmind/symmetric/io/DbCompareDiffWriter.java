@@ -143,8 +143,11 @@ public class DbCompareDiffWriter {
 
     protected void writeLine(String line) {
         try {
-            stream.write(line.getBytes()); 
-            stream.write("\r\n".getBytes());
+            /* the stream can be shared by tables and key ranges that are compared concurrently */
+            synchronized (stream) {
+                stream.write(line.getBytes()); 
+                stream.write("\r\n".getBytes());
+            }
         } catch (Exception ex) {
             throw new RuntimeException("failed to write to stream '" + line + "'", ex);
         }
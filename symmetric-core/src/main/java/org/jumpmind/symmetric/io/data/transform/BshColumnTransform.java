@@ -31,18 +31,25 @@ import static org.jumpmind.symmetric.common.Constants.DATA_CONTEXT_TARGET_NODE_G
 import static org.jumpmind.symmetric.common.Constants.DATA_CONTEXT_TARGET_NODE_ID;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.model.Data;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.util.BshScriptCompiler;
+import org.jumpmind.symmetric.util.ICompiledScript;
 import org.jumpmind.util.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,17 +63,28 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
 
     final String INTERPRETER_KEY = String.format("%d.BshInterpreter", hashCode());
 
+    final String COMPILED_KEY = String.format("%d.BshCompiled", hashCode());
+
     public static final String NAME = "bsh";
 
+    protected static final NewAndOldValue NOT_COMPILED = new NewAndOldValue(null, null);
+
     IParameterService parameterService;
 
+    BshScriptCompiler scriptCompiler;
+
     /*
      * Static context object used to maintain objects in memory for reference between BSH transforms.
      */
     private static Map<String, Object> bshContext = new HashMap<String, Object>();
 
     public BshColumnTransform(IParameterService parameterService) {
+        this(parameterService, null);
+    }
+
+    public BshColumnTransform(IParameterService parameterService, IExtensionService extensionService) {
         this.parameterService = parameterService;
+        this.scriptCompiler = extensionService != null ? new BshScriptCompiler(extensionService) : new BshScriptCompiler();
     }
 
     public String getName() {
@@ -85,6 +103,21 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
             DataContext context,
             TransformColumn column, TransformedData data, Map<String, String> sourceValues,
             String newValue, String oldValue) throws IgnoreColumnException, IgnoreRowException {
+        String transformExpression = column.getTransformExpression();
+        if (StringUtils.isEmpty(transformExpression)) {
+            throw new SymmetricException("transformExpression cannot be empty. Check "
+                    + "configuration for transform '" + column.getTransformId() + "'");
+        }
+
+        String globalScript = parameterService != null ? parameterService.getString(ParameterConstants.BSH_TRANSFORM_GLOBAL_SCRIPT) : null;
+        if (StringUtils.isBlank(globalScript)
+                && (parameterService == null || parameterService.is(ParameterConstants.BSH_COMPILE_SCRIPTS, true))) {
+            NewAndOldValue value = transformCompiled(platform, context, column, data, sourceValues, newValue, oldValue);
+            if (value != NOT_COMPILED) {
+                return value;
+            }
+        }
+
         try {
             Interpreter interpreter = getInterpreter(context);
             interpreter.set("currentValue", newValue);
@@ -106,14 +139,6 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
                 interpreter.set(columnName, sourceValues.get(columnName));
             }
            
-            String transformExpression = column.getTransformExpression();
-            
-            if (StringUtils.isEmpty(transformExpression)) {
-                throw new SymmetricException("transformExpression cannot be empty. Check "
-                        + "configuration for transform '" + column.getTransformId() + "'");
-            }
-            
-            String globalScript = parameterService.getString(ParameterConstants.BSH_TRANSFORM_GLOBAL_SCRIPT);
             String methodName = String.format("transform_%d()",
                     Math.abs(transformExpression.hashCode() + (globalScript == null ? 0 : globalScript.hashCode())));
             if (context.get(methodName) == null) {
@@ -151,19 +176,7 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
                 interpreter.unset(columnName);
             }
             
-            if (result instanceof String) {
-                if (data.getTargetDmlType().equals(DataEventType.DELETE)) {
-                    return new NewAndOldValue(null, (String) result);
-                } else {
-                    return new NewAndOldValue((String) result, null);
-                }
-            } else if (result instanceof NewAndOldValue) {
-                return (NewAndOldValue) result;
-            } else if (result != null) {
-                return new NewAndOldValue(result.toString(), null);
-            } else {
-                return null;
-            }
+            return toNewAndOldValue(result, data);
         } catch (TargetError evalEx) {
             Throwable ex = evalEx.getTarget();
             if (ex instanceof IgnoreColumnException) {
@@ -187,6 +200,153 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
         }
     }
 
+    /**
+     * Run the transform expression as a compiled class with the same variables
+     * the interpreter would have. Returns {@link #NOT_COMPILED} when the
+     * expression can't be compiled and has to be interpreted.
+     */
+    protected NewAndOldValue transformCompiled(IDatabasePlatform platform, DataContext context, TransformColumn column,
+            TransformedData data, Map<String, String> sourceValues, String newValue, String oldValue)
+            throws IgnoreColumnException, IgnoreRowException {
+        @SuppressWarnings("unchecked")
+        Map<TransformColumn, CompiledTransform> compiledTransforms = (Map<TransformColumn, CompiledTransform>) context.get(COMPILED_KEY);
+        if (compiledTransforms == null) {
+            compiledTransforms = new HashMap<TransformColumn, CompiledTransform>();
+            context.put(COMPILED_KEY, compiledTransforms);
+        }
+        CompiledTransform compiled = compiledTransforms.get(column);
+        if (compiled == null || !compiled.matches(sourceValues)) {
+            compiled = compile(platform, context, column, sourceValues);
+            compiledTransforms.put(column, compiled);
+        }
+        if (compiled.script == null) {
+            return NOT_COMPILED;
+        }
+
+        Object[] bindings = compiled.bindings.clone();
+        bindings[0] = newValue;
+        bindings[1] = oldValue;
+        bindings[2] = column.getIncludeOn();
+        bindings[3] = data.getSourceDmlType();
+        bindings[4] = data.getSourceDmlType().toString();
+        bindings[5] = data;
+        Data csvData = (Data) context.get(Constants.DATA_CONTEXT_CURRENT_CSV_DATA);
+        if (csvData != null && csvData.getTriggerHistory() != null) {
+            bindings[6] = csvData.getTriggerHistory().getSourceSchemaName();
+            bindings[7] = csvData.getTriggerHistory().getSourceCatalogName();
+            bindings[8] = csvData.getTriggerHistory().getSourceTableName();
+        }
+        /* A data context can load several batches, so the channel is set for each row */
+        bindings[9] = context.getBatch().getChannelId();
+        int i = 0;
+        for (String value : sourceValues.values()) {
+            for (int index : compiled.columnIndexes[i++]) {
+                bindings[index] = value;
+            }
+        }
+
+        try {
+            return toNewAndOldValue(compiled.script.eval(bindings), data);
+        } catch (IgnoreColumnException ex) {
+            throw ex;
+        } catch (IgnoreRowException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            log.error(String.format("Beanshell script error for target column %s on transform %s", column.getTargetColumnName(),
+                    column.getTransformId()), ex);
+            throw new TransformColumnException(ex);
+        }
+    }
+
+    /**
+     * Declare the variables in a fixed order, with the row values first so
+     * they can be set by position. The values that are the same for the whole
+     * data context are kept with the compiled script.
+     */
+    protected CompiledTransform compile(IDatabasePlatform platform, DataContext context, TransformColumn column,
+            Map<String, String> sourceValues) {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        Map<String, String> types = new LinkedHashMap<String, String>();
+        bind(values, types, "currentValue", String.class, null);
+        bind(values, types, "oldValue", String.class, null);
+        bind(values, types, "includeOn", TransformColumn.IncludeOnType.class, null);
+        bind(values, types, "sourceDmlType", DataEventType.class, null);
+        bind(values, types, "sourceDmlTypeString", String.class, null);
+        bind(values, types, "transformedData", TransformedData.class, null);
+        bind(values, types, "sourceSchemaName", String.class, null);
+        bind(values, types, "sourceCatalogName", String.class, null);
+        bind(values, types, "sourceTableName", String.class, null);
+        bind(values, types, "channelId", String.class, null);
+        bind(values, types, "transformColumn", TransformColumn.class, column);
+        bind(values, types, "log", Logger.class, log);
+        bind(values, types, "sqlTemplate", ISqlTemplate.class, platform.getSqlTemplate());
+        bind(values, types, "context", DataContext.class, context);
+        values.put("bshContext", bshContext);
+        types.put("bshContext", "java.util.Map<String, Object>");
+        bind(values, types, DATA_CONTEXT_ENGINE, ISymmetricEngine.class, context.get(DATA_CONTEXT_ENGINE));
+        bind(values, types, DATA_CONTEXT_TARGET_NODE, Node.class, context.get(DATA_CONTEXT_TARGET_NODE));
+        bind(values, types, DATA_CONTEXT_TARGET_NODE_ID, String.class, context.get(DATA_CONTEXT_TARGET_NODE_ID));
+        bind(values, types, DATA_CONTEXT_TARGET_NODE_GROUP_ID, String.class, context.get(DATA_CONTEXT_TARGET_NODE_GROUP_ID));
+        bind(values, types, DATA_CONTEXT_TARGET_NODE_EXTERNAL_ID, String.class, context.get(DATA_CONTEXT_TARGET_NODE_EXTERNAL_ID));
+        bind(values, types, DATA_CONTEXT_SOURCE_NODE, Node.class, context.get(DATA_CONTEXT_SOURCE_NODE));
+        bind(values, types, DATA_CONTEXT_SOURCE_NODE_ID, String.class, context.get(DATA_CONTEXT_SOURCE_NODE_ID));
+        bind(values, types, DATA_CONTEXT_SOURCE_NODE_GROUP_ID, String.class, context.get(DATA_CONTEXT_SOURCE_NODE_GROUP_ID));
+        bind(values, types, DATA_CONTEXT_SOURCE_NODE_EXTERNAL_ID, String.class, context.get(DATA_CONTEXT_SOURCE_NODE_EXTERNAL_ID));
+        for (String columnName : sourceValues.keySet()) {
+            bind(values, types, columnName.toUpperCase(), String.class, null);
+            bind(values, types, columnName, String.class, null);
+        }
+
+        String[] names = types.keySet().toArray(new String[types.size()]);
+        Map<String, Integer> indexes = new HashMap<String, Integer>(names.length);
+        Object[] bindings = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+            bindings[i] = values.get(names[i]);
+        }
+
+        String[] columnNames = sourceValues.keySet().toArray(new String[sourceValues.size()]);
+        int[][] columnIndexes = new int[columnNames.length][];
+        for (int i = 0; i < columnNames.length; i++) {
+            Integer upperIndex = indexes.get(columnNames[i].toUpperCase());
+            Integer index = indexes.get(columnNames[i]);
+            if (upperIndex != null && index != null && !upperIndex.equals(index)) {
+                columnIndexes[i] = new int[] { upperIndex, index };
+            } else if (upperIndex != null || index != null) {
+                columnIndexes[i] = new int[] { upperIndex != null ? upperIndex : index };
+            } else {
+                columnIndexes[i] = new int[0];
+            }
+        }
+
+        ICompiledScript script = scriptCompiler.getCompiledScript(column.getTransformExpression(), names,
+                types.values().toArray(new String[names.length]), false);
+        return new CompiledTransform(script, columnNames, columnIndexes, bindings);
+    }
+
+    protected void bind(Map<String, Object> values, Map<String, String> types, String name, Class<?> type, Object value) {
+        if (BshScriptCompiler.isVariableName(name)) {
+            values.put(name, value);
+            types.put(name, value == null || type.isInstance(value) ? type.getCanonicalName() : "Object");
+        }
+    }
+
+    protected NewAndOldValue toNewAndOldValue(Object result, TransformedData data) {
+        if (result instanceof String) {
+            if (data.getTargetDmlType().equals(DataEventType.DELETE)) {
+                return new NewAndOldValue(null, (String) result);
+            } else {
+                return new NewAndOldValue((String) result, null);
+            }
+        } else if (result instanceof NewAndOldValue) {
+            return (NewAndOldValue) result;
+        } else if (result != null) {
+            return new NewAndOldValue(result.toString(), null);
+        } else {
+            return null;
+        }
+    }
+
     protected Interpreter getInterpreter(Context context) {
         Interpreter interpreter = (Interpreter) context.get(INTERPRETER_KEY);
         if (interpreter == null) {
@@ -196,4 +356,40 @@ public class BshColumnTransform implements ISingleNewAndOldValueColumnTransform,
         return interpreter;
     }
 
+    public BshScriptCompiler getScriptCompiler() {
+        return scriptCompiler;
+    }
+
+    static class CompiledTransform {
+
+        ICompiledScript script;
+
+        String[] columnNames;
+
+        int[][] columnIndexes;
+
+        Object[] bindings;
+
+        CompiledTransform(ICompiledScript script, String[] columnNames, int[][] columnIndexes, Object[] bindings) {
+            this.script = script;
+            this.columnNames = columnNames;
+            this.columnIndexes = columnIndexes;
+            this.bindings = bindings;
+        }
+
+        boolean matches(Map<String, String> sourceValues) {
+            if (sourceValues.size() != columnNames.length) {
+                return false;
+            }
+            int i = 0;
+            for (String columnName : sourceValues.keySet()) {
+                String expected = columnNames[i++];
+                if (expected != columnName && !expected.equals(columnName)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
 }
@@ -22,23 +22,46 @@ package org.jumpmind.symmetric.io.data.transform;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.InvalidSqlException;
+import org.jumpmind.db.sql.NamedParameterUtils;
+import org.jumpmind.db.sql.ParsedSql;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
 import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.extension.IBuiltInExtensionPoint;
 import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.model.Data;
+import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.util.FormatUtils;
-import org.jumpmind.util.LinkedCaseInsensitiveMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Looks up the target column value with a query. The lookup SQL is parsed once
+ * and the results can be cached for the life of the {@link DataContext} in a
+ * bounded LRU cache (see {@link ParameterConstants#TRANSFORM_LOOKUP_CACHE_SIZE}).
+ * Simple lookups of the form
+ * <code>select expression from table where column = :PARAM [and ...]</code>
+ * can also preload the whole lookup table into memory the first time they are
+ * used (see {@link ParameterConstants#TRANSFORM_LOOKUP_PRELOAD_MAX_ROWS}).
+ */
 public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransform, IBuiltInExtensionPoint {
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
@@ -47,6 +70,33 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
 
     protected static final StringMapper lookupColumnRowMapper = new StringMapper();
 
+    protected static final String CONTEXT_CACHE_PREFIX = LookupColumnTransform.class.getName() + ".cache.";
+
+    protected static final int MAX_PARSED_QUERIES = 1000;
+
+    protected static final Pattern SIMPLE_LOOKUP = Pattern.compile(
+            "^\\s*select\\s+(.+?)\\s+from\\s+([\\w.\"`\\[\\]$]+)\\s+where\\s+(.+?)\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    protected static final Pattern SIMPLE_CONDITION = Pattern.compile(
+            "^\\(?\\s*([\\w.\"`\\[\\]$]+)\\s*=\\s*:(\\w+)\\s*\\)?$");
+
+    protected static final Pattern AND = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+
+    protected static final Pattern AGGREGATE = Pattern.compile("\\b(max|min|sum|count|avg)\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+
+    protected IParameterService parameterService;
+
+    protected Map<String, LookupQuery> lookupQueries = new ConcurrentHashMap<String, LookupQuery>();
+
+    public LookupColumnTransform() {
+    }
+
+    public LookupColumnTransform(IParameterService parameterService) {
+        this.parameterService = parameterService;
+    }
+
     public String getName() {
         return NAME;
     }
@@ -69,38 +119,14 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
         String lookupValue = null;
 
         if (StringUtils.isNotBlank(sql)) {
-            ISqlTransaction transaction = context.findTransaction();
-            List<String> values = null;
-            LinkedCaseInsensitiveMap<Object> namedParams = new LinkedCaseInsensitiveMap<Object>(sourceValues);
-            if (data.getOldSourceValues() != null && sql.contains(":OLD_")) {
-                for (Map.Entry<String, String> oldColumn : data.getOldSourceValues().entrySet()) {
-                    namedParams.put("OLD_" + oldColumn.getKey().toUpperCase(), oldColumn.getValue());
-                }
-            }
-            if (data.getTargetValues() != null && sql.contains(":TRM_")) {
-                for (Map.Entry<String, String> transformedCol : data.getTargetValues().entrySet()) {
-                    namedParams.put("TRM_" + transformedCol.getKey().toUpperCase(), transformedCol.getValue());
-                }
-            }
-            if (transaction != null) {
-                values = transaction.query(sql, lookupColumnRowMapper, namedParams);
+            LookupQuery query = getLookupQuery(sql);
+            Object[] args = query.buildArgs(sourceValues, data);
+            LookupCache cache = getLookupCache(platform, context, query);
+            if (cache.contains(args)) {
+                lookupValue = cache.get(args);
             } else {
-                values = platform.getSqlTemplate().query(sql, lookupColumnRowMapper, namedParams);
-            }
-
-            int rowCount = values.size();
-
-            if (rowCount == 1) {
-                lookupValue = values.get(0);
-            } else if (rowCount > 1) {
-                lookupValue = values.get(0);
-                log.warn(
-                        "Expected a single row, but returned multiple rows from lookup for target column {} on transform {} ",
-                        column.getTargetColumnName(), column.getTransformId());
-            } else if (values.size() == 0) {
-                log.info(
-                        "Expected a single row, but returned no rows from lookup for target column {} on transform {}",
-                        column.getTargetColumnName(), column.getTransformId());
+                lookupValue = lookup(platform, context, column, query, args);
+                cache.put(args, lookupValue);
             }
         } else {
             log.warn(
@@ -114,9 +140,104 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
             return new NewAndOldValue(lookupValue, null);
         }
     }
+
+    protected String lookup(IDatabasePlatform platform, DataContext context, TransformColumn column,
+            LookupQuery query, Object[] args) {
+        String lookupValue = null;
+        ISqlTransaction transaction = context.findTransaction();
+        List<String> values = null;
+        if (transaction != null) {
+            values = transaction.query(query.getSql(), lookupColumnRowMapper, args, null);
+        } else {
+            values = platform.getSqlTemplate().query(query.getSql(), lookupColumnRowMapper, args, null);
+        }
+
+        int rowCount = values.size();
+
+        if (rowCount == 1) {
+            lookupValue = values.get(0);
+        } else if (rowCount > 1) {
+            lookupValue = values.get(0);
+            log.warn(
+                    "Expected a single row, but returned multiple rows from lookup for target column {} on transform {} ",
+                    column.getTargetColumnName(), column.getTransformId());
+        } else if (values.size() == 0) {
+            log.info(
+                    "Expected a single row, but returned no rows from lookup for target column {} on transform {}",
+                    column.getTargetColumnName(), column.getTransformId());
+        }
+        return lookupValue;
+    }
+
+    protected LookupQuery getLookupQuery(String sql) {
+        LookupQuery query = lookupQueries.get(sql);
+        if (query == null) {
+            query = new LookupQuery(sql);
+            if (lookupQueries.size() >= MAX_PARSED_QUERIES) {
+                lookupQueries.clear();
+            }
+            lookupQueries.put(sql, query);
+        }
+        return query;
+    }
+
+    protected LookupCache getLookupCache(IDatabasePlatform platform, DataContext context, LookupQuery query) {
+        String key = CONTEXT_CACHE_PREFIX + query.getOriginalSql();
+        LookupCache cache = (LookupCache) context.get(key);
+        if (cache == null) {
+            int cacheSize = parameterService != null ? parameterService.getInt(
+                    ParameterConstants.TRANSFORM_LOOKUP_CACHE_SIZE, 0) : 0;
+            int preloadMaxRows = parameterService != null ? parameterService.getInt(
+                    ParameterConstants.TRANSFORM_LOOKUP_PRELOAD_MAX_ROWS, 0) : 0;
+            Map<List<Object>, String> preloaded = null;
+            if (preloadMaxRows > 0 && query.getPreloadSql() != null) {
+                preloaded = preload(platform, query, preloadMaxRows);
+            }
+            cache = new LookupCache(cacheSize, preloaded);
+            context.put(key, cache);
+        }
+        return cache;
+    }
+
+    protected Map<List<Object>, String> preload(IDatabasePlatform platform, LookupQuery query, int maxRows) {
+        long ts = System.currentTimeMillis();
+        try {
+            List<Row> rows = platform.getSqlTemplate().query(query.getPreloadSql(), maxRows + 1,
+                    new ISqlRowMapper<Row>() {
+                        public Row mapRow(Row row) {
+                            return row;
+                        }
+                    }, (Object[]) null, null);
+            if (rows.size() > maxRows) {
+                log.info("Not preloading lookup because it returned more than {} rows: {}", maxRows,
+                        query.getOriginalSql());
+                return null;
+            }
+            int keyCount = query.getParameterCount();
+            Map<List<Object>, String> preloaded = new HashMap<List<Object>, String>(rows.size());
+            for (Row row : rows) {
+                List<Object> values = new ArrayList<Object>(row.values());
+                Object[] key = new Object[keyCount];
+                for (int i = 0; i < keyCount; i++) {
+                    key[i] = values.get(i) != null ? values.get(i).toString() : null;
+                }
+                List<Object> keyList = Arrays.asList(key);
+                if (!preloaded.containsKey(keyList)) {
+                    Object value = values.get(keyCount);
+                    preloaded.put(keyList, value != null ? value.toString() : null);
+                }
+            }
+            log.info("Preloaded {} lookup values in {} ms for {}", new Object[] { preloaded.size(),
+                    System.currentTimeMillis() - ts, query.getOriginalSql() });
+            return preloaded;
+        } catch (SqlException ex) {
+            log.warn("Could not preload lookup values, so the lookup will be run for each row: {}", ex.getMessage());
+            return null;
+        }
+    }
     
     protected String doTokenReplacementOnSql(DataContext context, String sql) {
-        if (isNotBlank(sql)) {
+        if (isNotBlank(sql) && sql.contains("$(")) {
             Data csvData = (Data) context.get(Constants.DATA_CONTEXT_CURRENT_CSV_DATA);
 
             if (csvData != null && csvData.getTriggerHistory() != null) {
@@ -132,4 +253,187 @@ public class LookupColumnTransform implements ISingleNewAndOldValueColumnTransfo
         return sql;
     }
 
+    /**
+     * The lookup SQL with its named parameters replaced by placeholders, and
+     * the query to preload all of its values when the lookup is simple enough.
+     */
+    protected static class LookupQuery {
+
+        String originalSql;
+
+        String sql;
+
+        List<String> parameterNames;
+
+        boolean usesOldValues;
+
+        boolean usesTransformedValues;
+
+        String preloadSql;
+
+        public LookupQuery(String originalSql) {
+            this.originalSql = originalSql;
+            ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(originalSql);
+            this.parameterNames = parsedSql.getParameterNames();
+            Map<String, Object> placeholders = new HashMap<String, Object>(parameterNames.size());
+            for (String parameterName : parameterNames) {
+                placeholders.put(parameterName, null);
+            }
+            NamedParameterUtils.buildValueArray(parsedSql, placeholders);
+            this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, placeholders);
+            this.usesOldValues = originalSql.contains(":OLD_");
+            this.usesTransformedValues = originalSql.contains(":TRM_");
+            this.preloadSql = buildPreloadSql();
+        }
+
+        protected String buildPreloadSql() {
+            Matcher matcher = SIMPLE_LOOKUP.matcher(originalSql);
+            if (!matcher.matches() || parameterNames.size() == 0) {
+                return null;
+            }
+            String expression = matcher.group(1);
+            String tableName = matcher.group(2);
+            if (expression.contains(":") || expression.toLowerCase().contains("select")) {
+                return null;
+            }
+            String[] conditions = AND.split(matcher.group(3));
+            if (conditions.length != parameterNames.size()) {
+                return null;
+            }
+            Map<String, String> columnByParameter = new HashMap<String, String>(conditions.length);
+            for (String condition : conditions) {
+                Matcher conditionMatcher = SIMPLE_CONDITION.matcher(condition.trim());
+                if (!conditionMatcher.matches()
+                        || columnByParameter.put(conditionMatcher.group(2), conditionMatcher.group(1)) != null) {
+                    return null;
+                }
+            }
+            StringBuilder keyColumns = new StringBuilder();
+            StringBuilder select = new StringBuilder("select ");
+            for (int i = 0; i < parameterNames.size(); i++) {
+                String column = columnByParameter.get(parameterNames.get(i));
+                if (column == null) {
+                    return null;
+                }
+                keyColumns.append(i > 0 ? ", " : "").append(column);
+                select.append(column).append(" as lookup_key_").append(i).append(", ");
+            }
+            select.append(expression).append(" from ").append(tableName);
+            if (AGGREGATE.matcher(expression).find()) {
+                select.append(" group by ").append(keyColumns);
+            }
+            return select.toString();
+        }
+
+        public Object[] buildArgs(Map<String, String> sourceValues, TransformedData data) {
+            Object[] args = new Object[parameterNames.size()];
+            Map<String, String> oldSourceValues = usesOldValues ? data.getOldSourceValues() : null;
+            Map<String, String> targetValues = usesTransformedValues ? data.getTargetValues() : null;
+            for (int i = 0; i < args.length; i++) {
+                String name = parameterNames.get(i);
+                if (targetValues != null && name.length() > 4 && name.substring(0, 4).equalsIgnoreCase("TRM_")
+                        && containsKey(targetValues, name.substring(4))) {
+                    args[i] = get(targetValues, name.substring(4));
+                } else if (oldSourceValues != null && name.length() > 4
+                        && name.substring(0, 4).equalsIgnoreCase("OLD_")
+                        && containsKey(oldSourceValues, name.substring(4))) {
+                    args[i] = get(oldSourceValues, name.substring(4));
+                } else if (sourceValues != null && containsKey(sourceValues, name)) {
+                    args[i] = get(sourceValues, name);
+                } else {
+                    throw new InvalidSqlException("The parameter map passed in did not contain "
+                            + "a key for the named parameter %s. \nKeys: %s \nSQL: %s", name,
+                            sourceValues != null ? sourceValues.keySet() : "null", originalSql);
+                }
+            }
+            return args;
+        }
+
+        protected static boolean containsKey(Map<String, String> values, String name) {
+            if (values.containsKey(name)) {
+                return true;
+            }
+            for (String key : values.keySet()) {
+                if (key.equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        protected static String get(Map<String, String> values, String name) {
+            if (values.containsKey(name)) {
+                return values.get(name);
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        public String getOriginalSql() {
+            return originalSql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getPreloadSql() {
+            return preloadSql;
+        }
+
+        public int getParameterCount() {
+            return parameterNames.size();
+        }
+    }
+
+    /**
+     * Lookup results for one query, held by a {@link DataContext}. Preloaded
+     * values are checked first, then the most recently used results.
+     */
+    protected static class LookupCache {
+
+        Map<List<Object>, String> preloaded;
+
+        Map<List<Object>, String> recentlyUsed;
+
+        public LookupCache(final int maxSize, Map<List<Object>, String> preloaded) {
+            this.preloaded = preloaded;
+            if (maxSize > 0) {
+                this.recentlyUsed = new LinkedHashMap<List<Object>, String>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<List<Object>, String> eldest) {
+                        return size() > maxSize;
+                    }
+                };
+            }
+        }
+
+        public boolean contains(Object[] args) {
+            List<Object> key = Arrays.asList(args);
+            return (preloaded != null && preloaded.containsKey(key))
+                    || (recentlyUsed != null && recentlyUsed.containsKey(key));
+        }
+
+        public String get(Object[] args) {
+            List<Object> key = Arrays.asList(args);
+            if (preloaded != null && preloaded.containsKey(key)) {
+                return preloaded.get(key);
+            } else {
+                return recentlyUsed != null ? recentlyUsed.get(key) : null;
+            }
+        }
+
+        public void put(Object[] args, String value) {
+            if (recentlyUsed != null) {
+                recentlyUsed.put(Arrays.asList(args), value);
+            }
+        }
+    }
+
 }
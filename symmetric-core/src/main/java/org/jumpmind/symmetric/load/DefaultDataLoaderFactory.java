@@ -109,6 +109,10 @@ public class DefaultDataLoaderFactory implements IDataLoaderFactory, IBuiltInExt
             }
         }
 
+        DatabaseWriterSettings settings = buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData);
+        settings.setConflictPrefetchWindowSize(
+                parameterService.getInt(ParameterConstants.DATA_LOADER_CONFLICT_PREFETCH_WINDOW_SIZE, 0));
+        settings.setStatementCacheSize(parameterService.getInt(ParameterConstants.JDBC_STATEMENT_CACHE_SIZE, 16));
         DynamicDefaultDatabaseWriter writer = new DynamicDefaultDatabaseWriter(symmetricDialect.getPlatform(),
                 symmetricDialect.getTargetPlatform(), symmetricDialect.getTablePrefix(),
                 new DefaultTransformWriterConflictResolver(transformWriter) {
@@ -135,7 +139,7 @@ public class DefaultDataLoaderFactory implements IDataLoaderFactory, IBuiltInExt
                             }
                         }
                     }
-                }, buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData));
+                }, settings);
 
         return writer;
     }
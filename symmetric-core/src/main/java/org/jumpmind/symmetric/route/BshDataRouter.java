@@ -23,15 +23,20 @@ package org.jumpmind.symmetric.route;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.jumpmind.db.model.Column;
 import org.jumpmind.extension.IBuiltInExtensionPoint;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.model.DataMetaData;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.TriggerRouter;
+import org.jumpmind.symmetric.util.BshScriptCompiler;
+import org.jumpmind.symmetric.util.ICompiledScript;
 
 import bsh.EvalError;
 import bsh.Interpreter;
@@ -48,11 +53,17 @@ import bsh.TargetError;
  * using upper case. Also bound to the interpreter is a {@link Collection} of
  * targetNodes. The script is expected to add the the list of target nodes a
  * list of the node_ids that should be routed to.
+ * <P/>
+ * When the expression is also valid Java code, it is compiled into a class the
+ * first time it is used and the bound variables are passed to it, instead of
+ * being interpreted for every row.
  */
 public class BshDataRouter extends AbstractDataRouter implements IBuiltInExtensionPoint {
 
     protected ISymmetricEngine engine;
 
+    protected BshScriptCompiler scriptCompiler;
+
     final String INTERPRETER_KEY = String.format("%d.BshInterpreter", hashCode());
 
     public BshDataRouter(ISymmetricEngine engine) {
@@ -63,6 +74,12 @@ public class BshDataRouter extends AbstractDataRouter implements IBuiltInExtensi
             Set<Node> nodes, boolean initialLoad, boolean initialLoadSelectUsed,
             TriggerRouter triggerRouter) {
         Set<String> boundVariableNames = new LinkedHashSet<String>();
+        if (engine.getParameterService().is(ParameterConstants.BSH_COMPILE_SCRIPTS, true)) {
+            Set<String> nodeIds = routeToNodesCompiled(context, dataMetaData, nodes, initialLoad);
+            if (nodeIds != null) {
+                return nodeIds;
+            }
+        }
         try {
             long ts = System.currentTimeMillis();
             Interpreter interpreter = getInterpreter(context);
@@ -89,6 +106,91 @@ public class BshDataRouter extends AbstractDataRouter implements IBuiltInExtensi
         }
     }
 
+    /**
+     * Evaluate the router expression as a compiled class. Returns null when the
+     * expression can't be compiled and has to be interpreted.
+     */
+    protected Set<String> routeToNodesCompiled(SimpleRouterContext context, DataMetaData dataMetaData,
+            Set<Node> nodes, boolean initialLoad) {
+        long ts = System.currentTimeMillis();
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        Map<String, String> types = new LinkedHashMap<String, String>();
+        HashSet<String> targetNodes = new HashSet<String>();
+        bind(values, types, "log", "org.slf4j.Logger", log);
+        bind(values, types, "initialLoad", "Boolean", initialLoad);
+        bind(values, types, "dataMetaData", DataMetaData.class.getName(), dataMetaData);
+        bind(values, types, "nodes", "Set<" + Node.class.getName() + ">", nodes);
+        bind(values, types, "nodeIds", "Set<String>", toNodeIds(nodes, null));
+        bind(values, types, "identityNodeId", "String", engine.getNodeService().findIdentityNodeId());
+        bind(values, types, "targetNodes", "Set<String>", targetNodes);
+        bind(values, types, "engine", ISymmetricEngine.class.getName(), engine);
+        Map<String, Object> params = getDataObjectMap(dataMetaData, engine.getSymmetricDialect(),
+                true);
+        if (params != null) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                bind(values, types, param.getKey(), getType(dataMetaData, param.getKey(), param.getValue()),
+                        param.getValue());
+            }
+        }
+
+        String[] names = types.keySet().toArray(new String[types.size()]);
+        ICompiledScript script = getScriptCompiler().getCompiledScript(
+                dataMetaData.getRouter().getRouterExpression(), names,
+                types.values().toArray(new String[names.length]), true);
+        if (script == null) {
+            return null;
+        }
+        Object[] bindings = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            bindings[i] = values.get(names[i]);
+        }
+        context.incrementStat(System.currentTimeMillis() - ts, "bsh.bind.ms");
+
+        ts = System.currentTimeMillis();
+        Object returnValue = null;
+        try {
+            returnValue = script.eval(bindings);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Compiled routing script failed", e);
+        }
+        context.incrementStat(System.currentTimeMillis() - ts, "bsh.eval.ms");
+        return eval(returnValue, nodes, targetNodes);
+    }
+
+    protected void bind(Map<String, Object> values, Map<String, String> types, String name, String type, Object value) {
+        if (BshScriptCompiler.isVariableName(name)) {
+            values.put(name, value);
+            types.put(name, type);
+        }
+    }
+
+    /**
+     * Character columns are declared as strings so string methods can be used
+     * on them in compiled expressions. Other values are declared as objects
+     * because their class depends on the database platform.
+     */
+    protected String getType(DataMetaData dataMetaData, String name, Object value) {
+        if (value instanceof String) {
+            return "String";
+        } else if (value == null) {
+            String columnName = name.startsWith("OLD_") ? name.substring(4) : name;
+            Column column = dataMetaData.getTable().getColumnWithName(columnName);
+            if ((column != null && column.isOfTextType()) || name.equals("EXTERNAL_DATA")) {
+                return "String";
+            }
+        }
+        return "Object";
+    }
+
+    protected BshScriptCompiler getScriptCompiler() {
+        if (scriptCompiler == null) {
+            scriptCompiler = new BshScriptCompiler(engine.getExtensionService());
+        }
+        return scriptCompiler;
+    }
+
     protected Interpreter getInterpreter(SimpleRouterContext context) {
         Interpreter interpreter = (Interpreter) context.getContextCache().get(INTERPRETER_KEY);
         if (interpreter == null) {
@@ -101,6 +101,9 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
     final String CTX_KEY_FILE_SYNC_TRIGGERS_NEEDED = "FileSyncTriggers."
             + ConfigurationChangedDataRouter.class.getSimpleName() + hashCode();
 
+    final String CTX_KEY_FLUSH_REGISTRATION_CONFIG_NEEDED = "FlushRegistrationConfig."
+            + ConfigurationChangedDataRouter.class.getSimpleName() + hashCode();
+
     public final static String KEY = "symconfig";
 
     protected ISymmetricEngine engine;
@@ -187,6 +190,8 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
                     queueSyncTriggers(routingContext, dataMetaData, columnValues);
                 }
 
+                routingContext.put(CTX_KEY_FLUSH_REGISTRATION_CONFIG_NEEDED, Boolean.TRUE);
+
                 if (tableMatches(dataMetaData, TableConstants.SYM_CHANNEL)) {
                     routingContext.put(CTX_KEY_FLUSH_CHANNELS_NEEDED, Boolean.TRUE);
                 }
@@ -557,6 +562,11 @@ public class ConfigurationChangedDataRouter extends AbstractDataRouter implement
 
     @Override
     public void contextCommitted(SimpleRouterContext routingContext) {
+        if (routingContext.get(CTX_KEY_FLUSH_REGISTRATION_CONFIG_NEEDED) != null) {
+            log.debug("About to clear the cached registration configuration because new configuration came through the data router");
+            engine.getDataExtractorService().clearConfigurationSnapshots();
+        }
+
         if (engine.getParameterService().is(ParameterConstants.AUTO_REFRESH_AFTER_CONFIG_CHANGED,
                 true)) {
             if (routingContext.get(CTX_KEY_FLUSH_PARAMETERS_NEEDED) != null
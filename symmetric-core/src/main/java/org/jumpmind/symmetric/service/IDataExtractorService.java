@@ -46,6 +46,12 @@ public interface IDataExtractorService {
     public void extractConfigurationStandalone(Node node, Writer out, String... tablesToIgnore);
 
     public void extractConfigurationOnly(Node node, OutputStream out);
+
+    /**
+     * Remove the cached configuration that is sent to registering nodes so it is
+     * extracted again on the next registration.
+     */
+    public void clearConfigurationSnapshots();
     
     public List<OutgoingBatchWithPayload> extractToPayload(ProcessInfo processInfo, Node targetNode, PayloadType payloadType, boolean useJdbcTimestampFormat, boolean useUpsertStatements, boolean useDelimiterIdentifiers);
     
@@ -67,6 +73,15 @@ public interface IDataExtractorService {
     
     public ExtractRequest requestExtractRequest(ISqlTransaction transaction, String nodeId, String channelId, TriggerRouter triggerRouter, long startBatchId, long endBatchId,
             long loadId, String tableName, long rows, long parentId);
+
+    /**
+     * Build an extract request with its request id assigned, but do not insert it.
+     * The request is saved later with {@link #insertExtractRequests(ISqlTransaction, List)}.
+     */
+    public ExtractRequest newExtractRequest(ISqlTransaction transaction, String nodeId, String queue, TriggerRouter triggerRouter,
+            long startBatchId, long endBatchId, long loadId, String tableName, long rows, long parentId);
+
+    public void insertExtractRequests(ISqlTransaction transaction, List<ExtractRequest> requests);
     
     public void resetExtractRequest(OutgoingBatch batch);
     
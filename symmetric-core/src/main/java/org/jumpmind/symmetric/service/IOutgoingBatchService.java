@@ -89,6 +89,8 @@ public interface IOutgoingBatchService {
     
     public void insertOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch);
 
+    public void insertOutgoingBatches(ISqlTransaction transaction, List<OutgoingBatch> outgoingBatches);
+
     public int countOutgoingBatchesInError();
     
     public int countOutgoingBatchesUnsent();
@@ -36,5 +36,12 @@ public interface ISequenceService {
     public long currVal(ISqlTransaction transaction, String name);
     
     public long nextVal(ISqlTransaction transaction, String name);
+
+    /**
+     * Reserve count values from the sequence with a single update and return
+     * them in order.  The values are contiguous unless the sequence had to
+     * cycle, in which case they are handed out one at a time.
+     */
+    public long[] nextVals(ISqlTransaction transaction, String name, int count);
     
 }
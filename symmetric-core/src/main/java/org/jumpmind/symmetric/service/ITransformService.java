@@ -26,6 +26,7 @@ import java.util.Map;
 import org.jumpmind.symmetric.io.data.transform.IColumnTransform;
 import org.jumpmind.symmetric.io.data.transform.TransformColumn;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.io.data.writer.TransformPlanCache;
 import org.jumpmind.symmetric.model.NodeGroupLink;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 
@@ -56,4 +57,6 @@ public interface ITransformService {
 
     public void clearCache();
 
+    public TransformPlanCache getTransformPlanCache();
+
 }
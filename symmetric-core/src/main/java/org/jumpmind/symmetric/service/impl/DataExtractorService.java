@@ -54,6 +54,7 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipException;
@@ -104,7 +105,11 @@ import org.jumpmind.symmetric.io.data.reader.IExtractDataReaderSource;
 import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
 import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.writer.AbstractProtocolDataWriter;
+import org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.NestedDataWriter;
 import org.jumpmind.symmetric.io.data.writer.ProtocolDataWriter;
 import org.jumpmind.symmetric.io.data.writer.StagingDataWriter;
 import org.jumpmind.symmetric.io.data.writer.StructureDataWriter;
@@ -115,6 +120,7 @@ import org.jumpmind.symmetric.io.stage.IStagedResource.State;
 import org.jumpmind.symmetric.io.stage.IStagingManager;
 import org.jumpmind.symmetric.io.stage.StagingFileLock;
 import org.jumpmind.symmetric.io.stage.StagingLowFreeSpace;
+import org.jumpmind.symmetric.io.stage.StagingPipe;
 import org.jumpmind.symmetric.load.IReloadVariableFilter;
 import org.jumpmind.symmetric.model.AbstractBatch.Status;
 import org.jumpmind.symmetric.model.Channel;
@@ -123,6 +129,8 @@ import org.jumpmind.symmetric.model.Data;
 import org.jumpmind.symmetric.model.DataMetaData;
 import org.jumpmind.symmetric.model.ExtractRequest;
 import org.jumpmind.symmetric.model.ExtractRequest.ExtractStatus;
+import org.jumpmind.symmetric.model.LoadFilter;
+import org.jumpmind.symmetric.model.LoadFilter.LoadFilterType;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeChannel;
 import org.jumpmind.symmetric.model.NodeCommunication;
@@ -161,6 +169,7 @@ import org.jumpmind.symmetric.service.IRouterService;
 import org.jumpmind.symmetric.service.ISequenceService;
 import org.jumpmind.symmetric.service.ITransformService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.service.impl.DataLoaderService.ConflictNodeGroupLink;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.BatchBufferedWriter;
@@ -181,9 +190,20 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         INodeCommunicationExecutor {
 
     final static long MS_PASSED_BEFORE_BATCH_REQUERIED = 5000;
+
+    final static int PIPE_CHUNK_SIZE = 8192;
         
     protected enum ExtractMode { FOR_SYM_CLIENT, FOR_PAYLOAD_CLIENT, EXTRACT_ONLY };
 
+    private static final String[] NODE_SPECIFIC_CONFIGURATION_TABLES = new String[] { TableConstants.SYM_NODE,
+            TableConstants.SYM_NODE_SECURITY, TableConstants.SYM_NODE_IDENTITY, TableConstants.SYM_NODE_HOST,
+            TableConstants.SYM_NODE_CHANNEL_CTL, TableConstants.SYM_TABLE_RELOAD_REQUEST,
+            TableConstants.SYM_MONITOR_EVENT, TableConstants.SYM_FILE_SNAPSHOT, TableConstants.SYM_CONSOLE_EVENT };
+
+    private static final int[] INSERT_EXTRACT_REQUEST_TYPES = new int[] { Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
+            Types.BIGINT, Types.BIGINT };
+
     IOutgoingBatchService outgoingBatchService;
 
     private IRouterService routerService;
@@ -210,10 +230,18 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
     
     private IExtensionService extensionService;
 
+    private ISymmetricEngine engine;
+
     private Map<String, BatchLock> locks = new ConcurrentHashMap<String, BatchLock>();
+
+    private Map<String, StagingPipe> extractPipes = new ConcurrentHashMap<String, StagingPipe>();
     
     private CustomizableThreadFactory threadPoolFactory;
 
+    private Map<String, ConfigurationSnapshot> configurationSnapshots = new HashMap<String, ConfigurationSnapshot>();
+
+    private AtomicLong configurationSnapshotSequence = new AtomicLong();
+
     public DataExtractorService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.outgoingBatchService = engine.getOutgoingBatchService();
@@ -229,6 +257,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         this.clusterService = engine.getClusterService();
         this.sequenceService = engine.getSequenceService();
         this.extensionService = engine.getExtensionService();
+        this.engine = engine;
         setSqlMap(new DataExtractorServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
     }
@@ -343,6 +372,8 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 }
             }
 
+            int purgeEventCount = initialLoadEvents.size();
+
             for (int i = 0; i < triggerRouters.size(); i++) {
                 TriggerRouter triggerRouter = triggerRouters.get(i);
                 String channelId = triggerRouter.getTrigger().getChannelId();
@@ -390,18 +421,44 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 }
             }
 
-            SelectFromTableSource source = new SelectFromTableSource(batch, initialLoadEvents);
-            ExtractDataReader dataReader = new ExtractDataReader(
-                    this.symmetricDialect.getPlatform(), source);
-
             ProtocolDataWriter dataWriter = new ProtocolDataWriter(
                     nodeService.findIdentityNodeId(), writer, targetNode.requires13Compatiblity());
-            DataProcessor processor = new DataProcessor(dataReader, dataWriter,
-                    "configuration extract");
-            DataContext ctx = new DataContext();
-            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE, targetNode);
-            ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE, sourceNode);
-            processor.process(ctx);
+
+            if (isConfigurationSnapshotEnabled()) {
+                /*
+                 * Only the node tables differ between nodes of the same group,
+                 * so they are extracted around a cached copy of the rest of
+                 * the configuration. Purges of node tables run first and loads
+                 * of node tables run last so foreign keys are still satisfied.
+                 */
+                List<SelectFromTableEvent> nodePurgeEvents = new ArrayList<SelectFromTableEvent>();
+                List<SelectFromTableEvent> nodeLoadEvents = new ArrayList<SelectFromTableEvent>();
+                List<SelectFromTableEvent> sharedEvents = new ArrayList<SelectFromTableEvent>();
+                for (int i = 0; i < initialLoadEvents.size(); i++) {
+                    SelectFromTableEvent event = initialLoadEvents.get(i);
+                    if (isNodeSpecificConfiguration(event.getTriggerHistory().getSourceTableName())) {
+                        (i < purgeEventCount ? nodePurgeEvents : nodeLoadEvents).add(event);
+                    } else {
+                        sharedEvents.add(event);
+                    }
+                }
+
+                IStagedResource snapshot = getConfigurationSnapshot(batch, targetNode, sourceNode,
+                        sharedEvents, tablesToExclude);
+                try {
+                    dataWriter.setBatchFooterWritten(false);
+                    extractConfiguration(batch, nodePurgeEvents, dataWriter, targetNode, sourceNode);
+                    copyConfigurationSnapshot(snapshot, writer);
+                    dataWriter.setBatchHeaderWritten(false);
+                    dataWriter.setBatchFooterWritten(true);
+                    extractConfiguration(batch, nodeLoadEvents, dataWriter, targetNode, sourceNode);
+                } finally {
+                    snapshot.close();
+                    snapshot.dereference();
+                }
+            } else {
+                extractConfiguration(batch, initialLoadEvents, dataWriter, targetNode, sourceNode);
+            }
 
             if (triggerRouters.size() == 0) {
                 log.error("{} attempted registration, but was sent an empty configuration",
@@ -410,6 +467,119 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
     }
 
+    protected void extractConfiguration(Batch batch, List<SelectFromTableEvent> initialLoadEvents,
+            ProtocolDataWriter dataWriter, Node targetNode, Node sourceNode) {
+        SelectFromTableSource source = new SelectFromTableSource(batch, initialLoadEvents);
+        ExtractDataReader dataReader = new ExtractDataReader(
+                this.symmetricDialect.getPlatform(), source);
+        DataProcessor processor = new DataProcessor(dataReader, dataWriter,
+                "configuration extract");
+        DataContext ctx = new DataContext();
+        ctx.put(Constants.DATA_CONTEXT_TARGET_NODE, targetNode);
+        ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE, sourceNode);
+        processor.process(ctx);
+    }
+
+    /**
+     * The cache is only cleared when this node routes a configuration change,
+     * so it is not used when other nodes in a cluster can route the change.
+     */
+    protected boolean isConfigurationSnapshotEnabled() {
+        return parameterService.getLong(ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS, 0) > 0
+                && !parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)
+                && extensionService.getExtensionPointList(IReloadVariableFilter.class).size() == 0;
+    }
+
+    protected boolean isNodeSpecificConfiguration(String tableName) {
+        String tablePrefix = parameterService.getTablePrefix();
+        for (String nodeTableName : NODE_SPECIFIC_CONFIGURATION_TABLES) {
+            if (TableConstants.getTableName(tablePrefix, nodeTableName).equalsIgnoreCase(tableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the staged configuration that is shared by every node that
+     * matches the target node's group, version and deployment type, extracting
+     * it first if it is not cached yet. The returned resource is referenced and
+     * must be dereferenced by the caller.
+     */
+    protected IStagedResource getConfigurationSnapshot(Batch batch, Node targetNode, Node sourceNode,
+            List<SelectFromTableEvent> sharedEvents, String... tablesToExclude) {
+        String key = String.format("%s-%s-%s-%s-%s", targetNode.getNodeGroupId(),
+                targetNode.getSymmetricVersion(), targetNode.getDeploymentType(),
+                targetNode.requires13Compatiblity(), Arrays.toString(tablesToExclude));
+        long cacheTimeInMs = parameterService.getLong(ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS);
+        synchronized (configurationSnapshots) {
+            ConfigurationSnapshot snapshot = configurationSnapshots.get(key);
+            if (snapshot != null && snapshot.resource.exists()
+                    && snapshot.resource.getState() == State.DONE
+                    && System.currentTimeMillis() - snapshot.createTime < cacheTimeInMs) {
+                snapshot.resource.reference();
+                return snapshot.resource;
+            } else if (snapshot != null) {
+                configurationSnapshots.remove(key);
+                deleteConfigurationSnapshot(snapshot);
+            }
+
+            long ts = System.currentTimeMillis();
+            IStagedResource resource = stagingManager.create(Constants.STAGING_CATEGORY_OUTGOING,
+                    "registration", "config-" + configurationSnapshotSequence.incrementAndGet());
+            try {
+                ProtocolDataWriter dataWriter = new ProtocolDataWriter(nodeService.findIdentityNodeId(),
+                        resource.getWriter(parameterService.getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD)),
+                        targetNode.requires13Compatiblity());
+                dataWriter.setBatchHeaderWritten(false);
+                dataWriter.setBatchFooterWritten(false);
+                extractConfiguration(batch, sharedEvents, dataWriter, targetNode, sourceNode);
+                resource.close();
+                resource.setState(State.DONE);
+            } catch (RuntimeException ex) {
+                resource.delete();
+                throw ex;
+            }
+            log.info("Cached the registration configuration for node group {} in {} ms",
+                    targetNode.getNodeGroupId(), System.currentTimeMillis() - ts);
+            resource.reference();
+            configurationSnapshots.put(key, new ConfigurationSnapshot(resource, ts));
+            return resource;
+        }
+    }
+
+    protected void copyConfigurationSnapshot(IStagedResource snapshot, Writer writer) {
+        BufferedReader reader = snapshot.getReader();
+        try {
+            char[] buffer = new char[PIPE_CHUNK_SIZE];
+            int count = 0;
+            while ((count = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, count);
+            }
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public void clearConfigurationSnapshots() {
+        synchronized (configurationSnapshots) {
+            for (ConfigurationSnapshot snapshot : configurationSnapshots.values()) {
+                deleteConfigurationSnapshot(snapshot);
+            }
+            configurationSnapshots.clear();
+        }
+    }
+
+    protected void deleteConfigurationSnapshot(ConfigurationSnapshot snapshot) {
+        /*
+         * A snapshot that is still being sent is left for the staging purge
+         * to remove once it is no longer in use
+         */
+        if (!snapshot.resource.isInUse()) {
+            snapshot.resource.delete();
+        }
+    }
+
     private void addPurgeCriteriaToConfigurationTables(String sourceTableName, StringBuilder sql) {
         if ((TableConstants
                 .getTableName(parameterService.getTablePrefix(), TableConstants.SYM_NODE)
@@ -542,7 +712,14 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             routerService.routeData(true);
         }
         
-        OutgoingBatches batches = loadPendingBatches(extractInfo, targetNode, queue, transport);
+        /*
+         * A pull asks for the binary protocol up front, so keep alives written
+         * while batches are queried need to be binary too
+         */
+        BinaryProtocolDataWriter binaryWriter = isBinaryProtocol(transport) ? new BinaryProtocolDataWriter(
+                nodeService.findIdentityNodeId(), transport.openStream()) : null;
+
+        OutgoingBatches batches = loadPendingBatches(extractInfo, targetNode, queue, transport, binaryWriter);
 
         if (batches != null && batches.containsBatches()) {
 
@@ -552,6 +729,16 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             List<OutgoingBatch> activeBatches = filterBatchesForExtraction(batches, channelMap);
 
             if (activeBatches.size() > 0) {
+                /* A push learns whether the other node loads the binary protocol from its reservation */
+                if (binaryWriter == null && isBinaryProtocol(transport)) {
+                    binaryWriter = new BinaryProtocolDataWriter(nodeService.findIdentityNodeId(),
+                            transport.openStream());
+                }
+
+                if (binaryWriter != null) {
+                    return extract(extractInfo, targetNode, activeBatches, binaryWriter, null, ExtractMode.FOR_SYM_CLIENT);
+                }
+
                 BufferedWriter writer = transport.openWriter();
                 IDataWriter dataWriter = new ProtocolDataWriter(nodeService.findIdentityNodeId(),
                         writer, targetNode.requires13Compatiblity());
@@ -565,9 +752,25 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     }
 
+    /**
+     * @return true if batches are sent to the transport in the binary protocol.
+     *         Batches are still staged as CSV and converted as they are sent,
+     *         so the batch stats and retry lines of the CSV protocol are not
+     *         sent and a retried batch is sent again in full.
+     */
+    protected boolean isBinaryProtocol(IOutgoingTransport transport) {
+        return transport.isBinaryProtocol()
+                && parameterService.is(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED);
+    }
+
     protected OutgoingBatches loadPendingBatches(ProcessInfo extractInfo, Node targetNode, String queue, IOutgoingTransport transport) {
+        return loadPendingBatches(extractInfo, targetNode, queue, transport, null);
+    }
+
+    protected OutgoingBatches loadPendingBatches(ProcessInfo extractInfo, Node targetNode, String queue, IOutgoingTransport transport,
+            final BinaryProtocolDataWriter binaryWriter) {
         
-        BufferedWriter writer = transport.getWriter();         
+        BufferedWriter writer = binaryWriter == null ? transport.getWriter() : null;
         
         Callable<OutgoingBatches> getOutgoingBatches = () -> {                            
             OutgoingBatches batches = null;
@@ -596,7 +799,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             return batches;
         };
         
-        if (writer != null) {
+        if (writer != null || binaryWriter != null) {
             final boolean streamToFileEnabled = parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED);
             long keepAliveMillis = parameterService.getLong(ParameterConstants.DATA_LOADER_SEND_ACK_KEEPALIVE);
             Node sourceNode = nodeService.findIdentity();
@@ -609,7 +812,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     try {
                         return getOutgoingBatchesTask.get(keepAliveMillis, TimeUnit.MILLISECONDS);
                     } catch (TimeoutException ex) {
-                        writeKeepAliveAck(writer, sourceNode, streamToFileEnabled);
+                        writeKeepAliveAck(writer, binaryWriter, sourceNode, streamToFileEnabled);
                     } catch (Exception ex) {
                         throw new SymmetricException("Failed to execute getOutgoingBatchesTask ", ex);
                     }
@@ -661,6 +864,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             long batchesSelectedAtMs = System.currentTimeMillis();
             OutgoingBatch currentBatch = null;
             ExecutorService executor = null;
+            ExtractPipes pipes = null;
             try {
                 final boolean streamToFileEnabled = parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED);
                 long keepAliveMillis = parameterService.getLong(ParameterConstants.DATA_LOADER_SEND_ACK_KEEPALIVE);
@@ -671,7 +875,25 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     this.threadPoolFactory = new CustomizableThreadFactory(String.format("%s-dataextractor", parameterService.getEngineName().toLowerCase()));
                 }
                 
-                executor = streamToFileEnabled ? Executors.newFixedThreadPool(1, this.threadPoolFactory) : null;
+                /*
+                 * Batches can be extracted to staging in parallel, but they
+                 * are always sent in order as the futures are read below
+                 */
+                int threadCount = Math.max(1, Math.min(activeBatches.size(),
+                        parameterService.getInt(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 1)));
+                executor = streamToFileEnabled ? Executors.newFixedThreadPool(threadCount, this.threadPoolFactory) : null;
+
+                /*
+                 * When pipelining, a batch is handed to the transport while
+                 * it is still being extracted instead of after it is staged
+                 */
+                final boolean pipelineEnabled = streamToFileEnabled && mode == ExtractMode.FOR_SYM_CLIENT && writer != null
+                        && parameterService.is(ParameterConstants.EXTRACT_PIPELINE_ENABLED)
+                        && !(parameterService.is(ParameterConstants.OUTGOING_BATCH_COPY_TO_INCOMING_STAGING)
+                                && AbstractSymmetricEngine.findEngineByUrl(targetNode.getSyncUrl()) != null);
+                final long pipeBufferBytes = parameterService.getLong(ParameterConstants.EXTRACT_PIPELINE_BUFFER_SIZE, 1048576);
+                pipes = pipelineEnabled ? new ExtractPipes(pipeBufferBytes, threadCount) : null;
+                final ExtractPipes batchPipes = pipes;
 
                 List<Future<FutureOutgoingBatch>> futures = new ArrayList<Future<FutureOutgoingBatch>>();
 
@@ -682,14 +904,26 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     channelsProcessed.add(currentBatch.getChannelId());
                     
                     final OutgoingBatch extractBatch = currentBatch;
-                    Callable<FutureOutgoingBatch> callable = () -> {
-                        OutgoingBatch refreshedBatch = requeryIfEnoughTimeHasPassed(batchesSelectedAtMs, extractBatch);
-                        return extractBatch(refreshedBatch, status, extractInfo, targetNode, dataWriter, mode, activeBatches);                            
-                    };
-                    
                     if (status.shouldExtractSkip) {
                         break;
                     }
+
+                    Callable<FutureOutgoingBatch> callable = () -> {
+                        StagingPipe pipe = batchPipes != null ? batchPipes.forExtract(extractBatch) : null;
+                        try {
+                            OutgoingBatch refreshedBatch = requeryIfEnoughTimeHasPassed(batchesSelectedAtMs, extractBatch);
+                            return extractBatch(refreshedBatch, status, extractInfo, targetNode, dataWriter, mode, activeBatches);
+                        } catch (Exception e) {
+                            if (pipe != null) {
+                                pipe.fail(e);
+                            }
+                            throw e;
+                        } finally {
+                            if (pipe != null) {
+                                pipe.close();
+                            }
+                        }
+                    };
                     
                     if (executor != null) {
                         futures.add(executor.submit(callable));
@@ -715,7 +949,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                             throw new RuntimeException(e);
                         }
                         if (!isProcessed) {
-                            writeKeepAliveAck(writer, sourceNode, streamToFileEnabled);
+                            writeKeepAliveAck(writer, dataWriter, sourceNode, streamToFileEnabled);
                         }
                     }
                 }
@@ -724,13 +958,26 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 long totalBytesSend = 0;
                 boolean logMaxBytesReached = false;
                 Iterator<OutgoingBatch> activeBatchIter = activeBatches.iterator();                
-                for (int i = 0; i < futures.size(); i++) {
+                boolean skipRemaining = false;
+                for (int i = 0; i < futures.size() && !skipRemaining; i++) {
                     Future<FutureOutgoingBatch> future = futures.get(i);
                     currentBatch = activeBatchIter.next();
                     boolean isProcessed = false;
                     ProcessInfo transferInfo = null;
+                    StagingPipe pipe = pipes != null ? pipes.forSend(currentBatch) : null;
+                    OutgoingBatch pipedBatch = currentBatch;
+                    long pipedByteCount = -1;
                     while (!isProcessed) {
                         try {
+                            if (pipe != null) {
+                                if (totalBytesSend > initialLoadMaxBytesToSync) {
+                                    pipe.detach();
+                                } else {
+                                    pipedByteCount = transferFromPipe(pipe, pipedBatch, writer, mode, keepAliveMillis, sourceNode);
+                                }
+                                pipe = null;
+                            }
+
                             FutureOutgoingBatch extractBatch = future.get(keepAliveMillis, TimeUnit.MILLISECONDS);
                             
                             transferInfo = statisticManager.newProcessInfo(new ProcessInfoKey(nodeService.findIdentityNodeId(),
@@ -744,7 +991,16 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                             }
                             
                             if (extractBatch.isExtractSkipped) {
+                                /*
+                                 * The batches after a skipped batch may have been extracted
+                                 * in parallel, but they cannot be sent ahead of it
+                                 */
                                 transferInfo.setStatus(ProcessStatus.OK);
+                                extractInfo.setStatus(ProcessStatus.OK);
+                                skipRemaining = true;
+                                for (int j = i + 1; j < futures.size(); j++) {
+                                    futures.get(j).cancel(false);
+                                }
                                 break;
                             }
 
@@ -766,8 +1022,12 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                                 transferInfo.setCurrentLoadId(currentBatch.getLoadId());
                                 boolean isRetry = extractBatch.isRetry() && extractBatch.getOutgoingBatch().getStatus() != OutgoingBatch.Status.IG;
                                 
-                                currentBatch = sendOutgoingBatch(transferInfo, targetNode, currentBatch, isRetry, 
-                                        dataWriter, writer, mode);                                
+                                if (pipedByteCount >= 0) {
+                                    currentBatch = finishPipedTransfer(transferInfo, pipedBatch, currentBatch, pipedByteCount, writer);
+                                } else {
+                                    currentBatch = sendOutgoingBatch(transferInfo, targetNode, currentBatch, isRetry, 
+                                            dataWriter, writer, mode);
+                                }
                                 
                                 totalBytesSend += currentBatch.getByteCount();
                             }
@@ -789,7 +1049,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                             
                             isProcessed = true;
                         } catch (TimeoutException e) {
-                            writeKeepAliveAck(writer, sourceNode, streamToFileEnabled);                            
+                            writeKeepAliveAck(writer, dataWriter, sourceNode, streamToFileEnabled);                            
                         } catch (Exception e) {
                             if (transferInfo != null && transferInfo.getStatus() != ProcessStatus.OK) {
                                 transferInfo.setStatus(ProcessStatus.ERROR);
@@ -866,6 +1126,9 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                             e);
                 }
             } finally {
+                if (pipes != null) {
+                    pipes.close();
+                }
                 if (executor != null) {                    
                     executor.shutdown(); 
                 }
@@ -928,15 +1191,18 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     outgoingBatch = new FutureOutgoingBatch(
                             extractOutgoingBatch(extractInfo, targetNode, dataWriter, extractBatch, streamToFileEnabled, true, mode, null),
                             isRetry);
-                    status.batchExtractCount++;
-                    status.byteExtractCount += extractBatch.getByteCount();
-
-                    if (status.byteExtractCount >= maxBytesToSync && status.batchExtractCount < activeBatches.size()) {
-                        log.info(
-                                "Reached the total byte threshold after {} of {} batches were extracted for node '{}' (extracted {} bytes, the max is {}).  "
-                                        + "The remaining batches will be extracted on a subsequent sync.",
-                                new Object[] { status.batchExtractCount, activeBatches.size(), targetNode.getNodeId(), status.byteExtractCount, maxBytesToSync });
-                        status.shouldExtractSkip = true;
+                    synchronized (status) {
+                        status.batchExtractCount++;
+                        status.byteExtractCount += extractBatch.getByteCount();
+
+                        if (status.byteExtractCount >= maxBytesToSync && status.batchExtractCount < activeBatches.size()
+                                && !status.shouldExtractSkip) {
+                            log.info(
+                                    "Reached the total byte threshold after {} of {} batches were extracted for node '{}' (extracted {} bytes, the max is {}).  "
+                                            + "The remaining batches will be extracted on a subsequent sync.",
+                                    new Object[] { status.batchExtractCount, activeBatches.size(), targetNode.getNodeId(), status.byteExtractCount, maxBytesToSync });
+                            status.shouldExtractSkip = true;
+                        }
                     }
                 } catch (Exception e) {
                     status.shouldExtractSkip = outgoingBatch.isExtractSkipped = true;
@@ -949,6 +1215,15 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         return outgoingBatch;
     }
 
+    protected void writeKeepAliveAck(BufferedWriter writer, IDataWriter dataWriter, Node sourceNode,
+            boolean streamToFileEnabled) {
+        if (writer == null && streamToFileEnabled && dataWriter instanceof BinaryProtocolDataWriter) {
+            ((BinaryProtocolDataWriter) dataWriter).writeKeepAlive();
+        } else {
+            writeKeepAliveAck(writer, sourceNode, streamToFileEnabled);
+        }
+    }
+
     protected void writeKeepAliveAck(BufferedWriter writer, Node sourceNode, boolean streamToFileEnabled) {
         try {
             if (writer != null && streamToFileEnabled) {
@@ -1006,6 +1281,8 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             Node sourceNode = nodeService.findIdentity();
 
             IDataWriter writer = wrapWithTransformWriter(sourceNode, targetNode, extractInfo, dataWriter, useStagingDataWriter);
+            StagingPipe pipe = useStagingDataWriter ? extractPipes.get(currentBatch.getNodeBatchId()) : null;
+            setStagingPipe(writer, pipe);
 
             long ts = System.currentTimeMillis();
             long extractTimeInMs = 0l;
@@ -1058,6 +1335,9 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                                 if (resource != null) {
                                     resource.delete();
                                 }
+                                if (pipe != null) {
+                                    pipe.fail(e);
+                                }
                                 dataReader = buildExtractDataReader(sourceNode, targetNode, currentBatch, extractInfo, true);
                                 writer = wrapWithTransformWriter(sourceNode, targetNode, extractInfo, dataWriter, useStagingDataWriter);
                                 new DataProcessor(dataReader, writer, listener, "extract").process(ctx);
@@ -1277,22 +1557,95 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
     protected IDataWriter wrapWithTransformWriter(Node sourceNode, Node targetNode, ProcessInfo processInfo, IDataWriter dataWriter,
             boolean useStagingDataWriter) {
         TransformWriter transformExtractWriter = null;
+        boolean changedColumnsOnly = parameterService.is(ParameterConstants.EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY, false)
+                && targetNode != null
+                && !Version.isOlderThanVersion(targetNode.getSymmetricVersionParts(), Version.VERSION_3_10_0);
         if (useStagingDataWriter) {
             long memoryThresholdInBytes = parameterService
                     .getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD);                
+            StagingDataWriter stagingDataWriter = new StagingDataWriter(memoryThresholdInBytes, true, nodeService
+                    .findIdentityNodeId(), Constants.STAGING_CATEGORY_OUTGOING, stagingManager);
+            stagingDataWriter.setChangedColumnsOnly(changedColumnsOnly);
+            if (changedColumnsOnly) {
+                stagingDataWriter.setWholeRowTableNames(getWholeRowTableNames(sourceNode, targetNode));
+            }
             transformExtractWriter = createTransformDataWriter(
                     sourceNode,
                     targetNode,
-                    new ProcessInfoDataWriter(new StagingDataWriter(memoryThresholdInBytes, true, nodeService
-                            .findIdentityNodeId(), Constants.STAGING_CATEGORY_OUTGOING,
-                            stagingManager), processInfo));
+                    new ProcessInfoDataWriter(stagingDataWriter, processInfo));
         } else {
+            if (dataWriter instanceof AbstractProtocolDataWriter) {
+                ((AbstractProtocolDataWriter) dataWriter).setChangedColumnsOnly(changedColumnsOnly);
+                if (changedColumnsOnly) {
+                    ((AbstractProtocolDataWriter) dataWriter).setWholeRowTableNames(getWholeRowTableNames(sourceNode, targetNode));
+                }
+            }
             transformExtractWriter = createTransformDataWriter(sourceNode, targetNode,
                     new ProcessInfoDataWriter(dataWriter, processInfo));
         }
         return transformExtractWriter;
     }
 
+    /**
+     * The tables that the target node loads with a transform, a load filter
+     * or a conflict detected by timestamp or version. These read columns of
+     * an update that did not change, so they are sent the whole row when only
+     * changed columns would be sent. Database writer filters that are
+     * installed as extensions on the target cannot be seen from here.
+     */
+    protected Set<String> getWholeRowTableNames(Node sourceNode, Node targetNode) {
+        Set<String> tableNames = new HashSet<String>();
+        NodeGroupLink link = new NodeGroupLink(sourceNode.getNodeGroupId(), targetNode.getNodeGroupId());
+        List<TransformTableNodeGroupLink> transforms = transformService.findTransformsFor(link, TransformPoint.LOAD);
+        if (transforms != null) {
+            for (TransformTableNodeGroupLink transform : transforms) {
+                addWholeRowTableName(tableNames, transform.getSourceTableName());
+            }
+        }
+        Map<LoadFilterType, Map<String, List<LoadFilter>>> loadFilters = engine.getLoadFilterService().findLoadFiltersFor(link, true);
+        if (loadFilters != null) {
+            for (Map<String, List<LoadFilter>> loadFiltersByTable : loadFilters.values()) {
+                for (List<LoadFilter> loadFiltersForTable : loadFiltersByTable.values()) {
+                    for (LoadFilter loadFilter : loadFiltersForTable) {
+                        addWholeRowTableName(tableNames, loadFilter.getTargetTableName());
+                    }
+                }
+            }
+        }
+        for (ConflictNodeGroupLink conflict : engine.getDataLoaderService().getConflictSettingsNodeGroupLinks(link, false)) {
+            if (conflict.getDetectType() == DetectConflict.USE_TIMESTAMP || conflict.getDetectType() == DetectConflict.USE_VERSION) {
+                addWholeRowTableName(tableNames, conflict.getTargetTableName());
+            }
+        }
+        return tableNames;
+    }
+
+    protected void addWholeRowTableName(Set<String> tableNames, String tableName) {
+        if (StringUtils.isBlank(tableName) || tableName.contains(FormatUtils.WILDCARD)) {
+            tableNames.add(FormatUtils.WILDCARD);
+        } else {
+            tableNames.add(tableName.toUpperCase());
+        }
+    }
+
+    protected StagingPipe createStagingPipe(OutgoingBatch batch, long bufferSizeInBytes) {
+        StagingPipe pipe = new StagingPipe(bufferSizeInBytes, PIPE_CHUNK_SIZE);
+        if (extractPipes.putIfAbsent(batch.getNodeBatchId(), pipe) == null) {
+            return pipe;
+        } else {
+            return null;
+        }
+    }
+
+    protected void setStagingPipe(IDataWriter writer, StagingPipe pipe) {
+        if (pipe != null && writer instanceof NestedDataWriter) {
+            StagingDataWriter stagingWriter = ((NestedDataWriter) writer).getNestedWriterOfType(StagingDataWriter.class);
+            if (stagingWriter != null) {
+                stagingWriter.setPipe(pipe);
+            }
+        }
+    }
+
     protected void cleanupIgnoredBatch(Node sourceNode, Node targetNode, OutgoingBatch currentBatch, IDataWriter writer) {
         Batch batch = new Batch(BatchType.EXTRACT, currentBatch.getBatchId(),
                 currentBatch.getChannelId(), symmetricDialect.getBinaryEncoding(),
@@ -1446,7 +1799,6 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     protected void transferFromStaging(ExtractMode mode, BatchType batchType, OutgoingBatch batch, boolean isRetry, IStagedResource stagedResource,
             BufferedWriter writer, DataContext context, BigDecimal maxKBytesPerSec) {
-        final int MAX_WRITE_LENGTH = 32768;
         BufferedReader reader = stagedResource.getReader();
         try {
             // Retry means we've sent this batch before, so let's ask to
@@ -1475,73 +1827,10 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 
                 writer.flush();
             } else {
-                long totalCharsRead = 0, totalBytesRead = 0;
-                int numCharsRead = 0, numBytesRead = 0;
-                long startTime = System.currentTimeMillis(), ts = startTime, bts = startTime;
-                boolean isThrottled = maxKBytesPerSec != null && maxKBytesPerSec.compareTo(BigDecimal.ZERO) > 0;
-                long totalThrottleTime = 0;
-                int bufferSize = MAX_WRITE_LENGTH;
-
-                if (isThrottled) {
-                    bufferSize = maxKBytesPerSec.multiply(new BigDecimal(1024)).intValue();
-                }
-                char[] buffer = new char[bufferSize];
-
-                boolean batchStatsWritten = false;
-                String prevBuffer = "";
-                while ((numCharsRead = reader.read(buffer)) != -1) {
-                    if (!batchStatsWritten && nodeService.findNode(batch.getNodeId(), true).isVersionGreaterThanOrEqualTo(3, 9, 0)) {
-                        batchStatsWritten = writeBatchStats(writer, buffer, numCharsRead, prevBuffer, batch);
-                        prevBuffer = new String(buffer);
-                    } else {
-                        writer.write(buffer, 0, numCharsRead);
-                    }
-                    totalCharsRead += numCharsRead;
-
-                    if (Thread.currentThread().isInterrupted()) {
-                        throw new IoException("This thread was interrupted");
-                    }
-
-                    long batchStatusUpdateMillis = parameterService.getLong(ParameterConstants.OUTGOING_BATCH_UPDATE_STATUS_MILLIS);
-                    if (System.currentTimeMillis() - ts > batchStatusUpdateMillis && batch.getStatus() != Status.SE && batch.getStatus() != Status.RS) {
-                        changeBatchStatus(Status.SE, batch, mode);
-                    }
-                    if (System.currentTimeMillis() - ts > LOG_PROCESS_SUMMARY_THRESHOLD) {
-                        log.info(
-                                "Batch '{}', for node '{}', for process 'send from stage' has been processing for {} seconds.  "
-                                        + "The following stats have been gathered: {}",
-                                new Object[] { batch.getBatchId(), batch.getNodeId(), (System.currentTimeMillis() - startTime) / 1000,
-                                        "CHARS=" + totalCharsRead });
-                        ts = System.currentTimeMillis();
-                    }
-
-                    if (isThrottled) {
-                        numBytesRead += new String(buffer, 0, numCharsRead).getBytes().length;
-                        totalBytesRead += numBytesRead;
-                        if (numBytesRead >= bufferSize) {
-                            long expectedMillis = (long) (((numBytesRead / 1024f) / maxKBytesPerSec.floatValue()) * 1000);
-                            long actualMillis = System.currentTimeMillis() - bts;
-                            if (actualMillis < expectedMillis) {
-                                totalThrottleTime += expectedMillis - actualMillis;
-                                Thread.sleep(expectedMillis - actualMillis);
-                            }
-                            numBytesRead = 0;
-                            bts = System.currentTimeMillis();
-                        }
-                    } else {
-                        totalBytesRead += new String(buffer, 0, numCharsRead).getBytes().length;
-                    }
-                }
-                
+                long totalBytesRead = transferToTransport(mode, batch, reader, writer, maxKBytesPerSec, true);
                 if (batch.getSentCount() == 1) {
-	                statisticManager.incrementDataSent(batch.getChannelId(), batch.getDataRowCount());
-	                statisticManager.incrementDataBytesSent(batch.getChannelId(), totalBytesRead);
-                }
-                
-                if (log.isDebugEnabled() && totalThrottleTime > 0) {
-                    log.debug("Batch '{}' for node '{}' took {}ms for {} bytes and was throttled for {}ms because limit is set to {} KB/s",
-                            batch.getBatchId(), batch.getNodeId(), (System.currentTimeMillis() - startTime), totalBytesRead,
-                            totalThrottleTime, maxKBytesPerSec);
+                    statisticManager.incrementDataSent(batch.getChannelId(), batch.getDataRowCount());
+                    statisticManager.incrementDataBytesSent(batch.getChannelId(), totalBytesRead);
                 }
             }
             
@@ -1552,16 +1841,150 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         } catch (Throwable t) {
             throw new RuntimeException(t);
         } finally {
-            stagedResource.close();
-            stagedResource.dereference();
-            if (!stagedResource.isFileResource() && !stagedResource.isInUse()) {
-                synchronized(DataExtractorService.this) {
-                    if (!stagedResource.isFileResource() && !stagedResource.isInUse()) {
-                        stagedResource.delete();
+            releaseStagedResource(stagedResource);
+        }
+    }
+
+    protected void releaseStagedResource(IStagedResource stagedResource) {
+        stagedResource.close();
+        stagedResource.dereference();
+        if (!stagedResource.isFileResource() && !stagedResource.isInUse()) {
+            synchronized(DataExtractorService.this) {
+                if (!stagedResource.isFileResource() && !stagedResource.isInUse()) {
+                    stagedResource.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the protocol data for a batch to the transport, throttling to the
+     * channel's max KB per second and keeping the batch status current
+     * 
+     * @return the number of bytes written
+     */
+    protected long transferToTransport(ExtractMode mode, OutgoingBatch batch, BufferedReader reader, BufferedWriter writer,
+            BigDecimal maxKBytesPerSec, boolean writeStats) throws IOException, InterruptedException {
+        final int MAX_WRITE_LENGTH = 32768;
+        long totalCharsRead = 0, totalBytesRead = 0;
+        int numCharsRead = 0, numBytesRead = 0;
+        long startTime = System.currentTimeMillis(), ts = startTime, bts = startTime;
+        boolean isThrottled = maxKBytesPerSec != null && maxKBytesPerSec.compareTo(BigDecimal.ZERO) > 0;
+        long totalThrottleTime = 0;
+        int bufferSize = MAX_WRITE_LENGTH;
+
+        if (isThrottled) {
+            bufferSize = maxKBytesPerSec.multiply(new BigDecimal(1024)).intValue();
+        }
+        char[] buffer = new char[bufferSize];
+
+        boolean batchStatsWritten = false;
+        String prevBuffer = "";
+        while ((numCharsRead = reader.read(buffer)) != -1) {
+            if (writeStats && !batchStatsWritten && nodeService.findNode(batch.getNodeId(), true).isVersionGreaterThanOrEqualTo(3, 9, 0)) {
+                batchStatsWritten = writeBatchStats(writer, buffer, numCharsRead, prevBuffer, batch);
+                prevBuffer = new String(buffer);
+            } else {
+                writer.write(buffer, 0, numCharsRead);
+            }
+            totalCharsRead += numCharsRead;
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IoException("This thread was interrupted");
+            }
+
+            long batchStatusUpdateMillis = parameterService.getLong(ParameterConstants.OUTGOING_BATCH_UPDATE_STATUS_MILLIS);
+            if (System.currentTimeMillis() - ts > batchStatusUpdateMillis && batch.getStatus() != Status.SE && batch.getStatus() != Status.RS) {
+                changeBatchStatus(Status.SE, batch, mode);
+            }
+            if (System.currentTimeMillis() - ts > LOG_PROCESS_SUMMARY_THRESHOLD) {
+                log.info(
+                        "Batch '{}', for node '{}', for process 'send from stage' has been processing for {} seconds.  "
+                                + "The following stats have been gathered: {}",
+                        new Object[] { batch.getBatchId(), batch.getNodeId(), (System.currentTimeMillis() - startTime) / 1000,
+                                "CHARS=" + totalCharsRead });
+                ts = System.currentTimeMillis();
+            }
+
+            if (isThrottled) {
+                numBytesRead += new String(buffer, 0, numCharsRead).getBytes().length;
+                totalBytesRead += numBytesRead;
+                if (numBytesRead >= bufferSize) {
+                    long expectedMillis = (long) (((numBytesRead / 1024f) / maxKBytesPerSec.floatValue()) * 1000);
+                    long actualMillis = System.currentTimeMillis() - bts;
+                    if (actualMillis < expectedMillis) {
+                        totalThrottleTime += expectedMillis - actualMillis;
+                        Thread.sleep(expectedMillis - actualMillis);
                     }
+                    numBytesRead = 0;
+                    bts = System.currentTimeMillis();
                 }
+            } else {
+                totalBytesRead += new String(buffer, 0, numCharsRead).getBytes().length;
             }
         }
+        
+        if (log.isDebugEnabled() && totalThrottleTime > 0) {
+            log.debug("Batch '{}' for node '{}' took {}ms for {} bytes and was throttled for {}ms because limit is set to {} KB/s",
+                    batch.getBatchId(), batch.getNodeId(), (System.currentTimeMillis() - startTime), totalBytesRead,
+                    totalThrottleTime, maxKBytesPerSec);
+        }
+        return totalBytesRead;
+    }
+
+    /**
+     * Send a batch to the transport from its pipe while it is still being
+     * extracted. The batch stats are not written ahead of the batch because
+     * they are not known until the extract finishes.
+     * 
+     * @return the number of bytes sent, or -1 if nothing came through the pipe
+     *         and the batch needs to be sent from staging
+     */
+    protected long transferFromPipe(StagingPipe pipe, OutgoingBatch batch, BufferedWriter writer, ExtractMode mode,
+            long keepAliveMillis, Node sourceNode) throws IOException, InterruptedException {
+        if (!pipe.attach()) {
+            return -1;
+        }
+        while (!pipe.awaitStart(keepAliveMillis)) {
+            writeKeepAliveAck(writer, sourceNode, true);
+        }
+        if (!pipe.hasData()) {
+            return -1;
+        }
+        batch.setSentCount(batch.getSentCount() + 1);
+        if (batch.getStatus() != Status.RS) {
+            batch.setTransferStartTime(new Date());
+        }
+        Channel channel = configurationService.getChannel(batch.getChannelId());
+        long byteCount = transferToTransport(mode, batch, pipe.getReader(), writer, channel.getMaxKBytesPerSecond(), false);
+        if (writer instanceof BatchBufferedWriter) {
+            ((BatchBufferedWriter) writer).getBatchIds().add(batch.getBatchId());
+        }
+        return byteCount;
+    }
+
+    /**
+     * Once the extract of a piped batch is complete, record what was sent and
+     * let go of its staged resource, which is kept for retries
+     */
+    protected OutgoingBatch finishPipedTransfer(ProcessInfo processInfo, OutgoingBatch sentBatch, OutgoingBatch extractedBatch,
+            long byteCount, BufferedWriter writer) {
+        if (extractedBatch != sentBatch) {
+            extractedBatch.setSentCount(sentBatch.getSentCount());
+            extractedBatch.setTransferStartTime(sentBatch.getTransferStartTime());
+        }
+        processInfo.setCurrentLoadId(extractedBatch.getLoadId());
+        processInfo.setTotalDataCount(extractedBatch.getDataRowCount());
+        processInfo.setCurrentDataCount(extractedBatch.getDataRowCount());
+        if (extractedBatch.getSentCount() == 1) {
+            statisticManager.incrementDataSent(extractedBatch.getChannelId(), extractedBatch.getDataRowCount());
+            statisticManager.incrementDataBytesSent(extractedBatch.getChannelId(), byteCount);
+        }
+        IStagedResource stagedResource = getStagedResource(extractedBatch);
+        if (stagedResource != null) {
+            releaseStagedResource(stagedResource);
+        }
+        return extractedBatch;
     }
     
     protected int findStatsIndex(String bufferString, String prevBuffer) {
@@ -1772,6 +2195,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                 .toArray(new TransformTable[transformsList.size()]) : null;
         TransformWriter transformExtractWriter = new TransformWriter(symmetricDialect.getTargetPlatform(), TransformPoint.EXTRACT, extractWriter, 
                 transformService.getColumnTransforms(), transforms);
+        transformExtractWriter.setPlanCache(transformService.getTransformPlanCache());
         return transformExtractWriter;
     }
 
@@ -1969,21 +2393,24 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     public ExtractRequest requestExtractRequest(ISqlTransaction transaction, String nodeId, String queue,
             TriggerRouter triggerRouter, long startBatchId, long endBatchId, long loadId, String table, long rows, long parentRequestId) {
-        long requestId = sequenceService.nextVal(transaction, Constants.SEQUENCE_EXTRACT_REQ);
-        transaction.prepareAndExecute(getSql("insertExtractRequestSql"),
-                new Object[] { requestId, nodeId, queue, ExtractStatus.NE.name(), startBatchId,
-                        endBatchId, triggerRouter.getTrigger().getTriggerId(),
-                        triggerRouter.getRouter().getRouterId(), loadId, table, rows, parentRequestId }, new int[] { Types.BIGINT, Types.VARCHAR,
-                        Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, 
-                        Types.BIGINT, Types.BIGINT });
+        ExtractRequest request = newExtractRequest(transaction, nodeId, queue, triggerRouter, startBatchId, endBatchId, loadId,
+                table, rows, parentRequestId);
+        transaction.prepareAndExecute(getSql("insertExtractRequestSql"), getInsertExtractRequestArgs(request),
+                INSERT_EXTRACT_REQUEST_TYPES);
+        return request;
+    }
+
+    public ExtractRequest newExtractRequest(ISqlTransaction transaction, String nodeId, String queue,
+            TriggerRouter triggerRouter, long startBatchId, long endBatchId, long loadId, String table, long rows, long parentRequestId) {
         ExtractRequest request = new ExtractRequest();
-        request.setRequestId(requestId);
+        request.setRequestId(sequenceService.nextVal(transaction, Constants.SEQUENCE_EXTRACT_REQ));
         request.setNodeId(nodeId);
         request.setQueue(queue);
         request.setStatus(ExtractStatus.NE);
         request.setStartBatchId(startBatchId);
         request.setEndBatchId(endBatchId);
-        request.setRouterId(triggerRouter.getRouterId());
+        request.setTriggerId(triggerRouter.getTrigger().getTriggerId());
+        request.setRouterId(triggerRouter.getRouter().getRouterId());
         request.setLoadId(loadId);
         request.setTableName(table);
         request.setRows(rows);
@@ -1991,6 +2418,28 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         return request;
     }
 
+    public void insertExtractRequests(ISqlTransaction transaction, List<ExtractRequest> requests) {
+        if (requests.size() > 0) {
+            boolean inBatchMode = transaction.isInBatchMode();
+            try {
+                transaction.setInBatchMode(true);
+                transaction.prepare(getSql("insertExtractRequestSql"));
+                for (ExtractRequest request : requests) {
+                    transaction.addRow(request, getInsertExtractRequestArgs(request), INSERT_EXTRACT_REQUEST_TYPES);
+                }
+                transaction.flush();
+            } finally {
+                transaction.setInBatchMode(inBatchMode);
+            }
+        }
+    }
+
+    protected Object[] getInsertExtractRequestArgs(ExtractRequest request) {
+        return new Object[] { request.getRequestId(), request.getNodeId(), request.getQueue(), request.getStatus().name(),
+                request.getStartBatchId(), request.getEndBatchId(), request.getTriggerId(), request.getRouterId(),
+                request.getLoadId(), request.getTableName(), request.getRows(), request.getParentRequestId() };
+    }
+
     protected void updateExtractRequestStatus(ISqlTransaction transaction, long extractId,
             ExtractStatus status, long extractedRows, long extractedMillis) {
         transaction.prepareAndExecute(getSql("updateExtractRequestStatus"), status.name(), extractedRows, extractedMillis, extractId);
@@ -2964,6 +3413,17 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
     }
 
+    static class ConfigurationSnapshot {
+
+        IStagedResource resource;
+        long createTime;
+
+        ConfigurationSnapshot(IStagedResource resource, long createTime) {
+            this.resource = resource;
+            this.createTime = createTime;
+        }
+    }
+
     class SelectFromTableEvent {
 
         private TriggerRouter triggerRouter;
@@ -3015,10 +3475,69 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     }
 
+    /**
+     * Hands out the pipes for the batches of one extract. A pipe is created
+     * when a batch starts to be extracted, but only while fewer than
+     * maxAhead batches hold a pipe that the sender has not reached yet, so the
+     * memory buffered for batches that wait their turn is bounded. The batch
+     * being sent gets a pipe if its extract has not started yet.
+     */
+    class ExtractPipes {
+        final long bufferSizeInBytes;
+        final int maxAhead;
+        final Map<String, StagingPipe> created = new HashMap<String, StagingPipe>();
+        final Map<String, StagingPipe> ahead = new HashMap<String, StagingPipe>();
+        final Set<String> started = new HashSet<String>();
+        final Set<String> sending = new HashSet<String>();
+
+        ExtractPipes(long bufferSizeInBytes, int maxAhead) {
+            this.bufferSizeInBytes = bufferSizeInBytes;
+            this.maxAhead = maxAhead;
+        }
+
+        synchronized StagingPipe forExtract(OutgoingBatch batch) {
+            String nodeBatchId = batch.getNodeBatchId();
+            started.add(nodeBatchId);
+            StagingPipe pipe = created.get(nodeBatchId);
+            if (pipe == null && !sending.contains(nodeBatchId) && ahead.size() < maxAhead) {
+                pipe = create(batch);
+                if (pipe != null) {
+                    ahead.put(nodeBatchId, pipe);
+                }
+            }
+            return pipe;
+        }
+
+        synchronized StagingPipe forSend(OutgoingBatch batch) {
+            String nodeBatchId = batch.getNodeBatchId();
+            sending.add(nodeBatchId);
+            StagingPipe pipe = ahead.remove(nodeBatchId);
+            if (pipe == null && !started.contains(nodeBatchId)) {
+                pipe = create(batch);
+            }
+            return pipe;
+        }
+
+        protected StagingPipe create(OutgoingBatch batch) {
+            StagingPipe pipe = createStagingPipe(batch, bufferSizeInBytes);
+            if (pipe != null) {
+                created.put(batch.getNodeBatchId(), pipe);
+            }
+            return pipe;
+        }
+
+        synchronized void close() {
+            for (Map.Entry<String, StagingPipe> entry : created.entrySet()) {
+                entry.getValue().detach();
+                extractPipes.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     class FutureExtractStatus {
-        boolean shouldExtractSkip;
+        volatile boolean shouldExtractSkip;
         int batchExtractCount;
-        int byteExtractCount;
+        long byteExtractCount;
     }
 
     class FutureOutgoingBatch {
@@ -28,6 +28,7 @@ import static org.jumpmind.symmetric.model.ProcessType.PULL_JOB_TRANSFER;
 import static org.jumpmind.symmetric.model.ProcessType.PUSH_HANDLER_LOAD;
 import static org.jumpmind.symmetric.model.ProcessType.PUSH_HANDLER_TRANSFER;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -75,16 +76,21 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.ext.INodeRegistrationListener;
 import org.jumpmind.symmetric.io.IoConstants;
 import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.BinaryProtocolConstants;
 import org.jumpmind.symmetric.io.data.Batch.BatchType;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.DataProcessor;
+import org.jumpmind.symmetric.io.data.IDataReader;
 import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.ProtocolException;
+import org.jumpmind.symmetric.io.data.reader.BinaryProtocolDataReader;
+import org.jumpmind.symmetric.io.data.reader.BinaryProtocolTextReader;
 import org.jumpmind.symmetric.io.data.reader.DataReaderStatistics;
 import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
 import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.writer.AbstractDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
@@ -138,6 +144,7 @@ import org.jumpmind.symmetric.transport.IIncomingTransport;
 import org.jumpmind.symmetric.transport.ITransportManager;
 import org.jumpmind.symmetric.transport.ServiceUnavailableException;
 import org.jumpmind.symmetric.transport.SyncDisabledException;
+import org.jumpmind.symmetric.transport.http.HttpIncomingTransport;
 import org.jumpmind.symmetric.transport.internal.InternalIncomingTransport;
 import org.jumpmind.symmetric.web.WebConstants;
 import org.jumpmind.util.CustomizableThreadFactory;
@@ -280,6 +287,9 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 requestProperties.put(WebConstants.IGNORED_CHANNELS,
                         suspendIgnoreChannels.getIgnoreChannelsAsString());
                 requestProperties.put(WebConstants.CHANNEL_QUEUE, status.getQueue());
+                if (parameterService.is(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED)) {
+                    requestProperties.put(WebConstants.BINARY_PROTOCOL, Integer.toString(BinaryProtocolConstants.VERSION));
+                }
                 transport = transportManager.getPullTransport(remote, local,
                         localSecurity.getNodePassword(), requestProperties,
                         parameterService.getRegistrationUrl());
@@ -301,7 +311,8 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
             ProcessInfo transferInfo = statisticManager.newProcessInfo(new ProcessInfoKey(remote
                     .getNodeId(), status.getQueue(), local.getNodeId(), PULL_JOB_TRANSFER));
             try {
-                List<IncomingBatch> list = loadDataFromTransport(transferInfo, remote, transport, null);
+                List<IncomingBatch> list = loadDataFromTransport(transferInfo, remote, transport, null,
+                        !isRegisterTransport && transport instanceof HttpIncomingTransport);
                 if (list.size() > 0) {
                     transferInfo.setStatus(ProcessInfo.ProcessStatus.ACKING);
                     status.updateIncomingStatus(list);
@@ -405,7 +416,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     .getNodeId(), queue, local.getNodeId(), PUSH_HANDLER_TRANSFER));
             try {
                 List<IncomingBatch> batchList = loadDataFromTransport(transferInfo, sourceNode,
-                        new InternalIncomingTransport(in), out);
+                        new InternalIncomingTransport(in), out, true);
                 logDataReceivedFromPush(sourceNode, batchList, transferInfo);
                 NodeSecurity security = nodeService.findNodeSecurity(local.getNodeId());
                 transferInfo.setStatus(ProcessInfo.ProcessStatus.ACKING);
@@ -563,6 +574,18 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
      */
     protected List<IncomingBatch> loadDataFromTransport(final ProcessInfo transferInfo,
             final Node sourceNode, IIncomingTransport transport, OutputStream out) throws IOException {
+        return loadDataFromTransport(transferInfo, sourceNode, transport, out, false);
+    }
+
+    /**
+     * @param binaryProtocol
+     *            true if the other node may have sent the binary protocol
+     *            because it was negotiated over HTTP. The stream is checked
+     *            for the binary protocol header when it is also enabled here.
+     */
+    protected List<IncomingBatch> loadDataFromTransport(final ProcessInfo transferInfo,
+            final Node sourceNode, IIncomingTransport transport, OutputStream out, boolean binaryProtocol)
+            throws IOException {
         final ManageIncomingBatchListener listener = new ManageIncomingBatchListener(transferInfo, engine);
         final DataContext ctx = new DataContext();
         Throwable error = null;
@@ -592,6 +615,18 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
             String targetNodeId = nodeService.findIdentityNodeId();
             
             boolean streamToFile = parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED);
+            BufferedInputStream binaryStream = null;
+            InputStream in = binaryProtocol && parameterService.is(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED)
+                    ? transport.openStream() : null;
+            if (in != null) {
+                BufferedInputStream stream = new BufferedInputStream(in);
+                if (BinaryProtocolDataReader.isBinaryProtocol(stream)) {
+                    binaryStream = stream;
+                } else {
+                    /* The stream is open, so read the CSV protocol from what was already buffered */
+                    transport = new InternalIncomingTransport(stream);
+                }
+            }
             if (streamToFile) {
                 transferInfo.setStatus(ProcessStatus.TRANSFERRING);
                 
@@ -605,7 +640,9 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                         sourceNode.getNodeId(), listener, executor);
                 
                 try {
-                    new SimpleStagingDataWriter(transferInfo, transport.openReader(), stagingManager, Constants.STAGING_CATEGORY_INCOMING, 
+                    BufferedReader reader = binaryStream != null ? new BufferedReader(new BinaryProtocolTextReader(
+                            new BinaryProtocolDataReader(BatchType.LOAD, targetNodeId, binaryStream))) : transport.openReader();
+                    new SimpleStagingDataWriter(transferInfo, reader, stagingManager, Constants.STAGING_CATEGORY_INCOMING, 
                             memoryThresholdInBytes, BatchType.LOAD, targetNodeId, ctx, loadListener).process();
                 } finally {
                     /* Previously submitted tasks will still be executed */
@@ -634,8 +671,10 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 ProcessInfo loadInfo = statisticManager.newProcessInfo(new ProcessInfoKey(sourceNode.getNodeId()
                         , transferInfo.getQueue(), nodeService.findIdentityNodeId(), PULL_JOB_LOAD));
                 try {
-                    DataProcessor processor = new DataProcessor(new ProtocolDataReader(BatchType.LOAD,
-                            targetNodeId, transport.openReader(), streamToFile), null, listener, "data load") {
+                    IDataReader dataReader = binaryStream != null ? new BinaryProtocolDataReader(BatchType.LOAD,
+                            targetNodeId, binaryStream) : new ProtocolDataReader(BatchType.LOAD,
+                            targetNodeId, transport.openReader(), streamToFile);
+                    DataProcessor processor = new DataProcessor(dataReader, null, listener, "data load") {
                         @Override
                         protected IDataWriter chooseDataWriter(Batch batch) {
                             return buildDataWriter(loadInfo, sourceNode.getNodeId(),
@@ -764,10 +803,18 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
 
         TransformWriter transformWriter = new TransformWriter(this.engine.getSymmetricDialect().getTargetPlatform(), TransformPoint.LOAD, null,
                 transformService.getColumnTransforms(), transforms);
+        transformWriter.setPlanCache(transformService.getTransformPlanCache());
 
         IDataWriter targetWriter = getFactory(channelId).getDataWriter(sourceNodeId,
                 this.engine.getSymmetricDialect(), transformWriter, dynamicFilters, dynamicErrorHandlers,
                 getConflictSettingsNodeGroupLinks(link, false), resolvedDatas);
+        if (isRetry && targetWriter instanceof AbstractDatabaseWriter) {
+            /*
+             * The batch may have failed because rows held for conflict
+             * prefetching did not load as expected, so retry it row by row
+             */
+            ((AbstractDatabaseWriter) targetWriter).getWriterSettings().setConflictPrefetchWindowSize(0);
+        }
         transformWriter.setNestedWriter(new ProcessInfoDataWriter(targetWriter, processInfo));
         return transformWriter;
     }
@@ -111,6 +111,8 @@ public class DataService extends AbstractService implements IDataService {
 
     private DataMapper dataMapper;
 
+    protected ReloadRowCounter reloadRowCounter;
+
     public DataService(ISymmetricEngine engine, IExtensionService extensionService) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.engine = engine;
@@ -122,6 +124,7 @@ public class DataService extends AbstractService implements IDataService {
         }
         setSqlMap(new DataServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
+        this.reloadRowCounter = new ReloadRowCounter(parameterService, sqlTemplateDirty);
     }
 
     protected Map<IHeartbeatListener, Long> lastHeartbeatTimestamps = new HashMap<IHeartbeatListener, Long>();
@@ -1380,6 +1383,14 @@ public class DataService extends AbstractService implements IDataService {
         }
 
         long firstBatchId = 0;
+        boolean bulkInsert = parameterService.is(ParameterConstants.INITIAL_LOAD_BULK_INSERT_ENABLED, true);
+        List<ExtractRequest> pendingExtractRequests = new ArrayList<ExtractRequest>();
+
+        Map<String, Long> rowCounts = new HashMap<String, Long>();
+        if (parameterService.is(ParameterConstants.INITIAL_LOAD_USE_EXTRACT_JOB)) {
+            countDataForReload(targetNode, triggerHistories, triggerRoutersByHistoryId, reloadRequests,
+                    selectSqlOverride, requests, rowCounts);
+        }
         
         for (TriggerHistory triggerHistory : triggerHistories) {
             List<TriggerRouter> triggerRouters = triggerRoutersByHistoryId.get(triggerHistory
@@ -1392,19 +1403,7 @@ public class DataService extends AbstractService implements IDataService {
                 if (triggerRouter.getInitialLoadOrder() >= 0
                         && engine.getGroupletService().isTargetEnabled(triggerRouter, targetNode)) {
                     
-                    String selectSql = selectSqlOverride;
-                    if (StringUtils.isEmpty(selectSql)) {
-                        
-                        if (reloadRequests != null) {
-                            TableReloadRequest reloadRequest = reloadRequests.get(triggerRouter.getTriggerId() + triggerRouter.getRouterId());
-                            selectSql = reloadRequest != null ? reloadRequest.getReloadSelect() : null;
-                        }
-                        if (StringUtils.isBlank(selectSql)) {
-                            selectSql = StringUtils.isBlank(triggerRouter.getInitialLoadSelect()) 
-                                    ? Constants.ALWAYS_TRUE_CONDITION
-                                            : triggerRouter.getInitialLoadSelect();
-                        }
-                    }
+                    String selectSql = getReloadSelect(triggerRouter, reloadRequests, selectSqlOverride);
                     
                     if (parameterService.is(ParameterConstants.INITIAL_LOAD_USE_EXTRACT_JOB)) {
                         Trigger trigger = triggerRouter.getTrigger();
@@ -1421,18 +1420,15 @@ public class DataService extends AbstractService implements IDataService {
                             long rowCount = -1;
                             long parentRequestId = 0;
                             String extractRequestKey = triggerRouter.getTriggerId() + "::" + triggerRouter.getRouterId();
-                            ExtractRequest parentRequest = requests.get(extractRequestKey);
+                            ExtractRequest parentRequest = getParentExtractRequest(triggerRouter, requests);
 
                             if (parentRequest != null) {
-                                Router router = engine.getTriggerRouterService().getRouterById(triggerRouter.getRouterId(), false);
-                                if (router != null && router.getRouterType().equals("default")) {
-                                    parentRequestId = parentRequest.getRequestId();
-                                    rowCount = parentRequest.getRows();
-                                }                                
+                                parentRequestId = parentRequest.getRequestId();
+                                rowCount = parentRequest.getRows();
                             }
 
                             if (rowCount == -1) {
-                                rowCount = getDataCountForReload(table, targetNode, selectSql);
+                                rowCount = getDataCountForReload(table, targetNode, selectSql, rowCounts);
                             }
 
                             long transformMultiplier = getTransformMultiplier(table, triggerRouter);
@@ -1448,13 +1444,21 @@ public class DataService extends AbstractService implements IDataService {
 
                             long startBatchId = -1;
                             long endBatchId = -1;
-                            for (int i = 0; i < numberOfBatches; i++) {
-                                long batchSize = i == numberOfBatches - 1 ? lastBatchSize : channel.getMaxBatchSize();
-                                // needs to grab the start and end batch id
-                                endBatchId = insertReloadEvent(transaction, targetNode, triggerRouter, triggerHistory, selectSql, true,
-                                        loadId, createBy, Status.RQ, null, batchSize);
-                                if (startBatchId == -1) {
-                                    startBatchId = endBatchId;
+                            if (bulkInsert) {
+                                long[] batchIds = insertReloadBatches(transaction, targetNode, triggerRouter, triggerHistory,
+                                        selectSql, loadId, createBy, reloadChannel, channel.getMaxBatchSize(), lastBatchSize,
+                                        (int) numberOfBatches);
+                                startBatchId = batchIds[0];
+                                endBatchId = batchIds[batchIds.length - 1];
+                            } else {
+                                for (int i = 0; i < numberOfBatches; i++) {
+                                    long batchSize = i == numberOfBatches - 1 ? lastBatchSize : channel.getMaxBatchSize();
+                                    // needs to grab the start and end batch id
+                                    endBatchId = insertReloadEvent(transaction, targetNode, triggerRouter, triggerHistory, selectSql, true,
+                                            loadId, createBy, Status.RQ, null, batchSize);
+                                    if (startBatchId == -1) {
+                                        startBatchId = endBatchId;
+                                    }
                                 }
                             }
 
@@ -1463,8 +1467,16 @@ public class DataService extends AbstractService implements IDataService {
                             updateTableReloadStatusDataCounts(platform.supportsMultiThreadedTransactions() ? null : transaction, 
                                         loadId, firstBatchId, endBatchId, numberOfBatches, rowCount);
                             
-                            ExtractRequest request = engine.getDataExtractorService().requestExtractRequest(transaction, targetNode.getNodeId(), channel.getQueue(),
-                                    triggerRouter, startBatchId, endBatchId, loadId, table.getName(), rowCount, parentRequestId);
+                            ExtractRequest request = null;
+                            if (bulkInsert) {
+                                request = engine.getDataExtractorService().newExtractRequest(transaction, targetNode.getNodeId(),
+                                        channel.getQueue(), triggerRouter, startBatchId, endBatchId, loadId, table.getName(), rowCount,
+                                        parentRequestId);
+                                pendingExtractRequests.add(request);
+                            } else {
+                                request = engine.getDataExtractorService().requestExtractRequest(transaction, targetNode.getNodeId(), channel.getQueue(),
+                                        triggerRouter, startBatchId, endBatchId, loadId, table.getName(), rowCount, parentRequestId);
+                            }
                             if (parentRequestId == 0) {
                                 requests.put(extractRequestKey, request);
                             }
@@ -1478,6 +1490,8 @@ public class DataService extends AbstractService implements IDataService {
                     }
 
                     if (!transactional) {
+                        engine.getDataExtractorService().insertExtractRequests(transaction, pendingExtractRequests);
+                        pendingExtractRequests.clear();
                         transaction.commit();
                     }
                 }
@@ -1485,41 +1499,190 @@ public class DataService extends AbstractService implements IDataService {
             }
         }
 
+        engine.getDataExtractorService().insertExtractRequests(transaction, pendingExtractRequests);
+
         return requests;
     }
 
+    /**
+     * Queue the reload batches for one table in bulk. A single reload data
+     * row is shared by all of the batches, the batch ids come from one
+     * reserved range and the outgoing batches and data events are written
+     * with JDBC batch inserts.
+     * 
+     * @return The inserted batch ids in order
+     */
+    protected long[] insertReloadBatches(ISqlTransaction transaction, Node targetNode, TriggerRouter triggerRouter,
+            TriggerHistory triggerHistory, String selectSql, long loadId, String createBy, String channelId,
+            long maxBatchSize, long lastBatchSize, int numberOfBatches) {
+        Data data = new Data(triggerHistory.getSourceTableName(), DataEventType.RELOAD,
+                selectSql != null ? selectSql : triggerRouter.getInitialLoadSelect(), null, triggerHistory, null,
+                null, null);
+        data.setNodeList(targetNode.getNodeId());
+        data.setPreRouted(true);
+        long dataId = insertData(transaction, data);
+
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>(numberOfBatches);
+        for (int i = 0; i < numberOfBatches; i++) {
+            long batchSize = i == numberOfBatches - 1 ? lastBatchSize : maxBatchSize;
+            batches.add(newOutgoingBatch(channelId, targetNode.getNodeId(), DataEventType.RELOAD, true, loadId,
+                    createBy, Status.RQ, data.getTableName(), batchSize));
+        }
+        engine.getOutgoingBatchService().insertOutgoingBatches(transaction, batches);
+
+        long[] batchIds = new long[batches.size()];
+        List<DataEvent> events = new ArrayList<DataEvent>(batches.size());
+        for (int i = 0; i < batchIds.length; i++) {
+            batchIds[i] = batches.get(i).getBatchId();
+            events.add(new DataEvent(dataId, batchIds[i], triggerRouter.getRouter().getRouterId()));
+        }
+
+        boolean inBatchMode = transaction.isInBatchMode();
+        try {
+            transaction.setInBatchMode(true);
+            insertDataEvents(transaction, events);
+        } finally {
+            transaction.setInBatchMode(inBatchMode);
+        }
+        return batchIds;
+    }
+
+    protected String getReloadSelect(TriggerRouter triggerRouter, Map<String, TableReloadRequest> reloadRequests,
+            String selectSqlOverride) {
+        String selectSql = selectSqlOverride;
+        if (StringUtils.isEmpty(selectSql)) {
+            
+            if (reloadRequests != null) {
+                TableReloadRequest reloadRequest = reloadRequests.get(triggerRouter.getTriggerId() + triggerRouter.getRouterId());
+                selectSql = reloadRequest != null ? reloadRequest.getReloadSelect() : null;
+            }
+            if (StringUtils.isBlank(selectSql)) {
+                selectSql = StringUtils.isBlank(triggerRouter.getInitialLoadSelect()) 
+                        ? Constants.ALWAYS_TRUE_CONDITION
+                                : triggerRouter.getInitialLoadSelect();
+            }
+        }
+        return selectSql;
+    }
+
+    /**
+     * @return The extract request for the same trigger and router that a
+     *         default router can share rows with, or null
+     */
+    protected ExtractRequest getParentExtractRequest(TriggerRouter triggerRouter, Map<String, ExtractRequest> requests) {
+        ExtractRequest parentRequest = requests.get(triggerRouter.getTriggerId() + "::" + triggerRouter.getRouterId());
+        if (parentRequest != null) {
+            Router router = engine.getTriggerRouterService().getRouterById(triggerRouter.getRouterId(), false);
+            if (router != null && router.getRouterType().equals("default")) {
+                return parentRequest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run the row counts that the reload of the tables will need on the row
+     * count pool before the batches are inserted one table at a time, adding
+     * them to the row counts of the load by count SQL.
+     */
+    protected void countDataForReload(Node targetNode, List<TriggerHistory> triggerHistories,
+            Map<Integer, List<TriggerRouter>> triggerRoutersByHistoryId, Map<String, TableReloadRequest> reloadRequests,
+            String selectSqlOverride, Map<String, ExtractRequest> requests, Map<String, Long> rowCounts)
+            throws InterruptedException {
+        if (parameterService.getInt(ParameterConstants.INITIAL_LOAD_ROW_COUNT_THREAD_COUNT, 4) <= 1) {
+            return;
+        }
+        Set<String> sqls = new HashSet<String>();
+        for (TriggerHistory triggerHistory : triggerHistories) {
+            Table table = null;
+            for (TriggerRouter triggerRouter : triggerRoutersByHistoryId.get(triggerHistory.getTriggerHistoryId())) {
+                if (triggerRouter.getInitialLoadOrder() >= 0
+                        && engine.getGroupletService().isTargetEnabled(triggerRouter, targetNode)
+                        && getParentExtractRequest(triggerRouter, requests) == null) {
+                    String selectSql = getReloadSelect(triggerRouter, reloadRequests, selectSqlOverride);
+                    if (!isEstimatedDataCountForReload(selectSql)) {
+                        if (table == null) {
+                            table = platform.getTableFromCache(triggerHistory.getSourceCatalogName(),
+                                    triggerHistory.getSourceSchemaName(), triggerHistory.getSourceTableName(), false);
+                        }
+                        if (table != null && getSmallTableEstimatedDataCount(table, selectSql) < 0) {
+                            sqls.add(getDataCountSqlForReload(table, targetNode, selectSql));
+                        }
+                    }
+                }
+            }
+        }
+        if (sqls.size() > 0) {
+            reloadRowCounter.count(sqls, rowCounts);
+        }
+    }
+
     protected long getDataCountForReload(Table table, Node targetNode, String selectSql) throws SqlException {
+        return getDataCountForReload(table, targetNode, selectSql, null);
+    }
+
+    protected long getDataCountForReload(Table table, Node targetNode, String selectSql, Map<String, Long> rowCounts)
+            throws SqlException {
         long rowCount = -1;
-        if (parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS) &&
-                (selectSql == null || StringUtils.isBlank(selectSql) || selectSql.replace(" ", "").equals("1=1"))) {
-            rowCount = platform.getEstimatedRowCount(table);
+        if (parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS)) {
+            if (isUnfilteredReloadSelect(selectSql)) {
+                rowCount = platform.getEstimatedRowCount(table);
+            } else {
+                rowCount = getSmallTableEstimatedDataCount(table, selectSql);
+            }
         } 
         
         if (rowCount < 0) {
-            DatabaseInfo dbInfo = platform.getDatabaseInfo();
-            String quote = dbInfo.getDelimiterToken();
-            String catalogSeparator = dbInfo.getCatalogSeparator();
-            String schemaSeparator = dbInfo.getSchemaSeparator();
-                                              
-            String sql = String.format("select count(*) from %s t where %s", table
-                    .getQualifiedTableName(quote, catalogSeparator, schemaSeparator), selectSql);
-            sql = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), sql);
-            sql = FormatUtils.replace("externalId", targetNode.getExternalId(), sql);
-            sql = FormatUtils.replace("nodeId", targetNode.getNodeId(), sql);
-            for (IReloadVariableFilter filter : extensionService.getExtensionPointList(IReloadVariableFilter.class)) {
-                sql = filter.filterPurgeSql(sql, targetNode, table);
-            }
-            
-            try {            
-                rowCount = sqlTemplateDirty.queryForLong(sql);
-            } catch (SqlException ex) {
-                log.error("Failed to execute row count SQL while starting reload.  " + ex.getMessage() + ", SQL: \"" + sql + "\"");
-                throw new InvalidSqlException(ex);
-            }
+            rowCount = reloadRowCounter.count(getDataCountSqlForReload(table, targetNode, selectSql), rowCounts);
         }
         return rowCount;
     }
 
+    /**
+     * @return True if the row count for the select will usually come from
+     *         the estimated row count of the table
+     */
+    protected boolean isEstimatedDataCountForReload(String selectSql) {
+        return parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS) && isUnfilteredReloadSelect(selectSql);
+    }
+
+    /**
+     * @return The estimated row count of the table when it is estimated at or
+     *         below the maximum rows for using the estimate with a filtered
+     *         select, otherwise -1
+     */
+    protected long getSmallTableEstimatedDataCount(Table table, String selectSql) {
+        long maxRows = parameterService.getLong(ParameterConstants.INITIAL_LOAD_ESTIMATED_COUNTS_FILTERED_MAX_ROWS, 0);
+        if (maxRows > 0 && parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS)) {
+            long estimatedRowCount = platform.getEstimatedRowCount(table);
+            if (estimatedRowCount >= 0 && estimatedRowCount <= maxRows) {
+                return estimatedRowCount;
+            }
+        }
+        return -1;
+    }
+
+    protected boolean isUnfilteredReloadSelect(String selectSql) {
+        return selectSql == null || StringUtils.isBlank(selectSql) || selectSql.replace(" ", "").equals("1=1");
+    }
+
+    protected String getDataCountSqlForReload(Table table, Node targetNode, String selectSql) {
+        DatabaseInfo dbInfo = platform.getDatabaseInfo();
+        String quote = dbInfo.getDelimiterToken();
+        String catalogSeparator = dbInfo.getCatalogSeparator();
+        String schemaSeparator = dbInfo.getSchemaSeparator();
+                                          
+        String sql = String.format("select count(*) from %s t where %s", table
+                .getQualifiedTableName(quote, catalogSeparator, schemaSeparator), selectSql);
+        sql = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), sql);
+        sql = FormatUtils.replace("externalId", targetNode.getExternalId(), sql);
+        sql = FormatUtils.replace("nodeId", targetNode.getNodeId(), sql);
+        for (IReloadVariableFilter filter : extensionService.getExtensionPointList(IReloadVariableFilter.class)) {
+            sql = filter.filterPurgeSql(sql, targetNode, table);
+        }
+        return sql;
+    }
+
     protected int getTransformMultiplier(Table table, TriggerRouter triggerRouter) {
         int transformMultiplier = 0;
         List<TransformTableNodeGroupLink> transforms = engine.getTransformService()
@@ -2056,6 +2219,15 @@ public class DataService extends AbstractService implements IDataService {
     protected long insertDataEventAndOutgoingBatch(ISqlTransaction transaction, long dataId,
             String channelId, String nodeId, DataEventType eventType, String routerId,
             boolean isLoad, long loadId, String createBy, Status status, String tableName, long estimatedBatchRowCount) {
+        OutgoingBatch outgoingBatch = newOutgoingBatch(channelId, nodeId, eventType, isLoad, loadId, createBy, status,
+                tableName, estimatedBatchRowCount);
+        engine.getOutgoingBatchService().insertOutgoingBatch(transaction, outgoingBatch);
+        insertDataEvent(transaction, new DataEvent(dataId, outgoingBatch.getBatchId(), routerId));
+        return outgoingBatch.getBatchId();
+    }
+
+    protected OutgoingBatch newOutgoingBatch(String channelId, String nodeId, DataEventType eventType, boolean isLoad,
+            long loadId, String createBy, Status status, String tableName, long estimatedBatchRowCount) {
         OutgoingBatch outgoingBatch = new OutgoingBatch(nodeId, channelId, status);
         outgoingBatch.setLoadId(loadId);
         outgoingBatch.setCreateBy(createBy);
@@ -2072,9 +2244,7 @@ public class DataService extends AbstractService implements IDataService {
         if (status == Status.RQ) {
             outgoingBatch.setExtractJobFlag(true);
         }
-        engine.getOutgoingBatchService().insertOutgoingBatch(transaction, outgoingBatch);
-        insertDataEvent(transaction, new DataEvent(dataId, outgoingBatch.getBatchId(), routerId));
-        return outgoingBatch.getBatchId();
+        return outgoingBatch;
     }
 
     public String reloadNode(String nodeId, boolean reverseLoad, String createBy) {
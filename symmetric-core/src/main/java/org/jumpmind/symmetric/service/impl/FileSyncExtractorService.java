@@ -20,12 +20,14 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.io.File;
 import java.util.List;
 
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.file.FileSyncZipDataWriter;
+import org.jumpmind.symmetric.file.ParallelZipOutput;
 import org.jumpmind.symmetric.io.data.IDataProcessorListener;
 import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
@@ -134,6 +136,10 @@ public class FileSyncExtractorService extends DataExtractorService {
                                 super.finish();
                             }
                 };
+                fileSyncWriter.setZipOptions(parameterService.getInt(ParameterConstants.FILE_SYNC_ZIP_THREAD_COUNT, 4),
+                        parameterService.getString(ParameterConstants.FILE_SYNC_ZIP_STORED_EXTENSIONS,
+                                ParallelZipOutput.DEFAULT_STORED_EXTENSIONS),
+                        new File(parameterService.getTempDirectory()));
                 return fileSyncWriter;
             }
         };
@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,14 +28,17 @@ import java.io.OutputStream;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -42,6 +46,7 @@ import org.jumpmind.db.sql.ISqlReadCursor;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.AbstractSymmetricEngine;
 import org.jumpmind.symmetric.ISymmetricEngine;
@@ -51,11 +56,14 @@ import org.jumpmind.symmetric.common.ContextConstants;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.file.DirectorySnapshot;
+import org.jumpmind.symmetric.file.FileChecksumCalculator;
 import org.jumpmind.symmetric.file.FileConflictException;
 import org.jumpmind.symmetric.file.FileSyncZipDataWriter;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener.FileModifiedCallback;
 import org.jumpmind.symmetric.file.FileTriggerTracker;
+import org.jumpmind.symmetric.file.FileTriggerWatcher;
+import org.jumpmind.symmetric.file.ParallelZipOutput;
 import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
@@ -105,12 +113,24 @@ import bsh.TargetError;
 public class FileSyncService extends AbstractOfflineDetectorService implements IFileSyncService,
 INodeCommunicationExecutor {
 
+    private static final int[] UPDATE_FILE_SNAPSHOT_TYPES = new int[] { Types.VARCHAR, Types.NUMERIC,
+            Types.NUMERIC, Types.NUMERIC, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR };
+
+    private static final int[] INSERT_FILE_SNAPSHOT_TYPES = new int[] { Types.VARCHAR, Types.NUMERIC,
+            Types.NUMERIC, Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR };
+
+    private static final int[] DELETE_FILE_SNAPSHOT_TYPES = new int[] { Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR };
+
     private ISymmetricEngine engine;
     
     private List<FileTriggerRouter> fileTriggerRoutersCache = new ArrayList<FileTriggerRouter>();
     private long fileTriggerRoutersCacheTime;
     private Object cacheLock = new Object();
     private Date lastUpdateTime;
+    private Map<String, FileTriggerWatcher> fileTriggerWatchers = new HashMap<String, FileTriggerWatcher>();
 
     public FileSyncService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect(), engine.getExtensionService());
@@ -153,11 +173,20 @@ INodeCommunicationExecutor {
                         ProcessInfo processInfo = engine.getStatisticManager().newProcessInfo(
                                 new ProcessInfoKey(local.getNodeId(), null, ProcessType.FILE_SYNC_TRACKER));
                         boolean useCrc = engine.getParameterService().is(ParameterConstants.FILE_SYNC_USE_CRC);
-
-                        if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_FAST_SCAN)) {
-                            trackChangesFastScan(processInfo, useCrc);
-                        } else {
-                            trackChanges(processInfo, useCrc);
+                        FileChecksumCalculator checksumCalculator = useCrc ? FileChecksumCalculator.create(engine) : null;
+
+                        try {
+                            if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_WATCH_ENABLED)) {
+                                trackChangesWatch(processInfo, checksumCalculator);
+                            } else if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_FAST_SCAN)) {
+                                trackChangesFastScan(processInfo, checksumCalculator);
+                            } else {
+                                trackChanges(processInfo, checksumCalculator);
+                            }
+                        } finally {
+                            if (checksumCalculator != null) {
+                                checksumCalculator.close();
+                            }
                         }
                         if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
                             deleteFromFileIncoming();
@@ -181,7 +210,7 @@ INodeCommunicationExecutor {
         }        
     }
 
-    protected void trackChanges(ProcessInfo processInfo, boolean useCrc) {
+    protected void trackChanges(ProcessInfo processInfo, FileChecksumCalculator checksumCalculator) {
     	long ctxTime = engine.getContextService().getLong(ContextConstants.FILE_SYNC_FAST_SCAN_TRACK_TIME);
         Date ctxDate = new Date(ctxTime);
         if (ctxTime == 0) {
@@ -196,7 +225,7 @@ INodeCommunicationExecutor {
                 	FileTrigger fileTrigger = fileTriggerRouter.getFileTrigger();
                 	boolean ignoreFiles = shouldIgnoreInitialFiles(fileTriggerRouter, fileTrigger, ctxDate);
                     FileTriggerTracker tracker = new FileTriggerTracker(fileTriggerRouter, getDirectorySnapshot(fileTriggerRouter), 
-                            processInfo, useCrc, engine);
+                            processInfo, checksumCalculator, engine);
                     DirectorySnapshot dirSnapshot = tracker.trackChanges();
                     saveDirectorySnapshot(fileTriggerRouter, dirSnapshot,ignoreFiles);
                     engine.getContextService().save(ContextConstants.FILE_SYNC_FAST_SCAN_TRACK_TIME, String.valueOf(currentDate.getTime()));
@@ -209,7 +238,7 @@ INodeCommunicationExecutor {
         }
     }
 
-    protected void trackChangesFastScan(ProcessInfo processInfo, boolean useCrc) {
+    protected void trackChangesFastScan(ProcessInfo processInfo, FileChecksumCalculator checksumCalculator) {
         long ctxTime = engine.getContextService().getLong(ContextConstants.FILE_SYNC_FAST_SCAN_TRACK_TIME);
         Date ctxDate = new Date(ctxTime);
         // Remove milliseconds - not all operating systems support milliseconds in the file modification time
@@ -232,7 +261,7 @@ INodeCommunicationExecutor {
                     FileAlterationObserver observer = new FileAlterationObserver(fileTriggerRouter.getFileTrigger().getBaseDir(),
                             fileTriggerRouter.getFileTrigger().createIOFileFilter());
                     FileTriggerFileModifiedListener listener = new FileTriggerFileModifiedListener(fileTriggerRouter, ctxDate,
-                            currentDate, processInfo, useCrc, new FileModifiedCallback(maxRowsBeforeCommit) {
+                            currentDate, processInfo, checksumCalculator, new FileModifiedCallback(maxRowsBeforeCommit) {
                         public void commit(DirectorySnapshot dirSnapshot) {
                             saveDirectorySnapshot(fileTriggerRouter, dirSnapshot, ignoreFiles);
                         }
@@ -251,6 +280,121 @@ INodeCommunicationExecutor {
         }
     }
     
+    protected void trackChangesWatch(ProcessInfo processInfo, FileChecksumCalculator checksumCalculator) {
+        long ctxTime = engine.getContextService().getLong(ContextConstants.FILE_SYNC_FAST_SCAN_TRACK_TIME);
+        Date ctxDate = new Date(ctxTime);
+        if (ctxTime == 0) {
+            ctxDate = null;
+        }
+        Date currentDate = new Date();
+        long fullScanPeriod = engine.getParameterService().getLong(ParameterConstants.FILE_SYNC_WATCH_FULL_SCAN_PERIOD_MS);
+
+        List<FileTriggerRouter> fileTriggerRouters = getFileTriggerRoutersForCurrentNode(false);
+        synchronized (fileTriggerWatchers) {
+            for (FileTriggerRouter fileTriggerRouter : fileTriggerRouters) {
+                if (fileTriggerRouter.isEnabled()) {
+                    String key = fileTriggerRouter.getTriggerId() + "::" + fileTriggerRouter.getRouterId();
+                    try {
+                        FileTrigger fileTrigger = fileTriggerRouter.getFileTrigger();
+                        boolean ignoreFiles = shouldIgnoreInitialFiles(fileTriggerRouter, fileTrigger, ctxDate);
+                        FileTriggerWatcher watcher = fileTriggerWatchers.get(key);
+                        if (watcher == null && !fileTrigger.isSyncOnCtlFile()) {
+                            try {
+                                watcher = new FileTriggerWatcher(fileTriggerRouter);
+                                fileTriggerWatchers.put(key, watcher);
+                            } catch (IOException ex) {
+                                log.warn("Unable to watch file trigger {}, so it will be scanned instead.  {}", 
+                                        fileTrigger.getTriggerId(), ex.getMessage());
+                            }
+                        }
+
+                        DirectorySnapshot dirSnapshot = null;
+                        if (watcher != null) {
+                            Map<File, LastEventType> changedFiles = watcher.pollChanges();
+                            if (!watcher.isOverflowed() && System.currentTimeMillis() - watcher.getLastFullScanTime() < fullScanPeriod) {
+                                dirSnapshot = getChangesSinceLastSnapshot(fileTriggerRouter,
+                                        watcher.toDirectorySnapshot(changedFiles, processInfo, checksumCalculator));
+                                if (dirSnapshot.size() > 0) {
+                                    log.info("Watched {} directories.  Found {} files changed.", watcher.getWatchedDirCount(), 
+                                            dirSnapshot.size());
+                                }
+                            } else {
+                                watcher.setLastFullScanTime(System.currentTimeMillis());
+                            }
+                        }
+
+                        if (dirSnapshot == null) {
+                            FileTriggerTracker tracker = new FileTriggerTracker(fileTriggerRouter, 
+                                    getDirectorySnapshot(fileTriggerRouter), processInfo, checksumCalculator, engine);
+                            dirSnapshot = tracker.trackChanges();
+                        }
+                        saveDirectorySnapshot(fileTriggerRouter, dirSnapshot, ignoreFiles);
+                        engine.getContextService().save(ContextConstants.FILE_SYNC_FAST_SCAN_TRACK_TIME, String.valueOf(currentDate.getTime()));
+                    } catch (Exception ex) {
+                        FileTriggerWatcher watcher = fileTriggerWatchers.remove(key);
+                        if (watcher != null) {
+                            watcher.close();
+                        }
+                        log.error("Failed to track changes for file trigger router: "
+                                + fileTriggerRouter.getFileTrigger().getTriggerId()
+                                + "::" + fileTriggerRouter.getRouter().getRouterId(), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare watched changes to the file snapshots in the database, one
+     * changed directory at a time, and keep only real changes
+     */
+    protected DirectorySnapshot getChangesSinceLastSnapshot(FileTriggerRouter fileTriggerRouter, DirectorySnapshot watchedChanges) {
+        Map<String, List<FileSnapshot>> changesByDir = new LinkedHashMap<String, List<FileSnapshot>>();
+        for (FileSnapshot fileSnapshot : watchedChanges) {
+            List<FileSnapshot> changes = changesByDir.get(fileSnapshot.getRelativeDir());
+            if (changes == null) {
+                changes = new ArrayList<FileSnapshot>();
+                changesByDir.put(fileSnapshot.getRelativeDir(), changes);
+            }
+            changes.add(fileSnapshot);
+        }
+
+        DirectorySnapshot differences = new DirectorySnapshot(fileTriggerRouter);
+        for (Map.Entry<String, List<FileSnapshot>> entry : changesByDir.entrySet()) {
+            Map<String, FileSnapshot> lastSnapshots = new HashMap<String, FileSnapshot>();
+            for (FileSnapshot lastSnapshot : getDirectorySnapshot(fileTriggerRouter, entry.getKey())) {
+                lastSnapshots.put(lastSnapshot.getFileName(), lastSnapshot);
+            }
+            for (FileSnapshot fileSnapshot : entry.getValue()) {
+                FileSnapshot lastSnapshot = lastSnapshots.get(fileSnapshot.getFileName());
+                boolean existed = lastSnapshot != null && lastSnapshot.getLastEventType() != LastEventType.DELETE;
+                if (fileSnapshot.getLastEventType() == LastEventType.DELETE) {
+                    if (existed) {
+                        differences.add(fileSnapshot);
+                    }
+                } else if (!existed) {
+                    fileSnapshot.setLastEventType(LastEventType.CREATE);
+                    differences.add(fileSnapshot);
+                } else if (lastSnapshot.getFileSize() != fileSnapshot.getFileSize()
+                        || lastSnapshot.getFileModifiedTime() != fileSnapshot.getFileModifiedTime()
+                        || lastSnapshot.getCrc32Checksum() != fileSnapshot.getCrc32Checksum()) {
+                    fileSnapshot.setLastEventType(LastEventType.MODIFY);
+                    differences.add(fileSnapshot);
+                }
+            }
+        }
+        return differences;
+    }
+
+    protected void closeFileTriggerWatchers() {
+        synchronized (fileTriggerWatchers) {
+            for (FileTriggerWatcher watcher : fileTriggerWatchers.values()) {
+                watcher.close();
+            }
+            fileTriggerWatchers.clear();
+        }
+    }
+
     protected boolean shouldIgnoreInitialFiles(FileTriggerRouter router, FileTrigger trigger, Date contextDate) {
     	if (!router.isInitialLoadEnabled()) {
     		if (contextDate == null || router.getLastUpdateTime().after(contextDate) || trigger.getLastUpdateTime().after(contextDate)) {
@@ -350,6 +494,7 @@ INodeCommunicationExecutor {
         synchronized (cacheLock) {
             this.fileTriggerRoutersCacheTime = 0;
         }
+        closeFileTriggerWatchers();
     }
 
     public void saveFileTrigger(FileTrigger fileTrigger) {
@@ -467,8 +612,12 @@ INodeCommunicationExecutor {
                 if (shouldIgnore) {
                 	engine.getSymmetricDialect().disableSyncTriggers(sqlTransaction, null);
                 }
-                for (FileSnapshot fileSnapshot : changes) {
-                    save(sqlTransaction, fileSnapshot);
+                if (changes.size() > 1 && hasUniqueFiles(changes)) {
+                    saveInBatches(sqlTransaction, changes);
+                } else {
+                    for (FileSnapshot fileSnapshot : changes) {
+                        save(sqlTransaction, fileSnapshot);
+                    }
                 }
 
                 sqlTransaction.commit();
@@ -493,38 +642,115 @@ INodeCommunicationExecutor {
 
     public void save(ISqlTransaction sqlTransaction, FileSnapshot snapshot) {
         snapshot.setLastUpdateTime(new Date());
-        if (0 >= sqlTransaction.prepareAndExecute(
-                getSql("updateFileSnapshotSql"),
-                new Object[] { snapshot.getLastEventType().getCode(), snapshot.getCrc32Checksum(),
-                        snapshot.getFileSize(), snapshot.getFileModifiedTime(),
-                        snapshot.getLastUpdateTime(), snapshot.getLastUpdateBy(), snapshot.getChannelId(),
-                        snapshot.getReloadChannelId(), 
-                        snapshot.getTriggerId(), snapshot.getRouterId(), snapshot.getRelativeDir(),
-                        snapshot.getFileName() }, new int[] { Types.VARCHAR, Types.NUMERIC,
-                                Types.NUMERIC, Types.NUMERIC, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
-                                Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR })) {
+        if (0 >= sqlTransaction.prepareAndExecute(getSql("updateFileSnapshotSql"),
+                getUpdateFileSnapshotArgs(snapshot), UPDATE_FILE_SNAPSHOT_TYPES)) {
             snapshot.setCreateTime(snapshot.getLastUpdateTime());
-            sqlTransaction.prepareAndExecute(
-                    getSql("insertFileSnapshotSql"),
-                    new Object[] { snapshot.getLastEventType().getCode(),
-                            snapshot.getCrc32Checksum(), snapshot.getFileSize(),
-                            snapshot.getFileModifiedTime(), snapshot.getCreateTime(),
-                            snapshot.getLastUpdateTime(), snapshot.getLastUpdateBy(), snapshot.getChannelId(),
-                            snapshot.getReloadChannelId(), 
-                            snapshot.getTriggerId(), snapshot.getRouterId(),
-                            snapshot.getRelativeDir(), snapshot.getFileName() }, new int[] {
-                                    Types.VARCHAR, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
-                                    Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
-                                    Types.VARCHAR, Types.VARCHAR, Types.VARCHAR });
+            sqlTransaction.prepareAndExecute(getSql("insertFileSnapshotSql"),
+                    getInsertFileSnapshotArgs(snapshot), INSERT_FILE_SNAPSHOT_TYPES);
         }
         // now that we have captured an update, delete the row for cleanup
         if (snapshot.getLastEventType() == LastEventType.DELETE) {
-            sqlTransaction.prepareAndExecute(getSql("deleteFileSnapshotSql"), new Object[] {
-                    snapshot.getTriggerId(), snapshot.getRouterId(), snapshot.getRelativeDir(),
-                    snapshot.getFileName() }, new int[] { Types.VARCHAR, Types.VARCHAR,
-                            Types.VARCHAR, Types.VARCHAR });
+            sqlTransaction.prepareAndExecute(getSql("deleteFileSnapshotSql"),
+                    getDeleteFileSnapshotArgs(snapshot), DELETE_FILE_SNAPSHOT_TYPES);
+        }
+
+    }
+
+    /**
+     * Save many snapshots with one batched statement each for updates,
+     * inserts and deletes. The file names already in the database are
+     * selected once per directory to decide between update and insert.
+     */
+    protected void saveInBatches(ISqlTransaction sqlTransaction, List<FileSnapshot> changes) {
+        Date lastUpdateTime = new Date();
+        Map<String, Set<String>> existingFileNamesByDir = new HashMap<String, Set<String>>();
+        List<FileSnapshot> updates = new ArrayList<FileSnapshot>();
+        List<FileSnapshot> inserts = new ArrayList<FileSnapshot>();
+        List<FileSnapshot> deletes = new ArrayList<FileSnapshot>();
+        for (FileSnapshot snapshot : changes) {
+            snapshot.setLastUpdateTime(lastUpdateTime);
+            String dirKey = snapshot.getTriggerId() + "::" + snapshot.getRouterId() + "::" + snapshot.getRelativeDir();
+            Set<String> existingFileNames = existingFileNamesByDir.get(dirKey);
+            if (existingFileNames == null) {
+                existingFileNames = new HashSet<String>(sqlTransaction.query(getSql("selectFileSnapshotFileNamesSql"),
+                        new StringMapper(), new Object[] { snapshot.getTriggerId(), snapshot.getRouterId(),
+                                snapshot.getRelativeDir() }, new int[] { Types.VARCHAR, Types.VARCHAR, Types.VARCHAR }));
+                existingFileNamesByDir.put(dirKey, existingFileNames);
+            }
+            if (existingFileNames.contains(snapshot.getFileName())) {
+                updates.add(snapshot);
+            } else {
+                snapshot.setCreateTime(lastUpdateTime);
+                inserts.add(snapshot);
+            }
+            // now that we have captured an update, delete the row for cleanup
+            if (snapshot.getLastEventType() == LastEventType.DELETE) {
+                deletes.add(snapshot);
+            }
         }
 
+        boolean inBatchMode = sqlTransaction.isInBatchMode();
+        try {
+            sqlTransaction.setInBatchMode(true);
+            if (updates.size() > 0) {
+                sqlTransaction.prepare(getSql("updateFileSnapshotSql"));
+                for (FileSnapshot snapshot : updates) {
+                    sqlTransaction.addRow(snapshot, getUpdateFileSnapshotArgs(snapshot), UPDATE_FILE_SNAPSHOT_TYPES);
+                }
+                sqlTransaction.flush();
+            }
+            if (inserts.size() > 0) {
+                sqlTransaction.prepare(getSql("insertFileSnapshotSql"));
+                for (FileSnapshot snapshot : inserts) {
+                    sqlTransaction.addRow(snapshot, getInsertFileSnapshotArgs(snapshot), INSERT_FILE_SNAPSHOT_TYPES);
+                }
+                sqlTransaction.flush();
+            }
+            if (deletes.size() > 0) {
+                sqlTransaction.prepare(getSql("deleteFileSnapshotSql"));
+                for (FileSnapshot snapshot : deletes) {
+                    sqlTransaction.addRow(snapshot, getDeleteFileSnapshotArgs(snapshot), DELETE_FILE_SNAPSHOT_TYPES);
+                }
+                sqlTransaction.flush();
+            }
+        } finally {
+            sqlTransaction.setInBatchMode(inBatchMode);
+        }
+    }
+
+    protected boolean hasUniqueFiles(List<FileSnapshot> changes) {
+        Set<String> keys = new HashSet<String>(changes.size());
+        for (FileSnapshot snapshot : changes) {
+            if (!keys.add(snapshot.getTriggerId() + "::" + snapshot.getRouterId() + "::" + snapshot.getRelativeDir() + "::"
+                    + snapshot.getFileName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected Object[] getUpdateFileSnapshotArgs(FileSnapshot snapshot) {
+        return new Object[] { snapshot.getLastEventType().getCode(), snapshot.getCrc32Checksum(),
+                snapshot.getFileSize(), snapshot.getFileModifiedTime(),
+                snapshot.getLastUpdateTime(), snapshot.getLastUpdateBy(), snapshot.getChannelId(),
+                snapshot.getReloadChannelId(), 
+                snapshot.getTriggerId(), snapshot.getRouterId(), snapshot.getRelativeDir(),
+                snapshot.getFileName() };
+    }
+
+    protected Object[] getInsertFileSnapshotArgs(FileSnapshot snapshot) {
+        return new Object[] { snapshot.getLastEventType().getCode(),
+                snapshot.getCrc32Checksum(), snapshot.getFileSize(),
+                snapshot.getFileModifiedTime(), snapshot.getCreateTime(),
+                snapshot.getLastUpdateTime(), snapshot.getLastUpdateBy(), snapshot.getChannelId(),
+                snapshot.getReloadChannelId(), 
+                snapshot.getTriggerId(), snapshot.getRouterId(),
+                snapshot.getRelativeDir(), snapshot.getFileName() };
+    }
+
+    protected Object[] getDeleteFileSnapshotArgs(FileSnapshot snapshot) {
+        return new Object[] { snapshot.getTriggerId(), snapshot.getRouterId(), snapshot.getRelativeDir(),
+                snapshot.getFileName() };
     }
 
     synchronized public RemoteNodeStatuses pullFilesFromNodes(boolean force) {
@@ -597,7 +823,18 @@ INodeCommunicationExecutor {
                                     targetNode.getNodeId(), "filesync.zip");                            
                             dataWriter = new FileSyncZipDataWriter(maxBytesToSync, this,
                                     engine.getNodeService(), stagedResource, engine.getExtensionService(), engine.getConfigurationService());
+                            dataWriter.setZipOptions(parameterService.getInt(ParameterConstants.FILE_SYNC_ZIP_THREAD_COUNT, 4),
+                                    parameterService.getString(ParameterConstants.FILE_SYNC_ZIP_STORED_EXTENSIONS,
+                                            ParallelZipOutput.DEFAULT_STORED_EXTENSIONS),
+                                    new File(parameterService.getTempDirectory()));
+                            if (parameterService.is(ParameterConstants.FILE_SYNC_DELTA_ENABLED)) {
+                                dataWriter.setDeltaOptions(getDeltaSignatureDir(),
+                                        parameterService.getInt(ParameterConstants.FILE_SYNC_DELTA_BLOCK_SIZE, 65536),
+                                        parameterService.getLong(ParameterConstants.FILE_SYNC_DELTA_MIN_FILE_SIZE, 1048576));
+                            }
                         }
+                        Channel channel = engine.getConfigurationService().getChannel(currentBatch.getChannelId());
+                        dataWriter.setDeltaEnabled(!currentBatch.isErrorFlag() && (channel == null || !channel.isReloadFlag()));
                         log.debug("Extracting batch {} for filesync.", currentBatch.getNodeBatchId());
 
                         ((DataExtractorService) engine.getDataExtractorService()).extractOutgoingBatch(
@@ -739,6 +976,10 @@ INodeCommunicationExecutor {
 
     public void acknowledgeFiles(OutgoingBatch outgoingBatch) {
         log.debug("Acknowledging file_sync outgoing batch-{}", outgoingBatch.getBatchId());
+        if (parameterService.is(ParameterConstants.FILE_SYNC_DELTA_ENABLED)) {
+            FileSyncZipDataWriter.acknowledgeSignatures(getDeltaSignatureDir(), outgoingBatch.getNodeId(),
+                    outgoingBatch.getBatchId());
+        }
         List<File> filesToDelete = new ArrayList<File>();
         Table snapshotTable = platform.getTableFromCache(
                 TableConstants.getTableName(tablePrefix, TableConstants.SYM_FILE_SNAPSHOT), false);
@@ -925,142 +1166,172 @@ INodeCommunicationExecutor {
         FileUtils.deleteDirectory(unzipDir);
         unzipDir.mkdirs();
 
+        List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
+        Set<String> unexpectedDirs = new HashSet<String>();
+        processInfo.setStatus(ProcessInfo.ProcessStatus.LOADING);
+
+        /*
+         * Entries are written one batch after another, so each batch is loaded
+         * as soon as the first entry of the next batch arrives instead of
+         * after the whole zip has been unzipped
+         */
+        ZipInputStream zis = new ZipInputStream(is);
+        Long currentBatchId = null;
+        boolean inError = false;
         try {
-            AppUtils.unzip(is, unzipDir);
-        } catch (IoException ex) {
-            if (ex.toString().contains("EOFException")) { // This happens on Android, when there is an empty zip.
-                //log.debug("Caught exception while unzipping.", ex);
-            } else {
-                throw ex;
+            ZipEntry entry = zis.getNextEntry();
+            while (entry != null && !inError) {
+                Long batchId = getBatchId(entry.getName(), unexpectedDirs);
+                if (batchId != null) {
+                    if (currentBatchId != null && !currentBatchId.equals(batchId)) {
+                        inError = !processBatch(unzipDir, currentBatchId, sourceNodeId, processInfo, batchesProcessed);
+                    }
+                    currentBatchId = batchId;
+                    if (!inError) {
+                        AppUtils.unzipEntry(zis, entry, unzipDir);
+                    }
+                }
+                entry = zis.getNextEntry();
             }
+        } catch (EOFException ex) {
+            // This happens on Android, when there is an empty zip.
+        }
+
+        if (currentBatchId != null && !inError) {
+            processBatch(unzipDir, currentBatchId, sourceNodeId, processInfo, batchesProcessed);
         }
 
-        Set<Long> batchIds = new TreeSet<Long>();
-        String[] files = unzipDir.list(DirectoryFileFilter.INSTANCE);
+        return batchesProcessed;
+    }
 
-        if (files != null) {
-            for (int i = 0; i < files.length; i++) {
-                try {
-                    batchIds.add(Long.parseLong(files[i]));
-                } catch (NumberFormatException e) {
+    protected Long getBatchId(String entryName, Set<String> unexpectedDirs) {
+        int index = entryName.indexOf("/");
+        if (index > 0) {
+            String dirName = entryName.substring(0, index);
+            try {
+                return Long.parseLong(dirName);
+            } catch (NumberFormatException e) {
+                if (unexpectedDirs.add(dirName)) {
                     log.error(
                             "Unexpected directory name.  Expected a number representing a batch id.  Instead the directory was named '{}'",
-                            files[i]);
+                            dirName);
                 }
             }
         }
+        return null;
+    }
 
-        List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
-
+    /**
+     * @return false if the batch failed to load, in which case no more
+     *         batches should be loaded
+     */
+    protected boolean processBatch(File unzipDir, Long batchId, String sourceNodeId, ProcessInfo processInfo,
+            List<IncomingBatch> batchesProcessed) throws IOException {
         IIncomingBatchService incomingBatchService = engine.getIncomingBatchService();
+        processInfo.setCurrentBatchId(batchId);
+        processInfo.incrementBatchCount();
+        File batchDir = new File(unzipDir, Long.toString(batchId));
 
-        processInfo.setStatus(ProcessInfo.ProcessStatus.LOADING);
-        for (Long batchId : batchIds) {
-            processInfo.setCurrentBatchId(batchId);
-            processInfo.incrementBatchCount();
-            File batchDir = new File(unzipDir, Long.toString(batchId));
-
-            IncomingBatch incomingBatch = new IncomingBatch();
-
-            File batchInfo = new File(batchDir, "batch-info.txt");
-            if (batchInfo.exists()) {
-                List<String> info = FileUtils.readLines(batchInfo);
-                if (info != null && info.size() > 0) {
-                    incomingBatch.setChannelId(info.get(0).trim());
-                } else {
-                    incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
-                }
+        IncomingBatch incomingBatch = new IncomingBatch();
+
+        File batchInfo = new File(batchDir, "batch-info.txt");
+        if (batchInfo.exists()) {
+            List<String> info = FileUtils.readLines(batchInfo);
+            if (info != null && info.size() > 0) {
+                incomingBatch.setChannelId(info.get(0).trim());
             } else {
                 incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
             }
+        } else {
+            incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
+        }
 
-            incomingBatch.setBatchId(batchId);
-            incomingBatch.setStatus(IncomingBatch.Status.LD);
-            incomingBatch.setNodeId(sourceNodeId);
-            incomingBatch.setByteCount(FileUtils.sizeOfDirectory(batchDir));
-            batchesProcessed.add(incomingBatch);
-            if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
-                File syncScript = new File(batchDir, "sync.bsh");
-                if (syncScript.exists()) {
-                    String script = FileUtils.readFileToString(syncScript);
-                    Interpreter interpreter = new Interpreter();
-                    boolean isLocked = false;
-                    try {
-                        setInterpreterVariables(engine, sourceNodeId, batchDir, interpreter);
-
-                        long waitMillis = getParameterService().getLong(
-                                ParameterConstants.FILE_SYNC_LOCK_WAIT_MS);
-                        log.debug("The {} node is attempting to get shared lock for to update incoming status", sourceNodeId);
-                        isLocked = engine.getClusterService().lock(
-                                ClusterConstants.FILE_SYNC_SHARED, ClusterConstants.TYPE_SHARED,
-                                waitMillis);
-                        if (isLocked) {
-                            log.debug("The {} node got a shared file sync lock", sourceNodeId);
-                            @SuppressWarnings("unchecked")
-                            Map<String, String> filesToEventType = (Map<String, String>) interpreter
-                            .eval(script);
-                            if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
-                                updateFileIncoming(sourceNodeId, filesToEventType);
-                            }
-                            incomingBatch
-                            .setLoadRowCount(filesToEventType != null ? filesToEventType
-                                    .size() : 0);
-                        } else {
-                            throw new RuntimeException(
-                                    "Could not obtain file sync shared lock within " + waitMillis
-                                    + " millis");
-                        }
-                        incomingBatch.setStatus(IncomingBatch.Status.OK);
-                        if (incomingBatchService.isRecordOkBatchesEnabled()) {
-                            incomingBatchService.updateIncomingBatch(incomingBatch);
-                        } else if (incomingBatch.isRetry()) {
-                            incomingBatchService.deleteIncomingBatch(incomingBatch);
-                        }
-                    } catch (Throwable ex) {
-                        if (ex instanceof TargetError) {
-                            Throwable target = ((TargetError) ex).getTarget();
-                            if (target != null) {
-                                ex = target;
-                            }
+        incomingBatch.setBatchId(batchId);
+        incomingBatch.setStatus(IncomingBatch.Status.LD);
+        incomingBatch.setNodeId(sourceNodeId);
+        incomingBatch.setByteCount(FileUtils.sizeOfDirectory(batchDir));
+        batchesProcessed.add(incomingBatch);
+        if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
+            File syncScript = new File(batchDir, "sync.bsh");
+            if (syncScript.exists()) {
+                String script = FileUtils.readFileToString(syncScript);
+                Interpreter interpreter = new Interpreter();
+                boolean isLocked = false;
+                try {
+                    setInterpreterVariables(engine, sourceNodeId, batchDir, interpreter);
+
+                    long waitMillis = getParameterService().getLong(
+                            ParameterConstants.FILE_SYNC_LOCK_WAIT_MS);
+                    log.debug("The {} node is attempting to get shared lock for to update incoming status", sourceNodeId);
+                    isLocked = engine.getClusterService().lock(
+                            ClusterConstants.FILE_SYNC_SHARED, ClusterConstants.TYPE_SHARED,
+                            waitMillis);
+                    if (isLocked) {
+                        log.debug("The {} node got a shared file sync lock", sourceNodeId);
+                        @SuppressWarnings("unchecked")
+                        Map<String, String> filesToEventType = (Map<String, String>) interpreter
+                        .eval(script);
+                        if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
+                            updateFileIncoming(sourceNodeId, filesToEventType);
                         }
-                        
-                        String nodeIdBatchId = sourceNodeId + "-" + batchId;
-
-                        if (ex instanceof EvalError) {
-                            log.error("Failed to evalulate the script as part of file sync batch " + nodeIdBatchId + "\n" + script + "\n", ex);
-                        } else if (ex instanceof FileConflictException) {
-                            log.error(ex.getMessage() + ".  Failed to process file sync batch "
-                                    + nodeIdBatchId);
-                        } else {
-                            log.error("Failed to process file sync for  batch " + nodeIdBatchId, ex);
+                        incomingBatch
+                        .setLoadRowCount(filesToEventType != null ? filesToEventType
+                                .size() : 0);
+                    } else {
+                        throw new RuntimeException(
+                                "Could not obtain file sync shared lock within " + waitMillis
+                                + " millis");
+                    }
+                    incomingBatch.setStatus(IncomingBatch.Status.OK);
+                    if (incomingBatchService.isRecordOkBatchesEnabled()) {
+                        incomingBatchService.updateIncomingBatch(incomingBatch);
+                    } else if (incomingBatch.isRetry()) {
+                        incomingBatchService.deleteIncomingBatch(incomingBatch);
+                    }
+                } catch (Throwable ex) {
+                    if (ex instanceof TargetError) {
+                        Throwable target = ((TargetError) ex).getTarget();
+                        if (target != null) {
+                            ex = target;
                         }
+                    }
+                    
+                    String nodeIdBatchId = sourceNodeId + "-" + batchId;
 
-                        incomingBatch.setErrorFlag(true);
-                        incomingBatch.setStatus(IncomingBatch.Status.ER);
-                        incomingBatch.setSqlMessage(ex.getMessage());
-                        if (incomingBatchService.isRecordOkBatchesEnabled()
-                                || incomingBatch.isRetry()) {
-                            incomingBatchService.updateIncomingBatch(incomingBatch);
-                        } else {
-                            incomingBatchService.insertIncomingBatch(incomingBatch);
-                        }
-                        processInfo.setStatus(ProcessInfo.ProcessStatus.ERROR);
-                        break;
-                    } finally {
-                        log.debug("The {} node is done processing file sync files", sourceNodeId);
-                        if (isLocked) {
-                            engine.getClusterService().unlock(ClusterConstants.FILE_SYNC_SHARED,
-                                    ClusterConstants.TYPE_SHARED);
-                        }
+                    if (ex instanceof EvalError) {
+                        log.error("Failed to evalulate the script as part of file sync batch " + nodeIdBatchId + "\n" + script + "\n", ex);
+                    } else if (ex instanceof FileConflictException) {
+                        log.error(ex.getMessage() + ".  Failed to process file sync batch "
+                                + nodeIdBatchId);
+                    } else {
+                        log.error("Failed to process file sync for  batch " + nodeIdBatchId, ex);
+                    }
+
+                    incomingBatch.setErrorFlag(true);
+                    incomingBatch.setStatus(IncomingBatch.Status.ER);
+                    incomingBatch.setSqlMessage(ex.getMessage());
+                    if (incomingBatchService.isRecordOkBatchesEnabled()
+                            || incomingBatch.isRetry()) {
+                        incomingBatchService.updateIncomingBatch(incomingBatch);
+                    } else {
+                        incomingBatchService.insertIncomingBatch(incomingBatch);
+                    }
+                    processInfo.setStatus(ProcessInfo.ProcessStatus.ERROR);
+                    return false;
+                } finally {
+                    log.debug("The {} node is done processing file sync files", sourceNodeId);
+                    if (isLocked) {
+                        engine.getClusterService().unlock(ClusterConstants.FILE_SYNC_SHARED,
+                                ClusterConstants.TYPE_SHARED);
                     }
-                } else {
-                    log.error("Could not find the sync.bsh script for batch {}", batchId);
                 }
+            } else {
+                log.error("Could not find the sync.bsh script for batch {}", batchId);
             }
-
         }
 
-        return batchesProcessed;
+        FileUtils.deleteQuietly(batchDir);
+        return true;
     }
 
     protected void setInterpreterVariables(ISymmetricEngine engine, String sourceNodeId, File batchDir, Interpreter interpreter) throws EvalError {
@@ -1186,6 +1457,10 @@ INodeCommunicationExecutor {
         return statuses;
     }
 
+    protected File getDeltaSignatureDir() {
+        return new File(parameterService.getTempDirectory(), "filesync_signatures");
+    }
+
     protected String getEffectiveBaseDir(String baseDir) {
         String effectiveBaseDir = baseDir == null ? null : baseDir.replace('\\', '/');
         return effectiveBaseDir;
@@ -69,6 +69,9 @@ public class FileSyncServiceSqlMap extends AbstractSqlMap {
         
         putSql("relativeDirWhere", "and relative_dir=?");
 
+        putSql("selectFileSnapshotFileNamesSql",
+                " select file_name from $(file_snapshot) where trigger_id=? and router_id=? and relative_dir=? ");
+
         putSql("updateFileSnapshotSql",
                 " update $(file_snapshot) set   " +
                         "  last_event_type=?, crc32_checksum=?,                                 " +
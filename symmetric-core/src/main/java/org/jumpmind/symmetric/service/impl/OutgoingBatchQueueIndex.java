@@ -0,0 +1,274 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jumpmind.symmetric.model.AbstractBatch.Status;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+
+/**
+ * In-memory index of the outgoing batches that are ready to be sent, by node
+ * and channel. It is kept current as batches are inserted and updated by the
+ * {@link OutgoingBatchService}, and it is rebuilt from the outgoing batch
+ * table by a periodic sweep to pick up changes that were made outside of the
+ * service.
+ * <p>
+ * The index is used to skip the query for nodes that have nothing to send.
+ * It may list batches that have already been sent, which only costs a
+ * query, but it must not miss a batch that is ready. Nodes whose batches
+ * were changed in bulk are marked as unknown until they have been swept.
+ * Because a change might not be committed when a sweep reads the table,
+ * entries and unknown nodes are only dropped by the second sweep that starts
+ * after they were recorded.
+ */
+public class OutgoingBatchQueueIndex {
+
+    public static final Set<Status> READY_STATUSES = Collections.unmodifiableSet(EnumSet.of(Status.RQ, Status.NE, Status.QY,
+            Status.SE, Status.LD, Status.ER, Status.IG, Status.RS));
+
+    /*
+     * Node id to channel id to the batch ids that are ready to send. Each
+     * batch id maps to the generation it was recorded in.
+     */
+    protected volatile ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>> nodes = 
+            new ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>>();
+
+    protected ConcurrentHashMap<String, Long> unknownNodes = new ConcurrentHashMap<String, Long>();
+
+    protected AtomicLong generation = new AtomicLong();
+
+    protected ReadWriteLock updateLock = new ReentrantReadWriteLock();
+
+    protected ReentrantLock sweepLock = new ReentrantLock();
+
+    protected long lastSweepGeneration;
+
+    protected volatile boolean loaded;
+
+    protected volatile long lastSweepTime;
+
+    public void update(OutgoingBatch batch) {
+        if (batch.getNodeId() != null && batch.getChannelId() != null && batch.getStatus() != null) {
+            if (READY_STATUSES.contains(batch.getStatus())) {
+                add(batch.getNodeId(), batch.getChannelId(), batch.getBatchId());
+            } else {
+                remove(batch.getNodeId(), batch.getChannelId(), batch.getBatchId());
+            }
+        }
+    }
+
+    public void updateAll(Collection<OutgoingBatch> batches) {
+        for (OutgoingBatch batch : batches) {
+            update(batch);
+        }
+    }
+
+    public void add(String nodeId, String channelId, long batchId) {
+        updateLock.readLock().lock();
+        try {
+            getChannelQueue(nodes, nodeId, channelId).put(batchId, generation.incrementAndGet());
+        } finally {
+            updateLock.readLock().unlock();
+        }
+    }
+
+    public void remove(String nodeId, String channelId, long batchId) {
+        Map<String, ConcurrentSkipListMap<Long, Long>> channels = nodes.get(nodeId);
+        if (channels != null) {
+            ConcurrentSkipListMap<Long, Long> queue = channels.get(channelId);
+            if (queue != null) {
+                queue.remove(batchId);
+            }
+        }
+    }
+
+    /**
+     * Mark a node as unknown after its batches were changed in a way that the
+     * index can't follow.
+     */
+    public void invalidate(String nodeId) {
+        unknownNodes.put(nodeId, generation.incrementAndGet());
+    }
+
+    /**
+     * Check if the node might have batches to send on any of the channels.
+     * 
+     * @param channelIds
+     *            the channels to check, or null for all channels
+     */
+    public boolean hasBatches(String nodeId, Collection<String> channelIds) {
+        if (!loaded || unknownNodes.containsKey(nodeId)) {
+            return true;
+        }
+        Map<String, ConcurrentSkipListMap<Long, Long>> channels = nodes.get(nodeId);
+        if (channels != null) {
+            if (channelIds == null) {
+                for (ConcurrentSkipListMap<Long, Long> queue : channels.values()) {
+                    if (!queue.isEmpty()) {
+                        return true;
+                    }
+                }
+            } else {
+                for (String channelId : channelIds) {
+                    ConcurrentSkipListMap<Long, Long> queue = channels.get(channelId);
+                    if (queue != null && !queue.isEmpty()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public int getBatchCount(String nodeId) {
+        int count = 0;
+        Map<String, ConcurrentSkipListMap<Long, Long>> channels = nodes.get(nodeId);
+        if (channels != null) {
+            for (ConcurrentSkipListMap<Long, Long> queue : channels.values()) {
+                count += queue.size();
+            }
+        }
+        return count;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isSweepDue(long periodInMs) {
+        return !loaded || System.currentTimeMillis() - lastSweepTime >= periodInMs;
+    }
+
+    /**
+     * Start a sweep if no other thread is running one. The caller must call
+     * {@link #finishSweep} or {@link #cancelSweep()} when a sweep is started.
+     * 
+     * @return the generation to pass to {@link #finishSweep}, or -1 if a sweep
+     *         is already running
+     */
+    public long startSweep() {
+        if (sweepLock.tryLock()) {
+            return generation.incrementAndGet();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Replace the index with the batches that were read from the table.
+     * 
+     * @param sweepGeneration
+     *            the value returned by {@link #startSweep()}
+     * @param rows
+     *            the node id, channel id and batch id of every batch that is
+     *            ready to send
+     */
+    public void finishSweep(long sweepGeneration, List<Object[]> rows) {
+        try {
+            ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>> swept = 
+                    new ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>>();
+            for (Object[] row : rows) {
+                getChannelQueue(swept, (String) row[0], (String) row[1]).put(((Number) row[2]).longValue(), sweepGeneration);
+            }
+
+            updateLock.writeLock().lock();
+            try {
+                for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>> node : nodes.entrySet()) {
+                    for (Map.Entry<String, ConcurrentSkipListMap<Long, Long>> channel : node.getValue().entrySet()) {
+                        for (Map.Entry<Long, Long> batch : channel.getValue().entrySet()) {
+                            if (batch.getValue() > lastSweepGeneration) {
+                                getChannelQueue(swept, node.getKey(), channel.getKey()).putIfAbsent(batch.getKey(), batch.getValue());
+                            }
+                        }
+                    }
+                }
+                nodes = swept;
+            } finally {
+                updateLock.writeLock().unlock();
+            }
+
+            Iterator<Long> i = unknownNodes.values().iterator();
+            while (i.hasNext()) {
+                if (i.next() <= lastSweepGeneration) {
+                    i.remove();
+                }
+            }
+            lastSweepGeneration = sweepGeneration;
+            lastSweepTime = System.currentTimeMillis();
+            loaded = true;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    public void cancelSweep() {
+        if (sweepLock.isHeldByCurrentThread()) {
+            sweepLock.unlock();
+        }
+    }
+
+    public void clear() {
+        updateLock.writeLock().lock();
+        try {
+            loaded = false;
+            nodes.clear();
+            unknownNodes.clear();
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    protected ConcurrentSkipListMap<Long, Long> getChannelQueue(
+            ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>> nodes, String nodeId,
+            String channelId) {
+        ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>> channels = nodes.get(nodeId);
+        if (channels == null) {
+            channels = new ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>>();
+            ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Long>> existing = nodes.putIfAbsent(nodeId, channels);
+            if (existing != null) {
+                channels = existing;
+            }
+        }
+        ConcurrentSkipListMap<Long, Long> queue = channels.get(channelId);
+        if (queue == null) {
+            queue = new ConcurrentSkipListMap<Long, Long>();
+            ConcurrentSkipListMap<Long, Long> existing = channels.putIfAbsent(channelId, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        return queue;
+    }
+
+}
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -81,6 +82,8 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
 
     private IExtensionService extensionService;
 
+    private OutgoingBatchQueueIndex queueIndex = new OutgoingBatchQueueIndex();
+
     public OutgoingBatchService(IParameterService parameterService, ISymmetricDialect symmetricDialect, INodeService nodeService,
             IConfigurationService configurationService, ISequenceService sequenceService, IClusterService clusterService,
             IExtensionService extensionService) {
@@ -151,6 +154,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                 new Object[] { channelId, fromNodeId, toNodeId, startBatchId });
         sqlTemplate.update(getSql("deleteOutgoingBatchesForNodeSql"), toNodeId, channelId, fromNodeId, channelId);
         int count = sqlTemplate.update(getSql("copyOutgoingBatchesSql"), toNodeId, fromNodeId, channelId, startBatchId);
+        queueIndex.invalidate(toNodeId);
         log.info("Copied {} outgoing batches for channel '{}' from node '{}' to node '{}'",
                 new Object[] { count, channelId, fromNodeId, toNodeId });
     }
@@ -229,6 +233,9 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                         Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
                         Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
                         symmetricDialect.getSqlTypeForIds(), Types.VARCHAR });
+        if (isQueueIndexEnabled()) {
+            queueIndex.update(outgoingBatch);
+        }
     }
 
     public void updateOutgoingBatchStatus(ISqlTransaction transaction, Status status, String nodeId, long startBatchId, long endBatchId) {
@@ -236,6 +243,9 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                 new Object[] { status.name(), new Date(), clusterService.getServerId(), nodeId, startBatchId, endBatchId },
                 new int[] { Types.CHAR, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, 
                         symmetricDialect.getSqlTypeForIds(), symmetricDialect.getSqlTypeForIds() });
+        if (OutgoingBatchQueueIndex.READY_STATUSES.contains(status)) {
+            queueIndex.invalidate(nodeId);
+        }
     }
 
     public void insertOutgoingBatch(final OutgoingBatch outgoingBatch) {
@@ -266,13 +276,66 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         if (batchId <= 0) {
             batchId = sequenceService.nextVal(transaction, Constants.SEQUENCE_OUTGOING_BATCH);
         }
-        transaction.prepareAndExecute(getSql("insertOutgoingBatchSql"), batchId, outgoingBatch.getNodeId(), outgoingBatch.getChannelId(),
+        transaction.prepareAndExecute(getSql("insertOutgoingBatchSql"), getInsertOutgoingBatchArgs(batchId, outgoingBatch));
+        outgoingBatch.setBatchId(batchId);
+        if (isQueueIndexEnabled()) {
+            queueIndex.update(outgoingBatch);
+        }
+    }
+
+    /**
+     * Insert the batches using a JDBC batch. Batches without a batch id are
+     * assigned one from a single reserved range of the batch sequence.
+     */
+    public void insertOutgoingBatches(ISqlTransaction transaction, List<OutgoingBatch> outgoingBatches) {
+        int missingBatchIds = 0;
+        for (OutgoingBatch outgoingBatch : outgoingBatches) {
+            if (outgoingBatch.getBatchId() <= 0) {
+                missingBatchIds++;
+            }
+        }
+        if (missingBatchIds > 0) {
+            long[] batchIds = sequenceService.nextVals(transaction, Constants.SEQUENCE_OUTGOING_BATCH, missingBatchIds);
+            int index = 0;
+            for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                if (outgoingBatch.getBatchId() <= 0) {
+                    outgoingBatch.setBatchId(batchIds[index++]);
+                }
+            }
+        }
+
+        int idType = symmetricDialect.getSqlTypeForIds();
+        int[] types = new int[] { idType, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, idType, Types.NUMERIC, Types.NUMERIC,
+                Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.VARCHAR,
+                Types.VARCHAR, Types.VARCHAR, Types.NUMERIC };
+        String serverId = clusterService.getServerId();
+        boolean inBatchMode = transaction.isInBatchMode();
+        try {
+            transaction.setInBatchMode(true);
+            transaction.prepare(getSql("insertOutgoingBatchSql"));
+            for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                outgoingBatch.setLastUpdatedHostName(serverId);
+                transaction.addRow(outgoingBatch, getInsertOutgoingBatchArgs(outgoingBatch.getBatchId(), outgoingBatch), types);
+            }
+            transaction.flush();
+        } finally {
+            transaction.setInBatchMode(inBatchMode);
+        }
+
+        if (isQueueIndexEnabled()) {
+            for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                queueIndex.update(outgoingBatch);
+            }
+        }
+    }
+
+    protected Object[] getInsertOutgoingBatchArgs(long batchId, OutgoingBatch outgoingBatch) {
+        return new Object[] { batchId, outgoingBatch.getNodeId(), outgoingBatch.getChannelId(),
                 outgoingBatch.getStatus().name(), outgoingBatch.getLoadId(), outgoingBatch.isExtractJobFlag() ? 1 : 0,
                 outgoingBatch.isLoadFlag() ? 1 : 0, outgoingBatch.isCommonFlag() ? 1 : 0, outgoingBatch.getReloadRowCount(),
                 outgoingBatch.getOtherRowCount(), outgoingBatch.getDataUpdateRowCount(), outgoingBatch.getDataInsertRowCount(),
                 outgoingBatch.getDataDeleteRowCount(), outgoingBatch.getLastUpdatedHostName(), outgoingBatch.getCreateBy(),
-                outgoingBatch.getSummary(), outgoingBatch.getDataRowCount());
-        outgoingBatch.setBatchId(batchId);
+                outgoingBatch.getSummary(), outgoingBatch.getDataRowCount() };
     }
 
     public OutgoingBatch findOutgoingBatch(long batchId, String nodeId) {
@@ -417,6 +480,14 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     public OutgoingBatches getOutgoingBatches(String nodeId, String channelThread, NodeGroupLinkAction eventAction,
             NodeGroupLinkAction defaultEventAction, boolean includeDisabledChannels) {
         long ts = System.currentTimeMillis();
+        boolean queueIndexEnabled = isQueueIndexEnabled();
+        if (queueIndexEnabled) {
+            sweepQueueIndex();
+            if (!queueIndex.hasBatches(nodeId, getQueueChannelIds(channelThread, eventAction, defaultEventAction))) {
+                return new OutgoingBatches();
+            }
+        }
+
         final int maxNumberOfBatchesToSelect = parameterService.getInt(ParameterConstants.OUTGOING_BATCH_MAX_BATCHES_TO_SELECT, 1000);
 
         String sql = null;
@@ -454,6 +525,9 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
 
         List<OutgoingBatch> list = (List<OutgoingBatch>) sqlTemplate.query(sql, maxNumberOfBatchesToSelect,
                 new OutgoingBatchMapper(includeDisabledChannels), params, types);
+        if (queueIndexEnabled) {
+            queueIndex.updateAll(list);
+        }
 
         OutgoingBatches batches = new OutgoingBatches(list);
 
@@ -487,6 +561,69 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         return batches;
     }
 
+    protected boolean isQueueIndexEnabled() {
+        boolean enabled = parameterService.is(ParameterConstants.OUTGOING_BATCH_QUEUE_INDEX_ENABLED)
+                && !parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED);
+        if (!enabled && queueIndex.isLoaded()) {
+            queueIndex.clear();
+        }
+        return enabled;
+    }
+
+    /**
+     * Rebuild the queue index from the table when it is due, unless another
+     * thread is already doing it.
+     */
+    protected void sweepQueueIndex() {
+        if (queueIndex.isSweepDue(parameterService.getLong(ParameterConstants.OUTGOING_BATCH_QUEUE_INDEX_SWEEP_PERIOD_MS, 60000))) {
+            long generation = queueIndex.startSweep();
+            if (generation >= 0) {
+                try {
+                    long ts = System.currentTimeMillis();
+                    List<Object[]> rows = sqlTemplate.query(getSql("selectReadyOutgoingBatchIdsSql"), new ISqlRowMapper<Object[]>() {
+                        public Object[] mapRow(Row row) {
+                            return new Object[] { row.getString("node_id"), row.getString("channel_id"), row.getLong("batch_id") };
+                        }
+                    }, OutgoingBatch.Status.RQ.name(), OutgoingBatch.Status.NE.name(), OutgoingBatch.Status.QY.name(),
+                            OutgoingBatch.Status.SE.name(), OutgoingBatch.Status.LD.name(), OutgoingBatch.Status.ER.name(),
+                            OutgoingBatch.Status.IG.name(), OutgoingBatch.Status.RS.name());
+                    queueIndex.finishSweep(generation, rows);
+                    log.debug("Indexed {} outgoing batches that are ready to send in {} ms", rows.size(),
+                            System.currentTimeMillis() - ts);
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to read the outgoing batches that are ready to send.  The batches will be queried for each node.", ex);
+                } finally {
+                    queueIndex.cancelSweep();
+                }
+            }
+        }
+    }
+
+    /**
+     * The channels that are selected for a queue and event action, or null
+     * when all channels are selected.
+     */
+    protected Set<String> getQueueChannelIds(String channelThread, NodeGroupLinkAction eventAction,
+            NodeGroupLinkAction defaultEventAction) {
+        if (channelThread == null && eventAction == null) {
+            return null;
+        }
+        Set<String> channelIds = new HashSet<String>();
+        for (Channel channel : configurationService.getChannels(false).values()) {
+            if (channelThread != null && !channelThread.equals(channel.getQueue())) {
+                continue;
+            }
+            if (eventAction != null) {
+                NodeGroupLinkAction action = channel.getDataEventAction();
+                if (!(eventAction.equals(action) || (action == null && eventAction.equals(defaultEventAction)))) {
+                    continue;
+                }
+            }
+            channelIds.add(channel.getChannelId());
+        }
+        return channelIds;
+    }
+
     public List<OutgoingBatch> getBatchesForChannelWindows(OutgoingBatches batches, String targetNodeId, NodeChannel channel,
             List<NodeGroupChannelWindow> windows) {
         List<OutgoingBatch> keeping = new ArrayList<OutgoingBatch>();
@@ -187,6 +187,9 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
         putSql("whereStatusAndNodeAndChannelGroupByStatusSql",
                 " where b.status in (:STATUS_LIST) and b.node_id = ? and b.channel_id = ? group by b.status, b.node_id order by oldest_batch_time asc   ");
 
+        putSql("selectReadyOutgoingBatchIdsSql",
+                "select node_id, channel_id, batch_id from $(outgoing_batch) where status in (?, ?, ?, ?, ?, ?, ?, ?)   ");
+
         putSql("updateOutgoingBatchesStatusSql",
                 "update $(outgoing_batch) set status=? where status = ?   ");
 
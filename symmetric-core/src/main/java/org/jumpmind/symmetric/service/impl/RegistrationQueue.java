@@ -0,0 +1,182 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.RegistrationBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control for registration requests. At most
+ * registration.max.concurrent registrations are processed at a time, up to
+ * registration.queue.size more wait for a turn, and anything beyond that, or
+ * anything that waits longer than registration.queue.wait.ms, is rejected with
+ * an estimate of when to try again.
+ */
+public class RegistrationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistrationQueue.class);
+
+    static final int MIN_RETRY_AFTER_SECONDS = 1;
+
+    static final int MAX_RETRY_AFTER_SECONDS = 600;
+
+    protected IParameterService parameterService;
+
+    protected int activeCount;
+
+    protected int queueDepth;
+
+    protected int maxQueueDepth;
+
+    protected int maxActiveCount;
+
+    protected long admittedCount;
+
+    protected long rejectedCount;
+
+    protected long totalWaitMillis;
+
+    protected long maxWaitMillis;
+
+    protected long completedCount;
+
+    protected long totalProcessMillis;
+
+    public RegistrationQueue(IParameterService parameterService) {
+        this.parameterService = parameterService;
+    }
+
+    /**
+     * Wait for a turn to process a registration. Every successful call must be
+     * followed by a call to {@link #release(long)} with the returned value.
+     * 
+     * @return the time the registration was admitted
+     * @throws RegistrationBusyException
+     *             if the queue is full or the wait timed out
+     */
+    public long admit(String description) {
+        int maxConcurrent = parameterService.getInt(ParameterConstants.REGISTRATION_MAX_CONCURRENT, 0);
+        int maxQueueSize = parameterService.getInt(ParameterConstants.REGISTRATION_QUEUE_SIZE, 0);
+        long maxWait = parameterService.getLong(ParameterConstants.REGISTRATION_QUEUE_WAIT_MS, 0);
+        long ts = System.currentTimeMillis();
+        synchronized (this) {
+            if (maxConcurrent > 0 && activeCount >= maxConcurrent) {
+                if (queueDepth >= maxQueueSize) {
+                    throw reject(description, maxConcurrent, "the queue is full");
+                }
+                queueDepth++;
+                maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+                try {
+                    long remaining = maxWait;
+                    while (activeCount >= maxConcurrent) {
+                        if (remaining <= 0) {
+                            throw reject(description, maxConcurrent, "it waited " + maxWait + "ms for a turn");
+                        }
+                        wait(remaining);
+                        remaining = maxWait - (System.currentTimeMillis() - ts);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(description, maxConcurrent, "it was interrupted");
+                } finally {
+                    queueDepth--;
+                }
+            }
+            long waitMillis = System.currentTimeMillis() - ts;
+            activeCount++;
+            maxActiveCount = Math.max(maxActiveCount, activeCount);
+            admittedCount++;
+            totalWaitMillis += waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+            log.debug("Admitted registration for {} after waiting {}ms.  {} active, {} queued", description,
+                    waitMillis, activeCount, queueDepth);
+            return System.currentTimeMillis();
+        }
+    }
+
+    public synchronized void release(long admittedTime) {
+        activeCount--;
+        completedCount++;
+        totalProcessMillis += System.currentTimeMillis() - admittedTime;
+        notify();
+    }
+
+    protected RegistrationBusyException reject(String description, int maxConcurrent, String reason) {
+        rejectedCount++;
+        int retryAfterSeconds = getRetryAfterSeconds(maxConcurrent);
+        String message = String.format(
+                "Rejected registration for %s because %s.  %d active, %d queued.  The client was asked to retry in %d seconds",
+                description, reason, activeCount, queueDepth, retryAfterSeconds);
+        log.warn(message);
+        return new RegistrationBusyException(message, retryAfterSeconds);
+    }
+
+    /**
+     * Estimate how long it will take to work through the registrations that
+     * are active and queued now, based on how long registrations have taken so
+     * far.
+     */
+    protected int getRetryAfterSeconds(int maxConcurrent) {
+        long averageProcessMillis = completedCount > 0 ? totalProcessMillis / completedCount : 1000;
+        long estimate = averageProcessMillis * (queueDepth + activeCount) / Math.max(maxConcurrent, 1) / 1000;
+        return (int) Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(MIN_RETRY_AFTER_SECONDS, estimate));
+    }
+
+    public synchronized int getActiveCount() {
+        return activeCount;
+    }
+
+    public synchronized int getMaxActiveCount() {
+        return maxActiveCount;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public synchronized long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public synchronized long getAverageWaitMillis() {
+        return admittedCount > 0 ? totalWaitMillis / admittedCount : 0;
+    }
+
+    public synchronized long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public synchronized long getAverageProcessMillis() {
+        return completedCount > 0 ? totalProcessMillis / completedCount : 0;
+    }
+
+}
@@ -61,6 +61,7 @@ import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.service.RegistrationBusyException;
 import org.jumpmind.symmetric.service.RegistrationFailedException;
 import org.jumpmind.symmetric.service.RegistrationNotOpenException;
 import org.jumpmind.symmetric.service.RegistrationRedirectException;
@@ -100,6 +101,10 @@ public class RegistrationService extends AbstractService implements IRegistratio
 
     private boolean allowClientRegistration = true;
 
+    private RegistrationQueue registrationQueue;
+
+    private int registrationRetryAfterSeconds;
+
     public RegistrationService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.engine = engine;
@@ -113,6 +118,7 @@ public class RegistrationService extends AbstractService implements IRegistratio
         this.outgoingBatchService = engine.getOutgoingBatchService();
         this.extensionService = engine.getExtensionService();
         this.randomTimeSlot = new RandomTimeSlot(parameterService.getExternalId(), 30);
+        this.registrationQueue = new RegistrationQueue(parameterService);
         setSqlMap(new RegistrationServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
     }
@@ -292,19 +298,44 @@ public class RegistrationService extends AbstractService implements IRegistratio
             String remoteAddress, OutputStream out, boolean isRequestedRegistration)
             throws IOException {
 
-        Node processedNode = processRegistration(nodePriorToRegistration, remoteHost,
-                remoteAddress, isRequestedRegistration);
+        /*
+         * Registrations requested by clients are queued so a flood of them
+         * does not tie up the server. Registrations that happen during a pull
+         * already hold a connection from the concurrency manager.
+         */
+        long admittedTime = 0;
+        if (isRequestedRegistration) {
+            try {
+                admittedTime = registrationQueue.admit(nodePriorToRegistration.toString());
+            } catch (RegistrationBusyException e) {
+                statisticManager.incrementNodesRejected(1);
+                throw e;
+            }
+        }
+
+        try {
+            Node processedNode = processRegistration(nodePriorToRegistration, remoteHost,
+                    remoteAddress, isRequestedRegistration);
 
-        if (processedNode.isSyncEnabled()) {
-            /*
-             * Mark all configuration batches as processed because we are about to reload
-             * the configuration for the node
-             */
-            outgoingBatchService.markAllConfigAsSentForNode(processedNode.getNodeId());
-            extractConfiguration(out, processedNode);
+            if (processedNode.isSyncEnabled()) {
+                /*
+                 * Mark all configuration batches as processed because we are about to reload
+                 * the configuration for the node
+                 */
+                outgoingBatchService.markAllConfigAsSentForNode(processedNode.getNodeId());
+                extractConfiguration(out, processedNode);
+            }
+
+            return processedNode.isSyncEnabled();
+        } finally {
+            if (isRequestedRegistration) {
+                registrationQueue.release(admittedTime);
+            }
         }
-        
-        return processedNode.isSyncEnabled();
+    }
+
+    public RegistrationQueue getRegistrationQueue() {
+        return registrationQueue;
     }
 
     public List<RegistrationRequest> getRegistrationRequests(
@@ -431,7 +462,9 @@ public class RegistrationService extends AbstractService implements IRegistratio
 
     private void sleepBeforeRegistrationRetry() {
         long sleepTimeInMs = DateUtils.MILLIS_PER_SECOND
-                * randomTimeSlot.getRandomValueSeededByExternalId();
+                * (registrationRetryAfterSeconds > 0 ? registrationRetryAfterSeconds
+                        : randomTimeSlot.getRandomValueSeededByExternalId());
+        registrationRetryAfterSeconds = 0;
         log.info("Could not register.  Sleeping for {}ms before attempting again.", sleepTimeInMs);
         List<INodeRegistrationListener> registrationListeners = extensionService.getExtensionPointList(INodeRegistrationListener.class);
         for (INodeRegistrationListener l : registrationListeners) {
@@ -497,11 +530,20 @@ public class RegistrationService extends AbstractService implements IRegistratio
                             + e.getMessage());
                 }
             } catch (ConnectionRejectedException e) {
-                log.warn(
-                        "The request to register was rejected by the server.  Either the server node is not started, the server is not configured properly or the registration url is incorrect");
-                for (INodeRegistrationListener l : registrationListeners) {
-                    l.registrationFailed(
+                if (e.getRetryAfterSeconds() > 0) {
+                    registrationRetryAfterSeconds = e.getRetryAfterSeconds();
+                    log.warn("The request to register was rejected because the server is busy.  It asked to try again in {} seconds",
+                            e.getRetryAfterSeconds());
+                    for (INodeRegistrationListener l : registrationListeners) {
+                        l.registrationFailed("The request to register was rejected because the server is busy");
+                    }
+                } else {
+                    log.warn(
                             "The request to register was rejected by the server.  Either the server node is not started, the server is not configured properly or the registration url is incorrect");
+                    for (INodeRegistrationListener l : registrationListeners) {
+                        l.registrationFailed(
+                                "The request to register was rejected by the server.  Either the server node is not started, the server is not configured properly or the registration url is incorrect");
+                    }
                 }
             } catch (RegistrationNotOpenException e) {
                 log.warn("Waiting for registration to be accepted by the server. Registration is not open.");
@@ -0,0 +1,224 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.InvalidSqlException;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.util.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the row count queries used to plan reload batches. Counts that are
+ * not cached can be run concurrently on a bounded pool. Callers pass a map of
+ * the counts already taken while planning one load, so the same count SQL is
+ * only run once per load. When a cache time is set, counts are also cached by
+ * their SQL, which includes the table and the resolved reload select, so a
+ * table that is reloaded to many nodes is only counted once while the cached
+ * count is fresh.
+ */
+public class ReloadRowCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReloadRowCounter.class);
+
+    protected IParameterService parameterService;
+
+    protected ISqlTemplate sqlTemplate;
+
+    protected CustomizableThreadFactory threadFactory;
+
+    protected Map<String, CachedCount> cache = new ConcurrentHashMap<String, CachedCount>();
+
+    public ReloadRowCounter(IParameterService parameterService, ISqlTemplate sqlTemplate) {
+        this.parameterService = parameterService;
+        this.sqlTemplate = sqlTemplate;
+    }
+
+    public long count(String sql) {
+        return count(sql, null);
+    }
+
+    /**
+     * @param loadCounts
+     *            The counts already taken for the load being planned, which
+     *            the count is added to, or null
+     */
+    public long count(String sql, Map<String, Long> loadCounts) {
+        Long rowCount = loadCounts != null ? loadCounts.get(sql) : null;
+        if (rowCount == null) {
+            CachedCount cachedCount = getCachedCount(sql);
+            rowCount = cachedCount != null ? cachedCount.getRowCount() : query(sql);
+            if (loadCounts != null) {
+                loadCounts.put(sql, rowCount);
+            }
+        }
+        return rowCount;
+    }
+
+    public Map<String, Long> count(Collection<String> sqls) throws InterruptedException {
+        return count(sqls, null);
+    }
+
+    /**
+     * @param loadCounts
+     *            The counts already taken for the load being planned, which
+     *            the new counts are added to, or null
+     * @return The row count for each SQL statement, running the statements
+     *         that are not cached concurrently
+     */
+    public Map<String, Long> count(Collection<String> sqls, Map<String, Long> loadCounts) throws InterruptedException {
+        removeExpired();
+        Map<String, Long> counts = new HashMap<String, Long>();
+        Set<String> uncached = new LinkedHashSet<String>();
+        for (String sql : sqls) {
+            Long loadCount = loadCounts != null ? loadCounts.get(sql) : null;
+            CachedCount cachedCount = loadCount == null ? getCachedCount(sql) : null;
+            if (loadCount != null) {
+                counts.put(sql, loadCount);
+            } else if (cachedCount != null) {
+                counts.put(sql, cachedCount.getRowCount());
+            } else {
+                uncached.add(sql);
+            }
+        }
+
+        int threadCount = Math.min(parameterService.getInt(ParameterConstants.INITIAL_LOAD_ROW_COUNT_THREAD_COUNT, 4),
+                uncached.size());
+        if (threadCount <= 1) {
+            for (String sql : uncached) {
+                counts.put(sql, query(sql));
+            }
+        } else {
+            if (threadFactory == null) {
+                threadFactory = new CustomizableThreadFactory(String.format("%s-reload-count",
+                        parameterService.getEngineName().toLowerCase()));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount, threadFactory);
+            try {
+                Map<String, Future<Long>> futures = new LinkedHashMap<String, Future<Long>>();
+                for (final String sql : uncached) {
+                    futures.put(sql, executor.submit(new Callable<Long>() {
+                        public Long call() {
+                            return query(sql);
+                        }
+                    }));
+                }
+                for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+                    counts.put(entry.getKey(), entry.getValue().get());
+                }
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        if (loadCounts != null) {
+            loadCounts.putAll(counts);
+        }
+        return counts;
+    }
+
+    public boolean isCacheEnabled() {
+        return getCacheTime() > 0;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    protected long query(String sql) {
+        try {
+            long rowCount = sqlTemplate.queryForLong(sql);
+            if (isCacheEnabled()) {
+                cache.put(sql, new CachedCount(rowCount, System.currentTimeMillis()));
+            }
+            return rowCount;
+        } catch (SqlException ex) {
+            log.error("Failed to execute row count SQL while starting reload.  " + ex.getMessage() + ", SQL: \"" + sql + "\"");
+            throw new InvalidSqlException(ex);
+        }
+    }
+
+    protected CachedCount getCachedCount(String sql) {
+        CachedCount cachedCount = cache.get(sql);
+        if (cachedCount != null && System.currentTimeMillis() - cachedCount.getCountTime() < getCacheTime()) {
+            return cachedCount;
+        }
+        return null;
+    }
+
+    protected void removeExpired() {
+        long cacheTime = getCacheTime();
+        long now = System.currentTimeMillis();
+        Iterator<CachedCount> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getCountTime() >= cacheTime) {
+                iterator.remove();
+            }
+        }
+    }
+
+    protected long getCacheTime() {
+        return parameterService.getLong(ParameterConstants.INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS, 0);
+    }
+
+    static class CachedCount {
+        long rowCount;
+        long countTime;
+
+        public CachedCount(long rowCount, long countTime) {
+            this.rowCount = rowCount;
+            this.countTime = countTime;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public long getCountTime() {
+            return countTime;
+        }
+    }
+
+}
@@ -107,6 +107,38 @@ public class SequenceService extends AbstractService implements ISequenceService
         return nextValFromDatabase(transaction, name);
     }
 
+    public synchronized long[] nextVals(ISqlTransaction transaction, String name, int count) {
+        long[] values = new long[count];
+        if (count > 1 && transaction != null) {
+            Sequence sequence = getSequenceDefinition(transaction, name);
+            long sequenceTimeoutInMs = parameterService.getLong(
+                    ParameterConstants.SEQUENCE_TIMEOUT_MS, 5000);
+            long ts = System.currentTimeMillis();
+            do {
+                /*
+                 * Read the database value directly. Values held in the local
+                 * cache are below it and were already reserved.
+                 */
+                long currVal = transaction.queryForLong(getSql("getCurrentValueSql"), name);
+                long endVal = currVal + ((long) sequence.getIncrementBy() * count);
+                if (endVal > sequence.getMaxValue() || endVal < sequence.getMinValue()) {
+                    break;
+                }
+                if (transaction.prepareAndExecute(getSql("updateCurrentValueSql"), endVal, name, currVal) == 1) {
+                    for (int i = 0; i < count; i++) {
+                        values[i] = currVal + ((long) sequence.getIncrementBy() * (i + 1));
+                    }
+                    return values;
+                }
+            } while (System.currentTimeMillis() - sequenceTimeoutInMs < ts);
+        }
+
+        for (int i = 0; i < count; i++) {
+            values[i] = nextVal(transaction, name);
+        }
+        return values;
+    }
+
     protected long nextValFromCache(ISqlTransaction transaction, String name) {
         CachedRange range = sequenceCache.get(name);
         if (range != null) {
@@ -67,6 +67,7 @@ import org.jumpmind.symmetric.io.data.transform.TransformTable;
 import org.jumpmind.symmetric.io.data.transform.TrimColumnTransform;
 import org.jumpmind.symmetric.io.data.transform.ValueMapColumnTransform;
 import org.jumpmind.symmetric.io.data.transform.VariableColumnTransform;
+import org.jumpmind.symmetric.io.data.writer.TransformPlanCache;
 import org.jumpmind.symmetric.model.NodeGroupLink;
 import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IExtensionService;
@@ -80,6 +81,8 @@ public class TransformService extends AbstractService implements ITransformServi
 
     private long lastCacheTimeInMs;
 
+    private TransformPlanCache transformPlanCache = new TransformPlanCache();
+
     private IConfigurationService configurationService;
     
     private IExtensionService extensionService;
@@ -97,8 +100,8 @@ public class TransformService extends AbstractService implements ITransformServi
         
         addColumnTransform(ParameterColumnTransform.NAME, new ParameterColumnTransform(parameterService));
         addColumnTransform(VariableColumnTransform.NAME, new VariableColumnTransform());
-        addColumnTransform(LookupColumnTransform.NAME, new LookupColumnTransform());
-        addColumnTransform(BshColumnTransform.NAME, new BshColumnTransform(parameterService));
+        addColumnTransform(LookupColumnTransform.NAME, new LookupColumnTransform(parameterService));
+        addColumnTransform(BshColumnTransform.NAME, new BshColumnTransform(parameterService, extensionService));
         addColumnTransform(AdditiveColumnTransform.NAME, new AdditiveColumnTransform());
         addColumnTransform(JavaColumnTransform.NAME, new JavaColumnTransform(extensionService));
         addColumnTransform(ConstantColumnTransform.NAME, new ConstantColumnTransform());
@@ -209,9 +212,14 @@ public class TransformService extends AbstractService implements ITransformServi
     public void clearCache() {
         synchronized (this) {
             this.transformsCacheByNodeGroupLinkByTransformPoint = null;
+            this.transformPlanCache.clear();
         }
     }
 
+    public TransformPlanCache getTransformPlanCache() {
+        return transformPlanCache;
+    }
+
     private Map<NodeGroupLink, Map<TransformPoint, List<TransformTableNodeGroupLink>>> readInCacheIfExpired() {
 
         // get the cache timeout
@@ -247,6 +255,7 @@ public class TransformService extends AbstractService implements ITransformServi
                     byTableName.add(transformTable);
                 }
                 addBuiltInTableTransforms(byByLinkByTransformPoint);
+                transformPlanCache.clear();
                 lastCacheTimeInMs = System.currentTimeMillis();
                 this.transformsCacheByNodeGroupLinkByTransformPoint = byByLinkByTransformPoint;
             }
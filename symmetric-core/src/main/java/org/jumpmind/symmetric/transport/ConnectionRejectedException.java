@@ -25,4 +25,21 @@ public class ConnectionRejectedException extends OfflineException {
 
     private static final long serialVersionUID = 3770259092569043530L;
 
+    private int retryAfterSeconds;
+
+    public ConnectionRejectedException() {
+    }
+
+    public ConnectionRejectedException(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the number of seconds the server asked the client to wait before
+     *         trying again, or 0 if the server did not say
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
 }
\ No newline at end of file
@@ -47,4 +47,10 @@ public interface IOutgoingTransport {
      * @param targetNode
      */
     public ChannelMap getSuspendIgnoreChannelLists(IConfigurationService configurationService, String queue, Node targetNode);
+
+    /**
+     * @return true if the other node asked for batches in the binary protocol,
+     *         which is written to {@link #openStream()} instead of the writer
+     */
+    public boolean isBinaryProtocol();
 }
\ No newline at end of file
@@ -116,7 +116,7 @@ public class TransportManagerFactory {
     }
     
     protected HttpTransportManager createHttpTransportManager(ISymmetricEngine symmetricEngine) {
-        String impl = symmetricEngine.getParameterService().getString("http.transport.manager.class");
+        String impl = symmetricEngine.getParameterService().getString(ParameterConstants.TRANSPORT_HTTP_MANAGER_CLASS);
         if (StringUtils.isEmpty(impl)) {
             return new HttpTransportManager(symmetricEngine);     
         } else {
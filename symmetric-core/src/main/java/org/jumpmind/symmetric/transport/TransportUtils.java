@@ -42,6 +42,14 @@ public class TransportUtils {
         }
     }
 
+    public static BufferedReader toReader(InputStream is, int bufferSize) {
+        try {
+            return new BufferedReader(new InputStreamReader(is, IoConstants.ENCODING), bufferSize);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
     public static BufferedWriter toWriter(OutputStream os) {
         try {
             return new BufferedWriter(new OutputStreamWriter(os, IoConstants.ENCODING));
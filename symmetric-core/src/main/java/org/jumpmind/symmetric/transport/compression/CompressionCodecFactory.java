@@ -0,0 +1,184 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up compression codecs by name and by encoding, and negotiates which
+ * codec to use from the encodings a node says it accepts. A node always
+ * accepts gzip in addition to the encoding of its configured codec, so nodes
+ * that do not know a codec fall back to gzip.
+ * <p>
+ * A request body has to be compressed before the other node can say what it
+ * supports, so it is only compressed with a codec other than gzip once a
+ * response from that server came back in the codec's encoding.
+ */
+public class CompressionCodecFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionCodecFactory.class);
+
+    private static final Map<String, ICompressionCodec> codecs = new LinkedHashMap<String, ICompressionCodec>();
+
+    private static final Map<String, String> responseEncodingByServer = new ConcurrentHashMap<String, String>();
+
+    static {
+        register(new GzipCompressionCodec());
+        register(new ParallelGzipCompressionCodec());
+        register(new Lz4CompressionCodec());
+    }
+
+    private CompressionCodecFactory() {
+    }
+
+    public static synchronized void register(ICompressionCodec codec) {
+        codecs.put(codec.getName().toLowerCase(), codec);
+    }
+
+    public static synchronized Collection<ICompressionCodec> getCodecs() {
+        return new ArrayList<ICompressionCodec>(codecs.values());
+    }
+
+    /**
+     * @return the codec with the name, or gzip if the name is blank or
+     *         unknown
+     */
+    public static synchronized ICompressionCodec getCodec(String name) {
+        ICompressionCodec codec = null;
+        if (StringUtils.isNotBlank(name)) {
+            codec = codecs.get(name.trim().toLowerCase());
+            if (codec == null) {
+                log.warn("Unknown compression codec '{}'.  Using {} instead", name,
+                        GzipCompressionCodec.NAME);
+            }
+        }
+        return codec != null ? codec : codecs.get(GzipCompressionCodec.NAME);
+    }
+
+    /**
+     * @return the first registered codec that reads the encoding, or null if
+     *         there is none
+     */
+    public static synchronized ICompressionCodec getCodecForEncoding(String encoding) {
+        if (StringUtils.isNotBlank(encoding)) {
+            encoding = encoding.trim();
+            for (ICompressionCodec codec : codecs.values()) {
+                if (codec.getEncoding().equalsIgnoreCase(encoding)) {
+                    return codec;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value of the Accept-Encoding header for a node that prefers
+     *         the codec
+     */
+    public static String getAcceptEncoding(ICompressionCodec codec) {
+        if (codec == null || codec.getEncoding().equals(GzipCompressionCodec.NAME)) {
+            return GzipCompressionCodec.NAME;
+        } else {
+            return codec.getEncoding() + ", " + GzipCompressionCodec.NAME;
+        }
+    }
+
+    /**
+     * Remembers the encoding of a compressed response from a server. A server
+     * answers with the first encoding it supports out of the ones this node
+     * accepts, so a response in gzip means it does not support the codec this
+     * node prefers.
+     * 
+     * @param server
+     *            identifies the server, like the host and port of its URL
+     */
+    public static void recordResponseEncoding(String server, String encoding) {
+        if (StringUtils.isNotBlank(server) && StringUtils.isNotBlank(encoding)) {
+            responseEncodingByServer.put(server, encoding.trim().toLowerCase());
+        }
+    }
+
+    /**
+     * @return the codec to compress a request body to the server with, which
+     *         is the preferred codec when it writes gzip or when the server has
+     *         already answered in its encoding, and gzip otherwise
+     */
+    public static ICompressionCodec getRequestCodec(String server, ICompressionCodec preferred) {
+        if (preferred == null) {
+            return getCodec(GzipCompressionCodec.NAME);
+        } else if (preferred.getEncoding().equals(GzipCompressionCodec.NAME)
+                || preferred.getEncoding().equalsIgnoreCase(responseEncodingByServer.get(server))) {
+            return preferred;
+        } else {
+            return getCodec(GzipCompressionCodec.NAME);
+        }
+    }
+
+    /**
+     * Picks the codec to compress a response with. The first encoding the
+     * other node accepts that has a codec is used, so the node that asked
+     * decides. The preferred codec is used for that encoding when it writes
+     * it, which lets this node compress gzip in parallel.
+     * 
+     * @param acceptEncodings
+     *            the values of the Accept-Encoding headers
+     * @return the codec, or null if none of the encodings are supported
+     */
+    public static ICompressionCodec negotiate(List<String> acceptEncodings,
+            ICompressionCodec preferred) {
+        List<String> accepted = new ArrayList<String>();
+        for (String acceptEncoding : acceptEncodings) {
+            if (acceptEncoding != null) {
+                for (String encoding : acceptEncoding.split(",")) {
+                    int index = encoding.indexOf(";");
+                    if (index >= 0) {
+                        encoding = encoding.substring(0, index);
+                    }
+                    encoding = encoding.trim().toLowerCase();
+                    if (encoding.length() > 0) {
+                        accepted.add(encoding);
+                    }
+                }
+            }
+        }
+
+        for (String encoding : accepted) {
+            if (preferred != null && preferred.getEncoding().equals(encoding)) {
+                return preferred;
+            }
+            ICompressionCodec codec = getCodecForEncoding(encoding);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Single threaded gzip, which every node understands
+ */
+public class GzipCompressionCodec implements ICompressionCodec {
+
+    public static final String NAME = "gzip";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public String getEncoding() {
+        return NAME;
+    }
+
+    public OutputStream compress(OutputStream out, final int level, final int strategy,
+            int bufferSize) throws IOException {
+        return new GZIPOutputStream(out, bufferSize > 0 ? bufferSize : 512, true) {
+            {
+                this.def.setLevel(level);
+                this.def.setStrategy(strategy);
+            }
+        };
+    }
+
+    public InputStream decompress(InputStream in, int bufferSize) throws IOException {
+        return bufferSize > 0 ? new GZIPInputStream(in, bufferSize) : new GZIPInputStream(in);
+    }
+
+}
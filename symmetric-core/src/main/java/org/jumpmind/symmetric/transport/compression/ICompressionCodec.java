@@ -0,0 +1,60 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression algorithm for the stream of batches sent between nodes. A
+ * codec is selected by name and is advertised over HTTP by its encoding, which
+ * is the value used in the Accept-Encoding, Content-Encoding and Content-Type
+ * headers.
+ */
+public interface ICompressionCodec {
+
+    /**
+     * The name used to select the codec with the http.compression.codec
+     * parameter
+     */
+    public String getName();
+
+    /**
+     * The encoding of the compressed stream. Codecs that write a format that
+     * another codec can read share its encoding.
+     */
+    public String getEncoding();
+
+    /**
+     * @param level
+     *            the compression level, which codecs without levels ignore
+     * @param strategy
+     *            the deflate strategy, which codecs other than deflate ignore
+     * @param bufferSize
+     *            the size of the output buffer, or zero for the default
+     */
+    public OutputStream compress(OutputStream out, int level, int strategy, int bufferSize)
+            throws IOException;
+
+    public InputStream decompress(InputStream in, int bufferSize) throws IOException;
+
+}
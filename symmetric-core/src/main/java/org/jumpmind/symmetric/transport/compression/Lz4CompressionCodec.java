@@ -0,0 +1,57 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE;
+
+/**
+ * LZ4 frames, which compress several times faster than gzip at a lower ratio.
+ * The fastest available implementation is used, which falls back to pure Java
+ * when the native library cannot be loaded.
+ */
+public class Lz4CompressionCodec implements ICompressionCodec {
+
+    public static final String NAME = "lz4";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public String getEncoding() {
+        return NAME;
+    }
+
+    public OutputStream compress(OutputStream out, int level, int strategy, int bufferSize)
+            throws IOException {
+        return new LZ4FrameOutputStream(out, BLOCKSIZE.SIZE_64KB);
+    }
+
+    public InputStream decompress(InputStream in, int bufferSize) throws IOException {
+        return new LZ4FrameInputStream(in);
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gzip that is compressed by several threads at once. A hub serving many
+ * nodes is often limited by the CPU spent compressing, and this spreads that
+ * work over the available processors. The output is plain gzip, so it is
+ * advertised as gzip and nodes that do not know this codec can still read it.
+ */
+public class ParallelGzipCompressionCodec implements ICompressionCodec {
+
+    public static final String NAME = "pgzip";
+
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static ExecutorService executor;
+
+    public String getName() {
+        return NAME;
+    }
+
+    public String getEncoding() {
+        return GzipCompressionCodec.NAME;
+    }
+
+    public OutputStream compress(OutputStream out, int level, int strategy, int bufferSize)
+            throws IOException {
+        return new ParallelGzipOutputStream(out, getExecutor(), level, strategy,
+                BLOCK_SIZE, THREADS * 2);
+    }
+
+    public InputStream decompress(InputStream in, int bufferSize) throws IOException {
+        return bufferSize > 0 ? new GZIPInputStream(in, bufferSize) : new GZIPInputStream(in);
+    }
+
+    /**
+     * The compression threads are shared by every stream in the JVM, so many
+     * concurrent requests do not start more threads than there are processors
+     */
+    protected static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "parallel-gzip-"
+                            + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+}
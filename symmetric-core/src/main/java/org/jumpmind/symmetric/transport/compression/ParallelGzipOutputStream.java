@@ -0,0 +1,243 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a single gzip member whose blocks are deflated in parallel. The
+ * input is cut into fixed size blocks that are each compressed on the
+ * executor with the previous 32K of input as a preset dictionary, so the
+ * ratio stays close to single threaded gzip. Each block ends with a sync
+ * flush, which leaves it byte aligned, so the compressed blocks can be
+ * written one after another in order. The CRC is computed on the calling
+ * thread as blocks are handed off.
+ * <p>
+ * The result is ordinary gzip that any gzip reader can decompress.
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream {
+
+    static final int DICTIONARY_SIZE = 32768;
+
+    static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+            (byte) 0xff };
+
+    /**
+     * An empty fixed Huffman block with the final bit set, which ends the
+     * deflate stream after the last sync flushed block
+     */
+    static final byte[] FINAL_BLOCK = { 0x03, 0x00 };
+
+    private ExecutorService executor;
+
+    private int level;
+
+    private int strategy;
+
+    private int maxPendingBlocks;
+
+    private byte[] block;
+
+    private int count;
+
+    private byte[] dictionary;
+
+    private CRC32 crc = new CRC32();
+
+    private long size;
+
+    private Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+
+    private boolean headerWritten;
+
+    private boolean finished;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int level,
+            int strategy, int blockSize, int maxPendingBlocks) {
+        super(out);
+        this.executor = executor;
+        this.level = level;
+        this.strategy = strategy;
+        this.block = new byte[blockSize];
+        this.maxPendingBlocks = maxPendingBlocks;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == block.length) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, length);
+            count += length;
+            off += length;
+            len -= length;
+            if (count == block.length) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses what has been written so far and writes it through, so the
+     * receiver can decompress everything up to this point
+     */
+    @Override
+    public void flush() throws IOException {
+        submitBlock();
+        writePendingBlocks(0);
+        out.flush();
+    }
+
+    public void finish() throws IOException {
+        if (!finished) {
+            submitBlock();
+            writePendingBlocks(0);
+            writeHeader();
+            out.write(FINAL_BLOCK);
+            writeInt((int) crc.getValue());
+            writeInt((int) size);
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+
+    protected void submitBlock() throws IOException {
+        if (count > 0) {
+            final byte[] data = Arrays.copyOf(block, count);
+            final byte[] presetDictionary = dictionary;
+            crc.update(data, 0, data.length);
+            size += data.length;
+            dictionary = nextDictionary(presetDictionary, data);
+            count = 0;
+            pending.add(executor.submit(new Callable<byte[]>() {
+                public byte[] call() throws Exception {
+                    return deflate(data, presetDictionary);
+                }
+            }));
+            writePendingBlocks(maxPendingBlocks);
+        }
+    }
+
+    protected byte[] deflate(byte[] data, byte[] presetDictionary) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setStrategy(strategy);
+            if (presetDictionary != null) {
+                deflater.setDictionary(presetDictionary);
+            }
+            deflater.setInput(data);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[Math.max(data.length / 4, 1024)];
+            int length = 0;
+            while (!deflater.needsInput()) {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                compressed.write(buffer, 0, length);
+            }
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                compressed.write(buffer, 0, length);
+            } while (length == buffer.length);
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    protected void writePendingBlocks(int maxPending) throws IOException {
+        while (pending.size() > maxPending) {
+            Future<byte[]> future = pending.poll();
+            try {
+                byte[] compressed = future.get();
+                writeHeader();
+                out.write(compressed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    protected void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.write(HEADER);
+            headerWritten = true;
+        }
+    }
+
+    protected void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    /**
+     * The last {@value #DICTIONARY_SIZE} bytes of input, which the next block
+     * may refer back to
+     */
+    protected static byte[] nextDictionary(byte[] previous, byte[] data) {
+        if (data.length >= DICTIONARY_SIZE || previous == null) {
+            int length = Math.min(data.length, DICTIONARY_SIZE);
+            return Arrays.copyOfRange(data, data.length - length, data.length);
+        } else {
+            int keep = Math.min(previous.length, DICTIONARY_SIZE - data.length);
+            byte[] dictionary = new byte[keep + data.length];
+            System.arraycopy(previous, previous.length - keep, dictionary, 0, keep);
+            System.arraycopy(data, 0, dictionary, keep, data.length);
+            return dictionary;
+        }
+    }
+
+}
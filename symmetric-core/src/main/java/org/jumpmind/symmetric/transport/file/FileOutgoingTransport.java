@@ -131,6 +131,10 @@ public class FileOutgoingTransport implements IOutgoingWithResponseTransport {
         return configurationService.getSuspendIgnoreChannelLists();
     }
 
+    public boolean isBinaryProtocol() {
+        return false;
+    }
+
     public void complete(boolean success) {
         if (!success) {
             new File(fileName + ".tmp").delete();
@@ -29,7 +29,8 @@ import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.jumpmind.exception.HttpException;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.IParameterService;
@@ -57,6 +58,8 @@ public class HttpIncomingTransport implements IIncomingTransport {
     private int httpTimeout;
     
     private String redirectionUrl;
+
+    private int bufferSize = 0;
     
     public HttpIncomingTransport(HttpURLConnection connection, IParameterService parameterService) {
         this.connection = connection;
@@ -109,7 +112,8 @@ public class HttpIncomingTransport implements IIncomingTransport {
         case WebConstants.SYNC_DISABLED:
             throw new SyncDisabledException();
         case WebConstants.SC_SERVICE_BUSY:
-            throw new ConnectionRejectedException();
+            throw new ConnectionRejectedException(NumberUtils.toInt(
+                    connection.getHeaderField(WebConstants.HEADER_RETRY_AFTER), 0));
         case WebConstants.SC_SERVICE_UNAVAILABLE:
             throw new ServiceUnavailableException();
         case WebConstants.SC_FORBIDDEN:
@@ -117,7 +121,7 @@ public class HttpIncomingTransport implements IIncomingTransport {
         case WebConstants.SC_NO_CONTENT:
             throw new NoContentException();
         case WebConstants.SC_OK:
-            is = HttpTransportManager.getInputStreamFrom(connection);
+            is = HttpTransportManager.getInputStreamFrom(connection, bufferSize);
             return is;
         default:
             throw new HttpException(code, "Received an unexpected response code of " + code + " from the server");
@@ -127,7 +131,7 @@ public class HttpIncomingTransport implements IIncomingTransport {
     @Override
     public BufferedReader openReader() throws IOException {
         InputStream stream = openStream();
-        reader = TransportUtils.toReader(stream);
+        reader = bufferSize > 0 ? TransportUtils.toReader(stream, bufferSize) : TransportUtils.toReader(stream);
         return reader;
     }
     
@@ -205,4 +209,16 @@ public class HttpIncomingTransport implements IIncomingTransport {
     public HttpURLConnection getConnection() {
         return connection;
     }
+
+    /**
+     * The size of the buffers used to uncompress and read the response. Zero
+     * uses the defaults.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
 }
\ No newline at end of file
@@ -29,12 +29,12 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.jumpmind.exception.HttpException;
 import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.symmetric.io.data.BinaryProtocolConstants;
 import org.jumpmind.symmetric.model.ChannelMap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.service.IConfigurationService;
@@ -44,12 +44,21 @@ import org.jumpmind.symmetric.transport.ConnectionRejectedException;
 import org.jumpmind.symmetric.transport.IOutgoingWithResponseTransport;
 import org.jumpmind.symmetric.transport.ServiceUnavailableException;
 import org.jumpmind.symmetric.transport.SyncDisabledException;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.GzipCompressionCodec;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.WebConstants;
 
 public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
 
     static final String CRLF = "\r\n";
 
+    /**
+     * The most characters of an unread response that are read to keep the
+     * connection open. A longer response closes the connection instead.
+     */
+    static final int MAX_DRAIN_SIZE = 65536;
+
     private String boundary;
 
     private URL url;
@@ -81,6 +90,16 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
     private boolean fileUpload = false;
 
     private Map<String, String> requestProperties;
+
+    private boolean keepAlive = false;
+
+    private int bufferSize = 0;
+
+    private boolean responseRead = false;
+
+    private boolean binaryProtocol = false;
+
+    private ICompressionCodec compressionCodec = CompressionCodecFactory.getCodec(GzipCompressionCodec.NAME);
     
     public HttpOutgoingTransport(URL url, int httpTimeout, boolean useCompression,
             int compressionStrategy, int compressionLevel, String basicAuthUsername,
@@ -120,13 +139,40 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         closeOutputStream(true);
         closeReader();
         if (connection != null) {
-            connection.disconnect();
+            /*
+             * Leave a connection that was read to the end open, so it can be
+             * reused for the next request to the same node
+             */
+            if (!keepAlive || !responseRead) {
+                connection.disconnect();
+            }
             connection = null;
         }
     }
 
     private void closeReader() {
         if (reader != null) {
+            if (keepAlive) {
+                try {
+                    char[] buffer = new char[1024];
+                    int drained = 0;
+                    int count = 0;
+                    while ((count = reader.read(buffer)) != -1) {
+                        drained += count;
+                        if (drained > MAX_DRAIN_SIZE) {
+                            /*
+                             * Disconnect before closing the reader, which would
+                             * otherwise read the rest of the response
+                             */
+                            responseRead = false;
+                            connection.disconnect();
+                            break;
+                        }
+                    }
+                } catch (IOException ex) {
+                    responseRead = false;
+                }
+            }
             IOUtils.closeQuietly(reader);
             reader = null;
         }
@@ -229,9 +275,9 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
             boundary = Long.toHexString(System.currentTimeMillis());
             if (!fileUpload) {
                 connection.setRequestMethod("PUT");
-                connection.setRequestProperty("Accept-Encoding", "gzip");
+                connection.setRequestProperty("Accept-Encoding", CompressionCodecFactory.getAcceptEncoding(compressionCodec));
                 if (useCompression) {
-                    connection.addRequestProperty("Content-Type", "gzip"); // application/x-gzip?
+                    connection.addRequestProperty("Content-Type", compressionCodec.getEncoding()); // application/x-gzip?
                 }
             } else {
                 connection.setRequestProperty("Content-Type", "multipart/form-data; boundary="
@@ -241,12 +287,8 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
             os = connection.getOutputStream();
 
             if (!fileUpload && useCompression) {
-                os = new GZIPOutputStream(os, 128, true) {
-                    {
-                        this.def.setLevel(compressionLevel);
-                        this.def.setStrategy(compressionStrategy);
-                    }
-                };
+                os = compressionCodec.compress(os, compressionLevel, compressionStrategy,
+                        bufferSize > 0 ? bufferSize : 128);
             }
 
             if (fileUpload) {
@@ -269,7 +311,7 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
     public BufferedWriter openWriter() {
         try {
             OutputStreamWriter wout = new OutputStreamWriter(openStream(), IoConstants.ENCODING);
-            writer = new BufferedWriter(wout);
+            writer = bufferSize > 0 ? new BufferedWriter(wout, bufferSize) : new BufferedWriter(wout);
             return writer;
         } catch (IOException ex) {
             throw new IoException(ex);
@@ -305,7 +347,8 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         closeWriter(false);
         closeOutputStream(false);
         analyzeResponseCode(connection.getResponseCode());
-        this.reader = HttpTransportManager.getReaderFrom(connection);
+        this.reader = HttpTransportManager.getReaderFrom(connection, bufferSize);
+        this.responseRead = true;
         return this.reader;
     }
 
@@ -328,6 +371,9 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         suspendIgnoreChannelsList.addSuspendChannels(suspends);
         suspendIgnoreChannelsList.addIgnoreChannels(ignores);
 
+        binaryProtocol = Integer.toString(BinaryProtocolConstants.VERSION).equals(
+                connection.getHeaderField(WebConstants.BINARY_PROTOCOL));
+
         ChannelMap localSuspendIgnoreChannelsList = configurationService
                 .getSuspendIgnoreChannelLists(targetNode.getNodeId());
         suspendIgnoreChannelsList.addSuspendChannels(
@@ -338,8 +384,52 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         return suspendIgnoreChannelsList;
     }
     
+    /**
+     * @return true if the reservation response said the other node loads the
+     *         binary protocol
+     */
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
     public HttpURLConnection getConnection() {
         return connection;
     }
 
+    /**
+     * Keep the connection open for reuse after the response has been read,
+     * instead of disconnecting it when the transport is closed.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * The size of the buffers used to write and compress the request and to
+     * read the response. Zero uses the defaults.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * The codec used to compress the request when compression is enabled.
+     * The response is decompressed with whichever codec the other node chose.
+     */
+    public void setCompressionCodec(ICompressionCodec compressionCodec) {
+        this.compressionCodec = compressionCodec;
+    }
+
+    public ICompressionCodec getCompressionCodec() {
+        return compressionCodec;
+    }
+
 }
\ No newline at end of file
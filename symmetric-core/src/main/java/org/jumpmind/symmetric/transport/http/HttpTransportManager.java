@@ -34,7 +34,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
@@ -53,6 +52,8 @@ import org.jumpmind.symmetric.transport.IIncomingTransport;
 import org.jumpmind.symmetric.transport.IOutgoingWithResponseTransport;
 import org.jumpmind.symmetric.transport.ITransportManager;
 import org.jumpmind.symmetric.transport.TransportUtils;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.WebConstants;
 import org.jumpmind.util.AppUtils;
 
@@ -202,6 +203,11 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL);
     }
 
+    public ICompressionCodec getCompressionCodec() {
+        return CompressionCodecFactory.getCodec(engine.getParameterService().getString(
+                ParameterConstants.TRANSPORT_HTTP_COMPRESSION_CODEC));
+    }
+
     public int getCompressionStrategy() {
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
     }
@@ -248,25 +254,31 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
             String securityToken, Map<String, String> requestProperties, 
             String registrationUrl) throws IOException {
         URL url = new URL(buildURL("push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
+        HttpOutgoingTransport transport = new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
                 getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false, requestProperties);
+        transport.setCompressionCodec(CompressionCodecFactory.getRequestCodec(url.getAuthority(), getCompressionCodec()));
+        return transport;
     }
     
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local,
             String securityToken, String registrationUrl) throws IOException {
         URL url = new URL(buildURL("push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
+        HttpOutgoingTransport transport = new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
                 getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false);
+        transport.setCompressionCodec(CompressionCodecFactory.getRequestCodec(url.getAuthority(), getCompressionCodec()));
+        return transport;
     }
     
     public IOutgoingWithResponseTransport getFilePushTransport(Node remote, Node local,
             String securityToken, String registrationUrl) throws IOException {
         URL url = new URL(buildURL("filesync/push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
+        HttpOutgoingTransport transport = new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(remote),
                 getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), true);
+        transport.setCompressionCodec(CompressionCodecFactory.getRequestCodec(url.getAuthority(), getCompressionCodec()));
+        return transport;
     }    
 
     public IIncomingTransport getConfigTransport(Node remote, Node local, String securityToken,
@@ -307,7 +319,7 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
     protected HttpURLConnection createGetConnectionFor(URL url) throws IOException {
         HttpURLConnection conn = HttpTransportManager.openConnection(url, getBasicAuthUsername(),
                 getBasicAuthPassword());
-        conn.setRequestProperty("accept-encoding", "gzip");
+        conn.setRequestProperty("accept-encoding", CompressionCodecFactory.getAcceptEncoding(getCompressionCodec()));
         conn.setConnectTimeout(getHttpTimeOutInMs());
         conn.setReadTimeout(getHttpTimeOutInMs());
         conn.setRequestMethod("GET");
@@ -315,24 +327,29 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
     }
     
     protected static InputStream getInputStreamFrom(HttpURLConnection connection) throws IOException {
-        String type = connection.getContentEncoding();
+        return getInputStreamFrom(connection, 0);
+    }
+
+    protected static InputStream getInputStreamFrom(HttpURLConnection connection, int bufferSize) throws IOException {
+        CompressionCodecFactory.recordResponseEncoding(connection.getURL().getAuthority(), connection.getContentEncoding());
+        ICompressionCodec codec = CompressionCodecFactory.getCodecForEncoding(connection.getContentEncoding());
         InputStream in = connection.getInputStream();
-        if (!StringUtils.isBlank(type) && type.equals("gzip")) {
-            in = new GZIPInputStream(in);
+        if (codec != null) {
+            in = codec.decompress(in, bufferSize);
         }
         return in;
     }
 
     /**
-     * If the content is gzip'd, then uncompress.
+     * If the content is compressed, then uncompress.
      */
     protected static BufferedReader getReaderFrom(HttpURLConnection connection) throws IOException {
-        String type = connection.getContentEncoding();
-        InputStream in = connection.getInputStream();
-        if (!StringUtils.isBlank(type) && type.equals("gzip")) {
-            in = new GZIPInputStream(in);
-        }
-        return TransportUtils.toReader(in);
+        return getReaderFrom(connection, 0);
+    }
+
+    protected static BufferedReader getReaderFrom(HttpURLConnection connection, int bufferSize) throws IOException {
+        InputStream in = getInputStreamFrom(connection, bufferSize);
+        return bufferSize > 0 ? TransportUtils.toReader(in, bufferSize) : TransportUtils.toReader(in);
     }
 
     /**
@@ -0,0 +1,108 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.transport.IIncomingTransport;
+import org.jumpmind.symmetric.transport.IOutgoingWithResponseTransport;
+
+/**
+ * An {@link HttpTransportManager} that keeps connections to each node open
+ * between requests instead of connecting for every push, pull, ack and
+ * heartbeat. Connections are pooled by the JVM's HTTP keep-alive cache.
+ * Requests and responses are also buffered in larger blocks.
+ * <p>
+ * The keep-alive cache is shared by everything in the JVM, so it is not
+ * configured here. It is tuned with the JVM flags -Dhttp.keepAlive (default
+ * true) and -Dhttp.maxConnections (the idle connections kept for each host,
+ * default 5).
+ * <p>
+ * Use it by setting http.transport.manager.class to this class name.
+ */
+public class PooledHttpTransportManager extends HttpTransportManager {
+
+    public PooledHttpTransportManager(ISymmetricEngine engine) {
+        super(engine);
+    }
+
+    public int getBufferSize() {
+        return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_POOL_BUFFER_SIZE, 65536);
+    }
+
+    @Override
+    public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken,
+            Map<String, String> requestProperties, String registrationUrl) throws IOException {
+        return configure(super.getPullTransport(remote, local, securityToken, requestProperties, registrationUrl));
+    }
+
+    @Override
+    public IIncomingTransport getFilePullTransport(Node remote, Node local, String securityToken,
+            Map<String, String> requestProperties, String registrationUrl) throws IOException {
+        return configure(super.getFilePullTransport(remote, local, securityToken, requestProperties, registrationUrl));
+    }
+
+    @Override
+    public IIncomingTransport getConfigTransport(Node remote, Node local, String securityToken,
+            String symmetricVersion, String configVersion, String registrationUrl) throws IOException {
+        return configure(super.getConfigTransport(remote, local, securityToken, symmetricVersion, configVersion,
+                registrationUrl));
+    }
+
+    @Override
+    public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local, String securityToken,
+            Map<String, String> requestProperties, String registrationUrl) throws IOException {
+        return configure(super.getPushTransport(remote, local, securityToken, requestProperties, registrationUrl));
+    }
+
+    @Override
+    public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local, String securityToken,
+            String registrationUrl) throws IOException {
+        return configure(super.getPushTransport(remote, local, securityToken, registrationUrl));
+    }
+
+    @Override
+    public IOutgoingWithResponseTransport getFilePushTransport(Node remote, Node local, String securityToken,
+            String registrationUrl) throws IOException {
+        return configure(super.getFilePushTransport(remote, local, securityToken, registrationUrl));
+    }
+
+    protected IIncomingTransport configure(IIncomingTransport transport) {
+        if (transport instanceof HttpIncomingTransport) {
+            ((HttpIncomingTransport) transport).setBufferSize(getBufferSize());
+        }
+        return transport;
+    }
+
+    protected IOutgoingWithResponseTransport configure(IOutgoingWithResponseTransport transport) {
+        if (transport instanceof HttpOutgoingTransport) {
+            HttpOutgoingTransport httpTransport = (HttpOutgoingTransport) transport;
+            httpTransport.setKeepAlive(true);
+            httpTransport.setBufferSize(getBufferSize());
+        }
+        return transport;
+    }
+
+}
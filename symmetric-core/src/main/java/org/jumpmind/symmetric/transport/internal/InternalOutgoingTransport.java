@@ -42,6 +42,8 @@ public class InternalOutgoingTransport implements IOutgoingTransport {
 
     boolean open = true;
 
+    boolean binaryProtocol = false;
+
     public InternalOutgoingTransport(OutputStream os, String encoding) throws UnsupportedEncodingException {
         this(os, new ChannelMap(), encoding);
     }
@@ -83,4 +85,12 @@ public class InternalOutgoingTransport implements IOutgoingTransport {
         return map;
     }
 
+    public void setBinaryProtocol(boolean binaryProtocol) {
+        this.binaryProtocol = binaryProtocol;
+    }
+
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
 }
\ No newline at end of file
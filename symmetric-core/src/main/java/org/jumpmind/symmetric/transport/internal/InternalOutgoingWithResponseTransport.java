@@ -82,4 +82,8 @@ public class InternalOutgoingWithResponseTransport implements IOutgoingWithRespo
     public ChannelMap getSuspendIgnoreChannelLists(IConfigurationService configurationService, String queue, Node targetNode) {
         return configurationService.getSuspendIgnoreChannelLists();
     }
+
+    public boolean isBinaryProtocol() {
+        return false;
+    }
 }
\ No newline at end of file
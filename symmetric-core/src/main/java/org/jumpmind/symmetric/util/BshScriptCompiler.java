@@ -0,0 +1,217 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.util.SimpleClassCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles BeanShell scripts that are also valid Java into classes, so they
+ * don't have to be interpreted for every row. Each script is compiled with
+ * its variables declared as local variables of the given types, in a fixed
+ * order, and the compiled scripts are cached by script and variables. When a
+ * script can't be compiled (it uses loose typing, BeanShell commands or a
+ * JDK isn't available, for example) null is returned so the caller can fall
+ * back to the BeanShell interpreter.
+ */
+public class BshScriptCompiler {
+
+    protected static final String CODE_START = "import java.util.*;\n"
+            + "import java.io.*;\n"
+            + "import java.net.*;\n"
+            + "public class BshCompiledScript implements " + ICompiledScript.class.getName() + " {\n"
+            + "    @SuppressWarnings(\"unchecked\")\n"
+            + "    public Object eval(Object[] __bindings) throws Exception {\n";
+
+    protected static final String CODE_END = "\n    }\n}\n";
+
+    protected static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList("abstract", "assert",
+            "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue", "default", "do",
+            "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private", "protected",
+            "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this", "throw",
+            "throws", "transient", "try", "void", "volatile", "while", "true", "false", "null", "__bindings"));
+
+    protected static final int MAX_SCRIPTS = 1000;
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected IExtensionService extensionService;
+
+    protected SimpleClassCompiler classCompiler;
+
+    protected Map<ScriptKey, CompiledEntry> scripts = new ConcurrentHashMap<ScriptKey, CompiledEntry>();
+
+    public BshScriptCompiler() {
+        this.classCompiler = new SimpleClassCompiler();
+    }
+
+    public BshScriptCompiler(IExtensionService extensionService) {
+        this.extensionService = extensionService;
+    }
+
+    /**
+     * Get the compiled version of a script.
+     * 
+     * @param script
+     *            the BeanShell script
+     * @param names
+     *            the names of the variables bound to the script
+     * @param types
+     *            the Java types of the variables
+     * @param expression
+     *            whether the script is evaluated for its value, like
+     *            {@link bsh.Interpreter#eval(String)} does, rather than run as
+     *            the body of a method
+     * @return the compiled script, or null if the script could not be compiled
+     */
+    public ICompiledScript getCompiledScript(String script, String[] names, String[] types, boolean expression) {
+        ScriptKey key = new ScriptKey(script, names, types);
+        CompiledEntry entry = scripts.get(key);
+        if (entry == null) {
+            entry = new CompiledEntry(compile(script, names, types, expression));
+            if (scripts.size() >= MAX_SCRIPTS) {
+                scripts.clear();
+            }
+            scripts.put(key, entry);
+        }
+        return entry.script;
+    }
+
+    protected synchronized ICompiledScript compile(String script, String[] names, String[] types, boolean expression) {
+        StringBuilder declarations = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            declarations.append("        final ").append(types[i]).append(" ").append(names[i]).append(" = (")
+                    .append(types[i]).append(") __bindings[").append(i).append("];\n");
+        }
+
+        List<String> bodies = new ArrayList<String>(3);
+        String trimmed = script.trim();
+        if (expression && !trimmed.endsWith("}")) {
+            bodies.add("return (" + (trimmed.endsWith(";") ? trimmed.substring(0, trimmed.length() - 1) : trimmed)
+                    + ");");
+        }
+        bodies.add(script + "\nreturn null;");
+        bodies.add(script);
+
+        Exception lastException = null;
+        for (String body : bodies) {
+            String javaCode = CODE_START + declarations + body + CODE_END;
+            try {
+                Object compiled = getCompiledClass(javaCode);
+                if (compiled instanceof ICompiledScript) {
+                    return (ICompiledScript) compiled;
+                }
+            } catch (Exception ex) {
+                lastException = ex;
+            } catch (LinkageError ex) {
+                lastException = new IllegalStateException(ex);
+            }
+        }
+        log.info("The script could not be compiled, so it will be interpreted by BeanShell: {}",
+                lastException != null ? lastException.getMessage() : script);
+        return null;
+    }
+
+    protected Object getCompiledClass(String javaCode) throws Exception {
+        if (extensionService != null) {
+            return extensionService.getCompiledClass(javaCode);
+        } else {
+            return classCompiler.getCompiledClass(javaCode);
+        }
+    }
+
+    public void clear() {
+        scripts.clear();
+    }
+
+    /**
+     * Check that a bound name can be declared as a Java variable.
+     */
+    public static boolean isVariableName(String name) {
+        if (name == null || name.length() == 0 || RESERVED_WORDS.contains(name)
+                || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A cached compile result. The script is null when it could not be
+     * compiled, so the compile isn't tried again for every row.
+     */
+    static class CompiledEntry {
+
+        final ICompiledScript script;
+
+        CompiledEntry(ICompiledScript script) {
+            this.script = script;
+        }
+    }
+
+    static class ScriptKey {
+
+        String script;
+
+        String[] names;
+
+        String[] types;
+
+        int hashCode;
+
+        ScriptKey(String script, String[] names, String[] types) {
+            this.script = script;
+            this.names = names;
+            this.types = types;
+            this.hashCode = 31 * (31 * script.hashCode() + Arrays.hashCode(names)) + Arrays.hashCode(types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ScriptKey) {
+                ScriptKey key = (ScriptKey) obj;
+                return script.equals(key.script) && Arrays.equals(names, key.names) && Arrays.equals(types, key.types);
+            }
+            return false;
+        }
+    }
+
+}
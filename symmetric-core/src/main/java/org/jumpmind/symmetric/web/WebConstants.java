@@ -26,6 +26,8 @@ package org.jumpmind.symmetric.web;
 public class WebConstants {
 
     public static final String HEADER_ACCEPT_CHARSET = "Accept-Charset";
+
+    public static final String HEADER_RETRY_AFTER = "Retry-After";
     
     public static final String METHOD_GET = "GET";
     
@@ -138,6 +140,8 @@ public class WebConstants {
     public static final String IGNORED_CHANNELS = "Ignored-Channels";
     
     public static final String BATCH_TO_SEND_COUNT = "Batch-To-Send-Count";
+
+    public static final String BINARY_PROTOCOL = "Binary-Protocol";
     
     public static final String CHANNEL_QUEUE = "threadChannel";
     
@@ -0,0 +1,120 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.Router;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileChecksumCalculatorTest {
+
+    File directory = new File("target/checksum").getAbsoluteFile();
+
+    FileTriggerRouter fileTriggerRouter;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        fileTriggerRouter = new FileTriggerRouter(new FileTrigger(directory.getAbsolutePath(), true, null, null), new Router());
+    }
+
+    @Test
+    public void testChecksumMatchesCommonsIo() throws Exception {
+        File file = new File(directory, "big.dat");
+        byte[] bytes = new byte[100000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        FileUtils.writeByteArrayToFile(file, bytes);
+        assertEquals(FileUtils.checksumCRC32(file), FileChecksumCalculator.checksumCRC32(file, ByteBuffer.allocateDirect(8192)));
+        assertEquals(FileUtils.checksumCRC32(file), FileChecksumCalculator.checksumCRC32(file, ByteBuffer.allocate(1000000)));
+    }
+
+    @Test
+    public void testCalculateInParallel() throws Exception {
+        DirectorySnapshot snapshot = new DirectorySnapshot(fileTriggerRouter);
+        for (int i = 0; i < 50; i++) {
+            File file = new File(directory, i + ".txt");
+            FileUtils.write(file, "file number " + i);
+            snapshot.add(new FileSnapshot(fileTriggerRouter, file, LastEventType.CREATE, false));
+        }
+        File deletedFile = new File(directory, "deleted.txt");
+        FileUtils.write(deletedFile, "deleted");
+        snapshot.add(new FileSnapshot(fileTriggerRouter, deletedFile, LastEventType.MODIFY, false));
+        FileUtils.deleteQuietly(deletedFile);
+
+        new FileChecksumCalculator(4, FileChecksumCalculator.DEFAULT_BUFFER_SIZE).calculate(fileTriggerRouter, snapshot);
+
+        for (int i = 0; i < 50; i++) {
+            FileSnapshot fileSnapshot = snapshot.get(i);
+            File file = new File(directory, i + ".txt");
+            assertEquals(FileUtils.checksumCRC32(file), fileSnapshot.getCrc32Checksum());
+            assertEquals(new FileSnapshot(fileTriggerRouter, file, LastEventType.CREATE, true), fileSnapshot);
+        }
+        assertEquals(-1, snapshot.get(50).getCrc32Checksum());
+    }
+
+    @Test
+    public void testPoolIsReusedUntilClosed() throws Exception {
+        FileChecksumCalculator calculator = new FileChecksumCalculator(2, FileChecksumCalculator.DEFAULT_BUFFER_SIZE);
+        ThreadPoolExecutor executor = null;
+        try {
+            for (int dir = 0; dir < 3; dir++) {
+                DirectorySnapshot snapshot = new DirectorySnapshot(fileTriggerRouter);
+                for (int i = 0; i < 5; i++) {
+                    File file = new File(directory, dir + "-" + i + ".txt");
+                    FileUtils.write(file, "file number " + i + " in " + dir);
+                    snapshot.add(new FileSnapshot(fileTriggerRouter, file, LastEventType.CREATE, false));
+                }
+                calculator.calculate(fileTriggerRouter, snapshot);
+                if (executor == null) {
+                    executor = calculator.executor;
+                }
+                assertSame(executor, calculator.executor);
+                for (FileSnapshot fileSnapshot : snapshot) {
+                    assertEquals(FileUtils.checksumCRC32(new File(directory, fileSnapshot.getFileName())),
+                            fileSnapshot.getCrc32Checksum());
+                }
+            }
+            assertTrue(executor.getLargestPoolSize() <= 2);
+        } finally {
+            calculator.close();
+        }
+        assertNull(calculator.executor);
+        assertTrue(executor.isShutdown());
+    }
+
+}
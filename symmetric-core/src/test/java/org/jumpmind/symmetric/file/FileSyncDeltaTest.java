@@ -0,0 +1,167 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSyncDeltaTest {
+
+    static final int BLOCK_SIZE = 4096;
+
+    File directory = new File("target/delta");
+    File baseFile = new File(directory, "base.dat");
+    File newFile = new File(directory, "new.dat");
+    File deltaFile = new File(directory, "new.delta");
+    File resultFile = new File(directory, "result.dat");
+
+    Random random = new Random(42);
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        byte[] base = randomBytes(300000);
+        byte[] appended = randomBytes(10000);
+        byte[] changed = new byte[base.length + appended.length];
+        System.arraycopy(base, 0, changed, 0, base.length);
+        System.arraycopy(appended, 0, changed, base.length, appended.length);
+
+        assertDelta(base, changed);
+        assertTrue(deltaFile.length() < BLOCK_SIZE + appended.length + 100);
+    }
+
+    @Test
+    public void testInsertAndChangeInMiddle() throws Exception {
+        byte[] base = randomBytes(200000);
+        byte[] changed = new byte[base.length + 7];
+        System.arraycopy(base, 0, changed, 0, 50000);
+        System.arraycopy(randomBytes(7), 0, changed, 50000, 7);
+        System.arraycopy(base, 50000, changed, 50007, base.length - 50000);
+        changed[150001] = (byte) (changed[150001] + 1);
+
+        assertDelta(base, changed);
+        assertTrue(deltaFile.length() < 3 * BLOCK_SIZE);
+    }
+
+    @Test
+    public void testTruncateAndSmallFiles() throws Exception {
+        byte[] base = randomBytes(100000);
+        byte[] truncated = new byte[BLOCK_SIZE * 3 + 10];
+        System.arraycopy(base, 0, truncated, 0, truncated.length);
+        assertDelta(base, truncated);
+        assertDelta(base, new byte[0]);
+        assertDelta(new byte[0], randomBytes(10));
+        assertDelta(randomBytes(10), base);
+    }
+
+    @Test
+    public void testBaseFileChanged() throws Exception {
+        byte[] base = randomBytes(50000);
+        FileUtils.writeByteArrayToFile(baseFile, base);
+        FileSignature baseSignature = signature(baseFile);
+        FileUtils.writeByteArrayToFile(newFile, randomBytes(50000));
+        FileSyncDelta.createDelta(newFile, baseSignature, deltaFile, new FileSignature.Builder(BLOCK_SIZE));
+
+        base[10] = (byte) (base[10] + 1);
+        FileUtils.writeByteArrayToFile(baseFile, base);
+        try {
+            FileSyncDelta.applyDelta(deltaFile, baseFile, resultFile);
+            fail("Expected the changed base file to be detected");
+        } catch (FileConflictException ex) {
+        }
+        assertTrue(!resultFile.exists());
+    }
+
+    @Test
+    public void testSignaturesReplacedOnAcknowledge() throws Exception {
+        File signatureDir = new File(directory, "signatures");
+        File acknowledged = new File(signatureDir, "001/trigger/router/a.dat.sig");
+        signature(randomBytes(100)).write(acknowledged);
+        long acknowledgedChecksum = FileSignature.read(acknowledged).getCrc32Checksum();
+
+        FileSignature older = signature(randomBytes(200));
+        older.write(new File(FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 3), "trigger/router/a.dat.sig"));
+        FileSignature sent = signature(randomBytes(300));
+        sent.write(new File(FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 5), "trigger/router/a.dat.sig"));
+        FileSignature newer = signature(randomBytes(400));
+        newer.write(new File(FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 7), "trigger/router/a.dat.sig"));
+
+        /* a batch that is not acknowledged leaves the last acknowledged signature in place */
+        FileSyncZipDataWriter.acknowledgeSignatures(signatureDir, "001", 4);
+        assertEquals(acknowledgedChecksum, FileSignature.read(acknowledged).getCrc32Checksum());
+
+        FileSyncZipDataWriter.acknowledgeSignatures(signatureDir, "001", 5);
+        assertEquals(sent.getCrc32Checksum(), FileSignature.read(acknowledged).getCrc32Checksum());
+        assertTrue(!FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 3).exists());
+        assertTrue(!FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 5).exists());
+        assertTrue(new File(FileSyncZipDataWriter.getPendingSignatureDir(signatureDir, "001", 7), "trigger/router/a.dat.sig").exists());
+    }
+
+    protected void assertDelta(byte[] base, byte[] changed) throws Exception {
+        FileUtils.writeByteArrayToFile(baseFile, base);
+        FileUtils.writeByteArrayToFile(newFile, changed);
+        FileSignature baseSignature = signature(baseFile);
+        File signatureFile = new File(directory, "base.sig");
+        baseSignature.write(signatureFile);
+
+        FileSignature.Builder newSignature = new FileSignature.Builder(BLOCK_SIZE);
+        FileSyncDelta.createDelta(newFile, FileSignature.read(signatureFile), deltaFile, newSignature);
+        FileSyncDelta.applyDelta(deltaFile, baseFile, resultFile);
+
+        assertArrayEquals(changed, FileUtils.readFileToByteArray(resultFile));
+        FileSignature expectedSignature = signature(newFile);
+        FileSignature actualSignature = newSignature.build();
+        assertEquals(expectedSignature.getCrc32Checksum(), actualSignature.getCrc32Checksum());
+        assertEquals(expectedSignature.getFileLength(), actualSignature.getFileLength());
+        assertEquals(expectedSignature.getBlockCount(), actualSignature.getBlockCount());
+    }
+
+    protected FileSignature signature(File file) throws Exception {
+        return signature(FileUtils.readFileToByteArray(file));
+    }
+
+    protected FileSignature signature(byte[] bytes) {
+        FileSignature.Builder builder = new FileSignature.Builder(BLOCK_SIZE);
+        builder.write(bytes, 0, bytes.length);
+        return builder.build();
+    }
+
+    protected byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+}
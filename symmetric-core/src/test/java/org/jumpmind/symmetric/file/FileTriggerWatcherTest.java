@@ -0,0 +1,131 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileTriggerWatcherTest {
+
+    File directory = new File("target/watch");
+    File subdirectory = new File(directory, "a");
+    File fileInDirectory1 = new File(directory, "1.txt");
+    File fileInSubDirectory = new File(subdirectory, "3.doc");
+
+    FileTriggerWatcher watcher;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        subdirectory.mkdirs();
+        FileUtils.write(fileInDirectory1, "abc");
+        FileUtils.write(fileInSubDirectory, "abc");
+    }
+
+    @After
+    public void closeWatcher() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testCreateModifyDelete() throws Exception {
+        watcher = newWatcher(true, null);
+        File newFile = new File(directory, "2.csv");
+        FileUtils.write(newFile, "1,2,3");
+        Map<File, LastEventType> changes = waitForChanges(newFile);
+        assertEquals(LastEventType.CREATE, changes.get(newFile.getAbsoluteFile()));
+
+        FileUtils.write(fileInSubDirectory, "abcdef");
+        changes = waitForChanges(fileInSubDirectory);
+        assertEquals(LastEventType.MODIFY, changes.get(fileInSubDirectory.getAbsoluteFile()));
+
+        FileUtils.deleteQuietly(fileInDirectory1);
+        changes = waitForChanges(fileInDirectory1);
+        assertEquals(LastEventType.DELETE, changes.get(fileInDirectory1.getAbsoluteFile()));
+        DirectorySnapshot snapshot = watcher.toDirectorySnapshot(changes, null, null);
+        FileSnapshot change = snapshot.get(0);
+        assertEquals("1.txt", change.getFileName());
+        assertEquals(".", change.getRelativeDir());
+        assertFalse(watcher.isOverflowed());
+    }
+
+    @Test
+    public void testNewDirectoryIsWatched() throws Exception {
+        watcher = newWatcher(true, null);
+        File newDirectory = new File(directory, "b");
+        File fileInNewDirectory = new File(newDirectory, "4.txt");
+        FileUtils.write(fileInNewDirectory, "abc");
+        Map<File, LastEventType> changes = waitForChanges(fileInNewDirectory);
+        assertEquals(LastEventType.CREATE, changes.get(fileInNewDirectory.getAbsoluteFile()));
+        assertEquals(3, watcher.getWatchedDirCount());
+
+        File secondFile = new File(newDirectory, "5.txt");
+        FileUtils.write(secondFile, "abc");
+        changes = waitForChanges(secondFile);
+        assertEquals(LastEventType.CREATE, changes.get(secondFile.getAbsoluteFile()));
+    }
+
+    @Test
+    public void testNonRecursiveWithIncludes() throws Exception {
+        watcher = newWatcher(false, "*.txt");
+        assertEquals(1, watcher.getWatchedDirCount());
+        File excluded = new File(directory, "2.csv");
+        File included = new File(directory, "2.txt");
+        FileUtils.write(excluded, "1,2,3");
+        FileUtils.write(fileInSubDirectory, "abcdef");
+        FileUtils.write(included, "abc");
+        Map<File, LastEventType> changes = waitForChanges(included);
+        assertFalse(changes.containsKey(excluded.getAbsoluteFile()));
+        assertFalse(changes.containsKey(fileInSubDirectory.getAbsoluteFile()));
+    }
+
+    protected FileTriggerWatcher newWatcher(boolean recurse, String includes) throws Exception {
+        FileTrigger fileTrigger = new FileTrigger(directory.getAbsolutePath(), recurse, includes, null);
+        return new FileTriggerWatcher(new FileTriggerRouter(fileTrigger, new Router()));
+    }
+
+    protected Map<File, LastEventType> waitForChanges(File expectedFile) throws Exception {
+        Map<File, LastEventType> changes = new LinkedHashMap<File, LastEventType>();
+        long ts = System.currentTimeMillis();
+        while (!changes.containsKey(expectedFile.getAbsoluteFile()) && System.currentTimeMillis() - ts < 10000) {
+            Thread.sleep(50);
+            changes.putAll(watcher.pollChanges());
+        }
+        assertTrue("No change was seen for " + expectedFile, changes.containsKey(expectedFile.getAbsoluteFile()));
+        return changes;
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelZipOutputTest {
+
+    File directory = new File("target/parallelzip");
+    File zipFile = new File(directory, "test.zip");
+    File textFile = new File(directory, "big.txt");
+    File compressedFile = new File(directory, "data.gz");
+
+    byte[] textBytes;
+    byte[] compressedBytes;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            text.append("line ").append(i).append("\n");
+        }
+        textBytes = text.toString().getBytes();
+        FileUtils.writeByteArrayToFile(textFile, textBytes);
+        compressedBytes = new byte[100000];
+        new Random(1).nextBytes(compressedBytes);
+        FileUtils.writeByteArrayToFile(compressedFile, compressedBytes);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        assertZip(4);
+    }
+
+    @Test
+    public void testOneThread() throws Exception {
+        assertZip(1);
+    }
+
+    @Test
+    public void testManyEntries() throws Exception {
+        FileOutputStream out = new FileOutputStream(zipFile);
+        ParallelZipOutput zipOutput = new ParallelZipOutput(out, 4, null, directory);
+        for (int i = 0; i < 70000; i++) {
+            zipOutput.putBytes("1/" + i + ".txt", Integer.toString(i).getBytes(), System.currentTimeMillis());
+        }
+        zipOutput.finish();
+        out.close();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertEquals(70000, zip.size());
+            assertEquals("69999", IOUtils.toString(zip.getInputStream(zip.getEntry("1/69999.txt"))));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void testStoredFileChangedBeforeWrite() throws Exception {
+        byte[] largeBytes = new byte[3 * 1024 * 1024];
+        new Random(2).nextBytes(largeBytes);
+        File largeFile = new File(directory, "large.zip");
+        FileUtils.writeByteArrayToFile(largeFile, largeBytes);
+
+        FileOutputStream out = new FileOutputStream(zipFile);
+        ParallelZipOutput zipOutput = new ParallelZipOutput(out, 1, ParallelZipOutput.DEFAULT_STORED_EXTENSIONS, directory);
+        zipOutput.putFile("1/data.gz", compressedFile, compressedFile.lastModified(), null);
+        zipOutput.putFile("1/large.zip", largeFile, largeFile.lastModified(), null);
+        /* both files were read when they were added, so changing them now does not change the zip */
+        FileUtils.writeByteArrayToFile(compressedFile, "changed".getBytes());
+        FileUtils.writeByteArrayToFile(largeFile, "changed".getBytes());
+        zipOutput.finish();
+        out.close();
+
+        ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile));
+        try {
+            assertEquals("1/data.gz", zis.getNextEntry().getName());
+            assertArrayEquals(compressedBytes, IOUtils.toByteArray(zis));
+            assertEquals("1/large.zip", zis.getNextEntry().getName());
+            assertArrayEquals(largeBytes, IOUtils.toByteArray(zis));
+            assertNull(zis.getNextEntry());
+        } finally {
+            zis.close();
+        }
+        for (String name : directory.list()) {
+            assertTrue("The temporary file " + name + " was not removed", !name.startsWith("filesync"));
+        }
+    }
+
+    protected void assertZip(int threadCount) throws Exception {
+        FileOutputStream out = new FileOutputStream(zipFile);
+        ParallelZipOutput zipOutput = new ParallelZipOutput(out, threadCount, ParallelZipOutput.DEFAULT_STORED_EXTENSIONS,
+                directory);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        zipOutput.putDirectory("1/dir", textFile.lastModified());
+        zipOutput.putFile("1/dir/big.txt", textFile, textFile.lastModified(), copy);
+        zipOutput.putFile("1/data.gz", compressedFile, compressedFile.lastModified(), null);
+        zipOutput.putBytes("1/sync.bsh", "return fileList;".getBytes(), System.currentTimeMillis());
+        zipOutput.putBytes("2/batch-info.txt", "filesync".getBytes(), System.currentTimeMillis());
+        zipOutput.finish();
+        out.close();
+
+        assertArrayEquals(textBytes, copy.toByteArray());
+        assertTrue(zipFile.length() < textBytes.length);
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertEquals(5, zip.size());
+            assertTrue(zip.getEntry("1/dir/").isDirectory());
+            assertArrayEquals(textBytes, IOUtils.toByteArray(zip.getInputStream(zip.getEntry("1/dir/big.txt"))));
+            ZipEntry storedEntry = zip.getEntry("1/data.gz");
+            assertEquals(ZipEntry.STORED, storedEntry.getMethod());
+            assertArrayEquals(compressedBytes, IOUtils.toByteArray(zip.getInputStream(storedEntry)));
+            assertEquals(textFile.lastModified() / 2000, zip.getEntry("1/dir/big.txt").getTime() / 2000);
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            assertEquals("1/dir/", entries.nextElement().getName());
+        } finally {
+            zip.close();
+        }
+
+        ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile));
+        try {
+            String[] names = { "1/dir/", "1/dir/big.txt", "1/data.gz", "1/sync.bsh", "2/batch-info.txt" };
+            for (String name : names) {
+                ZipEntry entry = zis.getNextEntry();
+                assertEquals(name, entry.getName());
+                if (name.equals("1/sync.bsh")) {
+                    assertEquals("return fileList;", IOUtils.toString(zis));
+                }
+            }
+            assertNull(zis.getNextEntry());
+        } finally {
+            zis.close();
+        }
+    }
+
+}
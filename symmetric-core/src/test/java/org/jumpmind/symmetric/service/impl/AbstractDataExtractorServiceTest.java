@@ -20,23 +20,46 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.symmetric.TestConstants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.symmetric.io.data.reader.BinaryProtocolDataReader;
+import org.jumpmind.symmetric.io.data.reader.BinaryProtocolTextReader;
+import org.jumpmind.symmetric.io.data.transform.ColumnPolicy;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn.IncludeOnType;
+import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.model.AbstractBatch.Status;
+import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.OutgoingBatch;
 import org.jumpmind.symmetric.model.ProcessInfo;
 import org.jumpmind.symmetric.model.Router;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerRouter;
 import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.ITransformService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 import org.jumpmind.symmetric.transport.internal.InternalOutgoingTransport;
 import org.junit.Before;
 import org.junit.Test;
@@ -83,6 +106,51 @@ public abstract class AbstractDataExtractorServiceTest extends AbstractServiceTe
         assertNumberOfLinesThatStartWith(1, "binary,", content);
     }
 
+    @Test
+    public void testExtractConfigurationStandaloneFromCache() throws Exception {
+        IDataExtractorService dataExtractorService = getDataExtractorService();
+        dataExtractorService.clearConfigurationSnapshots();
+        StringWriter writer = new StringWriter();
+        dataExtractorService.extractConfigurationStandalone(TestConstants.TEST_CLIENT_NODE, writer);
+        String first = writer.getBuffer().toString();
+
+        writer = new StringWriter();
+        dataExtractorService.extractConfigurationStandalone(TestConstants.TEST_CLIENT_NODE, writer);
+        assertEquals(first, writer.getBuffer().toString());
+
+        dataExtractorService.clearConfigurationSnapshots();
+        writer = new StringWriter();
+        dataExtractorService.extractConfigurationStandalone(TestConstants.TEST_CLIENT_NODE, writer);
+        assertEquals(first, writer.getBuffer().toString());
+
+        /* another node in the same group reuses the snapshot and gets the same result as without it */
+        Node otherNode = new Node("00099", TestConstants.TEST_CLIENT_NODE_GROUP);
+        getNodeService().save(otherNode);
+        getNodeService().flushNodeCache();
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS, 600000, "unittest");
+        try {
+            dataExtractorService.clearConfigurationSnapshots();
+            dataExtractorService.extractConfigurationStandalone(TestConstants.TEST_CLIENT_NODE, new StringWriter());
+            writer = new StringWriter();
+            dataExtractorService.extractConfigurationStandalone(otherNode, writer);
+            String cached = writer.getBuffer().toString();
+            assertTrue(cached.contains("\"00099\""));
+
+            parameterService.saveParameter(ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS, 0, "unittest");
+            writer = new StringWriter();
+            dataExtractorService.extractConfigurationStandalone(otherNode, writer);
+            /* the only difference is the row of the parameter that turned the cache off */
+            String parameterRow = "(?m)^insert,.*\"" + ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS + "\".*$";
+            assertEquals(writer.getBuffer().toString().replaceAll(parameterRow, ""), cached.replaceAll(parameterRow, ""));
+        } finally {
+            parameterService.deleteParameter(ParameterConstants.REGISTRATION_CONFIG_CACHE_TIME_MS);
+            getNodeService().deleteNode(otherNode.getNodeId(), false);
+            getNodeService().flushNodeCache();
+            dataExtractorService.clearConfigurationSnapshots();
+        }
+    }
+
     @Test
     public void testNothingToExtract() {
         ExtractResults results = extract();
@@ -113,12 +181,314 @@ public abstract class AbstractDataExtractorServiceTest extends AbstractServiceTe
 
     }
 
+    @Test
+    public void testExtractBatchesInParallel() {
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 4, "unittest");
+        try {
+            for (int i = 0; i < 6; i++) {
+                save(new TestExtract(id++, "parallel " + i, "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                        System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                        Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+                routeAndCreateGaps();
+            }
+            ExtractResults results = extract();
+            List<OutgoingBatch> batches = results.getBatches();
+            int testBatches = 0;
+            for (OutgoingBatch batch : batches) {
+                if (batch.getChannelId().equals(TestConstants.TEST_CHANNEL_ID)) {
+                    testBatches++;
+                }
+            }
+            assertEquals(6, testBatches);
+            assertNumberOfLinesThatStartWith(6, "insert,", results.getCsv(), false, true);
+            int lastIndex = -1;
+            for (int i = 0; i < batches.size(); i++) {
+                if (i > 0) {
+                    assertTrue(batches.get(i - 1).getBatchId() < batches.get(i).getBatchId());
+                }
+                int index = results.getCsv().indexOf("batch," + batches.get(i).getBatchId());
+                assertTrue(index > lastIndex);
+                lastIndex = index;
+            }
+        } finally {
+            parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 1, "unittest");
+        }
+    }
+
+    @Test
+    public void testExtractInParallelStopsAtSkippedBatch() {
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 2, "unittest");
+        try {
+            for (int i = 0; i < 3; i++) {
+                save(new TestExtract(id++, "skipped " + i, "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                        System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                        Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+                routeAndCreateGaps();
+            }
+            final List<OutgoingBatch> readyBatches = new ArrayList<OutgoingBatch>();
+            for (OutgoingBatch batch : getOutgoingBatchService().getOutgoingBatches(TestConstants.TEST_CLIENT_EXTERNAL_ID, false)
+                    .getBatches()) {
+                if (batch.getChannelId().equals(TestConstants.TEST_CHANNEL_ID)) {
+                    readyBatches.add(batch);
+                }
+            }
+            assertEquals(3, readyBatches.size());
+            final CountDownLatch lastBatchExtracted = new CountDownLatch(1);
+
+            /* the middle batch is not ready, but only after the last batch was already extracted */
+            DataExtractorService service = new DataExtractorService(getSymmetricEngine()) {
+                @Override
+                protected FutureOutgoingBatch extractBatch(OutgoingBatch extractBatch, FutureExtractStatus status,
+                        ProcessInfo extractInfo, Node targetNode, IDataWriter dataWriter, ExtractMode mode,
+                        List<OutgoingBatch> activeBatches) throws Exception {
+                    if (extractBatch.getBatchId() == readyBatches.get(1).getBatchId()) {
+                        lastBatchExtracted.await(30, TimeUnit.SECONDS);
+                        FutureOutgoingBatch skipped = new FutureOutgoingBatch(extractBatch, false);
+                        status.shouldExtractSkip = skipped.isExtractSkipped = true;
+                        return skipped;
+                    }
+                    FutureOutgoingBatch extracted = super.extractBatch(extractBatch, status, extractInfo, targetNode,
+                            dataWriter, mode, activeBatches);
+                    if (extractBatch.getBatchId() == readyBatches.get(2).getBatchId()) {
+                        lastBatchExtracted.countDown();
+                    }
+                    return extracted;
+                }
+            };
+            StringWriter writer = new StringWriter();
+            InternalOutgoingTransport transport = new InternalOutgoingTransport(new BufferedWriter(writer));
+            List<OutgoingBatch> batches = service.extract(new ProcessInfo(), TestConstants.TEST_CLIENT_NODE, transport);
+            transport.close();
+            String csv = writer.getBuffer().toString();
+
+            assertEquals(0L, lastBatchExtracted.getCount());
+            for (OutgoingBatch batch : batches) {
+                assertTrue(batch.getBatchId() != readyBatches.get(1).getBatchId());
+                assertTrue(batch.getBatchId() != readyBatches.get(2).getBatchId());
+            }
+            assertNumberOfLinesThatStartWith(1, "commit," + readyBatches.get(0).getBatchId(), csv);
+            assertNumberOfLinesThatStartWith(0, "commit," + readyBatches.get(1).getBatchId(), csv);
+            assertNumberOfLinesThatStartWith(0, "commit," + readyBatches.get(2).getBatchId(), csv);
+        } finally {
+            parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 1, "unittest");
+            resetBatches();
+        }
+    }
+
+    @Test
+    public void testInsertOutgoingBatchesInBulk() {
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>();
+        for (int i = 0; i < 5; i++) {
+            OutgoingBatch batch = new OutgoingBatch(TestConstants.TEST_CLIENT_EXTERNAL_ID, TestConstants.TEST_CHANNEL_ID, Status.RQ);
+            batch.setLoadFlag(true);
+            batch.setExtractJobFlag(true);
+            batch.setDataRowCount(100);
+            batches.add(batch);
+        }
+
+        ISqlTransaction transaction = getSqlTemplate().startSqlTransaction();
+        try {
+            getOutgoingBatchService().insertOutgoingBatches(transaction, batches);
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+
+        long firstBatchId = batches.get(0).getBatchId();
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(firstBatchId + i, batches.get(i).getBatchId());
+            OutgoingBatch saved = getOutgoingBatchService().findOutgoingBatch(batches.get(i).getBatchId(),
+                    TestConstants.TEST_CLIENT_EXTERNAL_ID);
+            assertNotNull(saved);
+            assertEquals(Status.RQ, saved.getStatus());
+            assertEquals(100L, saved.getDataRowCount());
+        }
+        resetBatches();
+    }
+
+    @Test
+    public void testExtractPipelined() {
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.EXTRACT_PIPELINE_ENABLED, true, "unittest");
+        parameterService.saveParameter(ParameterConstants.EXTRACT_PIPELINE_BUFFER_SIZE, 16384, "unittest");
+        parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 2, "unittest");
+        try {
+            for (int i = 0; i < 3; i++) {
+                save(new TestExtract(id++, "piped " + i, "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                        System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                        Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+                routeAndCreateGaps();
+            }
+            /* one batch larger than the pipe, so the extract has to wait on the transport */
+            for (int i = 0; i < 500; i++) {
+                save(new TestExtract(id++, "piped large " + i, StringUtils.repeat("abcdefghijklmnopqrstuvwxyz", 4), new Timestamp(
+                        System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                        Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+            }
+            routeAndCreateGaps();
+
+            ExtractResults results = extract();
+            List<OutgoingBatch> batches = results.getBatches();
+            assertNumberOfLinesThatStartWith(503, "insert,", results.getCsv(), false, true);
+            int lastIndex = -1;
+            for (OutgoingBatch batch : batches) {
+                assertNumberOfLinesThatStartWith(1, "commit," + batch.getBatchId(), results.getCsv());
+                int index = results.getCsv().indexOf("batch," + batch.getBatchId());
+                assertTrue(index > lastIndex);
+                assertTrue(index < results.getCsv().indexOf("commit," + batch.getBatchId()));
+                lastIndex = index;
+            }
+
+            /* the batches were still staged, so they can be retried */
+            results = extract();
+            for (OutgoingBatch batch : batches) {
+                assertNumberOfLinesThatStartWith(1, "retry," + batch.getBatchId(), results.getCsv());
+            }
+            assertNumberOfLinesThatStartWith(0, "insert,", results.getCsv());
+        } finally {
+            parameterService.saveParameter(ParameterConstants.EXTRACT_PIPELINE_ENABLED, false, "unittest");
+            parameterService.saveParameter(ParameterConstants.EXTRACT_PIPELINE_BUFFER_SIZE, 1048576, "unittest");
+            parameterService.saveParameter(ParameterConstants.EXTRACT_THREAD_COUNT_PER_NODE, 1, "unittest");
+        }
+    }
+
+    @Test
+    public void testExtractBinaryProtocol() throws Exception {
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED, true, "unittest");
+        try {
+            save(new TestExtract(id++, "binary", "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                    System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                    Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+            routeAndCreateGaps();
+
+            ExtractResults results = extractBinary();
+            List<OutgoingBatch> batches = results.getBatches();
+            assertTrue(batches.size() > 0);
+            for (OutgoingBatch batch : batches) {
+                assertNumberOfLinesThatStartWith(1, "batch," + batch.getBatchId(), results.getCsv());
+                assertNumberOfLinesThatStartWith(1, "commit," + batch.getBatchId(), results.getCsv());
+            }
+            assertNumberOfLinesThatStartWith(1, "table," + TEST_TABLE, results.getCsv(), true, false);
+            assertTrue(results.getCsv().contains("\"binary\""));
+
+            /* there is no retry in the binary protocol, so the staged batches are sent again */
+            results = extractBinary();
+            assertNumberOfLinesThatStartWith(0, "retry,", results.getCsv());
+            for (OutgoingBatch batch : batches) {
+                assertNumberOfLinesThatStartWith(1, "commit," + batch.getBatchId(), results.getCsv());
+            }
+            assertTrue(results.getCsv().contains("\"binary\""));
+        } finally {
+            parameterService.saveParameter(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED, false, "unittest");
+        }
+    }
+
+    @Test
+    public void testExtractChangedColumnsOnlyByNodeVersion() {
+        IParameterService parameterService = getParameterService();
+        int rowId = id++;
+        save(new TestExtract(rowId, "changed 0", "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+        parameterService.saveParameter(ParameterConstants.EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY, true, "unittest");
+        resetBatches();
+        try {
+            Node olderNode = new Node(TestConstants.TEST_CLIENT_EXTERNAL_ID, TestConstants.TEST_CLIENT_NODE_GROUP);
+            olderNode.setSymmetricVersion("3.9.0");
+            getSqlTemplate().update(String.format("update %s set varchar_value=? where id=?", TEST_TABLE), "changed 1", rowId);
+            routeAndCreateGaps();
+            ExtractResults results = extract(olderNode);
+            assertNumberOfLinesThatStartWith(1, "update,", results.getCsv());
+            assertNumberOfLinesThatStartWith(0, "changed,", results.getCsv());
+            resetBatches();
+
+            getSqlTemplate().update(String.format("update %s set varchar_value=? where id=?", TEST_TABLE), "changed 2", rowId);
+            routeAndCreateGaps();
+            results = extract(TestConstants.TEST_CLIENT_NODE);
+            assertNumberOfLinesThatStartWith(1, "update,", results.getCsv());
+            assertNumberOfLinesThatStartWith(1, "changed,", results.getCsv());
+        } finally {
+            parameterService.saveParameter(ParameterConstants.EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY, false, "unittest");
+            resetBatches();
+        }
+    }
+
+    @Test
+    public void testExtractWholeRowForTableWithLoadTransform() {
+        IParameterService parameterService = getParameterService();
+        ITransformService transformService = getSymmetricEngine().getTransformService();
+        int rowId = id++;
+        save(new TestExtract(rowId, "transformed 0", "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+        TransformTableNodeGroupLink transform = new TransformTableNodeGroupLink();
+        transform.setTransformId("test_extract_whole_row");
+        transform.setNodeGroupLink(TestConstants.ROOT_2_TEST);
+        transform.setTransformPoint(TransformPoint.LOAD);
+        transform.setSourceTableName(TEST_TABLE);
+        transform.setTargetTableName(TEST_TABLE);
+        transform.setColumnPolicy(ColumnPolicy.IMPLIED);
+        TransformColumn column = new TransformColumn("longvarchar_value", "longvarchar_value", false, "copy", null);
+        column.setTransformId(transform.getTransformId());
+        column.setIncludeOn(IncludeOnType.ALL);
+        transform.addTransformColumn(column);
+        transformService.saveTransformTable(transform, true);
+        parameterService.saveParameter(ParameterConstants.EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY, true, "unittest");
+        resetBatches();
+        try {
+            getSqlTemplate().update(String.format("update %s set varchar_value=? where id=?", TEST_TABLE), "transformed 1", rowId);
+            routeAndCreateGaps();
+            ExtractResults results = extract();
+            assertNumberOfLinesThatStartWith(1, "update,", results.getCsv());
+            assertNumberOfLinesThatStartWith(0, "changed,", results.getCsv());
+            assertTrue(results.getCsv().contains("abcdefghijklmnopqrstuvwxyz"));
+            resetBatches();
+
+            transformService.deleteTransformTable(transform.getTransformId());
+            resetBatches();
+            getSqlTemplate().update(String.format("update %s set varchar_value=? where id=?", TEST_TABLE), "transformed 2", rowId);
+            routeAndCreateGaps();
+            results = extract();
+            assertNumberOfLinesThatStartWith(1, "update,", results.getCsv());
+            assertNumberOfLinesThatStartWith(1, "changed,", results.getCsv());
+        } finally {
+            transformService.deleteTransformTable(transform.getTransformId());
+            parameterService.saveParameter(ParameterConstants.EXTRACT_UPDATE_CHANGED_COLUMNS_ONLY, false, "unittest");
+            resetBatches();
+        }
+    }
+
+    /**
+     * Extract to a transport that asked for the binary protocol and read what
+     * was sent back as CSV
+     */
+    protected ExtractResults extractBinary() throws Exception {
+        IDataExtractorService service = getDataExtractorService();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InternalOutgoingTransport transport = new InternalOutgoingTransport(out, "UTF-8");
+        transport.setBinaryProtocol(true);
+        List<OutgoingBatch> batches = service.extract(new ProcessInfo(), TestConstants.TEST_CLIENT_NODE, transport);
+        transport.close();
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(BinaryProtocolDataReader.isBinaryProtocol(in));
+        String csv = IOUtils.toString(new BinaryProtocolTextReader(new BinaryProtocolDataReader(BatchType.LOAD,
+                TestConstants.TEST_CLIENT_EXTERNAL_ID, in)));
+        return new ExtractResults(batches, csv);
+    }
+
     protected ExtractResults extract() {
+        return extract(TestConstants.TEST_CLIENT_NODE);
+    }
+
+    protected ExtractResults extract(Node node) {
         IDataExtractorService service = getDataExtractorService();
         StringWriter writer = new StringWriter();
         InternalOutgoingTransport transport = new InternalOutgoingTransport(new BufferedWriter(
                 writer));
-        List<OutgoingBatch> batches = service.extract(new ProcessInfo(), TestConstants.TEST_CLIENT_NODE, transport);
+        List<OutgoingBatch> batches = service.extract(new ProcessInfo(), node, transport);
         transport.close();
         return new ExtractResults(batches, writer.getBuffer().toString());
     }
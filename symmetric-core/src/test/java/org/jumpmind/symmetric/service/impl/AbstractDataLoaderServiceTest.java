@@ -41,7 +41,12 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.csv.CsvWriter;
 import org.jumpmind.symmetric.ext.NodeGroupTestDataWriterFilter;
 import org.jumpmind.symmetric.ext.TestDataWriterFilter;
+import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
 import org.jumpmind.symmetric.io.data.CsvConstants;
+import org.jumpmind.symmetric.io.data.DataProcessor;
+import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
+import org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFilter;
 import org.jumpmind.symmetric.model.IncomingBatch;
@@ -557,6 +562,13 @@ abstract public class AbstractDataLoaderServiceTest extends AbstractServiceTest
         getDataLoaderService().loadDataFromPull(client, channelId);
     }
 
+    protected void loadFromPush(ByteArrayOutputStream out) throws Exception {
+        /* the acknowledgement is written by the mock transport manager */
+        getTransportManager();
+        getDataLoaderService().loadDataFromPush(client, new ByteArrayInputStream(out.toByteArray()),
+                new ByteArrayOutputStream());
+    }
+
     protected IncomingBatch.Status findIncomingBatchStatus(int batchId, String nodeId) {
         IncomingBatch batch = getIncomingBatchService().findIncomingBatch(batchId, nodeId);
         IncomingBatch.Status status = null;
@@ -607,6 +619,48 @@ abstract public class AbstractDataLoaderServiceTest extends AbstractServiceTest
         assertEquals(batch.getChannelId(), TestConstants.TEST_CHANNEL_ID, "Wrong channel. " + printDatabase());
     }
 
+    @Test
+    public void test14BinaryProtocolPush() throws Exception {
+        getParameterService().saveParameter(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED, true, "unittest");
+        try {
+            for (boolean binary : new boolean[] { true, false }) {
+                String[] insertValues = new String[TEST_COLUMNS.length];
+                insertValues[2] = insertValues[4] = binary ? "binary push" : "csv push";
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                CsvWriter writer = getWriter(out);
+                writer.writeRecord(new String[] { CsvConstants.NODEID,
+                        TestConstants.TEST_CLIENT_EXTERNAL_ID });
+                writer.writeRecord(new String[] { CsvConstants.CHANNEL,
+                        TestConstants.TEST_CHANNEL_ID });
+                String nextBatchId = getNextBatchId();
+                writer.writeRecord(new String[] { CsvConstants.BATCH, nextBatchId });
+                writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+                insertValues[0] = getNextId();
+                writer.write(CsvConstants.INSERT);
+                writer.writeRecord(insertValues, true);
+                writer.writeRecord(new String[] { CsvConstants.COMMIT, nextBatchId });
+                writer.close();
+
+                if (binary) {
+                    ByteArrayOutputStream binaryOut = new ByteArrayOutputStream();
+                    new DataProcessor(new ProtocolDataReader(BatchType.LOAD, TestConstants.TEST_ROOT_EXTERNAL_ID,
+                            new String(out.toByteArray(), IoConstants.ENCODING)), new BinaryProtocolDataWriter(
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID, binaryOut), "to binary").process();
+                    out = binaryOut;
+                }
+
+                loadFromPush(out);
+                IncomingBatch batch = getIncomingBatchService().findIncomingBatch(batchId,
+                        TestConstants.TEST_CLIENT_EXTERNAL_ID);
+                assertEquals(batch.getStatus(), IncomingBatch.Status.OK, "Wrong status. " + printDatabase());
+                assertTestTableEquals(insertValues[0], insertValues);
+            }
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED, false, "unittest");
+        }
+    }
+
     protected CsvWriter getWriter(OutputStream out) {
         CsvWriter writer = new CsvWriter(new OutputStreamWriter(out), ',');
         writer.setEscapeMode(CsvWriter.ESCAPE_MODE_BACKSLASH);
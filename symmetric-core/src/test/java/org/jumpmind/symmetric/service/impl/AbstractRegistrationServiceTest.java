@@ -0,0 +1,159 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.jumpmind.symmetric.TestConstants;
+import org.jumpmind.symmetric.Version;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.RegistrationBusyException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public abstract class AbstractRegistrationServiceTest extends AbstractServiceTest {
+
+    static final int CLIENT_COUNT = 300;
+
+    static final int MAX_CONCURRENT = 4;
+
+    static final int QUEUE_SIZE = 50;
+
+    List<String> registeredNodeIds = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setupParameters() {
+        IParameterService parameterService = getParameterService();
+        parameterService.saveParameter(ParameterConstants.AUTO_REGISTER_ENABLED, true, "test");
+        parameterService.saveParameter(ParameterConstants.REGISTRATION_MAX_CONCURRENT, MAX_CONCURRENT, "test");
+        parameterService.saveParameter(ParameterConstants.REGISTRATION_QUEUE_SIZE, QUEUE_SIZE, "test");
+        parameterService.saveParameter(ParameterConstants.REGISTRATION_QUEUE_WAIT_MS, 120000, "test");
+    }
+
+    @After
+    public void cleanup() {
+        IParameterService parameterService = getParameterService();
+        parameterService.deleteParameter(ParameterConstants.AUTO_REGISTER_ENABLED);
+        parameterService.deleteParameter(ParameterConstants.REGISTRATION_MAX_CONCURRENT);
+        parameterService.deleteParameter(ParameterConstants.REGISTRATION_QUEUE_SIZE);
+        parameterService.deleteParameter(ParameterConstants.REGISTRATION_QUEUE_WAIT_MS);
+        for (String nodeId : registeredNodeIds) {
+            getNodeService().deleteNode(nodeId, false);
+        }
+        registeredNodeIds.clear();
+    }
+
+    @Test
+    public void testConcurrentRegistrationsAreQueued() throws Exception {
+        final RegistrationService registrationService = (RegistrationService) getRegistrationService();
+        RegistrationQueue queue = registrationService.getRegistrationQueue();
+        long admittedBefore = queue.getAdmittedCount();
+        long rejectedBefore = queue.getRejectedCount();
+
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENT_COUNT);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            final Node node = new Node(String.format("reg%04d", i), TestConstants.TEST_CLIENT_NODE_GROUP);
+            node.setSymmetricVersion(Version.version());
+            results.add(executor.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    startSignal.await();
+                    try {
+                        assertTrue(registrationService.registerNode(node, "localhost", "127.0.0.1",
+                                new NullOutputStream(), true));
+                        registeredNodeIds.add(node.getExternalId());
+                        return 0;
+                    } catch (RegistrationBusyException e) {
+                        assertTrue(e.getRetryAfterSeconds() >= RegistrationQueue.MIN_RETRY_AFTER_SECONDS);
+                        return e.getRetryAfterSeconds();
+                    }
+                }
+            }));
+        }
+
+        startSignal.countDown();
+        int rejected = 0;
+        for (Future<Integer> result : results) {
+            if (result.get() > 0) {
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(CLIENT_COUNT - rejected, registeredNodeIds.size());
+        assertEquals((long) CLIENT_COUNT - rejected, queue.getAdmittedCount() - admittedBefore);
+        assertEquals((long) rejected, queue.getRejectedCount() - rejectedBefore);
+        assertTrue(queue.getMaxActiveCount() <= MAX_CONCURRENT);
+        assertTrue(queue.getMaxQueueDepth() <= QUEUE_SIZE);
+        assertEquals(0, queue.getActiveCount());
+        assertEquals(0, queue.getQueueDepth());
+        for (String nodeId : registeredNodeIds) {
+            assertNotNull(getNodeService().findNode(nodeId));
+        }
+        logger.info("Registered {} of {} clients, {} rejected, average wait {}ms, max wait {}ms, max queue depth {}",
+                registeredNodeIds.size(), CLIENT_COUNT, rejected, queue.getAverageWaitMillis(),
+                queue.getMaxWaitMillis(), queue.getMaxQueueDepth());
+    }
+
+    @Test
+    public void testRegistrationRejectedWhenQueueIsFull() throws Exception {
+        getParameterService().saveParameter(ParameterConstants.REGISTRATION_QUEUE_SIZE, 0, "test");
+        RegistrationService registrationService = (RegistrationService) getRegistrationService();
+        RegistrationQueue queue = registrationService.getRegistrationQueue();
+        List<Long> admitted = new ArrayList<Long>();
+        try {
+            for (int i = 0; i < MAX_CONCURRENT; i++) {
+                admitted.add(queue.admit("test"));
+            }
+            Node node = new Node("reg-busy", TestConstants.TEST_CLIENT_NODE_GROUP);
+            try {
+                registrationService.registerNode(node, "localhost", "127.0.0.1", new NullOutputStream(), true);
+                registeredNodeIds.add(node.getExternalId());
+                fail("Expected the registration to be rejected");
+            } catch (RegistrationBusyException e) {
+                assertTrue(e.getRetryAfterSeconds() >= RegistrationQueue.MIN_RETRY_AFTER_SECONDS);
+            }
+        } finally {
+            for (Long admittedTime : admitted) {
+                queue.release(admittedTime);
+            }
+        }
+        assertEquals(0, queue.getActiveCount());
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jumpmind.symmetric.model.AbstractBatch.Status;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.junit.Test;
+
+public class OutgoingBatchQueueIndexTest {
+
+    @Test
+    public void testUnknownUntilSwept() {
+        OutgoingBatchQueueIndex index = new OutgoingBatchQueueIndex();
+        assertTrue(index.hasBatches("00001", null));
+        sweep(index);
+        assertFalse(index.hasBatches("00001", null));
+    }
+
+    @Test
+    public void testUpdate() {
+        OutgoingBatchQueueIndex index = new OutgoingBatchQueueIndex();
+        sweep(index);
+        OutgoingBatch batch = batch("00001", "default", 1, Status.NE);
+        index.update(batch);
+        assertTrue(index.hasBatches("00001", null));
+        assertTrue(index.hasBatches("00001", Arrays.asList("default")));
+        assertFalse(index.hasBatches("00001", Arrays.asList("reload")));
+        assertFalse(index.hasBatches("00002", null));
+
+        batch.setStatus(Status.OK);
+        index.update(batch);
+        assertFalse(index.hasBatches("00001", null));
+
+        index.update(batch("00001", "default", 2, Status.RT));
+        assertFalse(index.hasBatches("00001", null));
+    }
+
+    @Test
+    public void testSweep() {
+        OutgoingBatchQueueIndex index = new OutgoingBatchQueueIndex();
+        sweep(index, new Object[] { "00001", "default", 1l }, new Object[] { "00002", "reload", 2l });
+        assertTrue(index.hasBatches("00001", Arrays.asList("default")));
+        assertTrue(index.hasBatches("00002", Arrays.asList("reload")));
+        assertEquals(1, index.getBatchCount("00001"));
+
+        index.update(batch("00003", "default", 3, Status.NE));
+        sweep(index);
+        assertFalse(index.hasBatches("00001", null));
+        assertTrue("A batch recorded since the last sweep might not have been committed yet",
+                index.hasBatches("00003", null));
+        sweep(index);
+        assertFalse(index.hasBatches("00003", null));
+    }
+
+    @Test
+    public void testBatchAddedDuringSweep() {
+        OutgoingBatchQueueIndex index = new OutgoingBatchQueueIndex();
+        sweep(index);
+        sweep(index);
+        long generation = index.startSweep();
+        index.update(batch("00001", "default", 5, Status.NE));
+        index.finishSweep(generation, new ArrayList<Object[]>());
+        assertTrue(index.hasBatches("00001", null));
+    }
+
+    @Test
+    public void testInvalidate() {
+        OutgoingBatchQueueIndex index = new OutgoingBatchQueueIndex();
+        sweep(index);
+        index.invalidate("00001");
+        assertTrue(index.hasBatches("00001", Arrays.asList("default")));
+        sweep(index);
+        assertTrue(index.hasBatches("00001", null));
+        sweep(index);
+        assertFalse(index.hasBatches("00001", null));
+    }
+
+    protected void sweep(OutgoingBatchQueueIndex index, Object[]... rows) {
+        long generation = index.startSweep();
+        List<Object[]> list = new ArrayList<Object[]>(Arrays.asList(rows));
+        index.finishSweep(generation, list);
+    }
+
+    protected OutgoingBatch batch(String nodeId, String channelId, long batchId, Status status) {
+        OutgoingBatch batch = new OutgoingBatch(nodeId, channelId, status);
+        batch.setBatchId(batchId);
+        return batch;
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReloadRowCounterTest {
+
+    ISqlTemplate sqlTemplate;
+    IParameterService parameterService;
+    ReloadRowCounter counter;
+
+    @Before
+    public void setUp() {
+        sqlTemplate = mock(ISqlTemplate.class);
+        when(sqlTemplate.queryForLong("select count(*) from a t where 1=1")).thenReturn(10L);
+        when(sqlTemplate.queryForLong("select count(*) from b t where 1=1")).thenReturn(20L);
+        when(sqlTemplate.queryForLong("select count(*) from c t where id > 5")).thenReturn(30L);
+
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getEngineName()).thenReturn("test");
+        when(parameterService.getInt(ParameterConstants.INITIAL_LOAD_ROW_COUNT_THREAD_COUNT, 4)).thenReturn(2);
+        when(parameterService.getLong(ParameterConstants.INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS, 0)).thenReturn(600000L);
+
+        counter = new ReloadRowCounter(parameterService, sqlTemplate);
+    }
+
+    @Test
+    public void testCountIsCached() {
+        assertEquals(10L, counter.count("select count(*) from a t where 1=1"));
+        assertEquals(10L, counter.count("select count(*) from a t where 1=1"));
+        verify(sqlTemplate, times(1)).queryForLong("select count(*) from a t where 1=1");
+    }
+
+    @Test
+    public void testCountInParallel() throws Exception {
+        Map<String, Long> counts = counter.count(Arrays.asList("select count(*) from a t where 1=1",
+                "select count(*) from b t where 1=1", "select count(*) from c t where id > 5",
+                "select count(*) from a t where 1=1"));
+        assertEquals(3, counts.size());
+        assertEquals(Long.valueOf(10), counts.get("select count(*) from a t where 1=1"));
+        assertEquals(Long.valueOf(20), counts.get("select count(*) from b t where 1=1"));
+        assertEquals(Long.valueOf(30), counts.get("select count(*) from c t where id > 5"));
+
+        assertEquals(30L, counter.count("select count(*) from c t where id > 5"));
+        verify(sqlTemplate, times(1)).queryForLong("select count(*) from a t where 1=1");
+        verify(sqlTemplate, times(1)).queryForLong("select count(*) from c t where id > 5");
+    }
+
+    @Test
+    public void testCountInParallelWithCacheDisabled() throws Exception {
+        when(parameterService.getLong(ParameterConstants.INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS, 0)).thenReturn(0L);
+        Map<String, Long> counts = counter.count(Arrays.asList("select count(*) from a t where 1=1",
+                "select count(*) from c t where id > 5"));
+        assertEquals(Long.valueOf(10), counts.get("select count(*) from a t where 1=1"));
+        assertEquals(Long.valueOf(30), counts.get("select count(*) from c t where id > 5"));
+
+        counter.count("select count(*) from a t where 1=1");
+        verify(sqlTemplate, times(2)).queryForLong("select count(*) from a t where 1=1");
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        when(parameterService.getLong(ParameterConstants.INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS, 0)).thenReturn(0L);
+        counter.count("select count(*) from b t where 1=1");
+        counter.count("select count(*) from b t where 1=1");
+        verify(sqlTemplate, times(2)).queryForLong("select count(*) from b t where 1=1");
+    }
+
+    @Test
+    public void testCountReusedWithinLoad() throws Exception {
+        when(parameterService.getLong(ParameterConstants.INITIAL_LOAD_ROW_COUNT_CACHE_TIME_MS, 0)).thenReturn(0L);
+        Map<String, Long> loadCounts = new HashMap<String, Long>();
+        counter.count(Arrays.asList("select count(*) from a t where 1=1", "select count(*) from b t where 1=1"),
+                loadCounts);
+        assertEquals(2, loadCounts.size());
+        assertEquals(10L, counter.count("select count(*) from a t where 1=1", loadCounts));
+        assertEquals(30L, counter.count("select count(*) from c t where id > 5", loadCounts));
+        assertEquals(30L, counter.count("select count(*) from c t where id > 5", loadCounts));
+        verify(sqlTemplate, times(1)).queryForLong("select count(*) from a t where 1=1");
+        verify(sqlTemplate, times(1)).queryForLong("select count(*) from c t where id > 5");
+
+        counter.count("select count(*) from a t where 1=1", new HashMap<String, Long>());
+        verify(sqlTemplate, times(2)).queryForLong("select count(*) from a t where 1=1");
+    }
+
+}
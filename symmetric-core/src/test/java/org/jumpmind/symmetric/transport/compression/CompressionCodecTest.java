@@ -0,0 +1,172 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CompressionCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] data = batchData(1000000);
+        for (ICompressionCodec codec : CompressionCodecFactory.getCodecs()) {
+            byte[] compressed = compress(codec, data, 0);
+            assertTrue(codec.getName() + " did not compress", compressed.length < data.length / 2);
+            assertArrayEquals(codec.getName(), data, decompress(codec, compressed));
+        }
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws Exception {
+        for (ICompressionCodec codec : CompressionCodecFactory.getCodecs()) {
+            assertArrayEquals(codec.getName(), new byte[0], decompress(codec, compress(codec, new byte[0], 0)));
+        }
+    }
+
+    @Test
+    public void testParallelGzipIsPlainGzip() throws Exception {
+        byte[] data = batchData(ParallelGzipCompressionCodec.BLOCK_SIZE * 5 + 17);
+        ICompressionCodec codec = CompressionCodecFactory.getCodec(ParallelGzipCompressionCodec.NAME);
+        int[] strategies = { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY };
+        for (int strategy : strategies) {
+            byte[] compressed = compress(codec, data, Deflater.BEST_SPEED, strategy, 1000);
+            assertArrayEquals("strategy " + strategy, data,
+                    IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void testFlushMakesDataReadable() throws Exception {
+        byte[] data = batchData(10000);
+        for (ICompressionCodec codec : CompressionCodecFactory.getCodecs()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            OutputStream os = codec.compress(out, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, 0);
+            os.write(data);
+            os.flush();
+            InputStream is = codec.decompress(new ByteArrayInputStream(out.toByteArray()), 0);
+            byte[] read = new byte[data.length];
+            IOUtils.readFully(is, read);
+            assertArrayEquals(codec.getName(), data, read);
+            os.close();
+        }
+    }
+
+    @Test
+    public void testNegotiate() {
+        ICompressionCodec gzip = CompressionCodecFactory.getCodec(GzipCompressionCodec.NAME);
+        ICompressionCodec pgzip = CompressionCodecFactory.getCodec(ParallelGzipCompressionCodec.NAME);
+        ICompressionCodec lz4 = CompressionCodecFactory.getCodec(Lz4CompressionCodec.NAME);
+
+        assertSame(gzip, CompressionCodecFactory.getCodec(null));
+        assertSame(gzip, CompressionCodecFactory.getCodec("unknown"));
+        assertSame(gzip, CompressionCodecFactory.getCodecForEncoding("GZIP"));
+        assertSame(lz4, CompressionCodecFactory.getCodecForEncoding("lz4"));
+        assertNull(CompressionCodecFactory.getCodecForEncoding("application/x-www-form-urlencoded"));
+
+        assertEquals("gzip", CompressionCodecFactory.getAcceptEncoding(pgzip));
+        assertEquals("lz4, gzip", CompressionCodecFactory.getAcceptEncoding(lz4));
+
+        assertSame(lz4, CompressionCodecFactory.negotiate(Arrays.asList("lz4, gzip"), gzip));
+        assertSame(pgzip, CompressionCodecFactory.negotiate(Arrays.asList("gzip"), pgzip));
+        assertSame(lz4, CompressionCodecFactory.negotiate(Arrays.asList("lz4, gzip"), pgzip));
+        assertSame(gzip, CompressionCodecFactory.negotiate(Arrays.asList("gzip", "lz4"), lz4));
+        assertSame(gzip, CompressionCodecFactory.negotiate(Arrays.asList("gzip;q=1.0, deflate"), lz4));
+        assertNull(CompressionCodecFactory.negotiate(Arrays.asList("deflate"), gzip));
+        assertNull(CompressionCodecFactory.negotiate(Collections.<String> emptyList(), gzip));
+    }
+
+    @Test
+    public void testRequestCodecWaitsForServerSupport() {
+        ICompressionCodec gzip = CompressionCodecFactory.getCodec(GzipCompressionCodec.NAME);
+        ICompressionCodec pgzip = CompressionCodecFactory.getCodec(ParallelGzipCompressionCodec.NAME);
+        ICompressionCodec lz4 = CompressionCodecFactory.getCodec(Lz4CompressionCodec.NAME);
+        String server = "requestcodec.example.com:31415";
+
+        assertSame(gzip, CompressionCodecFactory.getRequestCodec(server, lz4));
+        assertSame(pgzip, CompressionCodecFactory.getRequestCodec(server, pgzip));
+
+        CompressionCodecFactory.recordResponseEncoding(server, null);
+        assertSame(gzip, CompressionCodecFactory.getRequestCodec(server, lz4));
+
+        CompressionCodecFactory.recordResponseEncoding(server, "lz4");
+        assertSame(lz4, CompressionCodecFactory.getRequestCodec(server, lz4));
+        assertSame(gzip, CompressionCodecFactory.getRequestCodec("other.example.com:31415", lz4));
+
+        /* a server that was downgraded answers in gzip again */
+        CompressionCodecFactory.recordResponseEncoding(server, "gzip");
+        assertSame(gzip, CompressionCodecFactory.getRequestCodec(server, lz4));
+    }
+
+    protected byte[] compress(ICompressionCodec codec, byte[] data, int writeSize) throws Exception {
+        return compress(codec, data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, writeSize);
+    }
+
+    protected byte[] compress(ICompressionCodec codec, byte[] data, int level, int strategy, int writeSize)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream os = codec.compress(out, level, strategy, 0);
+        if (writeSize > 0) {
+            for (int offset = 0; offset < data.length; offset += writeSize) {
+                os.write(data, offset, Math.min(writeSize, data.length - offset));
+                if (offset % (writeSize * 50) == 0) {
+                    os.flush();
+                }
+            }
+        } else {
+            os.write(data);
+        }
+        os.close();
+        return out.toByteArray();
+    }
+
+    protected byte[] decompress(ICompressionCodec codec, byte[] compressed) throws Exception {
+        return IOUtils.toByteArray(codec.decompress(new ByteArrayInputStream(compressed), 0));
+    }
+
+    protected byte[] batchData(int size) {
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append("insert,\"").append(random.nextInt(100000)).append("\",\"name ")
+                    .append(random.nextInt(1000)).append("\",\"2019-01-0").append(random.nextInt(9) + 1)
+                    .append(" 10:00:00.000\"\n");
+        }
+        return builder.substring(0, size).getBytes();
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BshScriptCompilerTest {
+
+    static final String[] NAMES = { "NAME", "targetNodes" };
+
+    static final String[] TYPES = { "String", "Set<String>" };
+
+    @Test
+    public void testExpression() throws Exception {
+        BshScriptCompiler compiler = new BshScriptCompiler();
+        ICompiledScript script = compiler.getCompiledScript("NAME != null && NAME.startsWith(\"A\")", NAMES, TYPES, true);
+        assertNotNull(script);
+        assertEquals(Boolean.TRUE, script.eval(new Object[] { "Alpha", new HashSet<String>() }));
+        assertEquals(Boolean.FALSE, script.eval(new Object[] { "Beta", new HashSet<String>() }));
+        assertEquals(Boolean.FALSE, script.eval(new Object[] { null, new HashSet<String>() }));
+        assertSame(script, compiler.getCompiledScript("NAME != null && NAME.startsWith(\"A\")", NAMES, TYPES, true));
+    }
+
+    @Test
+    public void testStatements() throws Exception {
+        BshScriptCompiler compiler = new BshScriptCompiler();
+        ICompiledScript script = compiler.getCompiledScript("if (NAME.length() > 3) { targetNodes.add(\"00001\"); }",
+                NAMES, TYPES, true);
+        assertNotNull(script);
+        Set<String> targetNodes = new HashSet<String>();
+        assertNull(script.eval(new Object[] { "Alpha", targetNodes }));
+        assertTrue(targetNodes.contains("00001"));
+
+        script = compiler.getCompiledScript("if (NAME == null) { return \"none\"; } return NAME.toUpperCase();", NAMES,
+                TYPES, false);
+        assertNotNull(script);
+        assertEquals("ALPHA", script.eval(new Object[] { "Alpha", null }));
+        assertEquals("none", script.eval(new Object[] { null, null }));
+    }
+
+    @Test
+    public void testNotCompiled() throws Exception {
+        BshScriptCompiler compiler = new BshScriptCompiler();
+        assertNull(compiler.getCompiledScript("x = NAME; return x;", NAMES, TYPES, false));
+        assertNull(compiler.getCompiledScript("return UNKNOWN_COLUMN;", NAMES, TYPES, false));
+        assertNull(compiler.getCompiledScript("x = NAME; return x;", NAMES, TYPES, false));
+        assertEquals(2, compiler.scripts.size());
+    }
+
+    @Test
+    public void testIsVariableName() {
+        assertTrue(BshScriptCompiler.isVariableName("ORDER_ID"));
+        assertTrue(BshScriptCompiler.isVariableName("$col1"));
+        assertFalse(BshScriptCompiler.isVariableName("order id"));
+        assertFalse(BshScriptCompiler.isVariableName("1col"));
+        assertFalse(BshScriptCompiler.isVariableName("class"));
+        assertFalse(BshScriptCompiler.isVariableName(""));
+    }
+
+}
@@ -90,7 +90,7 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     protected Map<String, Table> tableCache = Collections.synchronizedMap(new HashMap<String, Table>());
 
-    private long lastTimeCachedModelClearedInMs = System.currentTimeMillis();
+    protected Map<String, Long> tableCacheReadTimeInMs = Collections.synchronizedMap(new HashMap<String, Long>());
 
     protected long clearCacheModelTimeoutInMs = DateUtils.MILLIS_PER_HOUR;
 
@@ -311,7 +311,39 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     public void resetCachedTableModel() {
         this.tableCache = Collections.synchronizedMap(new HashMap<String, Table>());
-        lastTimeCachedModelClearedInMs = System.currentTimeMillis();
+        this.tableCacheReadTimeInMs = Collections.synchronizedMap(new HashMap<String, Long>());
+    }
+
+    public void resetCachedTable(String catalogName, String schemaName, String tableName) {
+        String key = Table.getFullyQualifiedTableName(catalogName, schemaName, tableName);
+        String defaultedKey = Table.getFullyQualifiedTableName(catalogName == null ? getDefaultCatalog() : catalogName,
+                schemaName == null ? getDefaultSchema() : schemaName, tableName);
+        tableCache.remove(key);
+        tableCache.remove(defaultedKey);
+        tableCacheReadTimeInMs.remove(key);
+        tableCacheReadTimeInMs.remove(defaultedKey);
+    }
+
+    public Map<String, Table> getCachedTables() {
+        Map<String, Table> tables = new HashMap<String, Table>();
+        synchronized (tableCache) {
+            for (Map.Entry<String, Table> entry : tableCache.entrySet()) {
+                if (entry.getValue() != null) {
+                    tables.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return tables;
+    }
+
+    public void putCachedTables(Map<String, Table> tables) {
+        Long readTime = System.currentTimeMillis();
+        for (Map.Entry<String, Table> entry : tables.entrySet()) {
+            if (entry.getValue() != null && !tableCache.containsKey(entry.getKey())) {
+                tableCache.put(entry.getKey(), entry.getValue());
+                tableCacheReadTimeInMs.put(entry.getKey(), readTime);
+            }
+        }
     }
 
     public Table getTableFromCache(String tableName, boolean forceReread) {
@@ -319,16 +351,21 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
     }
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName, boolean forceReread) {
-        if (System.currentTimeMillis() - lastTimeCachedModelClearedInMs > clearCacheModelTimeoutInMs) {
-            resetCachedTableModel();
-        }
         Map<String, Table> model = tableCache;
         String key = Table.getFullyQualifiedTableName(catalogName, schemaName, tableName);
         Table retTable = model != null ? model.get(key) : null;
+        if (retTable != null && !forceReread) {
+            /* Tables expire one at a time so the whole model is never re-read at once */
+            Long readTime = tableCacheReadTimeInMs.get(key);
+            if (readTime == null || System.currentTimeMillis() - readTime > clearCacheModelTimeoutInMs) {
+                retTable = null;
+            }
+        }
         if (retTable == null || forceReread) {
             try {
                 Table table = readTableFromDatabase(catalogName, schemaName, tableName);
                 tableCache.put(key, table);
+                tableCacheReadTimeInMs.put(key, System.currentTimeMillis());
                 retTable = table;
             } catch (RuntimeException ex) {
                 throw ex;
@@ -93,6 +93,24 @@ public interface IDatabasePlatform {
     
     public void resetCachedTableModel();
 
+    /**
+     * Drops a single table from the cached table model so that it is re-read
+     * from the database the next time it is requested.
+     */
+    public void resetCachedTable(String catalogName, String schemaName, String tableName);
+
+    /**
+     * @return a copy of the tables currently held in the cached table model,
+     *         keyed by the fully qualified name used to look them up
+     */
+    public Map<String, Table> getCachedTables();
+
+    /**
+     * Seeds the cached table model, typically from a {@link TableCacheSnapshot}.
+     * Tables that are already cached are not replaced.
+     */
+    public void putCachedTables(Map<String, Table> tables);
+
     public Table getTableFromCache(String tableName, boolean forceReread);
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName,
@@ -0,0 +1,127 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.exception.IoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes a compressed, versioned copy of the table model that
+ * {@link IDatabasePlatform#getTableFromCache(String, String, String, boolean)}
+ * keeps in memory so that it can be restored after a restart without going
+ * back to the database metadata for every table.
+ * <p>
+ * A snapshot carries a validation key supplied by the caller. A snapshot is
+ * only returned by {@link #read(File, String)} when its format version and
+ * validation key both match, otherwise it is ignored.
+ */
+final public class TableCacheSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(TableCacheSnapshot.class);
+
+    public static final int FORMAT_VERSION = 1;
+
+    private TableCacheSnapshot() {
+    }
+
+    public static void write(File file, String validationKey, Map<String, Table> tables) {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        ObjectOutputStream os = null;
+        try {
+            file.getParentFile().mkdirs();
+            os = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                    new FileOutputStream(tmpFile))));
+            os.writeInt(FORMAT_VERSION);
+            os.writeUTF(validationKey);
+            os.writeInt(tables.size());
+            for (Map.Entry<String, Table> entry : tables.entrySet()) {
+                os.writeUTF(entry.getKey());
+                os.writeObject(entry.getValue());
+            }
+            os.close();
+            os = null;
+            FileUtils.deleteQuietly(file);
+            FileUtils.moveFile(tmpFile, file);
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(os);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    public static Map<String, Table> read(File file, String validationKey) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        ObjectInputStream is = null;
+        try {
+            is = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(
+                    new FileInputStream(file))));
+            int version = is.readInt();
+            if (version != FORMAT_VERSION) {
+                log.info("Ignoring table cache snapshot {} because its format version {} is not {}",
+                        new Object[] { file.getAbsolutePath(), version, FORMAT_VERSION });
+                return null;
+            }
+
+            String snapshotKey = is.readUTF();
+            if (!snapshotKey.equals(validationKey)) {
+                log.info("Ignoring table cache snapshot {} because it is out of date",
+                        file.getAbsolutePath());
+                return null;
+            }
+
+            int count = is.readInt();
+            Map<String, Table> tables = new HashMap<String, Table>(count);
+            for (int i = 0; i < count; i++) {
+                String key = is.readUTF();
+                tables.put(key, (Table) is.readObject());
+            }
+            return tables;
+        } catch (Exception e) {
+            log.warn("Ignoring table cache snapshot {} because it could not be read: {}",
+                    file.getAbsolutePath(), e.getMessage());
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+}
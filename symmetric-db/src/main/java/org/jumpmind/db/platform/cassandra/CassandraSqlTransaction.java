@@ -138,6 +138,10 @@ public class CassandraSqlTransaction implements ISqlTransaction {
 
 	}
 
+	@Override
+	public void setStatementCacheSize(int statementCacheSize) {
+	}
+
 	@Override
 	public long insertWithGeneratedKey(String sql, String column, String sequenceName, Object[] args, int[] types) {
 		// TODO Auto-generated method stub
@@ -287,6 +287,10 @@ abstract public class AbstractSqlTemplate implements ISqlTemplate {
         return args;
     }
 
+    public boolean isMissingTableOrColumn(Throwable ex) {
+        return false;
+    }
+
     public SqlException translate(Throwable ex) {
         return translate(ex.getMessage(), ex);
     }
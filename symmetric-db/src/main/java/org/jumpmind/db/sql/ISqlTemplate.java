@@ -116,6 +116,13 @@ public interface ISqlTemplate {
     
     public boolean isForeignKeyChildExistsViolation(Throwable ex);
 
+    /**
+     * @return true if the statement failed because a table or column it
+     *         refers to does not exist, which means any cached metadata for
+     *         the table is stale
+     */
+    public boolean isMissingTableOrColumn(Throwable ex);
+
     public ISqlTransaction startSqlTransaction();
     
     public ISqlTransaction startSqlTransaction(boolean autoCommit);
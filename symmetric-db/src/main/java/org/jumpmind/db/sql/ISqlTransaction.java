@@ -79,4 +79,11 @@ public interface ISqlTransaction {
     public long insertWithGeneratedKey(String sql, String column, String sequenceName,
             Object[] args, int[] types);
 
+    /**
+     * The number of prepared statements to keep open for reuse after another
+     * statement is prepared. Zero, the default, closes each statement as soon
+     * as the SQL changes.
+     */
+    public void setStatementCacheSize(int statementCacheSize);
+
 }
@@ -0,0 +1,80 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.junit.After;
+import org.junit.Test;
+
+public class TableCacheSnapshotTest {
+
+    File file = new File("target/tmp/table-cache-test.dat");
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        Table table = new Table("CATALOG", "SCHEMA", "TEST_TABLE");
+        table.addColumn(new Column("ID", true, Types.INTEGER, 0, 0));
+        table.addColumn(new Column("NAME", false, Types.VARCHAR, 50, 0));
+        Map<String, Table> tables = new HashMap<String, Table>();
+        tables.put(table.getFullyQualifiedTableName(), table);
+
+        TableCacheSnapshot.write(file, "key1", tables);
+
+        Map<String, Table> read = TableCacheSnapshot.read(file, "key1");
+        assertNotNull(read);
+        assertEquals(1, read.size());
+        Table readTable = read.get(table.getFullyQualifiedTableName());
+        assertEquals("TEST_TABLE", readTable.getName());
+        assertEquals(2, readTable.getColumnCount());
+        assertEquals(1, readTable.getPrimaryKeyColumnCount());
+        assertEquals(Types.VARCHAR, readTable.getColumnWithName("NAME").getMappedTypeCode());
+    }
+
+    @Test
+    public void testReadWithDifferentKey() {
+        Map<String, Table> tables = new HashMap<String, Table>();
+        tables.put("TEST_TABLE", new Table("TEST_TABLE"));
+        TableCacheSnapshot.write(file, "key1", tables);
+        assertNull(TableCacheSnapshot.read(file, "key2"));
+    }
+
+    @Test
+    public void testReadMissingFile() {
+        assertNull(TableCacheSnapshot.read(file, "key1"));
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data;
+
+/**
+ * The binary protocol carries the same batches as the CSV protocol. A stream
+ * starts with {@link #MAGIC} and {@link #VERSION}, and is followed by records
+ * that each start with a one byte keyword. Numbers are unsigned varints,
+ * strings are a varint length followed by UTF-8 bytes, and tables are defined
+ * once per stream and referred to afterwards by a varint id. Row values are
+ * tagged with their type so integers and binary data are not carried as text.
+ */
+final public class BinaryProtocolConstants {
+
+    private BinaryProtocolConstants() {
+    }
+
+    public static final byte[] MAGIC = { 'S', 'Y', 'M', 'B' };
+
+    public static final byte VERSION = 1;
+
+    public static final byte NODEID = 1;
+
+    public static final byte BINARY = 2;
+
+    public static final byte CHANNEL = 3;
+
+    public static final byte BATCH = 4;
+
+    public static final byte TABLE_DEFINITION = 5;
+
+    public static final byte TABLE = 6;
+
+    public static final byte INSERT = 7;
+
+    public static final byte UPDATE = 8;
+
+    public static final byte DELETE = 9;
+
+    public static final byte SQL = 10;
+
+    public static final byte BSH = 11;
+
+    public static final byte CREATE = 12;
+
+    public static final byte IGNORE = 13;
+
+    public static final byte COMMIT = 14;
+
+    public static final byte NO_BINARY_OLD_DATA = 15;
+
+    /**
+     * An update that only carries the indexes and values of the columns that
+     * changed
+     */
+    public static final byte CHANGED_UPDATE = 16;
+
+    public static final byte VALUE_NULL = 0;
+
+    public static final byte VALUE_STRING = 1;
+
+    /**
+     * A zig-zag varint that is written back as the decimal string it came from
+     */
+    public static final byte VALUE_LONG = 2;
+
+    /**
+     * Raw bytes that are written back in the binary encoding of the batch
+     */
+    public static final byte VALUE_BYTES = 3;
+
+    /**
+     * Stands for a null array of values, such as missing old data
+     */
+    public static final int NULL_ARRAY = 0;
+
+}
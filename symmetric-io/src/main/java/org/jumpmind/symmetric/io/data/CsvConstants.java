@@ -49,6 +49,8 @@ final public class CsvConstants {
 
     public static final String OLD = "old";
 
+    public static final String CHANGED = "changed";
+
     public static final String DELETE = "delete";
 
     public static final String COMMIT = "commit";
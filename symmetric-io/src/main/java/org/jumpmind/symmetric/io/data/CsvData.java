@@ -64,6 +64,13 @@ public class CsvData {
 
     protected boolean[] changedDataIndicators;
 
+    /**
+     * Set on an update that only carries the columns that changed. Columns that
+     * are not flagged were not sent and must be left alone when the update is
+     * applied.
+     */
+    protected boolean[] changedColumns;
+
     public CsvData(DataEventType dataEventType) {
         this.dataEventType = dataEventType;
     }
@@ -160,7 +167,9 @@ public class CsvData {
     }
 
     public boolean[] getChangedDataIndicators() {
-        if (changedDataIndicators == null) {
+        if (changedDataIndicators == null && changedColumns != null) {
+            changedDataIndicators = changedColumns.clone();
+        } else if (changedDataIndicators == null) {
             String[] newData = getParsedData(ROW_DATA);
             boolean[] changes = new boolean[newData.length];
             String[] oldData = getParsedData(OLD_DATA);
@@ -254,10 +263,63 @@ public class CsvData {
     public void setNoBinaryOldData(boolean noBinaryOldData) {
         this.noBinaryOldData = noBinaryOldData;
     }
+
+    public boolean isChangedColumnsOnly() {
+        return changedColumns != null;
+    }
+
+    public boolean[] getChangedColumns() {
+        return changedColumns;
+    }
+
+    public void setChangedColumns(boolean[] changedColumns) {
+        this.changedColumns = changedColumns;
+        changedDataIndicators = null;
+    }
+
+    /**
+     * Expands the values of the changed columns of an update to the width of
+     * the table. Primary key columns that did not change are filled in from
+     * the pk data so the row can still be looked up by its old values.
+     */
+    public void putChangedColumnData(Table table, int[] changedColumnIndexes, String[] changedRowData,
+            String[] pkData, String[] changedOldData) {
+        int columnCount = table.getColumnCount();
+        String[] rowData = new String[columnCount];
+        String[] oldData = changedOldData != null ? new String[columnCount] : null;
+        boolean[] changed = new boolean[columnCount];
+        for (int i = 0; i < changedColumnIndexes.length; i++) {
+            int index = changedColumnIndexes[i];
+            changed[index] = true;
+            rowData[index] = changedRowData[i];
+            if (oldData != null) {
+                oldData[index] = changedOldData[i];
+            }
+        }
+        if (pkData != null) {
+            Column[] columns = table.getColumns();
+            for (int i = 0, pkIndex = 0; i < columns.length && pkIndex < pkData.length; i++) {
+                if (columns[i].isPrimaryKey()) {
+                    if (!changed[i]) {
+                        rowData[i] = pkData[pkIndex];
+                        if (oldData != null) {
+                            oldData[i] = pkData[pkIndex];
+                        }
+                    }
+                    pkIndex++;
+                }
+            }
+        }
+        putParsedData(ROW_DATA, rowData);
+        putParsedData(PK_DATA, pkData);
+        putParsedData(OLD_DATA, oldData);
+        setChangedColumns(changed);
+    }
     
     public CsvData copyWithoutOldData() {
         CsvData data = new CsvData(getDataEventType(), getParsedData(CsvData.ROW_DATA));
         data.attributes = attributes;
+        data.changedColumns = changedColumns;
         return data;
     }
     
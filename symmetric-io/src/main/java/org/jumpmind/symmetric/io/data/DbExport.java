@@ -28,10 +28,16 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.sql.Types;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -54,12 +60,23 @@ import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.csv.CsvWriter;
 import org.jumpmind.symmetric.io.IoConstants;
 import org.jumpmind.symmetric.io.IoVersion;
+import org.jumpmind.util.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Export the structure and data from database tables to file.
  */
 public class DbExport {
 
+    /**
+     * The name of the file that the create statements of all tables are
+     * written to when tables are exported in parallel.
+     */
+    public static final String CREATE_TABLES_FILE_NAME = "create-tables";
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
     public enum Format {
         SQL, CSV, XML, SYM_XML
     };
@@ -104,6 +121,19 @@ public class DbExport {
 
     private boolean useJdbcTimestampFormat = true;
 
+    /**
+     * The number of tables, or partitions of tables, that are written to
+     * files at the same time. Only used when exporting to a directory.
+     */
+    private int threadCount = 1;
+
+    /**
+     * The number of key ranges that a table with a single integer primary key
+     * is split into when exporting to a directory. Each range is written to
+     * its own file.
+     */
+    private int partitions = 1;
+
     private IDatabasePlatform platform;
 
     public DbExport(IDatabasePlatform platform) {
@@ -178,13 +208,22 @@ public class DbExport {
             tables[i] = tables[i].copy();
         }
 
+        tables = Database.sortByForeignKeys(tables);
+
+        if (threadCount > 1 || partitions > 1) {
+            if (StringUtils.isNotBlank(dir)) {
+                exportTablesInParallel(tables, sql);
+                return;
+            } else {
+                log.warn("Exporting tables serially because a directory is required to export in parallel");
+            }
+        }
+
         WriterWrapper writerWrapper = null;
 
         try {
             writerWrapper = new WriterWrapper(output);
 
-            tables = Database.sortByForeignKeys(tables);
-
             for (Table table : tables) {
                 writeTable(writerWrapper, table, sql);
             }
@@ -195,6 +234,164 @@ public class DbExport {
         }
     }
 
+    /**
+     * Write each table, or each key range of a table, to its own file. The
+     * create statements for all of the tables are written once, in foreign key
+     * order, to a file of their own before any data is written.
+     * {@link DbImport} loads that file first and then the data files in
+     * foreign key order.
+     */
+    protected void exportTablesInParallel(Table[] tables, final String sql) {
+        if ((!noCreateInfo || addDropTable) && (format == Format.SQL || format == Format.XML)) {
+            writeCreateTables(tables);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threadCount, 1),
+                new CustomizableThreadFactory("dbexport"));
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        final AtomicLong totalRows = new AtomicLong();
+        long startTime = System.currentTimeMillis();
+        for (final Table table : tables) {
+            List<KeyRange> keyRanges = getKeyRanges(table, sql);
+            if (keyRanges == null) {
+                keyRanges = new ArrayList<KeyRange>(1);
+                keyRanges.add(null);
+            }
+            for (final KeyRange keyRange : keyRanges) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        long startTime = System.currentTimeMillis();
+                        WriterWrapper writerWrapper = new WriterWrapper((OutputStream) null);
+                        writerWrapper.createInfo = false;
+                        try {
+                            long rows = writeTable(writerWrapper, table.copy(), sql, keyRange);
+                            totalRows.addAndGet(rows);
+                            long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+                            log.info("Exported {} rows from {}{} in {} ms ({} rows/sec)", new Object[] { rows,
+                                    table.getName(), keyRange != null ? " partition " + (keyRange.index + 1) : "",
+                                    elapsed, rows * 1000 / elapsed });
+                        } finally {
+                            writerWrapper.close();
+                        }
+                    }
+                }));
+            }
+        }
+
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+
+        long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+        log.info("Exported {} rows from {} tables in {} ms ({} rows/sec)", new Object[] { totalRows.get(),
+                tables.length, elapsed, totalRows.get() * 1000 / elapsed });
+    }
+
+    protected void writeCreateTables(Table[] tables) {
+        File directory = new File(dir);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = new File(directory, String.format("%s.%s", CREATE_TABLES_FILE_NAME, getFileExtension()));
+        FileUtils.deleteQuietly(file);
+        WriterWrapper writerWrapper = null;
+        try {
+            writerWrapper = new WriterWrapper(file);
+            writerWrapper.tableData = false;
+            for (Table table : tables) {
+                writerWrapper.startTable(table.copy());
+            }
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            if (writerWrapper != null) {
+                writerWrapper.close();
+            }
+        }
+    }
+
+    protected String getFileExtension() {
+        return format.toString().replace('_', '.').toLowerCase();
+    }
+
+    /**
+     * Split a table into key ranges of its primary key. Returns null if the
+     * table should be exported as a whole, which is the case unless it has a
+     * single integer primary key and the export is not restricted by a SQL
+     * statement, where clause or maximum row count.
+     */
+    protected List<KeyRange> getKeyRanges(Table table, String sql) {
+        if (partitions <= 1 || sql != null || StringUtils.isNotBlank(whereClause) || maxRows != Integer.MAX_VALUE
+                || noData) {
+            return null;
+        }
+
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+        if (pkColumns.length != 1 || !isIntegerType(pkColumns[0])) {
+            return null;
+        }
+
+        String quote = platform.getDdlBuilder().isDelimitedIdentifierModeOn()
+                ? platform.getDatabaseInfo().getDelimiterToken() : "";
+        String columnName = quote + pkColumns[0].getName() + quote;
+        Row row = platform.getSqlTemplate().queryForRow(String.format(
+                "select min(%s) as min_value, max(%s) as max_value from %s", columnName, columnName,
+                table.getQualifiedTableName(quote, platform.getDatabaseInfo().getCatalogSeparator(),
+                        platform.getDatabaseInfo().getSchemaSeparator())));
+        if (row == null || row.get("min_value") == null) {
+            return null;
+        }
+
+        long min = row.getLong("min_value");
+        long max = row.getLong("max_value");
+        long span = max - min + 1;
+        if (span < partitions) {
+            return null;
+        }
+
+        long step = span / partitions + (span % partitions == 0 ? 0 : 1);
+        List<KeyRange> keyRanges = new ArrayList<KeyRange>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            long start = min + i * step;
+            if (i < partitions - 1) {
+                keyRanges.add(new KeyRange(i, String.format("%s >= %d and %s < %d", columnName, start,
+                        columnName, start + step)));
+            } else {
+                keyRanges.add(new KeyRange(i, String.format("%s >= %d", columnName, start)));
+            }
+        }
+        return keyRanges;
+    }
+
+    protected boolean isIntegerType(Column column) {
+        switch (column.getMappedTypeCode()) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return column.getScale() == 0;
+            default:
+                return false;
+        }
+    }
+
     protected String getSchemaToUse() {
         if (StringUtils.isBlank(schema)) {
             return platform.getDefaultSchema();
@@ -213,8 +410,13 @@ public class DbExport {
 
     protected void writeTable(final WriterWrapper writerWrapper, Table table, String sql)
             throws IOException {
+        writeTable(writerWrapper, table, sql, null);
+    }
 
-        writerWrapper.startTable(table);
+    protected long writeTable(final WriterWrapper writerWrapper, Table table, String sql, KeyRange keyRange) {
+        final AtomicLong exportedRows = new AtomicLong();
+
+        writerWrapper.startTable(table, keyRange);
 
         if (!noData) {
             if (sql == null) {
@@ -229,6 +431,8 @@ public class DbExport {
 
             if (StringUtils.isNotBlank(whereClause)) {
                 sql = String.format("%s %s", sql, whereClause);
+            } else if (keyRange != null) {
+                sql = String.format("%s where %s", sql, keyRange.condition);
             }
 
             platform.getSqlTemplate().query(sql, new ISqlRowMapper<Object>() {
@@ -236,6 +440,7 @@ public class DbExport {
                 public Object mapRow(Row row) {
                     if (rows > 0) {
                        writerWrapper.writeRow(row);
+                       exportedRows.incrementAndGet();
                        rows--;
                     }
                     return Boolean.TRUE;
@@ -245,6 +450,7 @@ public class DbExport {
 
         writerWrapper.finishTable(table);
 
+        return exportedRows.get();
     }
 
     protected Column[] getColumnsToExport(Table table) {
@@ -445,6 +651,22 @@ public class DbExport {
         return maxRows;
     }
 
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
     protected String getDatabaseName() {
         Compatible mappedCompatible = compatible;
         
@@ -454,6 +676,16 @@ public class DbExport {
         return mappedCompatible.toString().toLowerCase();
     }
 
+    static class KeyRange {
+        final int index;
+        final String condition;
+
+        KeyRange(int index, String condition) {
+            this.index = index;
+            this.condition = condition;
+        }
+    }
+
     class WriterWrapper {
         final private SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
@@ -462,9 +694,16 @@ public class DbExport {
         private Table table;
         private DmlStatement insertSql;
         private boolean startedWriting = false;
+        /* Whether a file is written for each table, or everything is written to the stream */
+        private boolean filePerTable;
+        /* Whether the create statements are written with each table */
+        boolean createInfo = true;
+        /* Whether each table is followed by its data */
+        boolean tableData = true;
 
         public WriterWrapper(OutputStream os) {
-            if (StringUtils.isBlank(dir) && os != null) {
+            filePerTable = StringUtils.isNotBlank(dir);
+            if (!filePerTable && os != null) {
                 try {
                     writer = new OutputStreamWriter(os, IoConstants.ENCODING);
                 } catch (UnsupportedEncodingException e) {
@@ -473,18 +712,31 @@ public class DbExport {
             }
         }
 
+        /**
+         * Write all of the tables to one file, even when exporting to a
+         * directory.
+         */
+        public WriterWrapper(File file) throws IOException {
+            writer = new FileWriter(file);
+        }
+
         protected void startTable(Table table) {
+            startTable(table, null);
+        }
+
+        protected void startTable(Table table, KeyRange keyRange) {
             try {
                 this.table = table;
-                if (StringUtils.isNotBlank(dir)) {
+                if (filePerTable) {
                     startedWriting = false;
                     File directory = new File(dir);
                     if (!directory.exists()) {
                         directory.mkdirs();
                     }
 
-                    File file = new File(dir, String.format("%s.%s", table.getName(), format
-                            .toString().replace('_', '.').toLowerCase()));
+                    String extension = getFileExtension();
+                    File file = new File(dir, keyRange == null ? String.format("%s.%s", table.getName(), extension)
+                            : String.format("%s.%d.%s", table.getName(), keyRange.index + 1, extension));
                     FileUtils.deleteQuietly(file);
                     try {
                         writer = new FileWriter(file);
@@ -538,7 +790,7 @@ public class DbExport {
                     }
                 }
 
-                if (!noCreateInfo) {
+                if (!noCreateInfo && createInfo) {
                     if (format == Format.SQL) {
                         IDdlBuilder target = DdlBuilderFactory.createDdlBuilder(databaseName);
                         target.setDelimitedIdentifierModeOn(useQuotedIdentifiers);
@@ -553,7 +805,7 @@ public class DbExport {
                         DatabaseXmlUtil.write(table, writer);
                     }
                 }
-                else if (addDropTable) {
+                else if (addDropTable && createInfo) {
                     if (format == Format.SQL) {
                         IDdlBuilder target = DdlBuilderFactory.createDdlBuilder(databaseName);
                         write(target.dropTables(getDatabase(table)));
@@ -567,7 +819,9 @@ public class DbExport {
                 writeComment("Table: " + table.getName());
                 writeComment("Started on " + df.format(new Date()));
 
-                if (format == Format.CSV) {
+                if (!tableData) {
+                    return;
+                } else if (format == Format.CSV) {
                     csvWriter.writeRecord(table.getColumnNames());
                 } else if (!noData && format == Format.XML) {
                     write("<table_data name=\"", table.getName(), "\">\n");
@@ -666,12 +920,15 @@ public class DbExport {
                 write("</table_data>\n");
             }
 
-            if (StringUtils.isNotBlank(dir)) {
+            if (filePerTable) {
                 close();
             }
         }
 
         public void close() {
+            if (writer == null) {
+                return;
+            }
 
             writeComment("Completed on " + df.format(new Date()));
 
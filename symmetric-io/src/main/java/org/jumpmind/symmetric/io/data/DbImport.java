@@ -41,13 +41,29 @@ O * Licensed to JumpMind Inc under one or more contributor
 
 package org.jumpmind.symmetric.io.data;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.ForeignKey;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.util.BinaryEncoding;
@@ -62,13 +78,22 @@ import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterErrorIgnorer;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
 import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
+import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFactory;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFilter;
+import org.jumpmind.symmetric.io.data.writer.NestedDataWriter;
+import org.jumpmind.util.CustomizableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Import data from file to database tables.
  */
 public class DbImport {
 
+    protected static final long PROGRESS_LOG_MILLIS = 10000;
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
     public enum Format {
         SQL, CSV, XML, SYM_XML
     };
@@ -108,7 +133,21 @@ public class DbImport {
     
     private boolean ignoreMissingTables = true;
 
+    /**
+     * The number of files that are loaded at the same time by
+     * {@link #importTables(File[], String)}.
+     */
+    private int threadCount = 1;
+
     protected IDatabasePlatform symmetricPlatform;
+
+    protected IDatabaseWriterFactory databaseWriterFactory;
+
+    protected AtomicLong rowsImported = new AtomicLong();
+
+    protected long importStartTime = System.currentTimeMillis();
+
+    protected volatile long lastProgressLogTime = importStartTime;
     
     protected List<IDatabaseWriterFilter> databaseWriterFilters;
 
@@ -163,6 +202,173 @@ public class DbImport {
         }
     }
 
+    /**
+     * Import each file on its own writer. When the thread count is greater
+     * than one, the files are loaded concurrently. When importing CSV without
+     * a table name, the table name is taken from the file name up to the
+     * first period, which matches the files written by {@link DbExport} to a
+     * directory.
+     * <p>
+     * When loading concurrently, the create statements written by
+     * {@link DbExport} to {@link DbExport#CREATE_TABLES_FILE_NAME} are loaded
+     * first. The data files are then loaded in foreign key order: the files
+     * of a table start after the files of the tables it references have been
+     * loaded.
+     */
+    public void importTables(File[] files, final String tableName) {
+        for (File file : files) {
+            if (!file.exists()) {
+                throw new IoException("Cannot find file " + file.getAbsolutePath());
+            }
+        }
+
+        rowsImported.set(0);
+        importStartTime = System.currentTimeMillis();
+        lastProgressLogTime = importStartTime;
+
+        if (threadCount <= 1 || files.length <= 1) {
+            for (File file : files) {
+                importTables(file, tableName);
+            }
+        } else {
+            log.info("Importing {} files using {} threads", files.length, threadCount);
+            List<File> dataFiles = new ArrayList<File>(files.length);
+            for (File file : files) {
+                if (file.getName().startsWith(DbExport.CREATE_TABLES_FILE_NAME + ".")) {
+                    importTables(file, tableName);
+                } else {
+                    dataFiles.add(file);
+                }
+            }
+            for (List<File> levelFiles : getFilesByForeignKeyLevel(dataFiles)) {
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, levelFiles.size()),
+                        new CustomizableThreadFactory("dbimport"));
+                List<Future<?>> futures = new ArrayList<Future<?>>(levelFiles.size());
+                for (final File file : levelFiles) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            importTables(file, tableName);
+                        }
+                    }));
+                }
+                awaitTermination(executor, futures);
+            }
+        }
+
+        long elapsed = Math.max(System.currentTimeMillis() - importStartTime, 1);
+        log.info("Imported {} rows from {} files in {} ms ({} rows/sec)", new Object[] { rowsImported.get(),
+                files.length, elapsed, rowsImported.get() * 1000 / elapsed });
+    }
+
+    /**
+     * Group the files by how deep their table is in the foreign key graph of
+     * the tables being imported, using the table name at the start of the file
+     * name. A table is one level deeper than the deepest table it references.
+     * Files for tables that are not found in the database are on the first
+     * level.
+     */
+    protected Collection<List<File>> getFilesByForeignKeyLevel(List<File> files) {
+        Map<String, Table> tables = new HashMap<String, Table>();
+        for (File file : files) {
+            String name = StringUtils.substringBefore(file.getName(), ".");
+            if (!tables.containsKey(name.toUpperCase())) {
+                tables.put(name.toUpperCase(), symmetricPlatform.readTableFromDatabase(catalog, schema, name));
+            }
+        }
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        Map<Integer, List<File>> filesByLevel = new TreeMap<Integer, List<File>>();
+        for (File file : files) {
+            int level = getForeignKeyLevel(StringUtils.substringBefore(file.getName(), ".").toUpperCase(), tables,
+                    levels, new HashSet<String>());
+            List<File> levelFiles = filesByLevel.get(level);
+            if (levelFiles == null) {
+                levelFiles = new ArrayList<File>();
+                filesByLevel.put(level, levelFiles);
+            }
+            levelFiles.add(file);
+        }
+        return filesByLevel.values();
+    }
+
+    protected int getForeignKeyLevel(String name, Map<String, Table> tables, Map<String, Integer> levels,
+            Set<String> visiting) {
+        Integer level = levels.get(name);
+        if (level == null) {
+            level = 0;
+            Table table = tables.get(name);
+            if (table != null && visiting.add(name)) {
+                for (ForeignKey fk : table.getForeignKeys()) {
+                    String parentName = fk.getForeignTableName().toUpperCase();
+                    if (!parentName.equals(name) && tables.get(parentName) != null && !visiting.contains(parentName)) {
+                        level = Math.max(level, getForeignKeyLevel(parentName, tables, levels, visiting) + 1);
+                    }
+                }
+                visiting.remove(name);
+            }
+            levels.put(name, level);
+        }
+        return level;
+    }
+
+    protected void importTables(File file, String tableName) {
+        if (format == Format.CSV && StringUtils.isBlank(tableName)) {
+            tableName = StringUtils.substringBefore(file.getName(), ".");
+        }
+        InputStream in = null;
+        try {
+            long startTime = System.currentTimeMillis();
+            in = new BufferedInputStream(new FileInputStream(file));
+            importTables(in, tableName);
+            log.info("Finished importing {} in {} ms", file.getName(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            throw new IoException("Failed to read '" + file.getAbsolutePath() + "'", e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    protected void awaitTermination(ExecutorService executor, List<Future<?>> futures) {
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    protected IDataWriter buildDatabaseWriter() {
+        DatabaseWriterSettings settings = buildDatabaseWriterSettings();
+        IDataWriter writer = null;
+        if (databaseWriterFactory != null) {
+            writer = databaseWriterFactory.createDatabaseWriter(settings);
+        }
+        if (writer == null) {
+            writer = new DefaultDatabaseWriter(symmetricPlatform, settings);
+        }
+        return new ProgressDataWriter(writer);
+    }
+
+    protected void logProgress() {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressLogTime >= PROGRESS_LOG_MILLIS) {
+            lastProgressLogTime = now;
+            long elapsed = Math.max(now - importStartTime, 1);
+            long rows = rowsImported.get();
+            log.info("Imported {} rows so far ({} rows/sec)", rows, rows * 1000 / elapsed);
+        }
+    }
+
     protected Conflict buildConflictSettings() {
         Conflict conflict = new Conflict();
         conflict.setDetectType(DetectConflict.USE_PK_DATA);
@@ -195,35 +401,35 @@ public class DbImport {
     }
 
     protected void importTablesFromCsv(InputStream in, String tableName) {
-    		DefaultDatabaseWriter writer = new DefaultDatabaseWriter(symmetricPlatform, buildDatabaseWriterSettings());
-        Table table = writer.getPlatform(tableName).readTableFromDatabase(catalog, schema, tableName);
+        Table table = symmetricPlatform.readTableFromDatabase(catalog, schema, tableName);
         if (table == null) {
             throw new RuntimeException("Unable to find table '" + tableName + "' in the database.");
         }
 
         CsvTableDataReader reader = new CsvTableDataReader(BinaryEncoding.HEX, table.getCatalog(),
                 table.getSchema(), table.getName(), in);
+        IDataWriter writer = buildDatabaseWriter();
         DataProcessor dataProcessor = new DataProcessor(reader, writer, "import");
         dataProcessor.process();
     }
 
     protected void importTablesFromXml(InputStream in) {        
         XmlDataReader reader = new XmlDataReader(in);
-        DefaultDatabaseWriter writer = new DefaultDatabaseWriter(symmetricPlatform, buildDatabaseWriterSettings());
+        IDataWriter writer = buildDatabaseWriter();
         DataProcessor dataProcessor = new DataProcessor(reader, writer, "import");
         dataProcessor.process();
     }
     
     protected void importTablesFromSymXml(InputStream in) {
         SymXmlDataReader reader = new SymXmlDataReader(in);
-        DefaultDatabaseWriter writer = new DefaultDatabaseWriter(symmetricPlatform, buildDatabaseWriterSettings());
+        IDataWriter writer = buildDatabaseWriter();
         DataProcessor dataProcessor = new DataProcessor(reader, writer, "import");
         dataProcessor.process();
     }
 
     protected void importTablesFromSql(InputStream in) {
         SqlDataReader reader = new SqlDataReader(in);
-        DefaultDatabaseWriter writer = new DefaultDatabaseWriter(symmetricPlatform, buildDatabaseWriterSettings());
+        IDataWriter writer = buildDatabaseWriter();
         DataProcessor dataProcessor = new DataProcessor(reader, writer, "import");
         dataProcessor.process();
     }
@@ -332,6 +538,26 @@ public class DbImport {
         databaseWriterFilters.remove(filter);
     }
 
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setDatabaseWriterFactory(IDatabaseWriterFactory databaseWriterFactory) {
+        this.databaseWriterFactory = databaseWriterFactory;
+    }
+
+    public IDatabaseWriterFactory getDatabaseWriterFactory() {
+        return databaseWriterFactory;
+    }
+
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
     public int getInterval() {
         return interval;
     }
@@ -340,4 +566,20 @@ public class DbImport {
         this.interval = interval;
     }
 
-}
\ No newline at end of file
+    class ProgressDataWriter extends NestedDataWriter {
+
+        public ProgressDataWriter(IDataWriter nestedWriter) {
+            super(nestedWriter);
+        }
+
+        @Override
+        public void write(CsvData data) {
+            super.write(data);
+            if (rowsImported.incrementAndGet() % 1000 == 0) {
+                logProgress();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,444 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.reader;
+
+import static org.jumpmind.symmetric.io.data.BinaryProtocolConstants.*;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.IDataReader;
+import org.jumpmind.symmetric.io.data.ProtocolException;
+import org.jumpmind.util.Statistics;
+
+/**
+ * Reads batches written by
+ * {@link org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter}. It
+ * returns the same batches, tables and data as {@link ProtocolDataReader}
+ * does for the CSV protocol.
+ */
+public class BinaryProtocolDataReader extends AbstractDataReader implements IDataReader {
+
+    protected static final Charset CHARSET = Charset.forName(IoConstants.ENCODING);
+
+    protected InputStream in;
+    protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
+    protected Map<Long, Table> tables = new HashMap<Long, Table>();
+    protected DataContext context;
+    protected Object next;
+    protected Batch batch;
+    protected String channelId;
+    protected String sourceNodeId;
+    protected String targetNodeId;
+    protected BinaryEncoding binaryEncoding;
+    protected boolean noBinaryOldData = false;
+    protected BatchType batchType;
+    protected long bytesRead;
+    protected int pendingKeyword = -1;
+
+    public BinaryProtocolDataReader(BatchType batchType, String targetNodeId, InputStream in) {
+        this.batchType = batchType;
+        this.targetNodeId = targetNodeId;
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+    }
+
+    /**
+     * @return true if the stream starts with the binary protocol header. The
+     *         stream must support mark so it can be read from the start
+     *         afterwards.
+     */
+    public static boolean isBinaryProtocol(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.mark(magic.length);
+        try {
+            int offset = 0;
+            int count = 0;
+            while (offset < magic.length && (count = in.read(magic, offset, magic.length - offset)) >= 0) {
+                offset += count;
+            }
+            return Arrays.equals(MAGIC, magic);
+        } finally {
+            in.reset();
+        }
+    }
+
+    public void open(DataContext context) {
+        this.context = context;
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new ProtocolException("The stream does not start with the binary protocol header");
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw new ProtocolException("Unsupported binary protocol version %d", version);
+            }
+            this.next = readNext();
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    public Object readNext() {
+        try {
+            Table table = null;
+            int keyword = 0;
+            while ((keyword = readKeyword()) != -1) {
+                Statistics stats = batch != null ? statistics.get(batch) : null;
+
+                if (table != null && keyword != TABLE && keyword != TABLE_DEFINITION) {
+                    pendingKeyword = keyword;
+                    return table;
+                }
+
+                switch (keyword) {
+                    case NODEID:
+                        sourceNodeId = readString();
+                        break;
+
+                    case BINARY:
+                        binaryEncoding = BinaryEncoding.valueOf(readString());
+                        break;
+
+                    case CHANNEL:
+                        channelId = readString();
+                        break;
+
+                    case BATCH:
+                        Batch newBatch = new Batch(batchType, readVarLong(), channelId, binaryEncoding,
+                                sourceNodeId, targetNodeId, false);
+                        statistics.put(newBatch, new DataReaderStatistics());
+                        return newBatch;
+
+                    case NO_BINARY_OLD_DATA:
+                        noBinaryOldData = readByte() != 0;
+                        break;
+
+                    case TABLE_DEFINITION:
+                        long tableId = readVarLong();
+                        table = new Table(readString(), readString(), readString());
+                        String[] keys = readColumnNames();
+                        for (String name : readColumnNames()) {
+                            boolean primaryKey = false;
+                            for (String key : keys) {
+                                primaryKey |= key.equals(name);
+                            }
+                            table.addColumn(new Column(name, primaryKey));
+                        }
+                        tables.put(tableId, table);
+                        context.getParsedTables().put(table.getFullyQualifiedTableName(), table);
+                        context.setLastParsedTable(table);
+                        break;
+
+                    case TABLE:
+                        table = tables.get(readVarLong());
+                        if (table == null) {
+                            throw new ProtocolException("A table was referenced before it was defined");
+                        }
+                        context.setLastParsedTable(table);
+                        break;
+
+                    case INSERT:
+                        return newData(DataEventType.INSERT, stats, readValues(), null, null);
+
+                    case UPDATE:
+                        return newData(DataEventType.UPDATE, stats, readValues(), readValues(), readValues());
+
+                    case CHANGED_UPDATE:
+                        return readChangedUpdate(stats);
+
+                    case DELETE:
+                        return newData(DataEventType.DELETE, stats, null, readValues(), readValues());
+
+                    case SQL:
+                        return newData(DataEventType.SQL, null, new String[] { readString() }, null, null);
+
+                    case BSH:
+                        return newData(DataEventType.BSH, null, new String[] { readString() }, null, null);
+
+                    case CREATE:
+                        return newData(DataEventType.CREATE, null, new String[] { readString() }, null, null);
+
+                    case IGNORE:
+                        if (this.batch != null) {
+                            this.batch.setIgnored(true);
+                        }
+                        break;
+
+                    case COMMIT:
+                        readVarLong();
+                        if (this.batch != null) {
+                            this.batch.setComplete(true);
+                        }
+                        countBytes(stats);
+                        return null;
+
+                    default:
+                        throw new ProtocolException("Unknown binary protocol keyword %d", keyword);
+                }
+                countBytes(stats);
+            }
+            return table;
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    protected CsvData readChangedUpdate(Statistics stats) throws IOException {
+        Table table = context.getLastParsedTable();
+        if (table == null) {
+            throw new ProtocolException("An update was sent before its table");
+        }
+        int columnCount = table.getColumnCount();
+        int[] indexes = new int[(int) readVarLong()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = (int) readVarLong();
+            if (indexes[i] >= columnCount) {
+                throw new ProtocolException("Changed column %d is not in table %s", indexes[i],
+                        table.getFullyQualifiedTableName());
+            }
+        }
+        String[] changedRowData = readValues();
+        String[] pkData = readValues();
+        String[] changedOldData = readValues();
+        if (changedRowData == null || changedRowData.length != indexes.length
+                || (changedOldData != null && changedOldData.length != indexes.length)) {
+            throw new ProtocolException("The changed values do not match the %d changed columns", indexes.length);
+        }
+        CsvData data = newData(DataEventType.UPDATE, stats, null, null, null);
+        data.putChangedColumnData(table, indexes, changedRowData, pkData, changedOldData);
+        return data;
+    }
+
+    protected CsvData newData(DataEventType eventType, Statistics stats, String[] rowData,
+            String[] pkData, String[] oldData) {
+        CsvData data = new CsvData();
+        data.setNoBinaryOldData(noBinaryOldData);
+        data.setDataEventType(eventType);
+        if (rowData != null) {
+            data.putParsedData(CsvData.ROW_DATA, rowData);
+        }
+        if (pkData != null) {
+            data.putParsedData(CsvData.PK_DATA, pkData);
+        }
+        if (oldData != null) {
+            data.putParsedData(CsvData.OLD_DATA, oldData);
+        }
+        if (stats != null) {
+            stats.increment(DataReaderStatistics.READ_RECORD_COUNT, 1);
+        }
+        countBytes(stats);
+        return data;
+    }
+
+    protected void countBytes(Statistics stats) {
+        if (stats != null) {
+            stats.increment(DataReaderStatistics.READ_BYTE_COUNT, bytesRead);
+            bytesRead = 0;
+        }
+    }
+
+    public Batch nextBatch() {
+        if (next instanceof Batch) {
+            this.batch = (Batch) next;
+            next = null;
+            return batch;
+        } else {
+            do {
+                next = readNext();
+                if (next instanceof Batch) {
+                    this.batch = (Batch) next;
+                    next = null;
+                    return batch;
+                }
+            } while (next != null);
+        }
+        return null;
+    }
+
+    public Table nextTable() {
+        if (next instanceof Table) {
+            Table table = (Table) next;
+            context.setLastParsedTable(table);
+            next = null;
+            return table;
+        } else {
+            do {
+                next = readNext();
+                if (next instanceof Table) {
+                    Table table = (Table) next;
+                    context.setLastParsedTable(table);
+                    next = null;
+                    return table;
+                }
+            } while (next != null && !(next instanceof Batch));
+        }
+        return null;
+    }
+
+    public CsvData nextData() {
+        if (next instanceof CsvData) {
+            CsvData data = (CsvData) next;
+            next = null;
+            return data;
+        } else {
+            do {
+                next = readNext();
+                if (next instanceof CsvData) {
+                    CsvData data = (CsvData) next;
+                    next = null;
+                    return data;
+                }
+            } while (next != null && !(next instanceof Batch) && !(next instanceof Table));
+        }
+        return null;
+    }
+
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+        }
+    }
+
+    public Map<Batch, Statistics> getStatistics() {
+        return statistics;
+    }
+
+    protected int readKeyword() throws IOException {
+        int keyword = pendingKeyword;
+        if (keyword >= 0) {
+            pendingKeyword = -1;
+        } else {
+            keyword = in.read();
+            if (keyword >= 0) {
+                bytesRead++;
+            }
+        }
+        return keyword;
+    }
+
+    protected String[] readColumnNames() throws IOException {
+        String[] names = new String[(int) readVarLong()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString();
+        }
+        return names;
+    }
+
+    protected String[] readValues() throws IOException {
+        long count = readVarLong();
+        if (count == NULL_ARRAY) {
+            return null;
+        }
+        String[] values = new String[(int) count - 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue();
+        }
+        return values;
+    }
+
+    protected String readValue() throws IOException {
+        int type = readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString();
+            case VALUE_LONG:
+                long zigzag = readVarLong();
+                return Long.toString((zigzag >>> 1) ^ -(zigzag & 1));
+            case VALUE_BYTES:
+                byte[] bytes = new byte[(int) readVarLong()];
+                readFully(bytes);
+                if (binaryEncoding == BinaryEncoding.HEX) {
+                    return new String(Hex.encodeHex(bytes));
+                } else {
+                    return new String(Base64.encodeBase64(bytes), CHARSET);
+                }
+            default:
+                throw new ProtocolException("Unknown binary protocol value type %d", type);
+        }
+    }
+
+    protected String readString() throws IOException {
+        long length = readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) length - 1];
+        readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    protected long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b = 0;
+        do {
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    protected int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        bytesRead++;
+        return b;
+    }
+
+    protected void readFully(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int count = in.read(bytes, offset, bytes.length - offset);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            offset += count;
+        }
+        bytesRead += bytes.length;
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.reader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.ProtocolException;
+import org.jumpmind.symmetric.io.data.writer.ProtocolDataWriter;
+
+/**
+ * Reads a stream written by
+ * {@link org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter} as
+ * the CSV protocol, so batches that arrive in the binary protocol can be
+ * staged like any other incoming batch. Events are converted one at a time as
+ * the text is read.
+ */
+public class BinaryProtocolTextReader extends Reader {
+
+    protected BinaryProtocolDataReader dataReader;
+
+    protected ProtocolDataWriter dataWriter;
+
+    protected StringBuffer buffer;
+
+    protected int position;
+
+    protected Batch batch;
+
+    protected Table table;
+
+    protected boolean readingTables;
+
+    protected boolean done;
+
+    public BinaryProtocolTextReader(BinaryProtocolDataReader dataReader) {
+        StringWriter writer = new StringWriter();
+        this.buffer = writer.getBuffer();
+        this.dataReader = dataReader;
+        this.dataWriter = new ProtocolDataWriter(null, writer, false);
+        DataContext context = new DataContext(dataReader);
+        dataReader.open(context);
+        dataWriter.open(context);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == buffer.length()) {
+            if (done) {
+                return -1;
+            }
+            buffer.setLength(0);
+            position = 0;
+            convertNext();
+        }
+        int count = Math.min(len, buffer.length() - position);
+        buffer.getChars(position, position + count, cbuf, off);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Convert the next event in the same order that
+     * {@link org.jumpmind.symmetric.io.data.DataProcessor} reads them: data
+     * that is not in a table first, then each table and its data.
+     */
+    protected void convertNext() {
+        if (batch == null) {
+            batch = dataReader.nextBatch();
+            if (batch == null) {
+                done = true;
+            } else {
+                readingTables = false;
+                dataWriter.start(batch);
+            }
+        } else if (table != null) {
+            CsvData data = dataReader.nextData();
+            if (data != null) {
+                dataWriter.write(data);
+            } else {
+                dataWriter.end(table);
+                table = null;
+            }
+        } else if (!readingTables) {
+            CsvData data = dataReader.nextData();
+            if (data != null) {
+                dataWriter.write(data);
+            } else {
+                readingTables = true;
+            }
+        } else {
+            table = dataReader.nextTable();
+            if (table != null) {
+                dataWriter.start(table);
+            } else if (!batch.isComplete()) {
+                throw new ProtocolException("The batch %s was not complete", batch.getNodeBatchId());
+            } else {
+                dataWriter.end(batch, false);
+                batch = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataReader.close();
+    }
+
+}
@@ -132,12 +132,33 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
         this.next = readNext();
     }
 
+    /**
+     * Expands an update that only carries its changed columns to the width of
+     * the table, flagging which columns were sent
+     */
+    protected void putChangedColumnData(CsvData data, Table table, int[] changedColumnIndexes,
+            String[] parsedOldData) {
+        if (tokens.length <= changedColumnIndexes.length
+                || (parsedOldData != null && parsedOldData.length != changedColumnIndexes.length)) {
+            String msg = String.format(
+                    "Invalid state while parsing csv data.  "
+                            + "The number of changed columns (%d) reported for table '%s' doesn't match up with the token count (%d) data: %s",
+                    changedColumnIndexes.length, table.getFullyQualifiedTableName(), tokens.length,
+                    ArrayUtils.toString(tokens));
+            throw new IllegalStateException(msg);
+        }
+        data.putChangedColumnData(table, changedColumnIndexes,
+                CollectionUtils.copyOfRange(tokens, 1, changedColumnIndexes.length + 1),
+                CollectionUtils.copyOfRange(tokens, changedColumnIndexes.length + 1, tokens.length), parsedOldData);
+    }
+
     public Object readNext() {
         try {
             Set<String> keys = null;
             String schemaName = null;
             String catalogName = null;
             String[] parsedOldData = null;
+            int[] changedColumnIndexes = null;
             long bytesRead = 0;
             String[] statsColumns = null;
             String[] statsValues = null;
@@ -177,12 +198,28 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                 } else if (tokens[0].equals(CsvConstants.OLD)) {
                     parsedOldData = CollectionUtils.copyOfRange(tokens, 1, tokens.length);
 
+                } else if (tokens[0].equals(CsvConstants.CHANGED)) {
+                    int columnCount = context.getLastParsedTable().getColumnCount();
+                    changedColumnIndexes = new int[tokens.length - 1];
+                    for (int i = 1; i < tokens.length; i++) {
+                        changedColumnIndexes[i - 1] = Integer.parseInt(tokens[i]);
+                        if (changedColumnIndexes[i - 1] >= columnCount) {
+                            throw new IllegalStateException(String.format(
+                                    "Invalid state while parsing csv data.  Changed column %d is not in table '%s'",
+                                    changedColumnIndexes[i - 1], context.getLastParsedTable().getFullyQualifiedTableName()));
+                        }
+                    }
+
                 } else if (tokens[0].equals(CsvConstants.UPDATE)) {
                     CsvData data = new CsvData();
                     data.setNoBinaryOldData(noBinaryOldData);
                     data.setDataEventType(DataEventType.UPDATE);
                     int columnCount = context.getLastParsedTable().getColumnCount();
-                    if (tokens.length <= columnCount) {
+                    if (changedColumnIndexes != null) {
+                        putChangedColumnData(data, context.getLastParsedTable(), changedColumnIndexes, parsedOldData);
+                        tokens = null;
+                        return data;
+                    } else if (tokens.length <= columnCount) {
                         String msg = String.format(
                                 "Invalid state while parsing csv data.  "
                                         + "The number of columns (%d) reported for table '%s' doesn't match up with the token count (%d) data: %s",
@@ -305,7 +305,11 @@ abstract public class AbstractDatabaseWriterConflictResolver implements IDatabas
     protected void performFallbackToInsert(AbstractDatabaseWriter writer, CsvData csvData, Conflict conflict, boolean retransform) {
         try {
             beforeResolutionAttempt(conflict);
-            LoadStatus loadStatus = writer.insert(csvData);
+            /*
+             * An update that only carries its changed columns does not have
+             * the rest of the row, so it cannot be turned into an insert
+             */
+            LoadStatus loadStatus = csvData.isChangedColumnsOnly() ? LoadStatus.CONFLICT : writer.insert(csvData);
             if (loadStatus != LoadStatus.SUCCESS) {
                 throw new ConflictException(csvData, writer.getTargetTable(), true, conflict,
                         (Exception) writer.getContext().get(AbstractDatabaseWriter.CONFLICT_ERROR));
@@ -20,9 +20,11 @@
  */
 package org.jumpmind.symmetric.io.data.writer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
@@ -31,8 +33,10 @@ import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.CsvConstants;
 import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.CsvUtils;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.util.FormatUtils;
 import org.jumpmind.util.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +67,14 @@ abstract public class AbstractProtocolDataWriter implements IDataWriter {
     
     protected boolean backwardsCompatible = false;
 
+    protected boolean changedColumnsOnly = false;
+
+    protected Set<String> wholeRowTableNames;
+
+    protected boolean batchHeaderWritten = true;
+
+    protected boolean batchFooterWritten = true;
+
     public AbstractProtocolDataWriter(String sourceNodeId,
             List<IProtocolDataWriterListener> listeners, boolean backwardsCompatible) {
         this.listeners = listeners;
@@ -91,6 +103,10 @@ abstract public class AbstractProtocolDataWriter implements IDataWriter {
             sourceNodeId = batch.getSourceNodeId();
         }
 
+        if (!batchHeaderWritten) {
+            return;
+        }
+
         if (flushNodeId) {
             if (StringUtils.isNotBlank(sourceNodeId)) {
                 println(CsvConstants.NODEID, sourceNodeId);
@@ -163,14 +179,19 @@ abstract public class AbstractProtocolDataWriter implements IDataWriter {
                     break;
 
                 case UPDATE:
-                    if (!backwardsCompatible) {
-                        String oldData = data.getCsvData(CsvData.OLD_DATA);
-                        if (StringUtils.isNotBlank(oldData)) {
-                            println(CsvConstants.OLD, oldData);
+                    boolean[] changedColumns = backwardsCompatible ? null : getChangedColumns(data);
+                    if (changedColumns != null) {
+                        printChangedColumns(data, changedColumns);
+                    } else {
+                        if (!backwardsCompatible) {
+                            String oldData = data.getCsvData(CsvData.OLD_DATA);
+                            if (StringUtils.isNotBlank(oldData)) {
+                                println(CsvConstants.OLD, oldData);
+                            }
                         }
+                        println(CsvConstants.UPDATE, data.getCsvData(CsvData.ROW_DATA),
+                                data.getCsvData(CsvData.PK_DATA));
                     }
-                    println(CsvConstants.UPDATE, data.getCsvData(CsvData.ROW_DATA),
-                            data.getCsvData(CsvData.PK_DATA));
                     statistics.get(batch).increment(DataWriterStatisticConstants.UPDATECOUNT);
                     break;
 
@@ -204,17 +225,79 @@ abstract public class AbstractProtocolDataWriter implements IDataWriter {
         }
     }
 
+    /**
+     * Returns the columns to send for an update when only changed columns
+     * should be written, or null when the whole row should be written. Old
+     * data is needed to tell what changed and pk data to find the row. A null
+     * old value is sent when lobs were not captured in the old data because it
+     * might not be the real value.
+     */
+    protected boolean[] getChangedColumns(CsvData data) {
+        if (data.isChangedColumnsOnly()) {
+            return data.getChangedColumns();
+        } else if (changedColumnsOnly && !isWholeRowTable(table)) {
+            String[] rowData = data.getParsedData(CsvData.ROW_DATA);
+            String[] oldData = data.getParsedData(CsvData.OLD_DATA);
+            if (rowData != null && oldData != null && rowData.length == oldData.length
+                    && data.getParsedData(CsvData.PK_DATA) != null) {
+                boolean[] changed = data.getChangedDataIndicators().clone();
+                if (data.isNoBinaryOldData()) {
+                    for (int i = 0; i < oldData.length; i++) {
+                        changed[i] |= oldData[i] == null;
+                    }
+                }
+                return changed;
+            }
+        }
+        return null;
+    }
+
+    protected boolean isWholeRowTable(Table table) {
+        return wholeRowTableNames != null && (wholeRowTableNames.contains(FormatUtils.WILDCARD)
+                || (table != null && wholeRowTableNames.contains(table.getName().toUpperCase())));
+    }
+
+    protected void printChangedColumns(CsvData data, boolean[] changedColumns) {
+        String[] rowData = data.getParsedData(CsvData.ROW_DATA);
+        String[] oldData = data.getParsedData(CsvData.OLD_DATA);
+        List<String> indexes = new ArrayList<String>();
+        List<String> changedRowData = new ArrayList<String>();
+        List<String> changedOldData = new ArrayList<String>();
+        for (int i = 0; i < changedColumns.length; i++) {
+            if (changedColumns[i]) {
+                indexes.add(Integer.toString(i));
+                changedRowData.add(rowData[i]);
+                if (oldData != null) {
+                    changedOldData.add(oldData[i]);
+                }
+            }
+        }
+        if (indexes.size() > 0) {
+            println(CsvConstants.CHANGED, CsvUtils.escapeCsvData(indexes.toArray(new String[indexes.size()])));
+            if (oldData != null) {
+                println(CsvConstants.OLD, CsvUtils.escapeCsvData(changedOldData.toArray(new String[changedOldData.size()])));
+            }
+            println(CsvConstants.UPDATE, CsvUtils.escapeCsvData(changedRowData.toArray(new String[changedRowData.size()])),
+                    data.getCsvData(CsvData.PK_DATA));
+        } else {
+            println(CsvConstants.CHANGED);
+            println(CsvConstants.UPDATE, data.getCsvData(CsvData.PK_DATA));
+        }
+    }
+
     public void end(Table table) {
     }
 
     final public void end(Batch batch, boolean inError) {
         
-        if (batch.isIgnored() && !backwardsCompatible) {
+        if (batch.isIgnored() && !backwardsCompatible && batchFooterWritten) {
             println(CsvConstants.IGNORE);
         }
         
         if (!inError) {
-            println(CsvConstants.COMMIT, Long.toString(batch.getBatchId()));
+            if (batchFooterWritten) {
+                println(CsvConstants.COMMIT, Long.toString(batch.getBatchId()));
+            }
             endBatch(batch);
         }
 
@@ -262,6 +345,47 @@ abstract public class AbstractProtocolDataWriter implements IDataWriter {
         return byteCount;
     }
 
+    public void setChangedColumnsOnly(boolean changedColumnsOnly) {
+        this.changedColumnsOnly = changedColumnsOnly;
+    }
+
+    public boolean isChangedColumnsOnly() {
+        return changedColumnsOnly;
+    }
+
+    /**
+     * Names, in upper case, of the tables whose updates are always written
+     * as the whole row even when only changed columns are written. A name of
+     * {@link FormatUtils#WILDCARD} stands for every table.
+     */
+    public void setWholeRowTableNames(Set<String> wholeRowTableNames) {
+        this.wholeRowTableNames = wholeRowTableNames;
+    }
+
+    /**
+     * Turn off the lines that open a batch so the output can be appended to a
+     * batch that was opened by another writer.
+     */
+    public void setBatchHeaderWritten(boolean batchHeaderWritten) {
+        this.batchHeaderWritten = batchHeaderWritten;
+    }
+
+    public boolean isBatchHeaderWritten() {
+        return batchHeaderWritten;
+    }
+
+    /**
+     * Turn off the lines that close a batch so more output can be appended to
+     * the batch before it is committed.
+     */
+    public void setBatchFooterWritten(boolean batchFooterWritten) {
+        this.batchFooterWritten = batchFooterWritten;
+    }
+
+    public boolean isBatchFooterWritten() {
+        return batchFooterWritten;
+    }
+
     public void setDelimiter(String delimiter) {
         this.delimiter = delimiter;
     }
@@ -0,0 +1,446 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import static org.jumpmind.symmetric.io.data.BinaryProtocolConstants.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.util.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes batches in the binary protocol described by
+ * {@link org.jumpmind.symmetric.io.data.BinaryProtocolConstants}. It is the
+ * counterpart of {@link ProtocolDataWriter} and is read by
+ * {@link org.jumpmind.symmetric.io.data.reader.BinaryProtocolDataReader}.
+ */
+public class BinaryProtocolDataWriter implements IDataWriter {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected static final Charset CHARSET = Charset.forName(IoConstants.ENCODING);
+
+    protected OutputStream out;
+
+    protected DataContext context;
+
+    protected Batch batch;
+
+    protected Table table;
+
+    protected String sourceNodeId;
+
+    protected boolean flushNodeId = true;
+
+    protected boolean headerWritten = false;
+
+    protected boolean noBinaryOldData = false;
+
+    protected Map<String, Integer> tableIds = new HashMap<String, Integer>();
+
+    protected Map<String, String> tableKeys = new HashMap<String, String>();
+
+    protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
+
+    protected long byteCount;
+
+    public BinaryProtocolDataWriter(String sourceNodeId, OutputStream out) {
+        this.sourceNodeId = sourceNodeId;
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+    }
+
+    public void open(DataContext context) {
+        this.context = context;
+    }
+
+    public void close() {
+        flush();
+    }
+
+    public Map<Batch, Statistics> getStatistics() {
+        return statistics;
+    }
+
+    public void start(Batch batch) {
+        this.statistics.put(batch, new Statistics());
+        this.batch = batch;
+        this.byteCount = 0;
+
+        writeHeader();
+
+        if (StringUtils.isBlank(sourceNodeId)) {
+            sourceNodeId = batch.getSourceNodeId();
+        }
+
+        if (flushNodeId) {
+            if (StringUtils.isNotBlank(sourceNodeId)) {
+                writeByte(NODEID);
+                writeString(sourceNodeId);
+            }
+            if (batch.getBinaryEncoding() != null) {
+                writeByte(BINARY);
+                writeString(batch.getBinaryEncoding().name());
+            }
+            flushNodeId = false;
+        }
+
+        if (StringUtils.isNotBlank(batch.getChannelId())) {
+            writeByte(CHANNEL);
+            writeString(batch.getChannelId());
+        }
+
+        writeByte(BATCH);
+        writeVarLong(batch.getBatchId());
+        countBytes();
+    }
+
+    public boolean start(Table table) {
+        if (!batch.isIgnored()) {
+            this.table = table;
+            String fullyQualifiedTableName = table.getFullyQualifiedTableName();
+            String tableKey = table.getTableKey();
+            Integer tableId = tableIds.get(fullyQualifiedTableName);
+            if (tableId != null && tableKey.equals(tableKeys.get(fullyQualifiedTableName))) {
+                writeByte(TABLE);
+                writeVarLong(tableId);
+            } else {
+                if (tableId == null) {
+                    tableId = tableIds.size();
+                    tableIds.put(fullyQualifiedTableName, tableId);
+                }
+                tableKeys.put(fullyQualifiedTableName, tableKey);
+                writeByte(TABLE_DEFINITION);
+                writeVarLong(tableId);
+                writeString(table.getCatalog());
+                writeString(table.getSchema());
+                writeString(table.getName());
+                writeColumnNames(table.getPrimaryKeyColumns());
+                writeColumnNames(table.getColumns());
+            }
+            countBytes();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public void write(CsvData data) {
+        if (!batch.isIgnored()) {
+            if (noBinaryOldData != data.isNoBinaryOldData()) {
+                noBinaryOldData = data.isNoBinaryOldData();
+                writeByte(NO_BINARY_OLD_DATA);
+                writeByte(noBinaryOldData ? 1 : 0);
+            }
+
+            Statistics stats = statistics.get(batch);
+            stats.increment(DataWriterStatisticConstants.ROWCOUNT);
+            stats.increment(DataWriterStatisticConstants.LINENUMBER);
+            Column[] columns = table != null ? table.getColumns() : null;
+            switch (data.getDataEventType()) {
+                case INSERT:
+                    writeByte(INSERT);
+                    writeValues(data.getParsedData(CsvData.ROW_DATA), columns);
+                    stats.increment(DataWriterStatisticConstants.INSERTCOUNT);
+                    break;
+
+                case UPDATE:
+                    if (data.isChangedColumnsOnly()) {
+                        writeChangedUpdate(data, columns);
+                    } else {
+                        writeByte(UPDATE);
+                        writeValues(data.getParsedData(CsvData.ROW_DATA), columns);
+                        writeValues(data.getParsedData(CsvData.PK_DATA),
+                                table != null ? table.getPrimaryKeyColumns() : null);
+                        writeValues(data.getParsedData(CsvData.OLD_DATA), columns);
+                    }
+                    stats.increment(DataWriterStatisticConstants.UPDATECOUNT);
+                    break;
+
+                case DELETE:
+                    writeByte(DELETE);
+                    writeValues(data.getParsedData(CsvData.PK_DATA),
+                            table != null ? table.getPrimaryKeyColumns() : null);
+                    writeValues(data.getParsedData(CsvData.OLD_DATA), columns);
+                    stats.increment(DataWriterStatisticConstants.DELETECOUNT);
+                    break;
+
+                case CREATE:
+                    writeByte(CREATE);
+                    writeString(firstValue(data));
+                    break;
+
+                case BSH:
+                    writeByte(BSH);
+                    writeString(firstValue(data));
+                    break;
+
+                case SQL:
+                    writeByte(SQL);
+                    writeString(firstValue(data));
+                    break;
+
+                case RELOAD:
+                default:
+                    break;
+            }
+            countBytes();
+        }
+    }
+
+    public void end(Table table) {
+    }
+
+    /**
+     * Write the node id between batches so the other node knows the stream
+     * is still alive while the next batch is being extracted.
+     */
+    public void writeKeepAlive() {
+        writeHeader();
+        if (StringUtils.isNotBlank(sourceNodeId)) {
+            writeByte(NODEID);
+            writeString(sourceNodeId);
+        }
+        byteCount = 0;
+        flush();
+    }
+
+    public void end(Batch batch, boolean inError) {
+        if (batch.isIgnored()) {
+            writeByte(IGNORE);
+        }
+
+        if (!inError) {
+            writeByte(COMMIT);
+            writeVarLong(batch.getBatchId());
+            countBytes();
+            flush();
+        }
+    }
+
+    protected void writeHeader() {
+        if (!headerWritten) {
+            writeBytes(MAGIC);
+            writeByte(VERSION);
+            headerWritten = true;
+        }
+    }
+
+    protected void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    protected void countBytes() {
+        Statistics stats = batch != null ? statistics.get(batch) : null;
+        if (stats != null) {
+            stats.increment(DataWriterStatisticConstants.BYTECOUNT, byteCount);
+        }
+        byteCount = 0;
+    }
+
+    protected String firstValue(CsvData data) {
+        String[] values = data.getParsedData(CsvData.ROW_DATA);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    protected void writeColumnNames(List<Column> columns) {
+        writeColumnNames(columns.toArray(new Column[columns.size()]));
+    }
+
+    protected void writeColumnNames(Column[] columns) {
+        writeVarLong(columns.length);
+        for (Column column : columns) {
+            writeString(column.getName());
+        }
+    }
+
+    protected void writeChangedUpdate(CsvData data, Column[] columns) {
+        boolean[] changedColumns = data.getChangedColumns();
+        int count = 0;
+        for (boolean changed : changedColumns) {
+            count += changed ? 1 : 0;
+        }
+        String[] rowData = data.getParsedData(CsvData.ROW_DATA);
+        String[] oldData = data.getParsedData(CsvData.OLD_DATA);
+        String[] changedRowData = new String[count];
+        String[] changedOldData = oldData != null ? new String[count] : null;
+        Column[] changedColumnTypes = new Column[count];
+        writeByte(CHANGED_UPDATE);
+        writeVarLong(count);
+        for (int i = 0, j = 0; i < changedColumns.length; i++) {
+            if (changedColumns[i]) {
+                writeVarLong(i);
+                changedRowData[j] = rowData[i];
+                if (changedOldData != null) {
+                    changedOldData[j] = oldData[i];
+                }
+                changedColumnTypes[j++] = columns != null && i < columns.length ? columns[i] : null;
+            }
+        }
+        writeValues(changedRowData, changedColumnTypes);
+        writeValues(data.getParsedData(CsvData.PK_DATA), table != null ? table.getPrimaryKeyColumns() : null);
+        writeValues(changedOldData, changedColumnTypes);
+    }
+
+    protected void writeValues(String[] values, List<Column> columns) {
+        writeValues(values, columns != null ? columns.toArray(new Column[columns.size()]) : null);
+    }
+
+    protected void writeValues(String[] values, Column[] columns) {
+        if (values == null) {
+            writeVarLong(NULL_ARRAY);
+        } else {
+            writeVarLong(values.length + 1);
+            for (int i = 0; i < values.length; i++) {
+                Column column = columns != null && i < columns.length ? columns[i] : null;
+                writeValue(values[i], column);
+            }
+        }
+    }
+
+    protected void writeValue(String value, Column column) {
+        if (value == null) {
+            writeByte(VALUE_NULL);
+        } else if (isCanonicalLong(value)) {
+            writeByte(VALUE_LONG);
+            long number = Long.parseLong(value);
+            writeVarLong((number << 1) ^ (number >> 63));
+        } else {
+            byte[] bytes = column != null && column.isOfBinaryType() ? decodeBinary(value) : null;
+            if (bytes != null) {
+                writeByte(VALUE_BYTES);
+                writeVarLong(bytes.length);
+                writeBytes(bytes);
+            } else {
+                writeByte(VALUE_STRING);
+                writeString(value);
+            }
+        }
+    }
+
+    /**
+     * @return the decoded bytes if encoding them again gives back the same
+     *         string, otherwise null so the value is sent as a string
+     */
+    protected byte[] decodeBinary(String value) {
+        BinaryEncoding encoding = batch.getBinaryEncoding();
+        try {
+            if (encoding == BinaryEncoding.BASE64) {
+                byte[] bytes = Base64.decodeBase64(value.getBytes(CHARSET));
+                return new String(Base64.encodeBase64(bytes), CHARSET).equals(value) ? bytes : null;
+            } else if (encoding == BinaryEncoding.HEX) {
+                byte[] bytes = Hex.decodeHex(value.toCharArray());
+                return new String(Hex.encodeHex(bytes)).equals(value) ? bytes : null;
+            }
+        } catch (DecoderException e) {
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the value is a decimal long that
+     *         {@link Long#toString(long)} writes the same way
+     */
+    protected static boolean isCanonicalLong(String value) {
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 18) {
+            return false;
+        }
+        if (value.charAt(start) == '0') {
+            return length == 1;
+        }
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+        } else {
+            byte[] bytes = value.getBytes(CHARSET);
+            writeVarLong(bytes.length + 1);
+            writeBytes(bytes);
+        }
+    }
+
+    protected void writeVarLong(long value) {
+        try {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+                byteCount++;
+            }
+            out.write((int) value);
+            byteCount++;
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    protected void writeByte(int value) {
+        try {
+            out.write(value);
+            byteCount++;
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    protected void writeBytes(byte[] bytes) {
+        try {
+            out.write(bytes);
+            byteCount += bytes.length;
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+}
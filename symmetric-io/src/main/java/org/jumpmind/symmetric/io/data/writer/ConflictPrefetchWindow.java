@@ -0,0 +1,756 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.IIndex;
+import org.jumpmind.db.model.IndexColumn;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.TransformedData;
+import org.jumpmind.symmetric.io.data.writer.AbstractDatabaseWriter.LoadStatus;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
+import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffers the inserts, updates and deletes for a table so the rows that
+ * already exist at the target can be selected for the whole window with one
+ * keyed query. Each row is then checked for a conflict against the selected
+ * rows, and the insert, update or skip that the
+ * {@link DefaultDatabaseWriterConflictResolver} would have chosen is decided
+ * in memory and sent with batched statements.
+ * <p>
+ * Rows that cannot be decided with certainty, such as a text column whose old
+ * value differs from the selected value only by formatting, are flushed and
+ * loaded one at a time with the usual conflict detection and resolution. So
+ * are conflicts that resolve manually or that ignore the whole batch, and rows
+ * produced by a transform, whose fallbacks are retransformed by the
+ * {@link DefaultTransformWriterConflictResolver}. When
+ * the batched statements change a different number of rows than expected the
+ * batch fails, and its retry is loaded without the window.
+ */
+public class ConflictPrefetchWindow {
+
+    protected static final Logger log = LoggerFactory.getLogger(ConflictPrefetchWindow.class);
+
+    static final int MAX_PARAMETERS_PER_SELECT = 1000;
+
+    protected DefaultDatabaseWriter writer;
+
+    protected int size;
+
+    protected List<CsvData> rows = new ArrayList<CsvData>();
+
+    protected Table table;
+
+    protected Map<String, Boolean> supportedTables = new HashMap<String, Boolean>();
+
+    protected Map<String, RowState> states = new HashMap<String, RowState>();
+
+    protected CsvData current;
+
+    protected ISqlTransaction transaction;
+
+    protected boolean batching;
+
+    protected boolean previousBatchMode;
+
+    protected int batchedCount;
+
+    protected int changedCount;
+
+    public ConflictPrefetchWindow(DefaultDatabaseWriter writer, int size) {
+        this.writer = writer;
+        this.size = size;
+    }
+
+    public boolean accepts(CsvData data) {
+        DataEventType eventType = data.getDataEventType();
+        Table targetTable = writer.getTargetTable();
+        if ((eventType != DataEventType.INSERT && eventType != DataEventType.UPDATE && eventType != DataEventType.DELETE)
+                || writer.getSourceTable() == null || targetTable == null || (table != null && table != targetTable)
+                || data.getAttribute(TransformedData.class.getName()) != null) {
+            return false;
+        }
+        List<ResolvedData> resolvedData = writer.getWriterSettings().getResolvedData();
+        if (resolvedData != null && resolvedData.size() > 0) {
+            return false;
+        }
+        Conflict conflict = writer.getWriterSettings().pickConflict(targetTable, writer.getBatch());
+        if (conflict.getResolveType() == ResolveConflict.MANUAL || !conflict.isResolveRowOnly()
+                || conflict.getPingBack() != PingBack.OFF || writer.getWriterSettings().isLogConflictResolution()) {
+            return false;
+        }
+        return isSupported(targetTable) && !writer.getTransaction().isInBatchMode();
+    }
+
+    /**
+     * The keys have to identify a row on their own, so tables with other
+     * unique indexes are left to the row by row conflict resolution, which
+     * knows how to remove the rows that block a unique index.
+     */
+    protected boolean isSupported(Table targetTable) {
+        String tableName = targetTable.getFullyQualifiedTableName();
+        Boolean supported = supportedTables.get(tableName);
+        if (supported == null) {
+            IDatabasePlatform platform = writer.getPlatform();
+            Column[] pkColumns = targetTable.getPrimaryKeyColumns();
+            supported = pkColumns.length > 0;
+            for (Column column : pkColumns) {
+                if (platform.isLob(column.getMappedTypeCode()) || !platform.canColumnBeUsedInWhereClause(column)) {
+                    supported = false;
+                }
+            }
+            IIndex[] indices = targetTable.getIndices();
+            for (int i = 0; supported && indices != null && i < indices.length; i++) {
+                if (indices[i].isUnique()) {
+                    for (IndexColumn indexColumn : indices[i].getColumns()) {
+                        Column column = targetTable.getColumnWithName(indexColumn.getName());
+                        if (column == null || !column.isPrimaryKey()) {
+                            supported = false;
+                        }
+                    }
+                }
+            }
+            supportedTables.put(tableName, supported);
+        }
+        return supported;
+    }
+
+    public void add(CsvData data) {
+        table = writer.getTargetTable();
+        rows.add(data);
+    }
+
+    public boolean isFull() {
+        return rows.size() >= size;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Selects the existing rows for the window and then writes each row
+     * through the writer, which hands the insert, update or delete back to
+     * this window to be decided.
+     */
+    public void apply() {
+        if (rows.isEmpty()) {
+            return;
+        }
+        DataContext context = writer.getContext();
+        CsvData contextData = context.getData();
+        try {
+            prefetch();
+            for (CsvData data : rows) {
+                current = data;
+                context.setData(data);
+                writer.writeRow(data);
+            }
+            endBatching();
+        } finally {
+            context.setData(contextData);
+            if (batching) {
+                transaction.setInBatchMode(previousBatchMode);
+                batching = false;
+            }
+            batchedCount = 0;
+            changedCount = 0;
+            current = null;
+            table = null;
+            rows.clear();
+            states.clear();
+        }
+    }
+
+    protected void prefetch() {
+        IDatabasePlatform platform = writer.getPlatform();
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+        Map<String, Object[]> keys = new LinkedHashMap<String, Object[]>();
+        for (CsvData data : rows) {
+            Object[] keyValues = getKeyValues(getKeyData(data));
+            if (keyValues != null) {
+                keys.put(toKey(keyValues), keyValues);
+            }
+        }
+        if (keys.size() == 0) {
+            return;
+        }
+
+        DmlStatement statement = platform.createDmlStatement(DmlType.SELECT, table.getCatalog(), table.getSchema(),
+                table.getName(), pkColumns, table.getColumns(), null, writer.getWriterSettings().getTextColumnExpression());
+        String sql = statement.getSql();
+        int whereIndex = sql.lastIndexOf(" where ");
+        String select = sql.substring(0, whereIndex);
+        String where = sql.substring(whereIndex + " where ".length());
+        int keysPerSelect = Math.max(1, MAX_PARAMETERS_PER_SELECT / pkColumns.length);
+        ISqlRowMapper<Row> mapper = new ISqlRowMapper<Row>() {
+            public Row mapRow(Row row) {
+                return row;
+            }
+        };
+
+        List<Object[]> keyValuesList = new ArrayList<Object[]>(keys.values());
+        for (int start = 0; start < keyValuesList.size(); start += keysPerSelect) {
+            List<Object[]> chunk = keyValuesList.subList(start, Math.min(start + keysPerSelect, keyValuesList.size()));
+            StringBuilder chunkSql = new StringBuilder(select).append(" where ");
+            List<Object> args = new ArrayList<Object>(chunk.size() * pkColumns.length);
+            for (int i = 0; i < chunk.size(); i++) {
+                chunkSql.append(i > 0 ? " or (" : "(").append(where).append(")");
+                args.addAll(Arrays.asList(chunk.get(i)));
+            }
+            List<Row> existingRows = writer.getTransaction().query(chunkSql.toString(), mapper, args.toArray(), null);
+            for (Row row : existingRows) {
+                Object[] keyValues = new Object[pkColumns.length];
+                for (int i = 0; i < pkColumns.length; i++) {
+                    keyValues[i] = row.get(pkColumns[i].getName());
+                }
+                String key = toKey(keyValues);
+                if (!keys.containsKey(key)) {
+                    /*
+                     * The database matched a key that compares differently
+                     * here, so nothing can be decided for this window
+                     */
+                    log.debug("Could not match a row selected from {} to the keys of the window", table.getName());
+                    states.clear();
+                    return;
+                }
+                Object[] values = new Object[table.getColumnCount()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row.get(table.getColumn(i).getName());
+                }
+                states.put(key, new RowState(values));
+            }
+        }
+        for (String key : keys.keySet()) {
+            if (!states.containsKey(key)) {
+                states.put(key, RowState.ABSENT);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Prefetched {} of {} rows from {} for conflict detection", new Object[] { states.size() - count(RowState.ABSENT),
+                    keys.size(), table.getName() });
+        }
+    }
+
+    private int count(RowState state) {
+        int count = 0;
+        for (RowState value : states.values()) {
+            if (value == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Called by the writer with the data that it is about to load.  Returns
+     * true only for the row being applied from the window, and only once, so
+     * the statements this window runs through the writer are not handed back.
+     */
+    public boolean claim(CsvData data) {
+        if (current != null && current == data) {
+            current = null;
+            return true;
+        }
+        return false;
+    }
+
+    public LoadStatus insert(CsvData data) {
+        String key = getKey(data);
+        RowState state = key == null ? null : states.get(key);
+        if (state == null) {
+            return loadRowByRow(key, data);
+        }
+        if (!state.exists) {
+            return insertRow(key, data);
+        }
+
+        Conflict conflict = pickConflict();
+        switch (conflict.getResolveType()) {
+            case FALLBACK:
+                return fallbackToUpdate(key, data, conflict);
+            case NEWER_WINS:
+                Boolean newer = isNewer(conflict, state, data);
+                if (newer == null) {
+                    return loadRowByRow(key, data);
+                } else if (newer) {
+                    return fallbackToUpdate(key, data, conflict);
+                } else {
+                    return skip(false);
+                }
+            case IGNORE:
+            default:
+                return skip(true);
+        }
+    }
+
+    public LoadStatus update(CsvData data, boolean applyChangesOnly) {
+        String key = getKey(data);
+        RowState state = key == null ? null : states.get(key);
+        boolean[] changedColumns = state == null ? null : getChangedColumns(data, applyChangesOnly);
+        if (state == null || changedColumns == null || isPrimaryKeyChanged(data, changedColumns)) {
+            return loadRowByRow(key, data);
+        }
+
+        Conflict conflict = pickConflict();
+        if (!state.exists) {
+            switch (conflict.getResolveType()) {
+                case FALLBACK:
+                    return fallbackToInsert(key, data,
+                            conflict.getDetectType() == DetectConflict.USE_PK_DATA ? data.copyWithoutOldData() : data);
+                case NEWER_WINS:
+                    if (conflict.getDetectType() == DetectConflict.USE_TIMESTAMP
+                            || conflict.getDetectType() == DetectConflict.USE_VERSION) {
+                        return fallbackToInsert(key, data, data);
+                    } else {
+                        return skip(false);
+                    }
+                case IGNORE:
+                default:
+                    return skip(true);
+            }
+        }
+
+        Boolean matches = matchesOldData(conflict, state, data, changedColumns);
+        if (matches == null) {
+            return loadRowByRow(key, data);
+        } else if (matches) {
+            startBatching();
+            LoadStatus status = writer.update(data, applyChangesOnly, true);
+            states.put(key, RowState.PRESENT);
+            return status;
+        }
+
+        switch (conflict.getResolveType()) {
+            case FALLBACK:
+                return fallbackToUpdate(key, data, conflict);
+            case NEWER_WINS:
+                Boolean newer = isNewer(conflict, state, data);
+                if (newer == null) {
+                    return loadRowByRow(key, data);
+                } else if (newer) {
+                    return fallbackToUpdate(key, data, conflict);
+                } else {
+                    return skip(false);
+                }
+            case IGNORE:
+            default:
+                return skip(true);
+        }
+    }
+
+    public LoadStatus delete(CsvData data) {
+        String key = getKey(data);
+        RowState state = key == null ? null : states.get(key);
+        if (state == null) {
+            return loadRowByRow(key, data);
+        }
+
+        Conflict conflict = pickConflict();
+        if (state.exists) {
+            Boolean matches = matchesOldData(conflict, state, data, null);
+            if (matches == null) {
+                return loadRowByRow(key, data);
+            } else if (matches || conflict.getResolveType() == ResolveConflict.FALLBACK) {
+                startBatching();
+                LoadStatus status = writer.delete(data, matches);
+                states.put(key, RowState.ABSENT);
+                return status;
+            }
+        } else if (conflict.getResolveType() == ResolveConflict.FALLBACK) {
+            writer.getStatistics().get(writer.getBatch()).increment(DataWriterStatisticConstants.MISSINGDELETECOUNT);
+            return LoadStatus.SUCCESS;
+        }
+        return conflict.getResolveType() == ResolveConflict.NEWER_WINS ? LoadStatus.SUCCESS : skip(true);
+    }
+
+    protected LoadStatus insertRow(String key, CsvData data) {
+        startBatching();
+        LoadStatus status = writer.insert(data);
+        states.put(key, new RowState(getObjectValues(writer.getRowData(data, CsvData.ROW_DATA))));
+        return status;
+    }
+
+    protected LoadStatus fallbackToInsert(String key, CsvData data, CsvData insertData) {
+        if (data.isChangedColumnsOnly()) {
+            return loadRowByRow(key, data);
+        }
+        LoadStatus status = insertRow(key, insertData);
+        writer.getStatistics().get(writer.getBatch()).increment(DataWriterStatisticConstants.FALLBACKINSERTCOUNT);
+        return status;
+    }
+
+    protected LoadStatus fallbackToUpdate(String key, CsvData data, Conflict conflict) {
+        startBatching();
+        LoadStatus status = writer.update(data, conflict.isResolveChangesOnly(), false);
+        states.put(key, RowState.PRESENT);
+        writer.getStatistics().get(writer.getBatch()).increment(DataWriterStatisticConstants.FALLBACKUPDATECOUNT);
+        return status;
+    }
+
+    protected LoadStatus skip(boolean countIgnoredRow) {
+        if (countIgnoredRow) {
+            writer.getStatistics().get(writer.getBatch()).increment(DataWriterStatisticConstants.IGNOREROWCOUNT);
+        }
+        return LoadStatus.SUCCESS;
+    }
+
+    /**
+     * Sends the row through the writer's usual statement and conflict
+     * resolution. Its key is forgotten because the resolution could have
+     * changed the row in a way the window does not know about.
+     */
+    protected LoadStatus loadRowByRow(String key, CsvData data) {
+        endBatching();
+        if (key != null) {
+            states.remove(key);
+        }
+        switch (data.getDataEventType()) {
+            case INSERT:
+                return writer.insert(data);
+            case UPDATE:
+                return writer.update(data, writer.getWriterSettings().isApplyChangesOnly(), true);
+            case DELETE:
+            default:
+                return writer.delete(data, true);
+        }
+    }
+
+    protected void startBatching() {
+        if (!batching) {
+            transaction = writer.getTransaction();
+            previousBatchMode = transaction.isInBatchMode();
+            transaction.setInBatchMode(true);
+            batching = true;
+        }
+    }
+
+    protected void endBatching() {
+        if (batching) {
+            flush();
+            transaction.setInBatchMode(previousBatchMode);
+            batching = false;
+            if (changedCount != batchedCount) {
+                throw new SqlException(String.format(
+                        "Expected the batched statements for %s to change %d rows, but they changed %d rows",
+                        table.getFullyQualifiedTableName(), batchedCount, changedCount));
+            }
+            batchedCount = 0;
+            changedCount = 0;
+        }
+    }
+
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Counts a statement that was added to the batch along with the rows
+     * changed by any batch that had to be executed to make room for it.  The
+     * statement is reported to the writer as having changed its one row.
+     */
+    public int rowBatched(int count) {
+        batchedCount++;
+        changedCount += count;
+        return 1;
+    }
+
+    public void flush() {
+        if (batching) {
+            changedCount += transaction.flush();
+        }
+    }
+
+    public void rolledBack() {
+        batchedCount = 0;
+        changedCount = 0;
+    }
+
+    protected Conflict pickConflict() {
+        return writer.getWriterSettings().pickConflict(table, writer.getBatch());
+    }
+
+    protected String getKey(CsvData data) {
+        if (writer.getTargetTable() != table) {
+            return null;
+        }
+        Object[] keyValues = getKeyValues(getKeyData(data));
+        return keyValues == null ? null : toKey(keyValues);
+    }
+
+    protected String[] getKeyData(CsvData data) {
+        Table sourceTable = writer.getSourceTable();
+        Map<String, String> keyData = data.getDataEventType() == DataEventType.INSERT ? data.toColumnNameValuePairs(
+                sourceTable.getColumnNames(), CsvData.ROW_DATA) : data.toKeyColumnValuePairs(sourceTable);
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+        String[] values = new String[pkColumns.length];
+        for (int i = 0; i < pkColumns.length; i++) {
+            for (Map.Entry<String, String> entry : keyData.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(pkColumns[i].getName())) {
+                    values[i] = entry.getValue();
+                }
+            }
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    protected Object[] getKeyValues(String[] keyData) {
+        if (keyData != null) {
+            try {
+                return writer.getPlatform().getObjectValues(writer.getBatch().getBinaryEncoding(), keyData,
+                        table.getPrimaryKeyColumns());
+            } catch (RuntimeException ex) {
+                log.debug("Could not convert key values for prefetching", ex);
+            }
+        }
+        return null;
+    }
+
+    protected Object[] getObjectValues(String[] data) {
+        if (data != null) {
+            try {
+                return writer.getPlatform().getObjectValues(writer.getBatch().getBinaryEncoding(), data, table.getColumns());
+            } catch (RuntimeException ex) {
+                log.debug("Could not convert row values for conflict detection", ex);
+            }
+        }
+        return null;
+    }
+
+    protected String toKey(Object[] keyValues) {
+        StringBuilder key = new StringBuilder();
+        for (Object value : keyValues) {
+            if (value instanceof Number) {
+                key.append(new BigDecimal(value.toString()).stripTrailingZeros().toPlainString());
+            } else if (value instanceof Date) {
+                key.append(((Date) value).getTime());
+            } else if (value instanceof byte[]) {
+                key.append(Arrays.toString((byte[]) value));
+            } else {
+                key.append(value);
+            }
+            key.append('\u0001');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the columns that the update statement will set, or null when
+     * there is nothing to set and the writer can skip the row itself.
+     */
+    protected boolean[] getChangedColumns(CsvData data, boolean applyChangesOnly) {
+        String[] rowData = writer.getRowData(data, CsvData.ROW_DATA);
+        String[] oldData = writer.getRowData(data, CsvData.OLD_DATA);
+        boolean[] changed = new boolean[table.getColumnCount()];
+        boolean anyChanged = false;
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = writer.doesColumnNeedUpdated(i, table.getColumn(i), data, rowData, oldData, applyChangesOnly);
+            anyChanged |= changed[i];
+        }
+        return anyChanged ? changed : null;
+    }
+
+    protected boolean isPrimaryKeyChanged(CsvData data, boolean[] changedColumns) {
+        String[] keyData = getKeyData(data);
+        String[] rowData = writer.getRowData(data, CsvData.ROW_DATA);
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+        for (int i = 0; i < pkColumns.length; i++) {
+            int index = table.getColumnIndex(pkColumns[i]);
+            if (changedColumns[index] || (!data.isChangedColumnsOnly() && !StringUtils.equals(rowData[index], keyData[i]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the old data to the existing row for the columns that the
+     * detect type would put in the where clause.  Returns null when the
+     * comparison is not certain and the database needs to decide.
+     */
+    protected Boolean matchesOldData(Conflict conflict, RowState state, CsvData data, boolean[] changedColumns) {
+        DetectConflict detectType = conflict.getDetectType();
+        if (detectType == DetectConflict.USE_PK_DATA
+                || (detectType == DetectConflict.USE_CHANGED_DATA && data.getDataEventType() == DataEventType.DELETE)) {
+            return Boolean.TRUE;
+        }
+        Object[] oldValues = getObjectValues(writer.getRowData(data, CsvData.OLD_DATA));
+        if (oldValues == null || state.values == null) {
+            return null;
+        }
+
+        List<Column> lookupColumns = new ArrayList<Column>();
+        if (detectType == DetectConflict.USE_TIMESTAMP || detectType == DetectConflict.USE_VERSION) {
+            Column column = table.getColumnWithName(conflict.getDetectExpression());
+            if (column == null) {
+                return null;
+            }
+            lookupColumns.add(column);
+        } else if (detectType == DetectConflict.USE_CHANGED_DATA
+                || (detectType == DetectConflict.USE_OLD_DATA && data.isChangedColumnsOnly() && changedColumns != null)) {
+            ArrayList<Column> changed = new ArrayList<Column>();
+            for (int i = 0; i < changedColumns.length; i++) {
+                if (changedColumns[i] && !table.getColumn(i).isPrimaryKey()) {
+                    changed.add(table.getColumn(i));
+                }
+            }
+            changed.addAll(Arrays.asList(table.getPrimaryKeyColumns()));
+            writer.removeExcludedColumns(conflict, changed);
+            lookupColumns = changed.size() > 0 ? changed : table.getColumnsAsList();
+        } else {
+            lookupColumns = table.getColumnsAsList();
+        }
+
+        IDatabasePlatform platform = writer.getPlatform();
+        Boolean matches = Boolean.TRUE;
+        for (Column column : lookupColumns) {
+            if ((platform.isLob(column.getMappedTypeCode()) && data.isNoBinaryOldData())
+                    || !platform.canColumnBeUsedInWhereClause(column)) {
+                continue;
+            }
+            int index = table.getColumnIndex(column);
+            Boolean equal = isEqual(state.values[index], oldValues[index]);
+            if (equal == null) {
+                matches = null;
+            } else if (!equal) {
+                return Boolean.FALSE;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Decides newer wins the way the conflict resolver does for the timestamp
+     * and version detect types, or returns null when the values cannot be
+     * compared here.
+     */
+    protected Boolean isNewer(Conflict conflict, RowState state, CsvData data) {
+        DetectConflict detectType = conflict.getDetectType();
+        if (detectType != DetectConflict.USE_TIMESTAMP && detectType != DetectConflict.USE_VERSION) {
+            return Boolean.FALSE;
+        }
+        Column column = table.getColumnWithName(conflict.getDetectExpression());
+        if (column == null || state.values == null || column.isTimestampWithTimezone()) {
+            return null;
+        }
+        int index = table.getColumnIndex(column);
+        Object existing = state.values[index];
+        if (existing == null) {
+            return Boolean.TRUE;
+        }
+        String loading = writer.getRowData(data, CsvData.ROW_DATA)[index];
+        if (loading == null) {
+            return null;
+        }
+        Object loadingValue = null;
+        if (detectType == DetectConflict.USE_VERSION) {
+            try {
+                loadingValue = new BigDecimal(loading.trim());
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        } else {
+            Object[] values = getObjectValues(writer.getRowData(data, CsvData.ROW_DATA));
+            loadingValue = values == null ? null : values[index];
+        }
+        Integer compare = compare(loadingValue, existing);
+        return compare == null ? null : compare > 0;
+    }
+
+    protected static Boolean isEqual(Object existing, Object loading) {
+        if (existing == null && loading == null) {
+            return Boolean.TRUE;
+        } else if (existing == null || loading == null) {
+            Object value = existing == null ? loading : existing;
+            return "".equals(value) ? null : Boolean.FALSE;
+        } else if (existing instanceof byte[] && loading instanceof byte[]) {
+            return Arrays.equals((byte[]) existing, (byte[]) loading);
+        }
+        Integer compare = compare(existing, loading);
+        if (compare != null) {
+            return compare == 0;
+        } else if (existing.equals(loading)) {
+            return Boolean.TRUE;
+        } else if (existing instanceof Boolean && loading instanceof Boolean) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    protected static Integer compare(Object value, Object other) {
+        if (value instanceof Number && other instanceof Number) {
+            return new BigDecimal(value.toString()).compareTo(new BigDecimal(other.toString()));
+        } else if (value instanceof Timestamp && other instanceof Timestamp) {
+            return ((Timestamp) value).compareTo((Timestamp) other);
+        } else if (value instanceof Date && other instanceof Date) {
+            return Long.valueOf(((Date) value).getTime()).compareTo(((Date) other).getTime());
+        }
+        return null;
+    }
+
+    static class RowState {
+
+        static final RowState ABSENT = new RowState(false, null);
+
+        static final RowState PRESENT = new RowState(true, null);
+
+        boolean exists;
+
+        Object[] values;
+
+        RowState(Object[] values) {
+            this(true, values);
+        }
+
+        RowState(boolean exists, Object[] values) {
+            this.exists = exists;
+            this.values = values;
+        }
+    }
+}
@@ -61,6 +61,10 @@ public class DatabaseWriterSettings {
     
     protected String textColumnExpression;
 
+    protected int conflictPrefetchWindowSize = 0;
+
+    protected int statementCacheSize = 0;
+
     protected Map<String, Conflict> conflictSettingsByChannel;
 
     protected Map<String, Conflict> conflictSettingsByTable;
@@ -292,4 +296,20 @@ public class DatabaseWriterSettings {
     public boolean isApplyChangesOnly() {
         return applyChangesOnly;
     }
+
+    public void setConflictPrefetchWindowSize(int conflictPrefetchWindowSize) {
+        this.conflictPrefetchWindowSize = conflictPrefetchWindowSize;
+    }
+
+    public int getConflictPrefetchWindowSize() {
+        return conflictPrefetchWindowSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
 }
@@ -27,6 +27,7 @@ import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +70,8 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     
     public static final String CUR_DATA = "DatabaseWriter.CurData";
 
+    protected static final int MAX_CACHED_UPDATE_STATEMENTS = 100;
+
     protected IDatabasePlatform platform;
 
     protected ISqlTransaction transaction;
@@ -76,6 +79,15 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     protected DmlStatement currentDmlStatement;
     
     protected Object[] currentDmlValues;
+
+    /**
+     * Update statements built during the current batch, keyed by table, the
+     * columns being set and the lookup keys, so updates that alternate between
+     * a few sets of changed columns do not build their statements again
+     */
+    protected Map<String, DmlStatement> updateStatementCache = new HashMap<String, DmlStatement>();
+
+    protected ConflictPrefetchWindow conflictPrefetch;
     
     protected LogSqlBuilder logSqlBuilder = new LogSqlBuilder();
 
@@ -121,6 +133,10 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     public void open(DataContext context) {
         super.open(context);
         this.transaction = this.platform.getSqlTemplate().startSqlTransaction();
+        this.transaction.setStatementCacheSize(writerSettings.getStatementCacheSize());
+        if (writerSettings.getConflictPrefetchWindowSize() > 0) {
+            this.conflictPrefetch = new ConflictPrefetchWindow(this, writerSettings.getConflictPrefetchWindowSize());
+        }
     }
 
     @Override
@@ -133,15 +149,46 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         return process;
     }    
 
+    @Override
+    public void write(CsvData data) {
+        if (conflictPrefetch != null && conflictPrefetch.accepts(data)) {
+            conflictPrefetch.add(data);
+            if (conflictPrefetch.isFull()) {
+                conflictPrefetch.apply();
+            }
+        } else {
+            applyConflictPrefetch();
+            super.write(data);
+        }
+    }
+
+    /**
+     * Writes a row that was held in the conflict prefetch window
+     */
+    protected void writeRow(CsvData data) {
+        super.write(data);
+    }
+
+    protected void applyConflictPrefetch() {
+        if (conflictPrefetch != null && !conflictPrefetch.isEmpty()) {
+            conflictPrefetch.apply();
+        }
+    }
+
     @Override
     public void end(Table table) {
+        applyConflictPrefetch();
         super.end(table);
         allowInsertIntoAutoIncrementColumns(false, this.targetTable);
     }
 
     @Override
     public void end(Batch batch, boolean inError) {
+        if (!inError) {
+            applyConflictPrefetch();
+        }
         this.currentDmlStatement = null;
+        this.updateStatementCache.clear();
         super.end(batch, inError);
     }
 
@@ -158,6 +205,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         if (this.transaction != null) {
             try {
                 statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+                if (conflictPrefetch != null) {
+                    conflictPrefetch.flush();
+                }
                 this.transaction.commit();
                 if (!earlyCommit) {
                    notifyFiltersBatchCommitted();
@@ -177,6 +227,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         if (this.transaction != null) {
             try {
                 statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
+                if (conflictPrefetch != null) {
+                    conflictPrefetch.rolledBack();
+                }
                 this.transaction.rollback();
                 notifyFiltersBatchRolledback();
             } finally {
@@ -189,6 +242,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected LoadStatus insert(CsvData data) {
+        if (conflictPrefetch != null && conflictPrefetch.claim(data)) {
+            return conflictPrefetch.insert(data);
+        }
         try {
             statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
             if (requireNewStatement(DmlType.INSERT, data, false, true, null)) {
@@ -231,6 +287,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
         } catch (RuntimeException ex) {
             logFailureDetails(ex, data, true);
+            resetCachedTargetTable(ex);
             throw ex;
         } finally {
             statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
@@ -249,6 +306,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected LoadStatus delete(CsvData data, boolean useConflictDetection) {
+        if (conflictPrefetch != null && conflictPrefetch.claim(data)) {
+            return conflictPrefetch.delete(data);
+        }
         try {
             statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
             Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
@@ -357,6 +417,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
         } catch (SqlException ex) {
             logFailureDetails(ex, data, true);
+            resetCachedTargetTable(ex);
             throw ex;
         } finally {
             statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
@@ -366,6 +427,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected LoadStatus update(CsvData data, boolean applyChangesOnly, boolean useConflictDetection) {
+        if (conflictPrefetch != null && conflictPrefetch.claim(data)) {
+            return conflictPrefetch.update(data, applyChangesOnly);
+        }
         try {
             statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
             String[] rowData = getRowData(data, CsvData.ROW_DATA);
@@ -387,15 +451,23 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             if (changedColumnNameList.size() > 0) {
                 Map<String, String> lookupDataMap = null;
                 Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
+                DetectConflict detectType = conflict.getDetectType();
+                if (detectType == DetectConflict.USE_OLD_DATA && data.isChangedColumnsOnly()) {
+                    /*
+                     * Only the old values of the changed columns were sent, so
+                     * those are the ones that can be checked
+                     */
+                    detectType = DetectConflict.USE_CHANGED_DATA;
+                }
                 if (requireNewStatement(DmlType.UPDATE, data, applyChangesOnly,
-                        useConflictDetection, conflict.getDetectType())) {
+                        useConflictDetection, detectType)) {
                     lastApplyChangesOnly = applyChangesOnly;
                     lastUseConflictDetection = useConflictDetection;
                     List<Column> lookupKeys = null;
                     if (!useConflictDetection) {
                         lookupKeys = targetTable.getPrimaryKeyColumnsAsList();
                     } else {
-                        switch (conflict.getDetectType()) {
+                        switch (detectType) {
                             case USE_CHANGED_DATA:
                                 ArrayList<Column> lookupColumns = new ArrayList<Column>(
                                         changedColumnsList);
@@ -480,12 +552,21 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                                 && lookupDataMap.get(column.getName()) == null;
                     }
 
-                    this.currentDmlStatement = getPlatform().createDmlStatement(DmlType.UPDATE,
-                            targetTable.getCatalog(), targetTable.getSchema(),
-                            targetTable.getName(),
-                            lookupKeys.toArray(new Column[lookupKeys.size()]),
-                            changedColumnsList.toArray(new Column[changedColumnsList.size()]),
-                            nullKeyValues, writerSettings.getTextColumnExpression());
+                    String statementKey = getUpdateStatementKey(lookupKeys, changedColumnsList, nullKeyValues);
+                    DmlStatement statement = updateStatementCache.get(statementKey);
+                    if (statement == null) {
+                        statement = getPlatform().createDmlStatement(DmlType.UPDATE,
+                                targetTable.getCatalog(), targetTable.getSchema(),
+                                targetTable.getName(),
+                                lookupKeys.toArray(new Column[lookupKeys.size()]),
+                                changedColumnsList.toArray(new Column[changedColumnsList.size()]),
+                                nullKeyValues, writerSettings.getTextColumnExpression());
+                        if (updateStatementCache.size() >= MAX_CACHED_UPDATE_STATEMENTS) {
+                            updateStatementCache.clear();
+                        }
+                        updateStatementCache.put(statementKey, statement);
+                    }
+                    this.currentDmlStatement = statement;
                     if (log.isDebugEnabled()) {
                         log.debug("Preparing dml: " + this.currentDmlStatement.getSql());
                     }
@@ -527,6 +608,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
         } catch (RuntimeException ex) {
             logFailureDetails(ex, data, true);
+            resetCachedTargetTable(ex);
             throw ex;
         } finally {
             statistics.get(batch).stopTimer(DataWriterStatisticConstants.LOADMILLIS);
@@ -541,6 +623,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     		String tempNonSymTable = "NON_SYM_TABLE";
     		
     		getTransaction(tempNonSymTable).commit();
+    		updateStatementCache.clear();
 
             statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
             xml = data.getParsedData(CsvData.ROW_DATA)[0];
@@ -576,6 +659,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             statistics.get(batch).startTimer(DataWriterStatisticConstants.LOADMILLIS);
             String script = data.getParsedData(CsvData.ROW_DATA)[0];
             List<String> sqlStatements = getSqlStatements(script);
+            updateStatementCache.clear();
             long count = 0;
             for (String sql : sqlStatements) {
                 try {
@@ -602,6 +686,23 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         }
     }
     
+    protected String getUpdateStatementKey(List<Column> lookupKeys, List<Column> changedColumns,
+            boolean[] nullKeyValues) {
+        StringBuilder key = new StringBuilder(targetTable.getFullyQualifiedTableName());
+        key.append(" set");
+        for (Column column : changedColumns) {
+            key.append(' ').append(column.getName());
+        }
+        key.append(" where");
+        for (int i = 0; i < lookupKeys.size(); i++) {
+            key.append(' ').append(lookupKeys.get(i).getName());
+            if (nullKeyValues[i]) {
+                key.append(" null");
+            }
+        }
+        return key.toString();
+    }
+
     protected boolean requireNewStatement(DmlType currentType, CsvData data,
             boolean applyChangesOnly, boolean useConflictDetection,
             Conflict.DetectConflict detectType) {
@@ -669,7 +770,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         allowInsertIntoAutoIncrementColumns(true, targetTable);
     }
 
-    private void removeExcludedColumns(Conflict conflict,
+    protected void removeExcludedColumns(Conflict conflict,
             ArrayList<Column> lookupColumns) {
         String excludedString = conflict.getDetectExpressionValue(
                 DetectExpressionKey.EXCLUDED_COLUMN_NAMES);
@@ -690,6 +791,28 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         }
     }
 
+    /**
+     * A statement that fails because a table or column does not exist means the
+     * target table was altered after it was cached, so the table is read from the
+     * database again the next time it is needed. Other failures, like constraint
+     * violations and deadlocks, leave the cache alone.
+     */
+    protected void resetCachedTargetTable(Throwable ex) {
+        if (ex instanceof SqlException && targetTable != null
+                && getPlatform(targetTable).getSqlTemplate().isMissingTableOrColumn(ex)) {
+            getPlatform(targetTable).resetCachedTable(targetTable.getCatalog(), targetTable.getSchema(),
+                    targetTable.getName());
+            String targetTableName = targetTable.getFullyQualifiedTableName();
+            Iterator<Table> cachedTables = targetTables.values().iterator();
+            while (cachedTables.hasNext()) {
+                Table cachedTable = cachedTables.next();
+                if (cachedTable != null && cachedTable.getFullyQualifiedTableName().equals(targetTableName)) {
+                    cachedTables.remove();
+                }
+            }
+        }
+    }
+
     @Override
     protected void logFailureDetails(Throwable e, CsvData data, boolean logLastDmlDetails) {
         StringBuilder failureMessage = new StringBuilder();
@@ -863,6 +986,13 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         boolean needsUpdated = true;
         if (!getPlatform().getDatabaseInfo().isAutoIncrementUpdateAllowed() && column.isAutoIncrement()) {
             needsUpdated = false;
+        } else if (data.isChangedColumnsOnly()) {
+            /*
+             * Only the changed columns were sent, so the others have to be left
+             * alone whether or not changes only are being applied
+             */
+            int sourceColumnIndex = sourceTable.getColumnIndex(column.getName());
+            needsUpdated = sourceColumnIndex >= 0 && data.getChangedColumns()[sourceColumnIndex];
         } else if (oldData != null && applyChangesOnly) {
             /*
              * Old data isn't captured for some lob fields. When both values are
@@ -899,10 +1029,16 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     }
 
     protected void prepare() {
+        if (conflictPrefetch != null) {
+            conflictPrefetch.flush();
+        }
         getTransaction().prepare(this.currentDmlStatement.getSql());
     }
     
     protected void prepare(String sql, CsvData data) {
+        if (conflictPrefetch != null) {
+            conflictPrefetch.flush();
+        }
         getTransaction().prepare(sql);
     }
     
@@ -914,7 +1050,8 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     dmlValuesToString(currentDmlValues, this.currentDmlStatement.getTypes()),
                     TypeMap.getJdbcTypeDescriptions(this.currentDmlStatement.getTypes()));
         }
-        return getTransaction().addRow(data, currentDmlValues, this.currentDmlStatement.getTypes());
+        int count = getTransaction().addRow(data, currentDmlValues, this.currentDmlStatement.getTypes());
+        return conflictPrefetch != null && conflictPrefetch.isBatching() ? conflictPrefetch.rowBatched(count) : count;
     }
 
     @Override
@@ -33,6 +33,7 @@ import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
 import org.jumpmind.symmetric.io.stage.IStagedResource.State;
 import org.jumpmind.symmetric.io.stage.IStagingManager;
+import org.jumpmind.symmetric.io.stage.StagingPipe;
 import org.jumpmind.util.FormatUtils;
 
 public class StagingDataWriter extends AbstractProtocolDataWriter {
@@ -47,6 +48,8 @@ public class StagingDataWriter extends AbstractProtocolDataWriter {
     
     private boolean acquireReference = false;
 
+    private StagingPipe pipe;
+
     public StagingDataWriter(long memoryThresholdInBytes, boolean acquireReference, String sourceNodeId, String category, IStagingManager stagingManager,
             IProtocolDataWriterListener... listeners) {
         this(sourceNodeId, category, stagingManager, toList(listeners));
@@ -97,10 +100,21 @@ public class StagingDataWriter extends AbstractProtocolDataWriter {
         return resource;
     }
 
+    public void setPipe(StagingPipe pipe) {
+        this.pipe = pipe;
+    }
+
+    public StagingPipe getPipe() {
+        return pipe;
+    }
+
     @Override
     protected void endBatch(Batch batch) {
         IStagedResource resource = getStagedResource(batch);
         resource.close();
+        if (pipe != null) {
+            pipe.close();
+        }
         flushNodeId = true;
         processedTables.clear();
         table = null;        
@@ -119,6 +133,9 @@ public class StagingDataWriter extends AbstractProtocolDataWriter {
                 int end = i + 1024;
                 writer.append(data, i, end < size ? end : size);
             }
+            if (pipe != null) {
+                pipe.write(data);
+            }
         } catch (IOException ex) {
             throw new IoException(ex);
         }
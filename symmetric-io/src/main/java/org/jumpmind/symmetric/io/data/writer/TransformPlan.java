@@ -0,0 +1,353 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn;
+import org.jumpmind.symmetric.io.data.transform.TransformColumn.IncludeOnType;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.util.LinkedCaseInsensitiveMap;
+
+/**
+ * The transforms for one source table layout, compiled once so that the
+ * {@link TransformWriter} does not have to rebuild them for every row. The
+ * plan holds the transforms enhanced with implied columns, an index of the
+ * source columns and, for each DML type, the ordered transform chain with
+ * the transform columns that apply to it.
+ */
+public class TransformPlan {
+
+    static final int MAX_CACHED_TARGET_TABLES = 100;
+
+    protected List<TransformTable> transforms;
+
+    protected String[] sourceColumnNames;
+
+    protected Map<String, Integer> exactColumnIndex;
+
+    protected Map<String, Integer> columnIndex;
+
+    protected Map<DataEventType, Chain> chains;
+
+    protected Map<TargetTableKey, Table> targetTables = new ConcurrentHashMap<TargetTableKey, Table>();
+
+    public TransformPlan(Table sourceTable, List<TransformTable> transforms) {
+        this.sourceColumnNames = sourceTable.getColumnNames();
+        this.transforms = new ArrayList<TransformTable>(transforms.size());
+        for (TransformTable transformation : transforms) {
+            this.transforms.add(transformation.enhanceWithImpliedColumns(
+                    sourceTable.getPrimaryKeyColumnNames(), sourceColumnNames));
+        }
+
+        this.exactColumnIndex = new HashMap<String, Integer>(sourceColumnNames.length);
+        this.columnIndex = new LinkedCaseInsensitiveMap<Integer>(sourceColumnNames.length);
+        for (int i = 0; i < sourceColumnNames.length; i++) {
+            exactColumnIndex.put(sourceColumnNames[i], i);
+            columnIndex.put(sourceColumnNames[i], i);
+        }
+
+        this.chains = new HashMap<DataEventType, Chain>(3);
+        chains.put(DataEventType.INSERT, new Chain(DataEventType.INSERT));
+        chains.put(DataEventType.UPDATE, new Chain(DataEventType.UPDATE));
+        chains.put(DataEventType.DELETE, new Chain(DataEventType.DELETE));
+    }
+
+    public List<TransformTable> getTransforms() {
+        return transforms;
+    }
+
+    public Chain getChain(DataEventType eventType) {
+        return chains.get(eventType);
+    }
+
+    /**
+     * Wrap the values of a row in a map keyed by source column name. The
+     * values are copied so that column transforms may change the map without
+     * changing the parsed data.
+     */
+    public Map<String, String> toColumnValues(String[] values) {
+        if (values != null && values.length >= sourceColumnNames.length) {
+            return new ColumnValues(Arrays.copyOf(values, sourceColumnNames.length));
+        } else {
+            return new HashMap<String, String>(0);
+        }
+    }
+
+    /**
+     * Get the target table for the given columns, building it only the first
+     * time a combination of columns is seen. The plan is shared by every
+     * writer of the engine and filters may change the table, such as setting
+     * the schema for the node being loaded, so each caller gets its own copy.
+     */
+    public Table getTargetTable(TransformTable transformation, String[] columnNames, String[] keyNames) {
+        if (columnNames == null || columnNames.length == 0) {
+            return null;
+        }
+        TargetTableKey key = new TargetTableKey(transformation, columnNames, keyNames);
+        Table table = targetTables.get(key);
+        if (table == null) {
+            table = new Table(transformation.getTargetCatalogName(), transformation.getTargetSchemaName(),
+                    transformation.getTargetTableName());
+            List<String> keys = keyNames != null ? Arrays.asList(keyNames) : Collections.<String> emptyList();
+            for (String columnName : columnNames) {
+                Column column = new Column(columnName);
+                column.setPrimaryKey(keys.contains(columnName));
+                table.addColumn(column);
+            }
+            if (targetTables.size() < MAX_CACHED_TARGET_TABLES) {
+                targetTables.put(key, table);
+                table = table.copy();
+            }
+        } else {
+            table = table.copy();
+        }
+        return table;
+    }
+
+    protected static boolean isIncluded(TransformColumn transformColumn, DataEventType eventType) {
+        IncludeOnType includeOn = transformColumn.getIncludeOn();
+        return includeOn == IncludeOnType.ALL || (includeOn == IncludeOnType.INSERT && eventType == DataEventType.INSERT)
+                || (includeOn == IncludeOnType.UPDATE && eventType == DataEventType.UPDATE)
+                || (includeOn == IncludeOnType.DELETE && eventType == DataEventType.DELETE);
+    }
+
+    protected static List<TransformColumn> filter(List<TransformColumn> transformColumns, DataEventType eventType,
+            boolean includePrimaryKeys) {
+        List<TransformColumn> filtered = new ArrayList<TransformColumn>();
+        if (transformColumns != null) {
+            for (TransformColumn transformColumn : transformColumns) {
+                if ((includePrimaryKeys || !transformColumn.isPk()) && isIncluded(transformColumn, eventType)) {
+                    filtered.add(transformColumn);
+                }
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * The transforms to run, in order, for one DML type of the source table.
+     */
+    public class Chain {
+
+        protected TransformTable[] transforms;
+
+        protected DataEventType[] eventTypes;
+
+        protected List<List<TransformColumn>> primaryKeyColumns;
+
+        protected List<List<TransformColumn>> columns;
+
+        Chain(DataEventType eventType) {
+            List<TransformTable> ordered = new ArrayList<TransformTable>(TransformPlan.this.transforms);
+            if (eventType == DataEventType.DELETE) {
+                Collections.reverse(ordered);
+            }
+            transforms = ordered.toArray(new TransformTable[ordered.size()]);
+            eventTypes = new DataEventType[transforms.length];
+            primaryKeyColumns = new ArrayList<List<TransformColumn>>(transforms.length);
+            columns = new ArrayList<List<TransformColumn>>(transforms.length);
+            for (int i = 0; i < transforms.length; i++) {
+                TransformTable transformation = transforms[i];
+                DataEventType localEventType = eventType;
+                if (localEventType == DataEventType.INSERT && transformation.isUpdateFirst()) {
+                    localEventType = DataEventType.UPDATE;
+                }
+                eventTypes[i] = localEventType;
+                primaryKeyColumns.add(filter(transformation.getPrimaryKeyColumns(), localEventType, true));
+                columns.add(filter(transformation.getTransformColumns(), localEventType, false));
+            }
+        }
+
+        public int size() {
+            return transforms.length;
+        }
+
+        public TransformTable getTransform(int index) {
+            return transforms[index];
+        }
+
+        public DataEventType getEventType(int index) {
+            return eventTypes[index];
+        }
+
+        public List<TransformColumn> getPrimaryKeyColumns(int index) {
+            return primaryKeyColumns.get(index);
+        }
+
+        public List<TransformColumn> getColumns(int index) {
+            return columns.get(index);
+        }
+    }
+
+    /**
+     * Row values looked up by case insensitive column name through the
+     * column index of the plan.
+     */
+    class ColumnValues extends AbstractMap<String, String> {
+
+        String[] values;
+
+        Map<String, String> addedValues;
+
+        ColumnValues(String[] values) {
+            this.values = values;
+        }
+
+        protected int indexOf(Object key) {
+            Integer index = exactColumnIndex.get(key);
+            if (index == null) {
+                index = columnIndex.get(key);
+            }
+            return index != null ? index : -1;
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                return values[index];
+            } else {
+                return addedValues != null ? addedValues.get(key) : null;
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0 || (addedValues != null && addedValues.containsKey(key));
+        }
+
+        @Override
+        public String put(String key, String value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                String oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            } else {
+                if (addedValues == null) {
+                    addedValues = new LinkedCaseInsensitiveMap<String>();
+                }
+                return addedValues.put(key, value);
+            }
+        }
+
+        @Override
+        public int size() {
+            return values.length + (addedValues != null ? addedValues.size() : 0);
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                @Override
+                public int size() {
+                    return ColumnValues.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    final Iterator<Map.Entry<String, String>> added = addedValues != null ? addedValues.entrySet()
+                            .iterator() : null;
+                    return new Iterator<Map.Entry<String, String>>() {
+                        int index = 0;
+
+                        public boolean hasNext() {
+                            return index < values.length || (added != null && added.hasNext());
+                        }
+
+                        public Map.Entry<String, String> next() {
+                            if (index < values.length) {
+                                final int i = index++;
+                                return new SimpleEntry<String, String>(sourceColumnNames[i], values[i]) {
+                                    private static final long serialVersionUID = 1L;
+
+                                    @Override
+                                    public String setValue(String value) {
+                                        values[i] = value;
+                                        return super.setValue(value);
+                                    }
+                                };
+                            } else if (added != null) {
+                                return added.next();
+                            } else {
+                                throw new NoSuchElementException();
+                            }
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    static class TargetTableKey {
+
+        TransformTable transformation;
+
+        String[] columnNames;
+
+        String[] keyNames;
+
+        int hashCode;
+
+        TargetTableKey(TransformTable transformation, String[] columnNames, String[] keyNames) {
+            this.transformation = transformation;
+            this.columnNames = columnNames;
+            this.keyNames = keyNames;
+            this.hashCode = 31 * (31 * System.identityHashCode(transformation) + Arrays.hashCode(columnNames))
+                    + Arrays.hashCode(keyNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof TargetTableKey) {
+                TargetTableKey key = (TargetTableKey) obj;
+                return transformation == key.transformation && Arrays.equals(columnNames, key.columnNames)
+                        && Arrays.equals(keyNames, key.keyNames);
+            }
+            return false;
+        }
+    }
+
+}
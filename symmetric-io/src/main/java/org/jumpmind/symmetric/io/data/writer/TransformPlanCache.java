@@ -0,0 +1,115 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+
+/**
+ * Holds the {@link TransformPlan}s that have been compiled for source tables
+ * so they can be shared by the {@link TransformWriter}s of many batches.
+ * Plans are keyed by the identity of the transforms they were compiled from,
+ * so the cache needs to be cleared whenever the transform configuration is
+ * reloaded.
+ */
+public class TransformPlanCache {
+
+    static final int MAX_PLANS = 1000;
+
+    protected Map<PlanKey, TransformPlan> plans = new ConcurrentHashMap<PlanKey, TransformPlan>();
+
+    public TransformPlan getPlan(Table sourceTable, List<TransformTable> transforms) {
+        PlanKey key = new PlanKey(sourceTable, transforms);
+        TransformPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = new TransformPlan(sourceTable, transforms);
+            if (plans.size() >= MAX_PLANS) {
+                plans.clear();
+            }
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    public void clear() {
+        plans.clear();
+    }
+
+    static class PlanKey {
+
+        String tableName;
+
+        String[] columnNames;
+
+        String[] primaryKeyColumnNames;
+
+        TransformTable[] transforms;
+
+        int hashCode;
+
+        PlanKey(Table sourceTable, List<TransformTable> transforms) {
+            this.tableName = sourceTable.getFullyQualifiedTableNameLowerCase();
+            this.columnNames = sourceTable.getColumnNames();
+            this.primaryKeyColumnNames = sourceTable.getPrimaryKeyColumnNames();
+            this.transforms = transforms.toArray(new TransformTable[transforms.size()]);
+            int hash = tableName.hashCode();
+            hash = 31 * hash + Arrays.hashCode(columnNames);
+            hash = 31 * hash + Arrays.hashCode(primaryKeyColumnNames);
+            for (TransformTable transform : this.transforms) {
+                hash = 31 * hash + System.identityHashCode(transform);
+            }
+            this.hashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof PlanKey) {
+                PlanKey key = (PlanKey) obj;
+                if (tableName.equals(key.tableName) && Arrays.equals(columnNames, key.columnNames)
+                        && Arrays.equals(primaryKeyColumnNames, key.primaryKeyColumnNames)
+                        && transforms.length == key.transforms.length) {
+                    for (int i = 0; i < transforms.length; i++) {
+                        if (transforms[i] != key.transforms[i]) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
@@ -25,7 +25,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -41,7 +40,6 @@ import org.jumpmind.symmetric.io.data.transform.IgnoreColumnException;
 import org.jumpmind.symmetric.io.data.transform.IgnoreRowException;
 import org.jumpmind.symmetric.io.data.transform.NewAndOldValue;
 import org.jumpmind.symmetric.io.data.transform.TransformColumn;
-import org.jumpmind.symmetric.io.data.transform.TransformColumn.IncludeOnType;
 import org.jumpmind.symmetric.io.data.transform.TransformColumnException;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
 import org.jumpmind.symmetric.io.data.transform.TransformTable;
@@ -62,6 +60,8 @@ public class TransformWriter extends NestedDataWriter {
     protected Batch batch;
     protected Map<String, IColumnTransform<?>> columnTransforms;
     protected Table lastTransformedTable;
+    protected TransformPlanCache planCache = new TransformPlanCache();
+    protected TransformPlan plan;
     
     public TransformWriter(IDatabasePlatform platform, TransformPoint transformPoint,
             IDataWriter targetWriter, Map<String, IColumnTransform<?>> columnTransforms, 
@@ -102,19 +102,24 @@ public class TransformWriter extends NestedDataWriter {
         List<TransformTable> activeTransformsTemp = transformsBySourceTable.get(table.getFullyQualifiedTableNameLowerCase());
         if (activeTransformsTemp != null && activeTransformsTemp.size() > 0) { 
             this.sourceTable = table;
-            activeTransforms = new ArrayList<TransformTable>(activeTransformsTemp.size());
-            for (TransformTable transformation : activeTransformsTemp) {
-                activeTransforms.add(transformation.enhanceWithImpliedColumns(
-                        this.sourceTable.getPrimaryKeyColumnNames(),
-                        this.sourceTable.getColumnNames()));
-            }
+            this.plan = planCache.getPlan(table, activeTransformsTemp);
+            activeTransforms = plan.getTransforms();
             return true;
         } else {
             this.sourceTable = null;
+            this.plan = null;
             return super.start(table);
         }
     }
 
+    public void setPlanCache(TransformPlanCache planCache) {
+        this.planCache = planCache;
+    }
+
+    public TransformPlanCache getPlanCache() {
+        return planCache;
+    }
+
     protected boolean isTransformable(DataEventType eventType) {
         return eventType != null
                 && (eventType == DataEventType.INSERT || eventType == DataEventType.UPDATE || eventType == DataEventType.DELETE);
@@ -130,13 +135,11 @@ public class TransformWriter extends NestedDataWriter {
                 start(context.getLastParsedTable());
             }
 
-            Map<String, String> sourceValues = data.toColumnNameValuePairs(this.sourceTable.getColumnNames(),
-                    CsvData.ROW_DATA);
+            Map<String, String> sourceValues = plan.toColumnValues(data.getParsedData(CsvData.ROW_DATA));
             
             Map<String, String> oldSourceValues = null;
             if (data.contains(CsvData.OLD_DATA)) {
-                oldSourceValues = data.toColumnNameValuePairs(this.sourceTable.getColumnNames(),
-                        CsvData.OLD_DATA);
+                oldSourceValues = plan.toColumnValues(data.getParsedData(CsvData.OLD_DATA));
             }
             
             Map<String, String> sourceKeyValues = null;
@@ -159,26 +162,21 @@ public class TransformWriter extends NestedDataWriter {
                                 this.sourceTable.getFullyQualifiedTableName(), sourceValues });
             }
 
-            TransformTable[] transformTables = activeTransforms.toArray(new TransformTable[activeTransforms.size()]);
-            if (eventType == DataEventType.DELETE) {
-                CollectionUtils.reverseArray(transformTables);
-            }
-
-            for (TransformTable transformation : transformTables) {
-                DataEventType localEventType = eventType;
-                if (localEventType == DataEventType.INSERT && transformation.isUpdateFirst()) {
-                    localEventType = DataEventType.UPDATE;
-                }
-                
+            TransformPlan.Chain chain = plan.getChain(eventType);
+            for (int i = 0; i < chain.size(); i++) {
+                TransformTable transformation = chain.getTransform(i);
                 List<TransformedData> dataThatHasBeenTransformed = 
-                        transform(localEventType, context, transformation, sourceKeyValues, oldSourceValues, sourceValues);
+                        transform(chain.getEventType(i), context, transformation, chain.getPrimaryKeyColumns(i),
+                                chain.getColumns(i), sourceKeyValues, oldSourceValues, sourceValues);
                 
                 
                 for (TransformedData transformedData : dataThatHasBeenTransformed) {
-                    Table transformedTable = transformedData.buildTargetTable();
+                    Table transformedTable = plan.getTargetTable(transformation, transformedData.getColumnNames(),
+                            transformedData.getKeyNames());
                     CsvData csvData = transformedData.buildTargetCsvData();
                     boolean processData = true;
-                    if (lastTransformedTable == null || !lastTransformedTable.equals(transformedTable)) {
+                    if (lastTransformedTable == null || (lastTransformedTable != transformedTable
+                            && !lastTransformedTable.equals(transformedTable))) {
                         if (lastTransformedTable != null) {
                             this.nestedWriter.end(lastTransformedTable);
                         }
@@ -209,9 +207,18 @@ public class TransformWriter extends NestedDataWriter {
     protected List<TransformedData> transform(DataEventType eventType, DataContext context,
             TransformTable transformation, Map<String, String> sourceKeyValues,
             Map<String, String> oldSourceValues, Map<String, String> sourceValues) {
+        return transform(eventType, context, transformation,
+                TransformPlan.filter(transformation.getPrimaryKeyColumns(), eventType, true),
+                TransformPlan.filter(transformation.getTransformColumns(), eventType, false), sourceKeyValues,
+                oldSourceValues, sourceValues);
+    }
+
+    protected List<TransformedData> transform(DataEventType eventType, DataContext context,
+            TransformTable transformation, List<TransformColumn> primaryKeyColumns, List<TransformColumn> columns,
+            Map<String, String> sourceKeyValues, Map<String, String> oldSourceValues, Map<String, String> sourceValues) {
         long ts = System.currentTimeMillis();
         try {
-            List<TransformedData> dataToTransform = create(context, eventType, transformation,
+            List<TransformedData> dataToTransform = create(context, eventType, transformation, primaryKeyColumns,
                     sourceKeyValues, oldSourceValues, sourceValues);
             List<TransformedData> dataThatHasBeenTransformed = new ArrayList<TransformedData>(
                     dataToTransform.size());
@@ -224,7 +231,7 @@ public class TransformWriter extends NestedDataWriter {
             int transformNumber = 0;
             for (TransformedData targetData : dataToTransform) {
                 transformNumber++;
-                if (perform(context, targetData, transformation, sourceValues, oldSourceValues)) {
+                if (perform(context, targetData, transformation, columns, sourceValues, oldSourceValues)) {
                     if (log.isDebugEnabled()) {
                         log.debug(
                                 "Data has been transformed to a {} for the #{} transform.  The mapped target columns are: {}. The mapped target values are: {}",
@@ -262,55 +269,53 @@ public class TransformWriter extends NestedDataWriter {
     protected boolean perform(DataContext context, TransformedData data,
             TransformTable transformation, Map<String, String> sourceValues,
             Map<String, String> oldSourceValues) throws IgnoreRowException {
+        return perform(context, data, transformation,
+                TransformPlan.filter(transformation.getTransformColumns(), data.getSourceDmlType(), false),
+                sourceValues, oldSourceValues);
+    }
+
+    protected boolean perform(DataContext context, TransformedData data,
+            TransformTable transformation, List<TransformColumn> columns, Map<String, String> sourceValues,
+            Map<String, String> oldSourceValues) throws IgnoreRowException {
         boolean persistData = false;
         try {
-
-
-
             DataEventType eventType = data.getSourceDmlType();
-            for (TransformColumn transformColumn : transformation.getTransformColumns()) {
-                if (!transformColumn.isPk()) {
-                    IncludeOnType includeOn = transformColumn.getIncludeOn();
-                    if (includeOn == IncludeOnType.ALL || (includeOn == IncludeOnType.INSERT && eventType == DataEventType.INSERT)
-                            || (includeOn == IncludeOnType.UPDATE && eventType == DataEventType.UPDATE)
-                            || (includeOn == IncludeOnType.DELETE && eventType == DataEventType.DELETE)) {
-                        if (StringUtils.isBlank(transformColumn.getSourceColumnName())
-                                || sourceValues.containsKey(transformColumn.getSourceColumnName())) {
-                            try {
-                                Object value = transformColumn(context, data, transformColumn, sourceValues, oldSourceValues);
-                                if (value instanceof NewAndOldValue) {
-                                    data.put(transformColumn, ((NewAndOldValue) value).getNewValue(),
-                                            oldSourceValues != null ? ((NewAndOldValue) value).getOldValue() : null, false);
-                                } else if (value == null || value instanceof String) {
-                                    data.put(transformColumn, (String) value, null, false);
-                                } else if (value instanceof List) {
-                                    throw new IllegalStateException(String.format(
-                                            "Column transform failed %s.%s. Transforms that multiply rows must be marked as part of the primary key",
-                                            transformColumn.getTransformId(), transformColumn.getTargetColumnName()));
-                                } else {
-                                    throw new IllegalStateException(
-                                            String.format("Column transform failed %s.%s. It returned an unexpected type of %s",
-                                                    transformColumn.getTransformId(), transformColumn.getTargetColumnName(),
-                                                    value.getClass().getSimpleName()));
-                                }
-                            } catch (IgnoreColumnException e) {
-                                // Do nothing. We are ignoring the column
-                                if (log.isDebugEnabled()) {
-                                    log.debug("A transform indicated we should ignore the target column {}",
-                                            transformColumn.getTargetColumnName());
-                                }
-                            }
+            for (TransformColumn transformColumn : columns) {
+                if (StringUtils.isBlank(transformColumn.getSourceColumnName())
+                        || sourceValues.containsKey(transformColumn.getSourceColumnName())) {
+                    try {
+                        Object value = transformColumn(context, data, transformColumn, sourceValues, oldSourceValues);
+                        if (value instanceof NewAndOldValue) {
+                            data.put(transformColumn, ((NewAndOldValue) value).getNewValue(),
+                                    oldSourceValues != null ? ((NewAndOldValue) value).getOldValue() : null, false);
+                        } else if (value == null || value instanceof String) {
+                            data.put(transformColumn, (String) value, null, false);
+                        } else if (value instanceof List) {
+                            throw new IllegalStateException(String.format(
+                                    "Column transform failed %s.%s. Transforms that multiply rows must be marked as part of the primary key",
+                                    transformColumn.getTransformId(), transformColumn.getTargetColumnName()));
                         } else {
-                            if (eventType != DataEventType.DELETE) {
-                                log.warn("Could not find a source column of {} for the transformation: {}",
-                                        transformColumn.getSourceColumnName(), transformation.getTransformId());
-                            } else {
-                                log.debug(
-                                        "Could not find a source column of {} for the transformation: {}.  This is probably because this was a DELETE event and no old data was captured.",
-                                        transformColumn.getSourceColumnName(), transformation.getTransformId());
-                            }
+                            throw new IllegalStateException(
+                                    String.format("Column transform failed %s.%s. It returned an unexpected type of %s",
+                                            transformColumn.getTransformId(), transformColumn.getTargetColumnName(),
+                                            value.getClass().getSimpleName()));
+                        }
+                    } catch (IgnoreColumnException e) {
+                        // Do nothing. We are ignoring the column
+                        if (log.isDebugEnabled()) {
+                            log.debug("A transform indicated we should ignore the target column {}",
+                                    transformColumn.getTargetColumnName());
                         }
                     }
+                } else {
+                    if (eventType != DataEventType.DELETE) {
+                        log.warn("Could not find a source column of {} for the transformation: {}",
+                                transformColumn.getSourceColumnName(), transformation.getTransformId());
+                    } else {
+                        log.debug(
+                                "Could not find a source column of {} for the transformation: {}.  This is probably because this was a DELETE event and no old data was captured.",
+                                transformColumn.getSourceColumnName(), transformation.getTransformId());
+                    }
                 }
             }
 
@@ -339,8 +344,17 @@ public class TransformWriter extends NestedDataWriter {
             TransformTable transformation, Map<String, String> sourceKeyValues,
             Map<String, String> oldSourceValues, Map<String, String> sourceValues)
             throws IgnoreRowException {
-        List<TransformColumn> columns = transformation.getPrimaryKeyColumns();
-        if (columns == null || columns.size() == 0) {
+        return create(context, dataEventType, transformation,
+                TransformPlan.filter(transformation.getPrimaryKeyColumns(), dataEventType, true), sourceKeyValues,
+                oldSourceValues, sourceValues);
+    }
+
+    protected List<TransformedData> create(DataContext context, DataEventType dataEventType,
+            TransformTable transformation, List<TransformColumn> columns, Map<String, String> sourceKeyValues,
+            Map<String, String> oldSourceValues, Map<String, String> sourceValues)
+            throws IgnoreRowException {
+        List<TransformColumn> primaryKeyColumns = transformation.getPrimaryKeyColumns();
+        if (primaryKeyColumns == null || primaryKeyColumns.size() == 0) {
             log.error("No primary key defined for the transformation: {}",
                     transformation.getTransformId());
             return new ArrayList<TransformedData>(0);
@@ -349,7 +363,6 @@ public class TransformWriter extends NestedDataWriter {
             TransformedData data = new TransformedData(transformation, dataEventType,
                     sourceKeyValues, oldSourceValues, sourceValues);
             datas.add(data);
-            DataEventType eventType = data.getSourceDmlType();
             
             switch (data.getTargetDmlType()) {
                 case INSERT:
@@ -382,47 +395,41 @@ public class TransformWriter extends NestedDataWriter {
             }            
             
             for (TransformColumn transformColumn : columns) {
-                IncludeOnType includeOn = transformColumn.getIncludeOn();
-                if (includeOn == IncludeOnType.ALL
-                        || (includeOn == IncludeOnType.INSERT && eventType == DataEventType.INSERT)
-                        || (includeOn == IncludeOnType.UPDATE && eventType == DataEventType.UPDATE)
-                        || (includeOn == IncludeOnType.DELETE && eventType == DataEventType.DELETE)) {
-                    List<TransformedData> newDatas = null;
-                    try {
-                        Object columnValue = transformColumn(context, data, transformColumn,
-                                sourceValues, oldSourceValues);
-                        if (columnValue instanceof List) {
-                            @SuppressWarnings("unchecked")
-                            List<String> values = (List<String>) columnValue;
-                            if (values.size() > 0) {
-                                data.put(transformColumn, values.get(0), oldSourceValues != null ? values.get(0) : null, true);
-                                if (values.size() > 1) {
-                                    if (newDatas == null) {
-                                        newDatas = new ArrayList<TransformedData>(values.size() - 1);
-                                    }
-                                    for (int i = 1; i < values.size(); i++) {
-                                        TransformedData newData = data.copy();
-                                        newData.put(transformColumn, values.get(i), oldSourceValues != null ? values.get(i) : null, true);
-                                        newDatas.add(newData);
-                                    }
+                List<TransformedData> newDatas = null;
+                try {
+                    Object columnValue = transformColumn(context, data, transformColumn,
+                            sourceValues, oldSourceValues);
+                    if (columnValue instanceof List) {
+                        @SuppressWarnings("unchecked")
+                        List<String> values = (List<String>) columnValue;
+                        if (values.size() > 0) {
+                            data.put(transformColumn, values.get(0), oldSourceValues != null ? values.get(0) : null, true);
+                            if (values.size() > 1) {
+                                if (newDatas == null) {
+                                    newDatas = new ArrayList<TransformedData>(values.size() - 1);
+                                }
+                                for (int i = 1; i < values.size(); i++) {
+                                    TransformedData newData = data.copy();
+                                    newData.put(transformColumn, values.get(i), oldSourceValues != null ? values.get(i) : null, true);
+                                    newDatas.add(newData);
                                 }
-                            } else {
-                                throw new IgnoreRowException();
                             }
-                        } else if (columnValue instanceof NewAndOldValue) {
-                            data.put(transformColumn, ((NewAndOldValue) columnValue).getNewValue(),
-                                    oldSourceValues != null ? ((NewAndOldValue) columnValue).getOldValue() : null, true);
                         } else {
-                            data.put(transformColumn, (String) columnValue, oldSourceValues != null ? (String) columnValue : null, true);                            
+                            throw new IgnoreRowException();
                         }
-                    } catch (IgnoreColumnException e) {
-                        // Do nothing. We are suppose to ignore the column.
+                    } else if (columnValue instanceof NewAndOldValue) {
+                        data.put(transformColumn, ((NewAndOldValue) columnValue).getNewValue(),
+                                oldSourceValues != null ? ((NewAndOldValue) columnValue).getOldValue() : null, true);
+                    } else {
+                        data.put(transformColumn, (String) columnValue, oldSourceValues != null ? (String) columnValue : null, true);                            
                     }
+                } catch (IgnoreColumnException e) {
+                    // Do nothing. We are suppose to ignore the column.
+                }
 
-                    if (newDatas != null) {
-                        datas.addAll(newDatas);
-                        newDatas = null;
-                    }
+                if (newDatas != null) {
+                    datas.addAll(newDatas);
+                    newDatas = null;
                 }
             }
 
@@ -0,0 +1,235 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.exception.IoException;
+
+/**
+ * A bounded, in-memory hand off of the protocol data for one batch from the
+ * thread that is extracting it to the thread that is sending it. The extract
+ * keeps writing its staged resource as usual, so a retry can always be served
+ * from staging.
+ * <p>
+ * Until the sender attaches, the pipe only buffers up to its capacity and then
+ * detaches itself, so a batch that is waiting its turn never holds up its
+ * extract. Once attached, a full pipe blocks the extract until the sender
+ * catches up.
+ */
+public class StagingPipe {
+
+    private static final String END = new String();
+
+    private static final long OFFER_WAIT_MS = 100;
+
+    private final BlockingQueue<String> queue;
+
+    private final int chunkSize;
+
+    private StringBuilder buffer;
+
+    private boolean attached;
+
+    private volatile boolean detached;
+
+    private boolean closed;
+
+    private volatile Throwable error;
+
+    private String next;
+
+    public StagingPipe(long capacityInBytes, int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<String>((int) Math.max(2, capacityInBytes / chunkSize));
+        this.buffer = new StringBuilder(chunkSize);
+    }
+
+    /**
+     * Called by the extract for each piece of protocol data that is written to
+     * staging.
+     */
+    public void write(String data) {
+        if (!detached && !closed) {
+            buffer.append(data);
+            if (buffer.length() >= chunkSize) {
+                String chunk = buffer.toString();
+                buffer = new StringBuilder(chunkSize);
+                put(chunk);
+            }
+        }
+    }
+
+    /**
+     * Called by the extract once the batch has been completely written.
+     */
+    public void close() {
+        if (!detached && !closed) {
+            if (buffer.length() > 0) {
+                put(buffer.toString());
+                buffer = null;
+            }
+            closed = true;
+            put(END);
+        }
+    }
+
+    /**
+     * Called by the extract when it failed. A sender that already started
+     * reading will get an error instead of the end of the batch.
+     */
+    public synchronized void fail(Throwable ex) {
+        error = ex;
+        if (!attached) {
+            detach();
+        } else if (!detached) {
+            closed = true;
+            queue.clear();
+            queue.offer(END);
+        }
+    }
+
+    /**
+     * Stop handing off data. Any blocked writer is released and the rest of the
+     * batch is only written to staging.
+     */
+    public synchronized void detach() {
+        detached = true;
+        queue.clear();
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Called by the sender before it starts to wait for data.
+     * 
+     * @return false if the pipe was already detached and the batch has to be
+     *         sent from staging
+     */
+    public synchronized boolean attach() {
+        if (!detached) {
+            attached = true;
+        }
+        return attached;
+    }
+
+    /**
+     * Wait for the extract to write the first chunk or finish.
+     * 
+     * @return false if nothing arrived within the timeout
+     */
+    public boolean awaitStart(long timeoutMillis) {
+        if (next == null && !detached) {
+            try {
+                next = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IoException("This thread was interrupted");
+            }
+        }
+        return next != null || detached;
+    }
+
+    /**
+     * @return true if the extract wrote data for the batch. Only valid once
+     *         {@link #awaitStart(long)} returned true.
+     */
+    public boolean hasData() {
+        return next != null && next != END;
+    }
+
+    public BufferedReader getReader() {
+        return new BufferedReader(new PipeReader());
+    }
+
+    protected void put(String chunk) {
+        synchronized (this) {
+            if (!attached) {
+                if (!queue.offer(chunk)) {
+                    detach();
+                }
+                return;
+            }
+        }
+        try {
+            while (!detached && !queue.offer(chunk, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+            }
+        } catch (InterruptedException e) {
+            throw new IoException("This thread was interrupted");
+        }
+    }
+
+    class PipeReader extends Reader {
+
+        String chunk;
+
+        int position;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (chunk == null || position >= chunk.length()) {
+                if (chunk == END) {
+                    return -1;
+                }
+                chunk = take();
+                position = 0;
+            }
+            int count = Math.min(len, chunk.length() - position);
+            chunk.getChars(position, position + count, cbuf, off);
+            position += count;
+            return count;
+        }
+
+        protected String take() throws IOException {
+            String taken = next;
+            next = null;
+            try {
+                while (taken == null) {
+                    if (detached) {
+                        throw new IoException("The extract stopped handing off data");
+                    }
+                    taken = queue.poll(OFFER_WAIT_MS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("This thread was interrupted");
+            }
+            if (taken == END && error != null) {
+                throw new IoException("The extract of the batch failed", error);
+            }
+            return taken;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.reader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.sql.Types;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.DataProcessor;
+import org.jumpmind.symmetric.io.data.ProtocolException;
+import org.jumpmind.symmetric.io.data.writer.BinaryProtocolDataWriter;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.ProtocolDataWriter;
+import org.junit.Test;
+
+public class BinaryProtocolDataReaderTest {
+
+    static final String CSV = "nodeid,00001\n" +
+            "binary,BASE64\n" +
+            "channel,test\n" +
+            "batch,1\n" +
+            "catalog,\n" +
+            "schema,\n" +
+            "table,test1\n" +
+            "keys,id\n" +
+            "columns,id,name,amount,note\n" +
+            "insert,\"1\",\"hello\",\"-5\",\n" +
+            "insert,\"007\",\"\",\"12.50\",\"café 中文\"\n" +
+            "insert,\"9223372036854775807\",\"a,\"\"quoted\"\" value\",\"0\",\"line\nbreak\"\n" +
+            "old,\"1\",\"hello\",\"-5\",\n" +
+            "update,\"1\",\"world\",\"-6\",,\"1\"\n" +
+            "delete,\"007\"\n" +
+            "table,test2\n" +
+            "keys,a,b\n" +
+            "columns,a,b\n" +
+            "insert,\"1\",\"2\"\n" +
+            "table,test1\n" +
+            "insert,\"2\",\"again\",\"1\",\n" +
+            "sql,\"update test1 set name='x'\"\n" +
+            "commit,1\n" +
+            "channel,other\n" +
+            "batch,2\n" +
+            "catalog,\n" +
+            "schema,\n" +
+            "table,test2\n" +
+            "insert,\"3\",\"4\"\n" +
+            "commit,2\n";
+
+    @Test
+    public void testRoundTripMatchesCsv() {
+        StringWriter expected = new StringWriter();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "test", CSV),
+                new ProtocolDataWriter("00001", expected, false), "csv").process();
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "test", CSV),
+                new BinaryProtocolDataWriter("00001", binary), "to binary").process();
+
+        StringWriter actual = new StringWriter();
+        new DataProcessor(new BinaryProtocolDataReader(BatchType.LOAD, "test",
+                new ByteArrayInputStream(binary.toByteArray())),
+                new ProtocolDataWriter("00001", actual, false), "from binary").process();
+
+        assertEquals(expected.toString(), actual.toString());
+        assertTrue(binary.size() < expected.toString().length());
+    }
+
+    @Test
+    public void testTextReaderMatchesCsv() throws Exception {
+        StringWriter expected = new StringWriter();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "test", CSV),
+                new ProtocolDataWriter("00001", expected, false), "csv").process();
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryProtocolDataWriter writer = new BinaryProtocolDataWriter("00001", binary);
+        writer.writeKeepAlive();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "test", CSV), writer, "to binary").process();
+        writer.writeKeepAlive();
+
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(binary.toByteArray()));
+        assertTrue(BinaryProtocolDataReader.isBinaryProtocol(in));
+        assertFalse(BinaryProtocolDataReader.isBinaryProtocol(new BufferedInputStream(
+                new ByteArrayInputStream(CSV.getBytes("UTF-8")))));
+        assertFalse(BinaryProtocolDataReader.isBinaryProtocol(new BufferedInputStream(
+                new ByteArrayInputStream(new byte[0]))));
+
+        String actual = IOUtils.toString(new BinaryProtocolTextReader(new BinaryProtocolDataReader(
+                BatchType.LOAD, "test", in)));
+        assertEquals(expected.toString(), actual);
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testTextReaderIncompleteBatch() throws Exception {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "test", CSV),
+                new BinaryProtocolDataWriter("00001", binary), "to binary").process();
+        byte[] bytes = binary.toByteArray();
+        IOUtils.toString(new BinaryProtocolTextReader(new BinaryProtocolDataReader(BatchType.LOAD, "test",
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2)))));
+    }
+
+    @Test
+    public void testTypedValues() {
+        Table table = new Table("typed");
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        table.addColumn(new Column("data", false, Types.BLOB, 0, 0));
+        table.addColumn(new Column("text", false, Types.VARCHAR, 50, 0));
+        Batch batch = new Batch(BatchType.EXTRACT, 5, "test", BinaryEncoding.BASE64, "00001", "00002", false);
+        String[][] rows = {
+                { "-42", "AAECAwQ=", "12" },
+                { "0", "not base64!", "-0" },
+                { "123456789012", null, "00" },
+                { "1", "", "+1" } };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryProtocolDataWriter writer = new BinaryProtocolDataWriter("00001", out);
+        writer.open(new DataContext());
+        writer.start(batch);
+        writer.start(table);
+        for (String[] row : rows) {
+            writer.write(new CsvData(DataEventType.INSERT, row));
+        }
+        writer.end(table);
+        writer.end(batch, false);
+        writer.close();
+        assertEquals(4, writer.getStatistics().get(batch).get(DataWriterStatisticConstants.INSERTCOUNT));
+        assertEquals(out.size(), writer.getStatistics().get(batch).get(DataWriterStatisticConstants.BYTECOUNT));
+
+        BinaryProtocolDataReader reader = new BinaryProtocolDataReader(BatchType.LOAD, "00002",
+                new ByteArrayInputStream(out.toByteArray()));
+        reader.open(new DataContext(reader));
+        Batch readBatch = reader.nextBatch();
+        assertEquals(5, readBatch.getBatchId());
+        assertEquals("test", readBatch.getChannelId());
+        assertEquals("00001", readBatch.getSourceNodeId());
+        assertEquals(BinaryEncoding.BASE64, readBatch.getBinaryEncoding());
+        Table readTable = reader.nextTable();
+        assertEquals("typed", readTable.getName());
+        assertArrayEquals(new String[] { "id" }, readTable.getPrimaryKeyColumnNames());
+        for (String[] row : rows) {
+            CsvData data = reader.nextData();
+            assertEquals(DataEventType.INSERT, data.getDataEventType());
+            assertArrayEquals(row, data.getParsedData(CsvData.ROW_DATA));
+        }
+        assertNull(reader.nextData());
+        assertTrue(readBatch.isComplete());
+        assertNull(reader.nextBatch());
+        reader.close();
+    }
+
+    @Test
+    public void testChangedColumnsOnlyUpdate() {
+        Table table = new Table("test1");
+        table.addColumn(new Column("id", true));
+        table.addColumn(new Column("name", false));
+        table.addColumn(new Column("amount", false));
+        table.addColumn(new Column("note", false));
+        Batch batch = new Batch(BatchType.EXTRACT, 3, "test", BinaryEncoding.BASE64, "00001", "00002", false);
+
+        StringWriter csv = new StringWriter();
+        ProtocolDataWriter writer = new ProtocolDataWriter("00001", csv, false);
+        writer.setChangedColumnsOnly(true);
+        writer.open(new DataContext());
+        writer.start(batch);
+        writer.start(table);
+        CsvData update = new CsvData(DataEventType.UPDATE, new String[] { "1", "same", "6", "note" },
+                new String[] { "1", "same", "5", "note" }, null);
+        update.putParsedData(CsvData.PK_DATA, new String[] { "1" });
+        writer.write(update);
+        update = new CsvData(DataEventType.UPDATE, new String[] { "2", "same", "5", null },
+                new String[] { "2", "same", "5", null }, null);
+        update.putParsedData(CsvData.PK_DATA, new String[] { "2" });
+        writer.write(update);
+        writer.end(table);
+        writer.end(batch, false);
+        writer.close();
+        assertTrue(csv.toString().contains("changed,\"2\"\nold,\"5\"\nupdate,\"6\",\"1\"\n"));
+        assertTrue(csv.toString().contains("changed\nupdate,\"2\"\n"));
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new DataProcessor(new ProtocolDataReader(BatchType.LOAD, "00002", csv.toString()),
+                new BinaryProtocolDataWriter("00001", binary), "to binary").process();
+        StringWriter fromBinary = new StringWriter();
+        new DataProcessor(new BinaryProtocolDataReader(BatchType.LOAD, "00002",
+                new ByteArrayInputStream(binary.toByteArray())),
+                new ProtocolDataWriter("00001", fromBinary, false), "from binary").process();
+        assertEquals(csv.toString(), fromBinary.toString());
+
+        ProtocolDataReader reader = new ProtocolDataReader(BatchType.LOAD, "00002", csv.toString());
+        reader.open(new DataContext(reader));
+        reader.nextBatch();
+        reader.nextTable();
+        CsvData data = reader.nextData();
+        assertTrue(data.isChangedColumnsOnly());
+        assertTrue(Arrays.equals(new boolean[] { false, false, true, false }, data.getChangedColumns()));
+        assertArrayEquals(new String[] { "1", null, "6", null }, data.getParsedData(CsvData.ROW_DATA));
+        assertArrayEquals(new String[] { "1", null, "5", null }, data.getParsedData(CsvData.OLD_DATA));
+        assertArrayEquals(new String[] { "1" }, data.getParsedData(CsvData.PK_DATA));
+        data = reader.nextData();
+        assertTrue(Arrays.equals(new boolean[4], data.getChangedColumns()));
+        assertArrayEquals(new String[] { "2" }, data.getParsedData(CsvData.PK_DATA));
+        assertNull(reader.nextData());
+        reader.close();
+    }
+
+}
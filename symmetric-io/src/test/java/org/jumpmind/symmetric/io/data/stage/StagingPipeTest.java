@@ -0,0 +1,99 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.stage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.io.stage.StagingPipe;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class StagingPipeTest {
+
+    final String TEST_STR = "The quick brown fox jumped over the lazy dog\n";
+
+    @Test
+    public void testDetachesWhenFullBeforeAttached() throws Exception {
+        StagingPipe pipe = new StagingPipe(32, 16);
+        for (int i = 0; i < 10; i++) {
+            pipe.write(TEST_STR);
+        }
+        pipe.close();
+        assertTrue(pipe.isDetached());
+        assertFalse(pipe.attach());
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+        StagingPipe pipe = new StagingPipe(1024, 16);
+        assertTrue(pipe.attach());
+        pipe.close();
+        assertTrue(pipe.awaitStart(1000));
+        assertFalse(pipe.hasData());
+    }
+
+    @Test
+    public void testWriterWaitsForReader() throws Exception {
+        final StagingPipe pipe = new StagingPipe(32, 16);
+        assertTrue(pipe.attach());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    pipe.write(TEST_STR);
+                }
+                pipe.close();
+            });
+            Thread.sleep(200);
+            assertFalse(future.isDone());
+            assertFalse(pipe.isDetached());
+
+            assertTrue(pipe.awaitStart(1000));
+            assertTrue(pipe.hasData());
+            assertEquals(StringUtils.repeat(TEST_STR, 100), IOUtils.toString(pipe.getReader()));
+            future.get(1, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureAfterReadingStarted() throws Exception {
+        StagingPipe pipe = new StagingPipe(1024, 16);
+        assertTrue(pipe.attach());
+        pipe.write(TEST_STR);
+        pipe.fail(new RuntimeException("extract failed"));
+        assertTrue(pipe.awaitStart(1000));
+        try {
+            IOUtils.toString(pipe.getReader());
+            fail("Expected the extract failure to be reported");
+        } catch (IoException ex) {
+            assertEquals("extract failed", ex.getCause().getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,303 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.symmetric.io.AbstractWriterTest;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.transform.TransformedData;
+import org.jumpmind.symmetric.io.data.writer.AbstractDatabaseWriter.LoadStatus;
+import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
+import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DatabaseWriterConflictPrefetchTest extends AbstractWriterTest {
+
+    private final static String PREFETCH_TABLE = "test_conflict_prefetch";
+
+    private final static String[] PREFETCH_KEYS = { "id" };
+
+    private final static String[] PREFETCH_COLUMNS = { "id", "name", "version", "update_time" };
+
+    private final static String[] RESOLUTION_STATISTICS = { DataWriterStatisticConstants.FALLBACKINSERTCOUNT,
+            DataWriterStatisticConstants.FALLBACKUPDATECOUNT, DataWriterStatisticConstants.MISSINGDELETECOUNT,
+            DataWriterStatisticConstants.IGNOREROWCOUNT };
+
+    private final static String OLD_TIME = "2020-01-01 00:00:00.000";
+
+    private final static String NEW_TIME = "2021-01-01 00:00:00.000";
+
+    private int resolverCount;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true), true, false);
+    }
+
+    @Before
+    public void setupTest() {
+        setErrorExpected(false);
+    }
+
+    @Test
+    public void testDetectPrimaryKey() {
+        for (ResolveConflict resolveType : ResolveConflict.values()) {
+            if (resolveType != ResolveConflict.MANUAL) {
+                assertSameAsRowByRow(DetectConflict.USE_PK_DATA, null, resolveType);
+            }
+        }
+    }
+
+    @Test
+    public void testDetectPrimaryKeyResolvedInMemory() {
+        assertSameAsRowByRow(DetectConflict.USE_PK_DATA, null, ResolveConflict.FALLBACK);
+        Assert.assertEquals(0, resolverCount);
+    }
+
+    @Test
+    public void testDetectOldData() {
+        for (ResolveConflict resolveType : ResolveConflict.values()) {
+            if (resolveType != ResolveConflict.MANUAL) {
+                assertSameAsRowByRow(DetectConflict.USE_OLD_DATA, null, resolveType);
+            }
+        }
+    }
+
+    @Test
+    public void testDetectChangedData() {
+        for (ResolveConflict resolveType : ResolveConflict.values()) {
+            if (resolveType != ResolveConflict.MANUAL) {
+                assertSameAsRowByRow(DetectConflict.USE_CHANGED_DATA, null, resolveType);
+            }
+        }
+    }
+
+    @Test
+    public void testDetectTimestamp() {
+        for (ResolveConflict resolveType : ResolveConflict.values()) {
+            if (resolveType != ResolveConflict.MANUAL) {
+                assertSameAsRowByRow(DetectConflict.USE_TIMESTAMP, "update_time", resolveType);
+            }
+        }
+    }
+
+    @Test
+    public void testDetectTimestampNewerWinsResolvedInMemory() {
+        assertSameAsRowByRow(DetectConflict.USE_TIMESTAMP, "update_time", ResolveConflict.NEWER_WINS);
+        Assert.assertEquals(0, resolverCount);
+    }
+
+    @Test
+    public void testDetectVersion() {
+        for (ResolveConflict resolveType : ResolveConflict.values()) {
+            if (resolveType != ResolveConflict.MANUAL) {
+                assertSameAsRowByRow(DetectConflict.USE_VERSION, "version", resolveType);
+            }
+        }
+    }
+
+    @Test
+    public void testDetectVersionNewerWinsResolvedInMemory() {
+        assertSameAsRowByRow(DetectConflict.USE_VERSION, "version", ResolveConflict.NEWER_WINS);
+        Assert.assertEquals(0, resolverCount);
+    }
+
+    @Test
+    public void testIgnoreBatchLoadsRowByRow() {
+        Conflict conflict = buildConflict(DetectConflict.USE_PK_DATA, null, ResolveConflict.IGNORE);
+        conflict.setResolveRowOnly(false);
+        List<String> expected = load(conflict, 0);
+        List<String> actual = load(conflict, 4);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(seedRows(), actual);
+    }
+
+    @Test
+    public void testWindowLargerThanBatch() {
+        Conflict conflict = buildConflict(DetectConflict.USE_OLD_DATA, null, ResolveConflict.FALLBACK);
+        Assert.assertEquals(load(conflict, 0), load(conflict, 1000));
+    }
+
+    @Test
+    public void testTransformedRowFallsBackThroughResolver() {
+        platform.getSqlTemplate().update("delete from " + PREFETCH_TABLE);
+        final List<CsvData> fallbacks = new ArrayList<CsvData>();
+        DatabaseWriterSettings settings = new DatabaseWriterSettings();
+        settings.setDefaultConflictSetting(buildConflict(DetectConflict.USE_PK_DATA, null, ResolveConflict.FALLBACK));
+        settings.setConflictPrefetchWindowSize(4);
+        DefaultDatabaseWriterConflictResolver resolver = new DefaultDatabaseWriterConflictResolver() {
+            @Override
+            protected void performFallbackToInsert(AbstractDatabaseWriter writer, CsvData data, Conflict conflict,
+                    boolean retransform) {
+                fallbacks.add(data);
+                super.performFallbackToInsert(writer, data, conflict, retransform);
+            }
+        };
+        CsvData data = update(row("11", "missing", "2", NEW_TIME), row("11", "missing", "1", OLD_TIME));
+        data.putAttribute(TransformedData.class.getName(), new TransformedData(new TransformTable(), DataEventType.UPDATE,
+                new HashMap<String, String>(), new HashMap<String, String>(), new HashMap<String, String>()));
+        Table table = buildSourceTable(PREFETCH_TABLE, PREFETCH_KEYS, PREFETCH_COLUMNS);
+        writeData(new DynamicDefaultDatabaseWriter(platform, platform, "sym", resolver, settings),
+                new TableCsvData(table, data));
+        Assert.assertEquals(1, fallbacks.size());
+        Assert.assertNotNull(fallbacks.get(0).getAttribute(TransformedData.class.getName()));
+        List<String> rows = queryRows();
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals("11,missing,2," + NEW_TIME, rows.get(0));
+    }
+
+    protected void assertSameAsRowByRow(DetectConflict detectType, String detectExpression, ResolveConflict resolveType) {
+        Conflict conflict = buildConflict(detectType, detectExpression, resolveType);
+        List<String> expected = load(conflict, 0);
+        long[] expectedStatistics = getResolutionStatistics();
+        int rowByRowResolverCount = resolverCount;
+        List<String> actual = load(conflict, 4);
+        String message = detectType + " " + resolveType;
+        Assert.assertEquals(message, expected, actual);
+        long[] actualStatistics = getResolutionStatistics();
+        for (int i = 0; i < RESOLUTION_STATISTICS.length; i++) {
+            Assert.assertEquals(message + " " + RESOLUTION_STATISTICS[i], expectedStatistics[i], actualStatistics[i]);
+        }
+        Assert.assertTrue(message, resolverCount <= rowByRowResolverCount);
+    }
+
+    protected Conflict buildConflict(DetectConflict detectType, String detectExpression, ResolveConflict resolveType) {
+        Conflict conflict = new Conflict();
+        conflict.setConflictId("prefetch.test");
+        conflict.setDetectType(detectType);
+        conflict.setDetectExpression(detectExpression);
+        conflict.setResolveType(resolveType);
+        conflict.setResolveRowOnly(true);
+        conflict.setResolveChangesOnly(true);
+        return conflict;
+    }
+
+    protected List<String> load(Conflict conflict, int windowSize) {
+        platform.getSqlTemplate().update("delete from " + PREFETCH_TABLE);
+        for (int id = 1; id <= 5; id++) {
+            platform.getSqlTemplate().update(
+                    "insert into " + PREFETCH_TABLE + " (id, name, version, update_time) values (?, ?, ?, ?)", id,
+                    "name" + id, 1, Timestamp.valueOf("2020-01-01 00:00:00"));
+        }
+
+        resolverCount = 0;
+        DatabaseWriterSettings settings = new DatabaseWriterSettings();
+        settings.setDefaultConflictSetting(conflict);
+        settings.setConflictPrefetchWindowSize(windowSize);
+        DefaultDatabaseWriterConflictResolver resolver = new DefaultDatabaseWriterConflictResolver() {
+            @Override
+            public void needsResolved(AbstractDatabaseWriter writer, CsvData data, LoadStatus loadStatus) {
+                resolverCount++;
+                super.needsResolved(writer, data, loadStatus);
+            }
+        };
+        Table table = buildSourceTable(PREFETCH_TABLE, PREFETCH_KEYS, PREFETCH_COLUMNS);
+        writeData(new DynamicDefaultDatabaseWriter(platform, platform, "sym", resolver, settings),
+                new TableCsvData(table, buildData()));
+        return queryRows();
+    }
+
+    protected CsvData[] buildData() {
+        return new CsvData[] {
+                // a new row, and an existing row that is newer and older
+                insert(row("10", "new", "1", OLD_TIME)),
+                insert(row("1", "newer", "2", NEW_TIME)),
+                insert(row("2", "older", "0", "2019-01-01 00:00:00.000")),
+                // an update with matching old data, and one with stale old data
+                update(row("3", "updated", "2", NEW_TIME), row("3", "name3", "1", OLD_TIME)),
+                update(row("4", "stale", "3", NEW_TIME), row("4", "other", "2", "2020-06-01 00:00:00.000")),
+                // an update for a missing row
+                update(row("11", "missing", "2", NEW_TIME), row("11", "missing", "1", OLD_TIME)),
+                // an update of a row that was inserted in the same window
+                update(row("10", "new again", "2", NEW_TIME), row("10", "new", "1", OLD_TIME)),
+                // deletes with matching old data, stale old data and for a missing row
+                delete(row("5", "name5", "1", OLD_TIME)),
+                delete(row("2", "gone", "7", "2019-06-01 00:00:00.000")),
+                delete(row("12", "missing", "1", OLD_TIME)),
+                // a row that comes back after it was deleted
+                insert(row("5", "back", "3", NEW_TIME)) };
+    }
+
+    protected String[] row(String id, String name, String version, String updateTime) {
+        return new String[] { id, name, version, updateTime };
+    }
+
+    protected CsvData insert(String[] rowData) {
+        return new CsvData(DataEventType.INSERT, rowData);
+    }
+
+    protected CsvData update(String[] rowData, String[] oldData) {
+        return new CsvData(DataEventType.UPDATE, rowData, oldData, null);
+    }
+
+    protected CsvData delete(String[] oldData) {
+        CsvData data = new CsvData(DataEventType.DELETE);
+        data.putParsedData(CsvData.PK_DATA, new String[] { oldData[0] });
+        data.putParsedData(CsvData.OLD_DATA, oldData);
+        return data;
+    }
+
+    protected List<String> seedRows() {
+        List<String> rows = new ArrayList<String>();
+        for (int id = 1; id <= 5; id++) {
+            rows.add(id + ",name" + id + ",1," + OLD_TIME);
+        }
+        return rows;
+    }
+
+    protected List<String> queryRows() {
+        return platform.getSqlTemplate().query(
+                "select id, name, version, update_time from " + PREFETCH_TABLE + " order by id", new ISqlRowMapper<String>() {
+                    public String mapRow(Row row) {
+                        return row.getString("id") + "," + row.getString("name") + "," + row.getString("version") + ","
+                                + (row.getDateTime("update_time") == null ? null
+                                        : new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(row.getDateTime("update_time")));
+                    }
+                });
+    }
+
+    protected long[] getResolutionStatistics() {
+        long[] counts = new long[RESOLUTION_STATISTICS.length];
+        for (Statistics statistics : lastDataWriterUsed.getStatistics().values()) {
+            for (int i = 0; i < RESOLUTION_STATISTICS.length; i++) {
+                counts[i] += statistics.get(RESOLUTION_STATISTICS[i]);
+            }
+        }
+        return counts;
+    }
+
+}
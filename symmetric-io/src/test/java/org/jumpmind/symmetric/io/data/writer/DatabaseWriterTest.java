@@ -324,6 +324,41 @@ public class DatabaseWriterTest extends AbstractWriterTest {
     }
     
 
+    @Test
+    public void testUpdateChangedColumnsOnly() {
+        Conflict setting = new Conflict();
+        setting.setConflictId("unit.test");
+        setting.setDetectType(DetectConflict.USE_OLD_DATA);
+        setting.setResolveType(ResolveConflict.MANUAL);
+        writerSettings.setDefaultConflictSetting(setting);
+
+        String origId = getNextId();
+        String[] originalValues = massageExpectectedResultsForDialect(new String[] { origId,
+                "string2", "original value", "char2", "char not null2", "2007-01-02 03:20:10.000",
+                "2012-03-12 07:00:00.000", "0", "2", "67.89", "-0.0747663" });
+        writeData(new CsvData(DataEventType.INSERT, originalValues), originalValues);
+
+        Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        String[] pkData = new String[] { origId };
+        CsvData first = new CsvData(DataEventType.UPDATE);
+        first.putChangedColumnData(table, new int[] { 2 }, new String[] { "first value" }, pkData,
+                new String[] { "original value" });
+        CsvData second = new CsvData(DataEventType.UPDATE);
+        second.putChangedColumnData(table, new int[] { 8 }, new String[] { "3" }, pkData,
+                new String[] { "2" });
+        CsvData third = new CsvData(DataEventType.UPDATE);
+        third.putChangedColumnData(table, new int[] { 2 }, new String[] { "second value" }, pkData,
+                new String[] { "first value" });
+        writeData(first, second, third);
+
+        Statistics stats = lastDataWriterUsed.getStatistics().values().iterator().next();
+        Assert.assertEquals(3, stats.get(DataWriterStatisticConstants.UPDATECOUNT));
+        String[] expectedValues = CollectionUtils.copyOfRange(originalValues, 0, originalValues.length);
+        expectedValues[2] = "second value";
+        expectedValues[8] = "3";
+        assertTestTableEquals(origId, massageExpectectedResultsForDialect(expectedValues));
+    }
+
     @Test
     public void testUpdateDetectChangedDataIgnoreRow() {
 
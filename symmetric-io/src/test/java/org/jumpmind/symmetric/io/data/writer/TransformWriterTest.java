@@ -20,6 +20,8 @@
  */
 package org.jumpmind.symmetric.io.data.writer;
 
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -107,6 +109,47 @@ public class TransformWriterTest extends AbstractWriterTest {
     }
 
 
+    @Test
+    public void testPlanSharedAcrossBatches() {
+        mockWriter.reset();
+        TransformPlanCache planCache = new TransformPlanCache();
+        TransformTable transformTable = new TransformTable("s2", "t2", TransformPoint.LOAD,
+                new TransformColumn("id", "id", true), new TransformColumn(null, "col2", false, "const", "added"));
+        Table table = new Table("s2", new Column("id"));
+        for (int i = 1; i <= 2; i++) {
+            TransformWriter writer = new TransformWriter(platform, TransformPoint.LOAD, mockWriter,
+                    buildDefaultColumnTransforms(), transformTable);
+            writer.setPlanCache(planCache);
+            writeData(writer, new TableCsvData(table, new CsvData(DataEventType.INSERT, new String[] { "" + i })));
+        }
+        Assert.assertEquals(1, planCache.size());
+        List<CsvData> datas = mockWriter.writtenDatas.get("t2");
+        Assert.assertEquals(2, datas.size());
+        Assert.assertEquals("1", datas.get(0).getParsedData(CsvData.ROW_DATA)[0]);
+        Assert.assertEquals("2", datas.get(1).getParsedData(CsvData.ROW_DATA)[0]);
+        Assert.assertEquals("added", datas.get(1).getParsedData(CsvData.ROW_DATA)[1]);
+    }
+
+
+    @Test
+    public void testTargetTableNotSharedByCallers() {
+        TransformTable transformTable = new TransformTable("s2", "t2", TransformPoint.LOAD,
+                new TransformColumn("id", "id", true));
+        TransformPlan plan = new TransformPlan(new Table("s2", new Column("id")), Arrays.asList(transformTable));
+        String[] columnNames = new String[] { "id", "col2" };
+        String[] keyNames = new String[] { "id" };
+        Table first = plan.getTargetTable(transformTable, columnNames, keyNames);
+        int typeCode = first.getColumnWithName("col2").getMappedTypeCode();
+        first.setSchema("node1");
+        first.getColumnWithName("col2").setTypeCode(Types.INTEGER);
+        Table second = plan.getTargetTable(transformTable, columnNames, keyNames);
+        Assert.assertNotSame(first, second);
+        Assert.assertNull(second.getSchema());
+        Assert.assertTrue(second.getColumnWithName("id").isPrimaryKey());
+        Assert.assertFalse(second.getColumnWithName("col2").isPrimaryKey());
+        Assert.assertEquals(typeCode, second.getColumnWithName("col2").getMappedTypeCode());
+    }
+
     @Test
     public void testSimpleTableBeanShellMapping() throws Exception {
     }
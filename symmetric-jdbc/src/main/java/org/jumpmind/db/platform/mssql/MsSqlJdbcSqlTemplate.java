@@ -38,6 +38,7 @@ public class MsSqlJdbcSqlTemplate extends JdbcSqlTemplate {
         primaryKeyViolationCodes = new int[] {2627, 2601};
         uniqueKeyViolationNameRegex = new String[] { "with unique index '(.*)'" };
         foreignKeyViolationCodes = new int[] {547};
+        missingTableOrColumnCodes = new int[] {207, 208};
         foreignKeyChildExistsViolationMessageParts = new String[] { 
                 "DELETE statement conflicted with the SAME TABLE REFERENCE constraint",
                 "DELETE statement conflicted with the REFERENCE constraint",
@@ -57,6 +57,7 @@ public class SybaseJdbcSqlTemplate extends JdbcSqlTemplate implements ISqlTempla
         uniqueKeyViolationNameRegex = new String[] {"unique index '(.*)'"};
         foreignKeyViolationCodes = new int[] {546};
         foreignKeyChildExistsViolationCodes = new int[] {547};
+        missingTableOrColumnCodes = new int[] {207, 208};
         Connection c = null;
         try {
             c = dataSource.getConnection();
@@ -98,6 +98,11 @@ public class JdbcSqlTemplate extends AbstractSqlTemplate implements ISqlTemplate
 
     protected String[] foreignKeyChildExistsViolationMessageParts;
 
+    protected int[] missingTableOrColumnCodes;
+
+    protected String[] missingTableOrColumnSqlStates = new String[] { "42S02", "42S22", "S0002", "S0022", "42P01",
+            "42703", "42704", "42X05", "42X04" };
+
     protected int isolationLevel;
 
     public JdbcSqlTemplate(DataSource dataSource, SqlTemplateSettings settings,
@@ -932,6 +937,29 @@ public class JdbcSqlTemplate extends AbstractSqlTemplate implements ISqlTemplate
         return primaryKeyViolation;
     }
 
+    @Override
+    public boolean isMissingTableOrColumn(Throwable ex) {
+        SQLException sqlEx = findSQLException(ex);
+        if (sqlEx != null) {
+            if (missingTableOrColumnCodes != null) {
+                for (int code : missingTableOrColumnCodes) {
+                    if (code == sqlEx.getErrorCode()) {
+                        return true;
+                    }
+                }
+            }
+            String sqlState = sqlEx.getSQLState();
+            if (missingTableOrColumnSqlStates != null && sqlState != null) {
+                for (String missingSqlState : missingTableOrColumnSqlStates) {
+                    if (missingSqlState.equals(sqlState)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     public boolean isForeignKeyViolation(Throwable ex) {
         boolean foreignKeyViolation = false;
         if (foreignKeyViolationCodes != null || foreignKeyViolationSqlStates != null) {
@@ -29,6 +29,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -67,6 +68,15 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     protected List<ISqlTransactionListener> listeners = new ArrayList<ISqlTransactionListener>();
     
     protected int batchSize = 100;
+
+    protected int statementCacheSize = 0;
+
+    /**
+     * Statements that were prepared earlier in this transaction, least recently
+     * used first, so a writer switching between a handful of statements does
+     * not prepare them again
+     */
+    protected Map<String, PreparedStatement> statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
     
     public JdbcSqlTransaction(JdbcSqlTemplate jdbcSqlTemplate) {
         this(jdbcSqlTemplate, false);
@@ -156,6 +166,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
 
     public void close() {
         if (connection != null) {
+            closeCachedStatements();
             JdbcSqlTemplate.close(pstmt);
             try {
                 connection.setAutoCommit(this.oldAutoCommitValue);
@@ -432,14 +443,42 @@ public class JdbcSqlTransaction implements ISqlTransaction {
                 throw new IllegalStateException(
                         "Cannot prepare a new batch before the last batch has been flushed.");
             }
-            JdbcSqlTemplate.close(pstmt);
-            pstmt = connection.prepareStatement(sql);
+            if (statementCacheSize > 0) {
+                if (pstmt != null && psql != null && !psql.equals(sql)) {
+                    statementCache.put(psql, pstmt);
+                    evictCachedStatements();
+                }
+                PreparedStatement cached = statementCache.remove(sql);
+                if (cached != null) {
+                    pstmt = cached;
+                } else if (pstmt == null || !sql.equals(psql)) {
+                    pstmt = connection.prepareStatement(sql);
+                }
+            } else {
+                JdbcSqlTemplate.close(pstmt);
+                pstmt = connection.prepareStatement(sql);
+            }
             psql = sql;
         } catch (SQLException ex) {
             throw jdbcSqlTemplate.translate(new SqlException("Exception while preparing sql [" + sql + "]", ex));
         }
     }
 
+    protected void evictCachedStatements() {
+        Iterator<PreparedStatement> it = statementCache.values().iterator();
+        while (statementCache.size() > statementCacheSize && it.hasNext()) {
+            JdbcSqlTemplate.close(it.next());
+            it.remove();
+        }
+    }
+
+    protected void closeCachedStatements() {
+        for (PreparedStatement statement : statementCache.values()) {
+            JdbcSqlTemplate.close(statement);
+        }
+        statementCache.clear();
+    }
+
     public int addRow(Object marker, Object[] args, int[] argTypes) {
         int rowsUpdated = 0;
         try {
@@ -475,6 +514,14 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     public int getBatchSize() {
         return this.batchSize;
     }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
     
     protected int executePreparedUpdate(PreparedStatement preparedStatement, String sql, Object[] args, int[] argTypes) throws SQLException {
         int rowsUpdated = 0;
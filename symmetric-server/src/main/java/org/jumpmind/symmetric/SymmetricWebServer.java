@@ -628,6 +628,10 @@ public class SymmetricWebServer {
     public boolean isJmxEnabled() {
         return jmxEnabled;
     }
+
+    public Server getServer() {
+        return server;
+    }
     
     protected Class<?> loadRemoteStatusEndpoint() {
         try {            
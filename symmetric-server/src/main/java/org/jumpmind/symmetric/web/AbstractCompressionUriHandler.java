@@ -21,7 +21,7 @@
 package org.jumpmind.symmetric.web;
 
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.Collections;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -29,6 +29,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.compression.CompressionServletResponseWrapper;
 
 abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
@@ -49,7 +51,6 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
                     .getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
             log.debug("@doFilter");
 
-            boolean supportCompression = false;
             log.debug("requestURI= {}", req.getRequestURI());
 
             // Are we allowed to compress ?
@@ -60,26 +61,19 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
                 return;
             }
 
-            @SuppressWarnings("rawtypes")
-            Enumeration e = req.getHeaders("Accept-Encoding");
-            while (e.hasMoreElements()) {
-                String name = (String) e.nextElement();
-                if (name.indexOf("gzip") != -1) {
-                    log.debug("Supports compression.");
-                    supportCompression = true;
-                } else {
-                    log.debug("Does not support compression.");
-                }
-            }
+            ICompressionCodec codec = CompressionCodecFactory.negotiate(
+                    Collections.list(req.getHeaders("Accept-Encoding")),
+                    CompressionCodecFactory.getCodec(parameterService
+                            .getString(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_CODEC)));
 
-            if (!supportCompression) {
+            if (codec == null) {
                 log.debug("doFilter gets called without compression");
                 handleWithCompression(req, res);
                 return;
             } else {
                 CompressionServletResponseWrapper wrappedResponse = new CompressionServletResponseWrapper(
-                        res, compressionLevel, compressionStrategy);
-                log.debug("doFilter gets called with compression");
+                        res, codec, compressionLevel, compressionStrategy);
+                log.debug("doFilter gets called with {} compression", codec.getName());
                 try {
                     handleWithCompression(req, wrappedResponse);
                 } finally {
@@ -70,7 +70,7 @@ abstract public class AbstractUriHandler implements IUriHandler {
         return interceptors;
     }
     
-    protected IOutgoingTransport createOutgoingTransport(OutputStream outputStream, String encoding, ChannelMap map) throws IOException {
+    protected InternalOutgoingTransport createOutgoingTransport(OutputStream outputStream, String encoding, ChannelMap map) throws IOException {
         return new InternalOutgoingTransport(outputStream, map, encoding);
     }
 
@@ -28,8 +28,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.BinaryProtocolConstants;
 import org.jumpmind.symmetric.model.ChannelMap;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager.ReservationType;
@@ -49,11 +52,20 @@ public class NodeConcurrencyInterceptor implements IInterceptor {
     private IConfigurationService configurationService;
 
     private IStatisticManager statisticManager;
+
+    private IParameterService parameterService;
     
     public NodeConcurrencyInterceptor(IConcurrentConnectionManager concurrentConnectionManager,
             IConfigurationService configurationService, IStatisticManager statisticManager) {
+        this(concurrentConnectionManager, configurationService, null, statisticManager);
+    }
+
+    public NodeConcurrencyInterceptor(IConcurrentConnectionManager concurrentConnectionManager,
+            IConfigurationService configurationService, IParameterService parameterService,
+            IStatisticManager statisticManager) {
         this.concurrentConnectionManager = concurrentConnectionManager;
         this.configurationService = configurationService;
+        this.parameterService = parameterService;
         this.statisticManager = statisticManager;
     }
 
@@ -148,6 +160,11 @@ public class NodeConcurrencyInterceptor implements IInterceptor {
                 suspendIgnoreChannels.getSuspendChannelsAsString());
         httpResponse.setHeader(WebConstants.IGNORED_CHANNELS,
                 suspendIgnoreChannels.getIgnoreChannelsAsString());
+        if (parameterService != null
+                && parameterService.is(ParameterConstants.TRANSPORT_HTTP_BINARY_PROTOCOL_ENABLED)) {
+            httpResponse.setHeader(WebConstants.BINARY_PROTOCOL,
+                    Integer.toString(BinaryProtocolConstants.VERSION));
+        }
     }
 
 }
\ No newline at end of file
@@ -31,6 +31,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.data.BinaryProtocolConstants;
 import org.jumpmind.symmetric.model.ChannelMap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeSecurity;
@@ -46,8 +47,8 @@ import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IRegistrationService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
-import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
+import org.jumpmind.symmetric.transport.internal.InternalOutgoingTransport;
 
 /**
  * Handles data pulls from other nodes.
@@ -96,15 +97,19 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         map.addIgnoreChannels(req.getHeader(WebConstants.IGNORED_CHANNELS));
         map.setChannelQueue(req.getHeader(WebConstants.CHANNEL_QUEUE));
         
+        boolean binaryProtocol = Integer.toString(BinaryProtocolConstants.VERSION).equals(
+                req.getHeader(WebConstants.BINARY_PROTOCOL));
+
         // pull out headers and pass to pull() method
-        handlePull(nodeId, req.getRemoteHost(), req.getRemoteAddr(), res.getOutputStream(), req.getHeader(WebConstants.HEADER_ACCEPT_CHARSET), res, map);
+        handlePull(nodeId, req.getRemoteHost(), req.getRemoteAddr(), res.getOutputStream(), req.getHeader(WebConstants.HEADER_ACCEPT_CHARSET), res, map,
+                binaryProtocol);
 
         log.debug("Done with Pull request from {}", nodeId);
 
     }
         
     protected void handlePull(String nodeId, String remoteHost, String remoteAddress,
-            OutputStream outputStream,  String encoding, HttpServletResponse res, ChannelMap map) throws IOException {
+            OutputStream outputStream,  String encoding, HttpServletResponse res, ChannelMap map, boolean binaryProtocol) throws IOException {
         NodeSecurity nodeSecurity = nodeService.findNodeSecurity(nodeId, true);
         long ts = System.currentTimeMillis();
         try {
@@ -120,8 +125,9 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
                     registrationService.registerNode(nodeService.findNode(nodeId), remoteHost,
                             remoteAddress, outputStream, false);
                 } else {
-                    IOutgoingTransport outgoingTransport = createOutgoingTransport(outputStream, encoding, 
+                    InternalOutgoingTransport outgoingTransport = createOutgoingTransport(outputStream, encoding, 
                             map);
+                    outgoingTransport.setBinaryProtocol(binaryProtocol);
                     ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(
                             nodeService.findIdentityNodeId(), map.getChannelQueue(), nodeId, ProcessType.PULL_HANDLER_EXTRACT));
                     
@@ -23,7 +23,6 @@ package org.jumpmind.symmetric.web;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -35,6 +34,8 @@ import org.jumpmind.symmetric.service.IDataLoaderService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 
 /**
  * Handles data pushes from nodes.
@@ -98,11 +99,10 @@ public class PushUriHandler extends AbstractUriHandler {
 
     protected InputStream createInputStream(HttpServletRequest req) throws IOException {
         InputStream is = null;
-        String contentType = req.getHeader("Content-Type");
-        boolean useCompression = contentType != null && contentType.equalsIgnoreCase("gzip");
+        ICompressionCodec codec = CompressionCodecFactory.getCodecForEncoding(req.getHeader("Content-Type"));
         is = req.getInputStream();
-        if (useCompression) {
-            is = new GZIPInputStream(is);
+        if (codec != null) {
+            is = codec.decompress(is, 0);
         }
         return is;
     }
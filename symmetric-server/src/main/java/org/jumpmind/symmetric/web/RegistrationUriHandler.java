@@ -31,6 +31,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.service.RegistrationBusyException;
 import org.jumpmind.symmetric.service.RegistrationRedirectException;
 import org.jumpmind.symmetric.transport.http.HttpTransportManager;
 
@@ -59,6 +60,9 @@ public class RegistrationUriHandler extends AbstractUriHandler {
             }
         } catch (RegistrationRedirectException e) {
             res.sendRedirect(HttpTransportManager.buildRegistrationUrl(e.getRedirectionUrl(), node));
+        } catch (RegistrationBusyException e) {
+            res.setHeader(WebConstants.HEADER_RETRY_AFTER, Integer.toString(e.getRetryAfterSeconds()));
+            ServletUtils.sendError(res, WebConstants.SC_SERVICE_BUSY, e.getMessage());
         }
     }
 
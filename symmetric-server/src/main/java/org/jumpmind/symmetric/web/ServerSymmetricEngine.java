@@ -81,7 +81,7 @@ public class ServerSymmetricEngine extends ClientSymmetricEngine {
 
         AuthenticationInterceptor authInterceptor = new AuthenticationInterceptor(nodeService);
         NodeConcurrencyInterceptor concurrencyInterceptor = new NodeConcurrencyInterceptor(
-                concurrentConnectionManager, configurationService, statisticManager);
+                concurrentConnectionManager, configurationService, parameterService, statisticManager);
         IInterceptor[] customInterceptors = buildCustomInterceptors();
         
         this.uriHandlers = new ArrayList<IUriHandler>();
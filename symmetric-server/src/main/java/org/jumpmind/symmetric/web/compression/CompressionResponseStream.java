@@ -22,12 +22,14 @@ package org.jumpmind.symmetric.web.compression;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.GzipCompressionCodec;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,7 +50,7 @@ public class CompressionResponseStream extends ServletOutputStream {
     static final Logger logger = LoggerFactory.getLogger(CompressionResponseStream.class);
 
     /**
-     * The underlying gzip output stream to which we should write data.
+     * The underlying compressed output stream to which we should write data.
      */
     protected OutputStream gzipstream = null;
 
@@ -69,15 +71,18 @@ public class CompressionResponseStream extends ServletOutputStream {
      *                The associated response
      */
     public CompressionResponseStream(HttpServletResponse response, final int compressionLevel, final int compressionStrategy) throws IOException {
+        this(response, CompressionCodecFactory.getCodec(GzipCompressionCodec.NAME), compressionLevel, compressionStrategy);
+    }
+
+    /**
+     * Construct a servlet output stream associated with the specified Response
+     * that is compressed with the codec.
+     */
+    public CompressionResponseStream(HttpServletResponse response, ICompressionCodec codec, int compressionLevel, int compressionStrategy) throws IOException {
         this.closed = false;
         this.response = response;
-        response.addHeader("Content-Encoding", "gzip");
-        gzipstream = new GZIPOutputStream(response.getOutputStream()) {
-            {
-                this.def.setLevel(compressionLevel);
-                this.def.setStrategy(compressionStrategy);
-            }
-        };
+        response.addHeader("Content-Encoding", codec.getEncoding());
+        gzipstream = codec.compress(response.getOutputStream(), compressionLevel, compressionStrategy, 0);
     }
 
     /**
@@ -29,6 +29,9 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
+import org.jumpmind.symmetric.transport.compression.CompressionCodecFactory;
+import org.jumpmind.symmetric.transport.compression.GzipCompressionCodec;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,12 +57,22 @@ public class CompressionServletResponseWrapper extends HttpServletResponseWrappe
 
     int compressionStrategy = Deflater.DEFAULT_STRATEGY;
 
+    ICompressionCodec codec;
+
     /**
      * Calls the parent constructor which creates a ServletResponse adaptor
      * wrapping the given response object.
      */
     public CompressionServletResponseWrapper(HttpServletResponse response, int compressionLevel, int compressionStrategy) {
+        this(response, CompressionCodecFactory.getCodec(GzipCompressionCodec.NAME), compressionLevel, compressionStrategy);
+    }
+
+    /**
+     * Wraps the response so it is compressed with the codec
+     */
+    public CompressionServletResponseWrapper(HttpServletResponse response, ICompressionCodec codec, int compressionLevel, int compressionStrategy) {
         super(response);
+        this.codec = codec;
         this.compressionLevel = compressionLevel;
         this.compressionStrategy = compressionStrategy;
         origResponse = response;
@@ -117,7 +130,7 @@ public class CompressionServletResponseWrapper extends HttpServletResponseWrappe
      */
     public ServletOutputStream createOutputStream() throws IOException {
         log.debug("createOutputStream gets called");
-        CompressionResponseStream stream = new CompressionResponseStream(origResponse, compressionLevel,
+        CompressionResponseStream stream = new CompressionResponseStream(origResponse, codec, compressionLevel,
                 compressionStrategy);
         return stream;
 
@@ -0,0 +1,91 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Types;
+import java.util.Properties;
+
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.ServerConnector;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.transport.http.PooledHttpTransportManager;
+
+public class PooledHttpTransportTest extends AbstractTest {
+
+    static final int PUSH_COUNT = 10;
+
+    @Override
+    protected Table[] getTables(String name) {
+        Table table = new Table("POOLED_TABLE");
+        table.addColumn(new Column("ID", true, Types.INTEGER, -1, -1));
+        table.addColumn(new Column("NOTE", false, Types.VARCHAR, 255, 0));
+        return new Table[] { table };
+    }
+
+    @Override
+    protected String[] getGroupNames() {
+        return new String[] { "root", "client" };
+    }
+
+    @Override
+    protected Properties getProperties(String name) {
+        Properties properties = super.getProperties(name);
+        properties.setProperty(ParameterConstants.TRANSPORT_HTTP_MANAGER_CLASS, PooledHttpTransportManager.class.getName());
+        return properties;
+    }
+
+    @Override
+    protected void test(ISymmetricEngine rootServer, ISymmetricEngine clientServer) throws Exception {
+        loadConfigAndRegisterNode("client", "root");
+        clientServer.syncTriggers();
+
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        statistics.start();
+        for (Connector connector : getRegServer().getServer().getConnectors()) {
+            if (connector instanceof ServerConnector) {
+                ((ServerConnector) connector).addBean(statistics);
+            }
+        }
+
+        String clientTableName = clientServer.getDatabasePlatform().getTableFromCache("POOLED_TABLE", false).getName();
+        String rootTableName = rootServer.getDatabasePlatform().getTableFromCache("POOLED_TABLE", false).getName();
+        for (int i = 1; i <= PUSH_COUNT; i++) {
+            template(clientServer).update(String.format("insert into %s values(?,?)", clientTableName), i, "push " + i);
+            push("client");
+            assertEquals(i, template(rootServer).queryForInt(String.format("select count(*) from %s", rootTableName)));
+        }
+
+        /*
+         * Each push is a reservation and a request with the data, so without
+         * reuse there would be at least one new connection for every push
+         */
+        assertTrue("Expected connections to be reused, but " + statistics.getConnectionsTotal()
+                + " were opened for " + PUSH_COUNT + " pushes", statistics.getConnectionsTotal() < PUSH_COUNT / 2);
+    }
+
+}
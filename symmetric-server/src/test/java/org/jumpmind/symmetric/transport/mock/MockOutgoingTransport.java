@@ -80,4 +80,8 @@ public class MockOutgoingTransport implements IOutgoingTransport {
         return new ChannelMap();
     }
 
+    public boolean isBinaryProtocol() {
+        return false;
+    }
+
 }
\ No newline at end of file
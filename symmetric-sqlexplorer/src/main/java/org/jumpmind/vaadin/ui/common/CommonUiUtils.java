@@ -35,14 +35,17 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.ServletContext;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.time.FastDateFormat;
+import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.sql.JdbcSqlTemplate;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -51,6 +54,7 @@ import org.vaadin.aceeditor.AceEditor;
 
 import com.vaadin.v7.data.Container;
 import com.vaadin.v7.data.Property;
+import com.vaadin.v7.data.util.IndexedContainer;
 import com.vaadin.v7.data.util.converter.Converter;
 import com.vaadin.v7.data.util.converter.StringToBigDecimalConverter;
 import com.vaadin.v7.data.util.converter.StringToLongConverter;
@@ -363,17 +367,30 @@ public final class CommonUiUtils {
         return headers.toArray(new String[headers.size()]);
     }
 
-	public static Grid putResultsInGrid(final ResultSet rs, org.jumpmind.db.model.Table resultTable, int maxResultSize, final boolean showRowNumbers, String... excludeValues)
+    public static Grid putResultsInGrid(final ResultSet rs, org.jumpmind.db.model.Table resultTable, int maxResultSize, final boolean showRowNumbers, String... excludeValues)
             throws SQLException {
+        return putResultsInGrid(rs, null, null, resultTable, maxResultSize, showRowNumbers, excludeValues);
+    }
 
-        final Grid grid = new Grid();
-        grid.setSelectionMode(SelectionMode.MULTI);
-        grid.setColumnReorderingAllowed(true);
-        grid.setData(new HashMap<Object, List<Object>>());
+    /**
+     * When a platform and the sql that produced the result set are passed and
+     * the results do not fit in maxResultSize rows, the grid pages the rest of
+     * the results from the database as it is scrolled instead of stopping at
+     * maxResultSize rows. Only queries are paged, because each page runs the
+     * sql again.
+     */
+    protected static boolean isQuery(String sql) {
+        String statement = sql == null ? "" : sql.trim().toLowerCase();
+        return statement.startsWith("select") || statement.startsWith("with");
+    }
+
+    public static Grid putResultsInGrid(final ResultSet rs, IDatabasePlatform platform, String sql, org.jumpmind.db.model.Table resultTable,
+            int maxResultSize, final boolean showRowNumbers, String... excludeValues) throws SQLException {
 
         final ResultSetMetaData meta = rs.getMetaData();
         int columnCount = meta.getColumnCount();
-        grid.addColumn("#", Integer.class).setHeaderCaption("#").setHidable(true);
+        Map<String, Class<?>> columnTypes = new LinkedHashMap<String, Class<?>>();
+        columnTypes.put("#", Integer.class);
         Set<String> columnNames = new HashSet<String>();
         Set<Integer> skipColumnIndexes = new HashSet<Integer>();
         int[] types = new int[columnCount];
@@ -414,113 +431,117 @@ public final class CommonUiUtils {
                     default:
                         break;
                 }
-                Column column = grid.addColumn(columnName, typeClass).setHeaderCaption(columnName).setHidable(true);
-                if (typeClass.equals(Long.class)) {
-                    column.setConverter(new StringToLongConverter() {
-                        private static final long serialVersionUID = 1L;
-
-                        @Override
-                        public String convertToPresentation(Long value, Class<? extends String> targetType, Locale locale)
-                                throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
-                            if (value == null) {
-                                return NULL_TEXT;
-                            } else {
-                                return value.toString();
-                            }
-                        }
-                    });
-                } else if (typeClass.equals(BigDecimal.class)) {
-                    column.setConverter(new StringToBigDecimalConverter() {
-                        private static final long serialVersionUID = 1L;
-
-                        @Override
-                        public String convertToPresentation(BigDecimal value, Class<? extends String> targetType, Locale locale)
-                                throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
-                            if (value == null) {
-                                return NULL_TEXT;
-                            } else {
-                                return value.toString();
-                            }
-                        }
-                    });
-                } else {
-                	column.setConverter(new Converter<String, Object>() {
-						private static final long serialVersionUID = 1L;
-
-						@Override
-						public Object convertToModel(String value, Class<? extends Object> targetType, Locale locale)
-								throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
-							return null;
-						}
-
-						@Override
-						public String convertToPresentation(Object value, Class<? extends String> targetType, Locale locale)
-								throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
-							if (value == null) {
-								return NULL_TEXT;
-							} else {
-								return value.toString();
-							}
-						}
-
-						@Override
-						public Class<Object> getModelType() {
-							return Object.class;
-						}
-
-						@Override
-						public Class<String> getPresentationType() {
-							return String.class;
-						}
-                		
-                	});
-                }
+                columnTypes.put(columnName, typeClass);
             } else {
                 skipColumnIndexes.add(i - 1);
             }
 
         }
-        int rowNumber = 1;
-        while (rs.next() && rowNumber <= maxResultSize) {
-            Object[] row = new Object[columnNames.size() + 1];
-            row[0] = new Integer(rowNumber);
-            int rowIndex = 1;
-            for (int i = 0; i < columnCount; i++) {
-                if (!skipColumnIndexes.contains(i)) {
-                    Object o = getObject(rs, i + 1);
-                    int type = types[i];
-                    switch (type) {
-                        case Types.FLOAT:
-                        case Types.DOUBLE:
-                        case Types.REAL:
-                        case Types.NUMERIC:
-                        case Types.DECIMAL:
-                            if (o != null && !(o instanceof BigDecimal)) {
-                                o = new BigDecimal(castToNumber(o.toString()));
-                            }
-                            break;
-                        case Types.TINYINT:
-                        case Types.SMALLINT:
-                        case Types.BIGINT:
-                        case Types.INTEGER:
-                            if (o != null && !(o instanceof Long)) {
-                                o = new Long(castToNumber(o.toString()));
-                            }
-                            break;
-                        default:
-                            break;
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        boolean moreRows = rs.next();
+        while (moreRows && rows.size() < maxResultSize) {
+            rows.add(getRowValues(rs, rows.size() + 1, types, skipColumnIndexes));
+            moreRows = rs.next();
+        }
+
+        Container.Indexed container = null;
+        if (moreRows && platform != null && isQuery(sql)) {
+            container = new PagedResultContainer(platform, sql, columnTypes, types, skipColumnIndexes, rows, maxResultSize);
+        }
+
+        if (container == null) {
+            IndexedContainer indexedContainer = new IndexedContainer();
+            for (Map.Entry<String, Class<?>> entry : columnTypes.entrySet()) {
+                indexedContainer.addContainerProperty(entry.getKey(), entry.getValue(), null);
+            }
+            container = indexedContainer;
+        }
+
+        final Grid grid = new Grid(container);
+        grid.setSelectionMode(SelectionMode.MULTI);
+        grid.setColumnReorderingAllowed(true);
+        grid.setData(new HashMap<Object, List<Object>>());
+
+        for (Map.Entry<String, Class<?>> entry : columnTypes.entrySet()) {
+            String columnName = entry.getKey();
+            Class<?> typeClass = entry.getValue();
+            Column column = grid.getColumn(columnName).setHeaderCaption(columnName).setHidable(true);
+            if (columnName.equals("#")) {
+                continue;
+            }
+            if (typeClass.equals(Long.class)) {
+                column.setConverter(new StringToLongConverter() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public String convertToPresentation(Long value, Class<? extends String> targetType, Locale locale)
+                            throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
+                        if (value == null) {
+                            return NULL_TEXT;
+                        } else {
+                            return value.toString();
+                        }
                     }
-                    row[rowIndex] = o;
-                    rowIndex++;
-                }
+                });
+            } else if (typeClass.equals(BigDecimal.class)) {
+                column.setConverter(new StringToBigDecimalConverter() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public String convertToPresentation(BigDecimal value, Class<? extends String> targetType, Locale locale)
+                            throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
+                        if (value == null) {
+                            return NULL_TEXT;
+                        } else {
+                            return value.toString();
+                        }
+                    }
+                });
+            } else {
+                column.setConverter(new Converter<String, Object>() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Object convertToModel(String value, Class<? extends Object> targetType, Locale locale)
+                            throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
+                        return null;
+                    }
+
+                    @Override
+                    public String convertToPresentation(Object value, Class<? extends String> targetType, Locale locale)
+                            throws com.vaadin.v7.data.util.converter.Converter.ConversionException {
+                        if (value == null) {
+                            return NULL_TEXT;
+                        } else {
+                            return value.toString();
+                        }
+                    }
+
+                    @Override
+                    public Class<Object> getModelType() {
+                        return Object.class;
+                    }
+
+                    @Override
+                    public Class<String> getPresentationType() {
+                        return String.class;
+                    }
+
+                });
+            }
+        }
+
+        if (container instanceof IndexedContainer) {
+            for (Object[] row : rows) {
+                grid.addRow(row);
             }
-            grid.addRow(row);
-            rowNumber++;
         }
 
-        if (rowNumber < 100) {
+        int rowCount = container.size();
+        if (rowCount < 100) {
             grid.getColumn("#").setWidth(75);
-        } else if (rowNumber < 1000) {
+        } else if (rowCount < 1000) {
             grid.getColumn("#").setWidth(95);
         } else {
             grid.getColumn("#").setWidth(115);
@@ -532,11 +553,49 @@ public final class CommonUiUtils {
             grid.setFrozenColumnCount(1);
         }
 
-        
-        
         return grid;
     }
 
+    /**
+     * Reads the current row of a result set as a grid row, with the row number
+     * first and the values converted to the types of their grid columns.
+     */
+    public static Object[] getRowValues(ResultSet rs, int rowNumber, int[] types, Set<Integer> skipColumnIndexes) throws SQLException {
+        Object[] row = new Object[types.length - skipColumnIndexes.size() + 1];
+        row[0] = new Integer(rowNumber);
+        int rowIndex = 1;
+        for (int i = 0; i < types.length; i++) {
+            if (!skipColumnIndexes.contains(i)) {
+                Object o = getObject(rs, i + 1);
+                int type = types[i];
+                switch (type) {
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                    case Types.REAL:
+                    case Types.NUMERIC:
+                    case Types.DECIMAL:
+                        if (o != null && !(o instanceof BigDecimal)) {
+                            o = new BigDecimal(castToNumber(o.toString()));
+                        }
+                        break;
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.BIGINT:
+                    case Types.INTEGER:
+                        if (o != null && !(o instanceof Long)) {
+                            o = new Long(castToNumber(o.toString()));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                row[rowIndex] = o;
+                rowIndex++;
+            }
+        }
+        return row;
+    }
+
     protected static String castToNumber(String value) {
         if ("NO".equalsIgnoreCase(value) || "FALSE".equalsIgnoreCase(value)) {
             return "0";
@@ -1,8 +1,11 @@
 package org.jumpmind.vaadin.ui.common;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Iterator;
 
 import org.slf4j.Logger;
@@ -16,7 +19,6 @@ public class CsvExport {
     protected String fileName;
     protected String title;
 
-    protected StringBuffer cellData;
     protected final String csvMimeContentType = "text/csv";
 
     final Logger log = LoggerFactory.getLogger(getClass());
@@ -46,7 +48,6 @@ public class CsvExport {
         } else {
             this.title = title;
         }
-        this.cellData = new StringBuffer();
     }
 
     public void setFileName(String fileName) {
@@ -58,13 +59,39 @@ public class CsvExport {
     }
 
     public void export() {
-        convertToCsv();
-        sendCsvToUser();
+        File file = null;
+        Writer writer = null;
+        try {
+            String prefix = fileName.substring(0, fileName.length() - 4);
+            file = File.createTempFile(prefix, ".csv");
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+            convertToCsv(writer);
+            writer.close();
+            writer = null;
+            sendCsvToUser(file);
+        } catch (Exception e) {
+            log.error("", e);
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                log.error("Problem closing File Stream", e);
+            }
+            if (file != null) {
+                file.delete();
+            }
+        }
     }
 
-    public void convertToCsv() {
-        addTitle();
-        addHeaders();
+    /**
+     * Writes the rows as they are read from the data provider so that large
+     * exports are not held in memory.
+     */
+    public void convertToCsv(Writer writer) throws IOException {
+        addTitle(writer);
+        addHeaders(writer);
         Iterator<?> iterator = gridData.getRowItems().iterator();
         while (iterator.hasNext()) {
             Object rowItem = iterator.next();
@@ -73,56 +100,38 @@ public class CsvExport {
                 Object col = columnIterator.next();
                 String value = String.valueOf(gridData.getCellValue(rowItem, col));
                 if (columnIterator.hasNext()) {
-                    cellData.append(value + ",");
+                    writer.write(value + ",");
                 } else {
-                    cellData.append(value + "\n");
+                    writer.write(value + "\n");
                 }
             }
         }
     }
 
-    public void addTitle() {
+    public void addTitle(Writer writer) throws IOException {
         if (this.title != null && !this.title.equals("")) {
-            cellData.append(title + ",\n");
+            writer.write(title + ",\n");
         }
     }
 
-    public void addHeaders() {
+    public void addHeaders(Writer writer) throws IOException {
         if (gridData.isHeaderVisible()) {
             Iterator<?> iterator = gridData.getColumns().iterator();
             while (iterator.hasNext()) {
                 Object col = iterator.next();
                 String value = gridData.getHeaderValue(col);
                 if (iterator.hasNext()) {
-                    cellData.append(value + ",");
+                    writer.write(value + ",");
                 } else {
-                    cellData.append(value + "\n");
+                    writer.write(value + "\n");
                 }
             }
         }
     }
 
     @SuppressWarnings("deprecation")
-    public void sendCsvToUser() {
-        FileOutputStream outStream = null;
-        File file = null;
-        try {
-            String prefix = fileName.substring(0, fileName.length() - 4);
-            file = File.createTempFile(prefix, ".csv");
-            outStream = new FileOutputStream(file);
-            outStream.write(cellData.toString().getBytes());
-
-            ExportFileDownloader downloader = new ExportFileDownloader(fileName, csvMimeContentType, file);
-            UI.getCurrent().getPage().open(downloader, "Download", false);
-        } catch (Exception e) {
-            log.error("", e);
-        } finally {
-            try {
-                file.delete();
-                outStream.close();
-            } catch (IOException e) {
-                log.error("Problem closing File Stream", e);
-            }
-        }
+    public void sendCsvToUser(File file) throws IOException {
+        ExportFileDownloader downloader = new ExportFileDownloader(fileName, csvMimeContentType, file);
+        UI.getCurrent().getPage().open(downloader, "Download", false);
     }
-}
\ No newline at end of file
+}
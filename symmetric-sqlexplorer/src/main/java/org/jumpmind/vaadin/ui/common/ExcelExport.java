@@ -4,22 +4,24 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.sql.Date;
+import java.math.BigInteger;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
-import org.apache.poi.hssf.usermodel.HSSFCellStyle;
-import org.apache.poi.hssf.usermodel.HSSFFont;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.hssf.util.HSSFColor;
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,7 +31,7 @@ public class ExcelExport {
 
     protected IDataProvider gridData = null;
 
-    protected final HSSFWorkbook workbook;
+    protected final Workbook workbook;
     protected Sheet sheet;
 
     protected String sheetName;
@@ -38,37 +40,44 @@ public class ExcelExport {
 
     protected final String excelMimeContentType = "application/vnd.ms-excel";
 
+    protected final String excelXmlMimeContentType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    /**
+     * Excel keeps numbers as doubles and shows at most 15 significant digits
+     */
+    protected static final int MAX_NUMERIC_PRECISION = 15;
+
     final Logger log = LoggerFactory.getLogger(getClass());
 
     public ExcelExport(final IDataProvider gridData) {
-        this(gridData, new HSSFWorkbook(), null, null);
+        this(gridData, new SXSSFWorkbook(), null, null);
     }
 
     public ExcelExport(final IDataProvider gridData, String sheetName) {
-        this(gridData, new HSSFWorkbook(), sheetName, null);
+        this(gridData, new SXSSFWorkbook(), sheetName, null);
     }
 
     public ExcelExport(final IDataProvider gridData, String sheetName, String title) {
-        this(gridData, new HSSFWorkbook(), sheetName, title, null);
+        this(gridData, new SXSSFWorkbook(), sheetName, title, null);
     }
 
     public ExcelExport(final IDataProvider gridData, String sheetName, String title, String fileName) {
-        this(gridData, new HSSFWorkbook(), sheetName, title, fileName);
+        this(gridData, new SXSSFWorkbook(), sheetName, title, fileName);
     }
 
-    public ExcelExport(final IDataProvider gridData, HSSFWorkbook wkbk) {
+    public ExcelExport(final IDataProvider gridData, Workbook wkbk) {
         this(gridData, wkbk, null, null, null);
     }
 
-    public ExcelExport(final IDataProvider gridData, HSSFWorkbook wkbk, String sheetName) {
+    public ExcelExport(final IDataProvider gridData, Workbook wkbk, String sheetName) {
         this(gridData, wkbk, sheetName, null, null);
     }
 
-    public ExcelExport(final IDataProvider gridData, HSSFWorkbook wkbk, String sheetName, String title) {
+    public ExcelExport(final IDataProvider gridData, Workbook wkbk, String sheetName, String title) {
         this(gridData, wkbk, sheetName, title, null);
     }
 
-    public ExcelExport(final IDataProvider gridData, HSSFWorkbook wkbk, String sheetName, String title, String fileName) {
+    public ExcelExport(final IDataProvider gridData, Workbook wkbk, String sheetName, String title, String fileName) {
         this.gridData = gridData;
         this.title = title;
         this.workbook = wkbk;
@@ -82,8 +91,9 @@ public class ExcelExport {
             this.sheetName = sheetName;
         }
 
-        if (fileName == null || fileName.isEmpty() || !fileName.endsWith(".xls")) {
-            this.fileName = "GridExport.xls";
+        String extension = getExtension();
+        if (fileName == null || fileName.isEmpty() || !fileName.endsWith(extension)) {
+            this.fileName = "GridExport" + extension;
         } else {
             this.fileName = fileName;
         }
@@ -97,6 +107,10 @@ public class ExcelExport {
         this.sheet = workbook.createSheet(this.sheetName);
     }
 
+    protected String getExtension() {
+        return workbook instanceof HSSFWorkbook ? ".xls" : ".xlsx";
+    }
+
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
@@ -118,29 +132,30 @@ public class ExcelExport {
 
         int rowNum = addTitle();
         rowNum = addHeaders(rowNum);
+        int maxRows = workbook.getSpreadsheetVersion().getMaxRows();
+        CellStyle style = createDefaultStyle();
         Iterator<?> iterator = gridData.getRowItems().iterator();
         while (iterator.hasNext()) {
+            if (rowNum >= maxRows) {
+                log.warn("Stopped the export of {} at the spreadsheet limit of {} rows", fileName, maxRows);
+                break;
+            }
             Object rowItem = iterator.next();
             Row row = sheet.createRow(rowNum++);
-            CellStyle style = createDefaultStyle();
             int colCount = 0;
             List<?> columns = gridData.getColumns();
             for (Object col : columns) {
                 Cell cell = row.createCell(colCount++);
                 Object value = gridData.getCellValue(rowItem, col);
 
-                if (value instanceof Integer) {
-                    cell.setCellValue((Integer) value);
-                } else if (value instanceof Long) {
-                    cell.setCellValue((Long) value);
-                } else if (value instanceof Double || value instanceof BigDecimal) {
-                    cell.setCellValue((Double) value);
+                if (value instanceof Number) {
+                    setNumericCellValue(cell, (Number) value);
                 } else if (value instanceof Boolean) {
                     cell.setCellValue((Boolean) value);
                 } else if (value instanceof Date) {
                     cell.setCellValue((Date) value);
-                } else {
-                    cell.setCellValue((String) value);
+                } else if (value != null) {
+                    cell.setCellValue(value.toString());
                 }
                 cell.setCellStyle(style);
             }
@@ -148,6 +163,26 @@ public class ExcelExport {
 
     }
 
+    /**
+     * Writes BIGINT and DECIMAL values that would lose digits as a double as
+     * text, so the exported value matches the value in the database.
+     */
+    protected void setNumericCellValue(Cell cell, Number value) {
+        BigDecimal decimal = null;
+        if (value instanceof BigDecimal) {
+            decimal = (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            decimal = new BigDecimal((BigInteger) value);
+        } else if (value instanceof Long) {
+            decimal = BigDecimal.valueOf((Long) value);
+        }
+        if (decimal != null && decimal.signum() != 0 && decimal.stripTrailingZeros().precision() > MAX_NUMERIC_PRECISION) {
+            cell.setCellValue(decimal.toPlainString());
+        } else {
+            cell.setCellValue(value.doubleValue());
+        }
+    }
+
     public int addHeaders(int lastIndex) {
         if (gridData.isHeaderVisible()) {
             Row row = sheet.createRow(lastIndex++);
@@ -165,9 +200,9 @@ public class ExcelExport {
         return lastIndex;
     }
 
-    public HSSFCellStyle createHeaderStyle() {
-        HSSFCellStyle style = workbook.createCellStyle();
-        final HSSFFont font = workbook.createFont();
+    public CellStyle createHeaderStyle() {
+        CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
         font.setBold(true);
         style.setFont(font);
         style.setBorderBottom(BorderStyle.THIN);
@@ -178,9 +213,9 @@ public class ExcelExport {
         return style;
     }
     
-    public HSSFCellStyle createTitleStyle() {
-        HSSFCellStyle style = workbook.createCellStyle();
-        final HSSFFont font = workbook.createFont();
+    public CellStyle createTitleStyle() {
+        CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
         font.setBold(true);
         style.setFont(font);
         style.setBorderBottom(BorderStyle.THICK);
@@ -188,9 +223,9 @@ public class ExcelExport {
         return style;
     }
 
-    public HSSFCellStyle createDefaultStyle() {
-        HSSFCellStyle style = workbook.createCellStyle();
-        HSSFFont font = workbook.createFont();
+    public CellStyle createDefaultStyle() {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
         style.setFont(font);
         style.setVerticalAlignment(VerticalAlignment.CENTER);
         style.setAlignment(HorizontalAlignment.CENTER);
@@ -214,12 +249,13 @@ public class ExcelExport {
         FileOutputStream outStream = null;
         File file = null;
         try {
-            String prefix = fileName.substring(0, fileName.length() - 4);
-            file = File.createTempFile(prefix, ".xls");
+            String prefix = fileName.substring(0, fileName.lastIndexOf('.'));
+            file = File.createTempFile(prefix, getExtension());
             outStream = new FileOutputStream(file);
             workbook.write(outStream);
 
-            ExportFileDownloader downloader = new ExportFileDownloader(fileName, excelMimeContentType, file);
+            ExportFileDownloader downloader = new ExportFileDownloader(fileName,
+                    workbook instanceof HSSFWorkbook ? excelMimeContentType : excelXmlMimeContentType, file);
             UI.getCurrent().getPage().open(downloader, "Download", false);
         } catch (Exception e) {
             log.error("", e);
@@ -230,6 +266,9 @@ public class ExcelExport {
             } catch (IOException e) {
                 log.error("Problem closing File Stream", e);
             }
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
         }
 
     }
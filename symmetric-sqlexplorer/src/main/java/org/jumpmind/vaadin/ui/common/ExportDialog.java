@@ -131,7 +131,7 @@ public class ExportDialog extends ResizableWindow {
         ExcelExport excelExport = null;
         if (target instanceof IDataProvider) {
             excelExport = new ExcelExport((IDataProvider) target);
-            excelExport.setFileName(filePrefix + "-export.xls");
+            excelExport.setFileName(filePrefix + "-export.xlsx");
             excelExport.setTitle(reportTitle);
             excelExport.export();
         }
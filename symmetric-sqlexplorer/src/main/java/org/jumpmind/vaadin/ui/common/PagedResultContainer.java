@@ -0,0 +1,584 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.vaadin.ui.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.sql.DataSource;
+
+import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.JdbcSqlTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.v7.data.Container;
+import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.Property;
+import com.vaadin.v7.data.util.AbstractContainer;
+import com.vaadin.v7.data.util.ObjectProperty;
+import com.vaadin.v7.data.util.PropertysetItem;
+
+/**
+ * A read only grid container for query results that are too large to hold in
+ * memory. The first page is the rows that were already read from the result
+ * set, and the rest are read a page at a time as the grid asks for them.
+ * <p>
+ * Pages are read forward from one cursor, so scrolling down reads each row
+ * once and the rows come from a single execution of the query. The cursor is
+ * closed and its connection returned to the pool once it has not been read for
+ * {@link #CURSOR_IDLE_TIMEOUT_MS}, when the last row has been read, or when the
+ * container is closed. A page before the cursor's position that is no longer
+ * cached, or any page after the cursor was closed, runs the query again and
+ * skips to the page, because an arbitrary query has no key that it could be
+ * restarted from and there is no portable offset. Unless the query has an
+ * order by on a unique key, the rows of a page read that way can differ from
+ * the rows first shown at that position. Only the last few pages are kept.
+ * <p>
+ * The rows are not counted up front. The size is one page more than the rows
+ * known to exist, and grows as the grid is scrolled until a page comes back
+ * short.
+ */
+public class PagedResultContainer extends AbstractContainer implements Container.Indexed, Container.ItemSetChangeNotifier {
+
+    private static final long serialVersionUID = 1L;
+
+    final static Logger log = LoggerFactory.getLogger(PagedResultContainer.class);
+
+    protected static final int MAX_CACHED_PAGES = 10;
+
+    protected static final long CURSOR_IDLE_TIMEOUT_MS = 60000;
+
+    protected static final Timer cursorIdleTimer = new Timer("sql-explorer-cursor-idle", true);
+
+    protected transient IDatabasePlatform platform;
+
+    protected String sql;
+
+    protected List<Object> propertyIds;
+
+    protected Map<Object, Class<?>> propertyTypes;
+
+    protected int[] types;
+
+    protected Set<Integer> skipColumnIndexes;
+
+    protected int pageSize;
+
+    protected int size;
+
+    protected boolean sizeKnown;
+
+    protected Map<Integer, Item> cachedItems;
+
+    protected transient Set<RowIterator> openIterators = Collections.synchronizedSet(new HashSet<RowIterator>());
+
+    protected transient Connection cursorConnection;
+
+    protected transient PreparedStatement cursorStatement;
+
+    protected transient ResultSet cursor;
+
+    /* The number of rows handed out from the cursor */
+    protected transient int cursorPosition;
+
+    /* The row after the cursor position, read to tell whether there is another page */
+    protected transient Object[] cursorNextRow;
+
+    protected transient TimerTask cursorIdleTask;
+
+    public PagedResultContainer(IDatabasePlatform platform, String sql, Map<String, Class<?>> columnTypes, int[] types,
+            Set<Integer> skipColumnIndexes, List<Object[]> firstPage, int pageSize) {
+        this.platform = platform;
+        this.sql = sql;
+        this.types = types;
+        this.skipColumnIndexes = skipColumnIndexes;
+        this.pageSize = Math.max(pageSize, 1);
+        this.propertyIds = new ArrayList<Object>(columnTypes.keySet());
+        this.propertyTypes = new LinkedHashMap<Object, Class<?>>(columnTypes);
+        final int maxCachedItems = this.pageSize * MAX_CACHED_PAGES;
+        this.cachedItems = new LinkedHashMap<Integer, Item>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Item> eldest) {
+                return size() > maxCachedItems;
+            }
+        };
+
+        this.size = firstPage.size() + this.pageSize;
+        for (Object[] row : firstPage) {
+            cachedItems.put((Integer) row[0], createItem(row));
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getPropertyIds() {
+        return Collections.unmodifiableList(propertyIds);
+    }
+
+    /**
+     * Reads all of the rows of the query again, one at a time, on a new
+     * cursor that is closed once the last row has been read or the container
+     * is closed.
+     */
+    public Iterator<Object[]> iterateRows() {
+        return new RowIterator();
+    }
+
+    /**
+     * Closes the cursor the pages are read from and stops any export that is
+     * still reading the rows.
+     */
+    public void close() {
+        closeCursor();
+        List<RowIterator> iterators = null;
+        synchronized (openIterators) {
+            iterators = new ArrayList<RowIterator>(openIterators);
+        }
+        for (RowIterator iterator : iterators) {
+            iterator.finish();
+        }
+    }
+
+    protected Connection openConnection() throws SQLException {
+        Connection connection = ((DataSource) platform.getDataSource()).getConnection();
+        if (((JdbcSqlTemplate) platform.getSqlTemplate()).isRequiresAutoCommitFalseToSetFetchSize()) {
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    protected void closeConnection(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+            }
+            JdbcSqlTemplate.close(connection);
+        }
+    }
+
+    protected PreparedStatement prepareStatement(Connection connection, int maxRows) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (DatabaseNamesConstants.MYSQL.equals(platform.getName())) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            statement.setFetchSize(maxRows > 0 && maxRows < 100 ? maxRows : 100);
+        }
+        if (maxRows > 0) {
+            statement.setMaxRows(maxRows);
+        }
+        return statement;
+    }
+
+    protected void fetchPage(int index) {
+        int start = (index / pageSize) * pageSize;
+        int end = start + pageSize;
+        int rowCount = 0;
+        boolean moreRows = false;
+        synchronized (this) {
+            try {
+                if (cursor == null || cursorPosition > start) {
+                    closeCursor();
+                    openCursor();
+                }
+                while (cursorPosition < start && nextRow(false) != null) {
+                }
+                Object[] row = null;
+                while (cursorPosition < end && (row = nextRow(true)) != null) {
+                    cachedItems.put(cursorPosition, createItem(row));
+                }
+                rowCount = cursorPosition;
+                if (rowCount == end) {
+                    cursorNextRow = nextRow(true);
+                    if (cursorNextRow != null) {
+                        cursorPosition--;
+                        moreRows = true;
+                    }
+                }
+            } catch (SQLException ex) {
+                closeCursor();
+                log.error(ex.getMessage(), ex);
+                CommonUiUtils.notify(ex);
+                return;
+            }
+            if (moreRows) {
+                scheduleCursorIdleTimeout();
+            } else {
+                closeCursor();
+            }
+        }
+
+        int newSize = size;
+        if (moreRows) {
+            if (!sizeKnown) {
+                newSize = Math.max(size, end + pageSize);
+            }
+        } else {
+            newSize = rowCount;
+            sizeKnown = true;
+        }
+        if (newSize != size) {
+            size = newSize;
+            fireItemSetChange();
+        }
+    }
+
+    protected void openCursor() throws SQLException {
+        cursorConnection = openConnection();
+        cursorStatement = prepareStatement(cursorConnection, 0);
+        cursor = cursorStatement.executeQuery();
+        cursorPosition = 0;
+    }
+
+    /**
+     * Moves the cursor forward a row.
+     * 
+     * @param read
+     *            whether the values of the row are needed or the row is being
+     *            skipped
+     * @return the row, an empty row when it is skipped, or null at the end of
+     *         the results
+     */
+    protected Object[] nextRow(boolean read) throws SQLException {
+        Object[] row = cursorNextRow;
+        cursorNextRow = null;
+        if (row == null) {
+            if (!cursor.next()) {
+                return null;
+            }
+            row = read ? CommonUiUtils.getRowValues(cursor, cursorPosition + 1, types, skipColumnIndexes) : new Object[0];
+        }
+        cursorPosition++;
+        return row;
+    }
+
+    protected synchronized void scheduleCursorIdleTimeout() {
+        if (cursorIdleTask != null) {
+            cursorIdleTask.cancel();
+        }
+        cursorIdleTask = new TimerTask() {
+            @Override
+            public void run() {
+                synchronized (PagedResultContainer.this) {
+                    if (cursorIdleTask == this) {
+                        closeCursor();
+                    }
+                }
+            }
+        };
+        cursorIdleTimer.schedule(cursorIdleTask, CURSOR_IDLE_TIMEOUT_MS);
+    }
+
+    protected synchronized void closeCursor() {
+        if (cursorIdleTask != null) {
+            cursorIdleTask.cancel();
+            cursorIdleTask = null;
+            cursorIdleTimer.purge();
+        }
+        JdbcSqlTemplate.close(cursor);
+        JdbcSqlTemplate.close(cursorStatement);
+        closeConnection(cursorConnection);
+        cursor = null;
+        cursorStatement = null;
+        cursorConnection = null;
+        cursorNextRow = null;
+        cursorPosition = 0;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected Item createItem(Object[] row) {
+        PropertysetItem item = new PropertysetItem();
+        for (int i = 0; i < propertyIds.size(); i++) {
+            Object propertyId = propertyIds.get(i);
+            item.addItemProperty(propertyId, new ObjectProperty(row[i], propertyTypes.get(propertyId)));
+        }
+        return item;
+    }
+
+    @Override
+    public Item getItem(Object itemId) {
+        if (!containsId(itemId)) {
+            return null;
+        }
+        Item item = cachedItems.get(itemId);
+        if (item == null) {
+            fetchPage(indexOfId(itemId));
+            item = cachedItems.get(itemId);
+        }
+        return item;
+    }
+
+    @Override
+    public List<?> getItemIds(int startIndex, int numberOfItems) {
+        int end = startIndex + numberOfItems;
+        List<Integer> itemIds = new ArrayList<Integer>(Math.max(Math.min(end, size) - startIndex, 0));
+        int fetchedPage = -1;
+        /* The size changes when a page finds the end of the results */
+        for (int index = startIndex; index < end && index < size; index++) {
+            if (!cachedItems.containsKey(index + 1) && index / pageSize != fetchedPage) {
+                fetchPage(index);
+                fetchedPage = index / pageSize;
+            }
+            itemIds.add(index + 1);
+        }
+        return itemIds;
+    }
+
+    @Override
+    public Collection<?> getItemIds() {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return index + 1;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return getPropertyIds();
+    }
+
+    @Override
+    public Property<?> getContainerProperty(Object itemId, Object propertyId) {
+        Item item = getItem(itemId);
+        return item != null ? item.getItemProperty(propertyId) : null;
+    }
+
+    @Override
+    public Class<?> getType(Object propertyId) {
+        return propertyTypes.get(propertyId);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsId(Object itemId) {
+        return itemId instanceof Integer && (Integer) itemId >= 1 && (Integer) itemId <= size;
+    }
+
+    @Override
+    public int indexOfId(Object itemId) {
+        return containsId(itemId) ? (Integer) itemId - 1 : -1;
+    }
+
+    @Override
+    public Object getIdByIndex(int index) {
+        return index >= 0 && index < size ? new Integer(index + 1) : null;
+    }
+
+    @Override
+    public Object nextItemId(Object itemId) {
+        return containsId(itemId) && (Integer) itemId < size ? new Integer((Integer) itemId + 1) : null;
+    }
+
+    @Override
+    public Object prevItemId(Object itemId) {
+        return containsId(itemId) && (Integer) itemId > 1 ? new Integer((Integer) itemId - 1) : null;
+    }
+
+    @Override
+    public Object firstItemId() {
+        return size > 0 ? new Integer(1) : null;
+    }
+
+    @Override
+    public Object lastItemId() {
+        return size > 0 ? new Integer(size) : null;
+    }
+
+    @Override
+    public boolean isFirstId(Object itemId) {
+        return size > 0 && new Integer(1).equals(itemId);
+    }
+
+    @Override
+    public boolean isLastId(Object itemId) {
+        return size > 0 && new Integer(size).equals(itemId);
+    }
+
+    @Override
+    public void addItemSetChangeListener(Container.ItemSetChangeListener listener) {
+        super.addItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void addListener(Container.ItemSetChangeListener listener) {
+        super.addListener(listener);
+    }
+
+    @Override
+    public void removeItemSetChangeListener(Container.ItemSetChangeListener listener) {
+        super.removeItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void removeListener(Container.ItemSetChangeListener listener) {
+        super.removeListener(listener);
+    }
+
+    @Override
+    public Item addItem(Object itemId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public Object addItem() {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public Object addItemAfter(Object previousItemId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public Item addItemAfter(Object previousItemId, Object newItemId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public Object addItemAt(int index) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public Item addItemAt(int index, Object newItemId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public boolean removeItem(Object itemId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public boolean removeAllItems() {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public boolean addContainerProperty(Object propertyId, Class<?> type, Object defaultValue) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    @Override
+    public boolean removeContainerProperty(Object propertyId) {
+        throw new UnsupportedOperationException("Paged results are read only");
+    }
+
+    class RowIterator implements Iterator<Object[]> {
+
+        Connection rowConnection;
+
+        PreparedStatement rowStatement;
+
+        ResultSet rows;
+
+        Object[] nextRow;
+
+        int rowNumber;
+
+        boolean done;
+
+        @Override
+        public boolean hasNext() {
+            if (nextRow == null && !done) {
+                try {
+                    if (rows == null) {
+                        openIterators.add(this);
+                        rowConnection = openConnection();
+                        rowStatement = prepareStatement(rowConnection, 0);
+                        rows = rowStatement.executeQuery();
+                    }
+                    if (rows.next()) {
+                        nextRow = CommonUiUtils.getRowValues(rows, ++rowNumber, types, skipColumnIndexes);
+                    } else {
+                        finish();
+                    }
+                } catch (SQLException ex) {
+                    finish();
+                    throw new RuntimeException(ex);
+                }
+            }
+            return nextRow != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = nextRow;
+            nextRow = null;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        protected void finish() {
+            done = true;
+            nextRow = null;
+            openIterators.remove(this);
+            JdbcSqlTemplate.close(rows);
+            JdbcSqlTemplate.close(rowStatement);
+            closeConnection(rowConnection);
+            rows = null;
+            rowStatement = null;
+            rowConnection = null;
+        }
+    }
+
+}
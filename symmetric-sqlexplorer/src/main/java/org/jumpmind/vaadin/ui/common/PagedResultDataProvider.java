@@ -0,0 +1,48 @@
+package org.jumpmind.vaadin.ui.common;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.vaadin.v7.ui.Grid;
+import com.vaadin.v7.ui.Grid.Column;
+
+/**
+ * Exports every row of a grid whose results are paged by a
+ * {@link PagedResultContainer}, reading the rows from the database while they
+ * are exported instead of from the grid.
+ */
+public class PagedResultDataProvider extends Grid7DataProvider {
+
+    private PagedResultContainer container;
+
+    public PagedResultDataProvider(Grid grid) {
+        super(grid);
+        this.container = (PagedResultContainer) grid.getContainerDataSource();
+    }
+
+    @Override
+    public Collection<?> getRowItems() {
+        return new AbstractCollection<Object[]>() {
+            @Override
+            public Iterator<Object[]> iterator() {
+                return container.iterateRows();
+            }
+
+            @Override
+            public int size() {
+                return container.size();
+            }
+        };
+    }
+
+    @Override
+    public Object getCellValue(Object item, Object column) {
+        if (item instanceof Object[] && column instanceof Column) {
+            int index = container.getPropertyIds().indexOf(((Column) column).getPropertyId());
+            return index >= 0 ? ((Object[]) item)[index] : null;
+        }
+        return super.getCellValue(item, column);
+    }
+
+}
@@ -57,6 +57,8 @@ import org.jumpmind.vaadin.ui.common.CommonUiUtils;
 import org.jumpmind.vaadin.ui.common.ExportDialog;
 import org.jumpmind.vaadin.ui.common.Grid7DataProvider;
 import org.jumpmind.vaadin.ui.common.NotifyDialog;
+import org.jumpmind.vaadin.ui.common.PagedResultContainer;
+import org.jumpmind.vaadin.ui.common.PagedResultDataProvider;
 import org.jumpmind.vaadin.ui.common.ReadOnlyTextAreaDialog;
 import org.jumpmind.vaadin.ui.sqlexplorer.SqlRunner.ISqlRunnerListener;
 import org.slf4j.Logger;
@@ -289,7 +291,9 @@ public class TabularResultLayout extends VerticalLayout {
 
             int count = (grid.getContainerDataSource().getItemIds().size());
             int maxResultsSize = settings.getProperties().getInt(SQL_EXPLORER_MAX_RESULTS);
-            if (count >= maxResultsSize) {
+            if (grid.getContainerDataSource() instanceof PagedResultContainer) {
+                resultLabel.setValue("More than " + maxResultsSize + " rows returned;");
+            } else if (count >= maxResultsSize) {
                 resultLabel.setValue("Limited to <span style='color: red'>" + maxResultsSize + "</span> rows;");
             } else {
                 resultLabel.setValue(count + " rows returned;");
@@ -339,7 +343,11 @@ public class TabularResultLayout extends VerticalLayout {
             
             @Override
             public void menuSelected(MenuBar.MenuItem selectedItem) {
-                new ExportDialog(new Grid7DataProvider(grid), db.getName(), sql).show();
+                if (grid.getContainerDataSource() instanceof PagedResultContainer) {
+                    new ExportDialog(new PagedResultDataProvider(grid), db.getName(), sql).show();
+                } else {
+                    new ExportDialog(new Grid7DataProvider(grid), db.getName(), sql).show();
+                }
             }
         });
         exportButton.setIcon(FontAwesome.UPLOAD);
@@ -741,11 +749,19 @@ public class TabularResultLayout extends VerticalLayout {
         }
 
         TypedProperties properties = settings.getProperties();
-        return CommonUiUtils.putResultsInGrid(rs, resultTable, properties.getInt(SQL_EXPLORER_MAX_RESULTS),
+        return CommonUiUtils.putResultsInGrid(rs, db.getPlatform(), sql, resultTable, properties.getInt(SQL_EXPLORER_MAX_RESULTS),
                 properties.is(SQL_EXPLORER_SHOW_ROW_NUMBERS), getColumnsToExclude());
 
     }
 
+    @Override
+    public void detach() {
+        super.detach();
+        if (grid != null && grid.getContainerDataSource() instanceof PagedResultContainer) {
+            ((PagedResultContainer) grid.getContainerDataSource()).close();
+        }
+    }
+
     protected String[] getColumnsToExclude() {
         return new String[0];
     }
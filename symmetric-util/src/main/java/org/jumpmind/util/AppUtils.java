@@ -252,24 +252,7 @@ public class AppUtils {
             do {
                 entry = is.getNextEntry();
                 if (entry != null) {
-                    if (entry.isDirectory()) {
-                        File dir = new File(toDir, entry.getName());
-                        dir.mkdirs();
-                        dir.setLastModified(entry.getTime());
-                    } else {
-                        File file = new File(toDir, entry.getName());
-                        if (!file.getParentFile().exists()) {
-                            file.getParentFile().mkdirs();
-                            file.getParentFile().setLastModified(entry.getTime());
-                        }
-                        FileOutputStream fos = new FileOutputStream(file);
-                        try {
-                            IOUtils.copy(is, fos);
-                            file.setLastModified(entry.getTime());
-                        } finally {
-                            IOUtils.closeQuietly(fos);
-                        }
-                    }
+                    unzipEntry(is, entry, toDir);
                 }
             } while (entry != null);
         } catch (IOException e) {
@@ -277,6 +260,30 @@ public class AppUtils {
         }
 
     }
+
+    /**
+     * Write the current entry of a zip stream under a directory
+     */
+    public static void unzipEntry(ZipInputStream is, ZipEntry entry, File toDir) throws IOException {
+        if (entry.isDirectory()) {
+            File dir = new File(toDir, entry.getName());
+            dir.mkdirs();
+            dir.setLastModified(entry.getTime());
+        } else {
+            File file = new File(toDir, entry.getName());
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+                file.getParentFile().setLastModified(entry.getTime());
+            }
+            FileOutputStream fos = new FileOutputStream(file);
+            try {
+                IOUtils.copy(is, fos);
+                file.setLastModified(entry.getTime());
+            } finally {
+                IOUtils.closeQuietly(fos);
+            }
+        }
+    }
     
     public static String formatStackTrace(StackTraceElement[] stackTrace) {
         return formatStackTrace(stackTrace, 0, true);